@@ -0,0 +1,175 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.LruCache;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the cost of generating disk cache file names with each
+ * {@link SafeKeyGenerator.Algorithm}, and with the synchronized {@link LruCache} based memo that
+ * {@link SafeKeyGenerator} used previously.
+ *
+ * <p>Results are logged with the {@link #TAG} tag, run with:
+ * {@code ./gradlew :instrumentation:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.bumptech.glide.load.engine.cache.SafeKeyGeneratorBenchmark}
+ */
+@RunWith(AndroidJUnit4.class)
+public class SafeKeyGeneratorBenchmark {
+  private static final String TAG = "SafeKeyBenchmark";
+  private static final int KEY_COUNT = 2000;
+  private static final int WARM_UP_ITERATIONS = 2;
+  private static final int ITERATIONS = 5;
+
+  @Test
+  public void benchmark_uniqueKeys() {
+    // Every lookup misses the memo, so this measures the cost of the digest itself.
+    long sha256 = Long.MAX_VALUE;
+    long murmur = Long.MAX_VALUE;
+    long legacy = Long.MAX_VALUE;
+    for (int i = 0; i < WARM_UP_ITERATIONS + ITERATIONS; i++) {
+      List<Key> keys = newKeys(i * KEY_COUNT);
+      long sha256Time = time(new SafeKeyGenerator(SafeKeyGenerator.Algorithm.SHA_256), keys);
+      long murmurTime = time(new SafeKeyGenerator(SafeKeyGenerator.Algorithm.MURMUR3_128), keys);
+      long legacyTime = time(new LegacySafeKeyGenerator(), keys);
+      if (i >= WARM_UP_ITERATIONS) {
+        sha256 = Math.min(sha256, sha256Time);
+        murmur = Math.min(murmur, murmurTime);
+        legacy = Math.min(legacy, legacyTime);
+      }
+    }
+    log("unique keys", legacy, sha256, murmur);
+  }
+
+  @Test
+  public void benchmark_repeatedKeys() {
+    // Each key is looked up several times, as happens when a cache probe is followed by a write.
+    List<Key> keys = new ArrayList<>();
+    List<Key> unique = newKeys(0);
+    for (int i = 0; i < 4; i++) {
+      keys.addAll(unique.subList(0, KEY_COUNT / 4));
+    }
+
+    long sha256 = Long.MAX_VALUE;
+    long murmur = Long.MAX_VALUE;
+    long legacy = Long.MAX_VALUE;
+    for (int i = 0; i < WARM_UP_ITERATIONS + ITERATIONS; i++) {
+      long sha256Time = time(new SafeKeyGenerator(SafeKeyGenerator.Algorithm.SHA_256), keys);
+      long murmurTime = time(new SafeKeyGenerator(SafeKeyGenerator.Algorithm.MURMUR3_128), keys);
+      long legacyTime = time(new LegacySafeKeyGenerator(), keys);
+      if (i >= WARM_UP_ITERATIONS) {
+        sha256 = Math.min(sha256, sha256Time);
+        murmur = Math.min(murmur, murmurTime);
+        legacy = Math.min(legacy, legacyTime);
+      }
+    }
+    log("repeated keys", legacy, sha256, murmur);
+  }
+
+  private static void log(String name, long legacy, long sha256, long murmur) {
+    assertThat(legacy).isGreaterThan(0L);
+    Log.i(TAG, name + ", " + KEY_COUNT + " lookups"
+        + ", legacy SHA-256: " + toMicros(legacy) + "us"
+        + ", SHA-256: " + toMicros(sha256) + "us"
+        + ", MurmurHash3: " + toMicros(murmur) + "us");
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos / 1000;
+  }
+
+  private static long time(SafeKeyGenerator generator, List<Key> keys) {
+    long startTime = SystemClock.elapsedRealtimeNanos();
+    for (Key key : keys) {
+      generator.getSafeKey(key);
+    }
+    return Math.max(1, SystemClock.elapsedRealtimeNanos() - startTime);
+  }
+
+  private static List<Key> newKeys(int start) {
+    List<Key> result = new ArrayList<>(KEY_COUNT);
+    for (int i = start; i < start + KEY_COUNT; i++) {
+      result.add(new BenchmarkKey("https://www.example.com/images/" + i + ".jpg", i));
+    }
+    return result;
+  }
+
+  /** The synchronized {@link LruCache} memo previously used by {@link SafeKeyGenerator}. */
+  private static final class LegacySafeKeyGenerator extends SafeKeyGenerator {
+    private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
+    private final SafeKeyGenerator delegate = new SafeKeyGenerator();
+
+    LegacySafeKeyGenerator() { }
+
+    @Override
+    public String getSafeKey(Key key) {
+      String safeKey;
+      synchronized (loadIdToSafeHash) {
+        safeKey = loadIdToSafeHash.get(key);
+      }
+      if (safeKey == null) {
+        // Use a new key each time so that the delegate's memo is never hit.
+        safeKey = delegate.getSafeKey(new UnmemoizedKey(key));
+      }
+      synchronized (loadIdToSafeHash) {
+        loadIdToSafeHash.put(key, safeKey);
+      }
+      return safeKey;
+    }
+  }
+
+  private static final class UnmemoizedKey implements Key {
+    private final Key wrapped;
+
+    UnmemoizedKey(Key wrapped) {
+      this.wrapped = wrapped;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      wrapped.updateDiskCacheKey(messageDigest);
+    }
+  }
+
+  /** Writes roughly what a ResourceCacheKey for a url with a width and height would write. */
+  private static final class BenchmarkKey implements Key {
+    private final String url;
+    private final int size;
+
+    BenchmarkKey(String url, int size) {
+      this.url = url;
+      this.size = size;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(url.getBytes(CHARSET));
+      messageDigest.update(ByteBuffer.allocate(8).putInt(size).putInt(size).array());
+      messageDigest.update("android.graphics.Bitmap".getBytes(CHARSET));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof BenchmarkKey) {
+        BenchmarkKey other = (BenchmarkKey) o;
+        return url.equals(other.url) && size == other.size;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * url.hashCode() + size;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.media.ExifInterface;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Counts the {@link Bitmap}s allocated to decode and then fit center or center inside images, with
+ * and without {@link Downsampler#IS_SCALE_ONLY_TRANSFORM}.
+ *
+ * <p>Every {@link Bitmap} is obtained from a {@link BitmapPool} that never re-uses
+ * {@link Bitmap}s, so each one counted is an allocation. Prior to KitKat, {@link Downsampler}
+ * doesn't always decode into {@link Bitmap}s from the pool, so decodes may not be counted.
+ *
+ * <p>Results are logged with the {@link #TAG} tag, run with:
+ * {@code ./gradlew :instrumentation:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.bumptech.glide.load.resource.bitmap.DownsamplerAllocationBenchmark}
+ */
+@RunWith(AndroidJUnit4.class)
+public class DownsamplerAllocationBenchmark {
+  private static final String TAG = "DownsamplerAllocations";
+  private static final int[][] SOURCE_SIZES = new int[][] {
+      { 640, 480 }, { 1337, 1001 }, { 2048, 1536 }, { 3000, 2000 },
+  };
+  private static final int[][] TARGET_SIZES = new int[][] {
+      { 100, 100 }, { 240, 180 }, { 333, 250 }, { 512, 384 }, { 720, 405 }, { 1080, 607 },
+  };
+
+  private final Context context = InstrumentationRegistry.getTargetContext();
+
+  @Test
+  public void benchmark_fitCenter() throws IOException {
+    benchmark("fit center", DownsampleStrategy.FIT_CENTER);
+  }
+
+  @Test
+  public void benchmark_centerInside() throws IOException {
+    benchmark("center inside", DownsampleStrategy.CENTER_INSIDE);
+  }
+
+  private void benchmark(String name, DownsampleStrategy strategy) throws IOException {
+    for (boolean isRotated : new boolean[] { false, true }) {
+      Result before = new Result();
+      Result after = new Result();
+      for (int[] sourceSize : SOURCE_SIZES) {
+        byte[] data = createJpeg(sourceSize[0], sourceSize[1], isRotated);
+        for (int[] targetSize : TARGET_SIZES) {
+          run(before, data, strategy, false /*isScaleOnlyTransform*/, targetSize);
+          run(after, data, strategy, true /*isScaleOnlyTransform*/, targetSize);
+        }
+      }
+      Log.i(TAG, name + (isRotated ? ", rotated" : "")
+          + ", API: " + Build.VERSION.SDK_INT
+          + ", loads: " + before.loads
+          + ", before: " + before
+          + ", after: " + after);
+      assertThat(after.allocations).isAtMost(before.allocations);
+    }
+  }
+
+  private void run(Result result, byte[] data, DownsampleStrategy strategy,
+      boolean isScaleOnlyTransform, int[] targetSize) throws IOException {
+    CountingBitmapPool bitmapPool = new CountingBitmapPool();
+    DisplayMetrics displayMetrics = new DisplayMetrics();
+    // XHDPI.
+    displayMetrics.densityDpi = 320;
+    Downsampler downsampler = new Downsampler(
+        Collections.<ImageHeaderParser>singletonList(new DefaultImageHeaderParser()),
+        displayMetrics, bitmapPool, new LruArrayPool());
+    Options options = new Options()
+        .set(Downsampler.DOWNSAMPLE_STRATEGY, strategy)
+        .set(Downsampler.IS_SCALE_ONLY_TRANSFORM, isScaleOnlyTransform);
+    int width = targetSize[0];
+    int height = targetSize[1];
+
+    long startTime = SystemClock.elapsedRealtimeNanos();
+    Bitmap decoded = downsampler.decode(ByteBuffer.wrap(data), width, height, options).get();
+    Bitmap transformed = strategy == DownsampleStrategy.CENTER_INSIDE
+        ? TransformationUtils.centerInside(bitmapPool, decoded, width, height)
+        : TransformationUtils.fitCenter(bitmapPool, decoded, width, height);
+    result.nanos += SystemClock.elapsedRealtimeNanos() - startTime;
+
+    result.loads++;
+    result.allocations += bitmapPool.allocations;
+    result.allocatedBytes += bitmapPool.allocatedBytes;
+    if (transformed != decoded) {
+      result.transformDraws++;
+      transformed.recycle();
+    }
+    decoded.recycle();
+  }
+
+  private byte[] createJpeg(int width, int height, boolean isRotated) throws IOException {
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint paint = new Paint();
+    paint.setColor(Color.RED);
+    canvas.drawColor(Color.BLUE);
+    canvas.drawCircle(width / 2f, height / 2f, Math.min(width, height) / 3f, paint);
+
+    File file = new File(context.getCacheDir(), "downsampler_allocation_benchmark.jpg");
+    OutputStream os = new FileOutputStream(file);
+    try {
+      bitmap.compress(CompressFormat.JPEG, 90 /*quality*/, os);
+    } finally {
+      os.close();
+      bitmap.recycle();
+    }
+    if (isRotated) {
+      ExifInterface exifInterface = new ExifInterface(file.getAbsolutePath());
+      exifInterface.setAttribute(ExifInterface.TAG_ORIENTATION,
+          String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+      exifInterface.saveAttributes();
+    }
+
+    InputStream is = new FileInputStream(file);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    } finally {
+      is.close();
+      if (!file.delete()) {
+        Log.w(TAG, "Failed to delete: " + file);
+      }
+    }
+  }
+
+  private static final class Result {
+    int loads;
+    int allocations;
+    long allocatedBytes;
+    int transformDraws;
+    long nanos;
+
+    @Override
+    public String toString() {
+      return "{bitmaps: " + allocations
+          + ", bytes: " + allocatedBytes
+          + ", transformation draws: " + transformDraws
+          + ", duration: " + nanos / 1000000 + "ms}";
+    }
+  }
+
+  /** Allocates and counts a new {@link Bitmap} for every get, including dirty gets. */
+  private static final class CountingBitmapPool extends BitmapPoolAdapter {
+    int allocations;
+    long allocatedBytes;
+
+    @NonNull
+    @Override
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+      return count(super.get(width, height, config));
+    }
+
+    private Bitmap count(Bitmap bitmap) {
+      allocations++;
+      allocatedBytes += bitmap.getRowBytes() * (long) bitmap.getHeight();
+      return bitmap;
+    }
+  }
+}
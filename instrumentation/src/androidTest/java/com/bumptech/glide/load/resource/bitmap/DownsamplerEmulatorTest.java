@@ -29,7 +29,7 @@ import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -376,21 +376,54 @@ public class DownsamplerEmulatorTest {
       int expectedHeight) throws IOException {
     Downsampler downsampler = buildDownsampler();
 
-    InputStream is = openBitmapStream(format, initialWidth, initialHeight);
+    byte[] data = compressBitmap(format, initialWidth, initialHeight);
     Options options = new Options()
         .set(Downsampler.DOWNSAMPLE_STRATEGY, strategy);
-    Bitmap bitmap = downsampler.decode(is, targetWidth, targetHeight, options).get();
+    ByteBuffer directBuffer = ByteBuffer.allocateDirect(data.length);
+    directBuffer.put(data);
+    directBuffer.rewind();
+    Bitmap[] bitmaps = new Bitmap[] {
+        downsampler.decode(
+            new ByteArrayInputStream(data), targetWidth, targetHeight, options).get(),
+        downsampler.decode(ByteBuffer.wrap(data), targetWidth, targetHeight, options).get(),
+        downsampler.decode(directBuffer, targetWidth, targetHeight, options).get(),
+    };
+    String[] sources = new String[] { "stream", "heap buffer", "direct buffer" };
     try {
-      if (bitmap.getWidth() != expectedWidth || bitmap.getHeight() != expectedHeight) {
-        return "API: " + Build.VERSION.SDK_INT + ", os: " + Build.VERSION.RELEASE
-            + ", format: " + format + ", strategy: " + strategy + " -"
-            + " Initial " + readableDimens(initialWidth, initialHeight)
-            + " Target " + readableDimens(targetWidth, targetHeight)
-            + " Expected " + readableDimens(expectedWidth, expectedHeight)
-            + ", but Received " + readableDimens(bitmap.getWidth(), bitmap.getHeight());
+      for (int i = 0; i < bitmaps.length; i++) {
+        String result = checkDimensions(bitmaps[i], sources[i], format, initialWidth,
+            initialHeight, targetWidth, targetHeight, strategy, expectedWidth, expectedHeight);
+        if (result != null) {
+          return result;
+        }
       }
     } finally {
-      bitmap.recycle();
+      for (Bitmap bitmap : bitmaps) {
+        bitmap.recycle();
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static String checkDimensions(
+      Bitmap bitmap,
+      String source,
+      CompressFormat format,
+      int initialWidth,
+      int initialHeight,
+      int targetWidth,
+      int targetHeight,
+      DownsampleStrategy strategy,
+      int expectedWidth,
+      int expectedHeight) {
+    if (bitmap.getWidth() != expectedWidth || bitmap.getHeight() != expectedHeight) {
+      return "API: " + Build.VERSION.SDK_INT + ", os: " + Build.VERSION.RELEASE
+          + ", format: " + format + ", source: " + source + ", strategy: " + strategy + " -"
+          + " Initial " + readableDimens(initialWidth, initialHeight)
+          + " Target " + readableDimens(targetWidth, targetHeight)
+          + " Expected " + readableDimens(expectedWidth, expectedHeight)
+          + ", but Received " + readableDimens(bitmap.getWidth(), bitmap.getHeight());
     }
     return null;
   }
@@ -410,13 +443,12 @@ public class DownsamplerEmulatorTest {
     return new Downsampler(parsers, displayMetrics, bitmapPool, arrayPool);
   }
 
-  private static InputStream openBitmapStream(CompressFormat format, int width, int height) {
+  private static byte[] compressBitmap(CompressFormat format, int width, int height) {
     Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     bitmap.compress(format, 100 /*quality*/, os);
     bitmap.recycle();
-    byte[] data = os.toByteArray();
-    return new ByteArrayInputStream(data);
+    return os.toByteArray();
   }
 
   static final class Tester {
@@ -52,10 +52,13 @@ import com.bumptech.glide.load.resource.bitmap.BitmapDrawableDecoder;
 import com.bumptech.glide.load.resource.bitmap.BitmapDrawableEncoder;
 import com.bumptech.glide.load.resource.bitmap.BitmapEncoder;
 import com.bumptech.glide.load.resource.bitmap.ByteBufferBitmapDecoder;
+import com.bumptech.glide.load.resource.bitmap.ByteBufferTileDecoder;
 import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
 import com.bumptech.glide.load.resource.bitmap.ResourceBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.StreamBitmapDecoder;
+import com.bumptech.glide.load.resource.bitmap.StreamTileDecoder;
+import com.bumptech.glide.load.resource.bitmap.TileDecoder;
 import com.bumptech.glide.load.resource.bitmap.UnitBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.VideoDecoder;
 import com.bumptech.glide.load.resource.bytes.ByteBufferRewinder;
@@ -80,6 +83,7 @@ import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Util;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
@@ -109,6 +113,7 @@ public class Glide implements ComponentCallbacks2 {
   private final GlideContext glideContext;
   private final Registry registry;
   private final ArrayPool arrayPool;
+  private final TileDecoder tileDecoder;
   private final RequestManagerRetriever requestManagerRetriever;
   private final ConnectivityMonitorFactory connectivityMonitorFactory;
   private final List<RequestManager> managers = new ArrayList<>();
@@ -341,6 +346,9 @@ public class Glide implements ComponentCallbacks2 {
         VideoDecoder.parcel(bitmapPool);
     ByteBufferBitmapDecoder byteBufferBitmapDecoder = new ByteBufferBitmapDecoder(downsampler);
     StreamBitmapDecoder streamBitmapDecoder = new StreamBitmapDecoder(downsampler, arrayPool);
+    tileDecoder = new TileDecoder(bitmapPool);
+    ByteBufferTileDecoder byteBufferTileDecoder = new ByteBufferTileDecoder(tileDecoder);
+    StreamTileDecoder streamTileDecoder = new StreamTileDecoder(tileDecoder);
     ResourceDrawableDecoder resourceDrawableDecoder =
         new ResourceDrawableDecoder(context);
     ResourceLoader.StreamFactory resourceLoaderStreamFactory =
@@ -362,6 +370,9 @@ public class Glide implements ComponentCallbacks2 {
         .append(ByteBuffer.class, new ByteBufferEncoder())
         .append(InputStream.class, new StreamEncoder(arrayPool))
         /* Bitmaps */
+        // Tile decoders only handle requests for tiles and must be tried before other decoders.
+        .append(Registry.BUCKET_BITMAP, ByteBuffer.class, Bitmap.class, byteBufferTileDecoder)
+        .append(Registry.BUCKET_BITMAP, InputStream.class, Bitmap.class, streamTileDecoder)
         .append(Registry.BUCKET_BITMAP, ByteBuffer.class, Bitmap.class, byteBufferBitmapDecoder)
         .append(Registry.BUCKET_BITMAP, InputStream.class, Bitmap.class, streamBitmapDecoder)
         .append(
@@ -379,6 +390,16 @@ public class Glide implements ComponentCallbacks2 {
             Registry.BUCKET_BITMAP, Bitmap.class, Bitmap.class, new UnitBitmapDecoder())
         .append(Bitmap.class, bitmapEncoder)
         /* BitmapDrawables */
+        .append(
+            Registry.BUCKET_BITMAP_DRAWABLE,
+            ByteBuffer.class,
+            BitmapDrawable.class,
+            new BitmapDrawableDecoder<>(resources, byteBufferTileDecoder))
+        .append(
+            Registry.BUCKET_BITMAP_DRAWABLE,
+            InputStream.class,
+            BitmapDrawable.class,
+            new BitmapDrawableDecoder<>(resources, streamTileDecoder))
         .append(
             Registry.BUCKET_BITMAP_DRAWABLE,
             ByteBuffer.class,
@@ -595,6 +616,7 @@ public class Glide implements ComponentCallbacks2 {
     memoryCache.clearMemory();
     bitmapPool.clearMemory();
     arrayPool.clearMemory();
+    tileDecoder.clearMemory();
   }
 
   /**
@@ -609,6 +631,7 @@ public class Glide implements ComponentCallbacks2 {
     memoryCache.trimMemory(level);
     bitmapPool.trimMemory(level);
     arrayPool.trimMemory(level);
+    tileDecoder.clearMemory();
   }
 
   /**
@@ -625,6 +648,28 @@ public class Glide implements ComponentCallbacks2 {
     engine.clearDiskCache();
   }
 
+  /**
+   * Imports the entries in an archive built with
+   * {@link com.bumptech.glide.load.engine.cache.DiskCacheArchiveBuilder} into the disk cache,
+   * skipping entries that are already cached.
+   *
+   * <p>Allows apps that ship with a known set of images to seed the disk cache, for example from
+   * an asset on first launch, instead of fetching each image.
+   *
+   * <p>This method should always be called on a background thread, since it is a blocking call.
+   * The caller is responsible for closing the stream.
+   *
+   * @return The number of entries imported, or {@code 0} if the disk cache doesn't implement
+   * {@link com.bumptech.glide.load.engine.cache.DiskCache.ArchiveImporter}.
+   * @throws IOException If the archive can't be read or wasn't built for this disk cache.
+   */
+  // Public API.
+  @SuppressWarnings({"unused", "WeakerAccess"})
+  public int importDiskCacheArchive(@NonNull InputStream archive) throws IOException {
+    Util.assertBackgroundThread();
+    return engine.importDiskCacheArchive(archive);
+  }
+
   /**
    * Internal method.
    */
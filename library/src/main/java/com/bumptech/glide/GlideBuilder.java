@@ -49,6 +49,9 @@ public final class GlideBuilder {
   private RequestManagerFactory requestManagerFactory;
   private GlideExecutor animationExecutor;
   private boolean isActiveResourceRetentionAllowed;
+  private boolean isActiveResourceCleanupBatched;
+  private long batchedResultDeliveryMaxLatencyMillis;
+  private boolean isDiskCacheWarmUpEnabled;
 
   /**
    * Sets the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} implementation to use
@@ -67,6 +70,10 @@ public final class GlideBuilder {
    * Sets the {@link ArrayPool} implementation to allow variable sized arrays to be stored
    * and retrieved as needed.
    *
+   * <p>Defaults to {@link LruArrayPool}. Applications that decode on many threads at once may
+   * prefer {@link com.bumptech.glide.load.engine.bitmap_recycle.MagazineArrayPool}, which serves
+   * most buffers from per thread caches without taking a lock.
+   *
    * @param arrayPool The pool to use.
    * @return This builder.
    */
@@ -80,6 +87,11 @@ public final class GlideBuilder {
    * Sets the {@link com.bumptech.glide.load.engine.cache.MemoryCache} implementation to store
    * {@link com.bumptech.glide.load.engine.Resource}s that are not currently in use.
    *
+   * <p>Defaults to {@link LruResourceCache}. Applications that repeatedly display a small set of
+   * popular images alongside long lists of images that are seen only once may prefer
+   * {@link com.bumptech.glide.load.engine.cache.TinyLfuResourceCache}, which keeps popular images
+   * cached across long scrolls.
+   *
    * @param memoryCache The cache to use.
    * @return This builder.
    */
@@ -174,7 +186,8 @@ public final class GlideBuilder {
    * jank, and performance, even on high end devices.
    *
    * <p>Use the {@link GlideExecutor#newDiskCacheExecutor()} if you'd like to specify options
-   * for the disk cache executor.
+   * for the disk cache executor. Applications that display many cached images at once on devices
+   * with fast storage may benefit from {@link GlideExecutor#newParallelDiskCacheExecutor()}.
    *
    * @param service The {@link GlideExecutor} to use.
    * @return This builder.
@@ -392,6 +405,68 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * If set to {@code true}, Glide will not start a dedicated thread to watch for active resources
+   * that have been garbage collected without being cleared. Instead any such resources are
+   * collected in bulk on the main thread the next time a load is started or a resource is
+   * released, avoiding a main thread message for each collected resource.
+   *
+   * <p>This can reduce main thread work when many resources are collected at once, for example
+   * during long scrolls in applications that don't clear their
+   * {@link com.bumptech.glide.request.target.Target}s. Collected resources may stay out of the
+   * memory cache slightly longer if no loads are started.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @return This builder.
+   */
+  @NonNull
+  public GlideBuilder setIsActiveResourceCleanupBatched(boolean isActiveResourceCleanupBatched) {
+    this.isActiveResourceCleanupBatched = isActiveResourceCleanupBatched;
+    return this;
+  }
+
+  /**
+   * If set to a value greater than zero, Glide will collect loads that complete close together and
+   * deliver them to their {@link com.bumptech.glide.request.target.Target}s together at the start
+   * of the next frame, or after the given latency if no frame starts sooner.
+   *
+   * <p>Delivering many results in the same frame, for example a burst of disk cache hits when a
+   * grid of thumbnails is first displayed, lets them share a single layout pass. Each result may be
+   * delayed by up to the given latency, so values around a frame (16ms) are typical.
+   *
+   * <p>Defaults to {@code 0}, which delivers each result as soon as it's available.
+   *
+   * @param maxLatencyMillis The maximum time in milliseconds to delay delivering a result.
+   * @return This builder.
+   */
+  @NonNull
+  public GlideBuilder setBatchedResultDeliveryMaxLatency(long maxLatencyMillis) {
+    this.batchedResultDeliveryMaxLatencyMillis = maxLatencyMillis;
+    return this;
+  }
+
+  /**
+   * If set to {@code true}, Glide will create and open the disk cache on the disk cache executor
+   * as soon as Glide is initialized, rather than when the first load checks the disk cache.
+   *
+   * <p>Opening a large disk cache requires reading its index, which can take long enough to delay
+   * the first image an application displays. Warming up the cache lets that work overlap with
+   * the rest of the application's startup, provided Glide is initialized before the first load,
+   * for example by calling {@link Glide#get(Context)} from
+   * {@link android.app.Application#onCreate()}. Disk caches that don't implement
+   * {@link com.bumptech.glide.load.engine.cache.DiskCache.Warmable} are only created.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @return This builder.
+   */
+  @NonNull
+  public GlideBuilder setIsDiskCacheWarmUpEnabled(boolean isDiskCacheWarmUpEnabled) {
+    this.isDiskCacheWarmUpEnabled = isDiskCacheWarmUpEnabled;
+    return this;
+  }
+
   void setRequestManagerFactory(@Nullable RequestManagerFactory factory) {
     this.requestManagerFactory = factory;
   }
@@ -454,7 +529,13 @@ public final class GlideBuilder {
               sourceExecutor,
               GlideExecutor.newUnlimitedSourceExecutor(),
               GlideExecutor.newAnimationExecutor(),
-              isActiveResourceRetentionAllowed);
+              isActiveResourceRetentionAllowed,
+              isActiveResourceCleanupBatched,
+              batchedResultDeliveryMaxLatencyMillis);
+    }
+
+    if (isDiskCacheWarmUpEnabled) {
+      engine.warmUpDiskCache();
     }
 
     RequestManagerRetriever requestManagerRetriever =
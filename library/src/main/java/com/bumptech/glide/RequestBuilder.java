@@ -729,13 +729,21 @@ public class RequestBuilder<TranscodeType> implements Cloneable,
    *               overridden by
    *               {@link com.bumptech.glide.request.RequestOptions#override(int, int)}} if
    *               previously called).
+   *
+   * <p>If called on a background thread, requests without thumbnails or error requests are started
+   * on that thread, so that a resource in memory is found without waiting for the main thread.
+   * Listeners are still called on the main thread.
    */
   @NonNull
   public FutureTarget<TranscodeType> submit(int width, int height) {
     final RequestFutureTarget<TranscodeType> target =
         new RequestFutureTarget<>(glideContext.getMainHandler(), width, height);
 
-    if (Util.isOnBackgroundThread()) {
+    if (Util.isOnMainThread()) {
+      into(target, target);
+    } else if (canBeginOnBackgroundThread()) {
+      beginOnBackgroundThread(target);
+    } else {
       glideContext.getMainHandler().post(new Runnable() {
         @Override
         public void run() {
@@ -744,13 +752,38 @@ public class RequestBuilder<TranscodeType> implements Cloneable,
           }
         }
       });
-    } else {
-      into(target, target);
     }
 
     return target;
   }
 
+  /**
+   * Returns {@code true} if a request for this builder can be started on a background thread.
+   *
+   * <p>Thumbnail and error requests are coordinated on the main thread, and requests for
+   * {@code null} models fail as they start, which would notify listeners on the background thread.
+   */
+  private boolean canBeginOnBackgroundThread() {
+    return model != null
+        && thumbnailBuilder == null
+        && thumbSizeMultiplier == null
+        && errorBuilder == null;
+  }
+
+  /**
+   * Starts a request into the given new target on the calling background thread, so that the key
+   * for the load is built and the memory caches are checked without waiting for the main thread.
+   *
+   * <p>The target is new, so there's no previous request to clear or restart. Results are still
+   * delivered on the main thread, see {@link com.bumptech.glide.load.engine.Engine#load}.
+   */
+  private void beginOnBackgroundThread(@NonNull RequestFutureTarget<TranscodeType> target) {
+    RequestOptions options = getMutableOptions().autoClone();
+    Request request = buildRequest(target, target, options);
+    target.setRequest(request);
+    requestManager.track(target, request);
+  }
+
   /**
    * Preloads the resource into the cache using the given width and height.
    *
@@ -1040,6 +1073,7 @@ public class RequestBuilder<TranscodeType> implements Cloneable,
         requestListener,
         requestCoordinator,
         glideContext.getEngine(),
-        transitionOptions.getTransitionFactory());
+        transitionOptions.getTransitionFactory(),
+        /*fairnessGroup=*/ requestManager);
   }
 }
@@ -56,7 +56,7 @@ public class RequestManager implements LifecycleListener,
   protected final Glide glide;
   protected final Context context;
   @Synthetic final Lifecycle lifecycle;
-  private final RequestTracker requestTracker;
+  @Synthetic final RequestTracker requestTracker;
   private final RequestManagerTreeNode treeNode;
   private final TargetTracker targetTracker = new TargetTracker();
   private final Runnable addSelfToLifecycle = new Runnable() {
@@ -100,7 +100,7 @@ public class RequestManager implements LifecycleListener,
     connectivityMonitor =
         factory.build(
             context.getApplicationContext(),
-            new RequestManagerConnectivityListener(requestTracker));
+            new RequestManagerConnectivityListener());
 
     // If we're the application level request manager, we may be created on a background thread.
     // In that case we cannot risk synchronously pausing or resuming requests, so we hack around the
@@ -200,7 +200,7 @@ public class RequestManager implements LifecycleListener,
    * @see #pauseRequests()
    * @see #resumeRequests()
    */
-  public boolean isPaused() {
+  public synchronized boolean isPaused() {
     Util.assertMainThread();
     return requestTracker.isPaused();
   }
@@ -215,7 +215,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #resumeRequests()
    */
-  public void pauseRequests() {
+  public synchronized void pauseRequests() {
     Util.assertMainThread();
     requestTracker.pauseRequests();
   }
@@ -236,7 +236,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #resumeRequests()
    */
-  public void pauseAllRequests() {
+  public synchronized void pauseAllRequests() {
     Util.assertMainThread();
     requestTracker.pauseAllRequests();
   }
@@ -271,7 +271,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #pauseRequests()
    */
-  public void resumeRequests() {
+  public synchronized void resumeRequests() {
     Util.assertMainThread();
     requestTracker.resumeRequests();
   }
@@ -297,7 +297,7 @@ public class RequestManager implements LifecycleListener,
    * requests.
    */
   @Override
-  public void onStart() {
+  public synchronized void onStart() {
     resumeRequests();
     targetTracker.onStart();
   }
@@ -307,7 +307,7 @@ public class RequestManager implements LifecycleListener,
    * android.permission.ACCESS_NETWORK_STATE permission is present) and pauses in progress loads.
    */
   @Override
-  public void onStop() {
+  public synchronized void onStop() {
     pauseRequests();
     targetTracker.onStop();
   }
@@ -317,7 +317,7 @@ public class RequestManager implements LifecycleListener,
    * all completed requests.
    */
   @Override
-  public void onDestroy() {
+  public synchronized void onDestroy() {
     targetTracker.onDestroy();
     for (Target<?> target : targetTracker.getAll()) {
       clear(target);
@@ -613,7 +613,7 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
-  boolean untrack(@NonNull Target<?> target) {
+  synchronized boolean untrack(@NonNull Target<?> target) {
     Request request = target.getRequest();
     // If the Target doesn't have a request, it's already been cleared.
     if (request == null) {
@@ -629,7 +629,8 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
-  void track(@NonNull Target<?> target, @NonNull Request request) {
+  // May be called on background threads, see RequestBuilder#submit(int, int).
+  synchronized void track(@NonNull Target<?> target, @NonNull Request request) {
     targetTracker.track(target);
     requestTracker.runRequest(request);
   }
@@ -648,18 +649,18 @@ public class RequestManager implements LifecycleListener,
     return super.toString() + "{tracker=" + requestTracker + ", treeNode=" + treeNode + "}";
   }
 
-  private static class RequestManagerConnectivityListener implements ConnectivityMonitor
+  private class RequestManagerConnectivityListener implements ConnectivityMonitor
       .ConnectivityListener {
-    private final RequestTracker requestTracker;
 
-    RequestManagerConnectivityListener(@NonNull RequestTracker requestTracker) {
-      this.requestTracker = requestTracker;
-    }
+    @Synthetic
+    RequestManagerConnectivityListener() { }
 
     @Override
     public void onConnectivityChanged(boolean isConnected) {
       if (isConnected) {
-        requestTracker.restartRequests();
+        synchronized (RequestManager.this) {
+          requestTracker.restartRequests();
+        }
       }
     }
   }
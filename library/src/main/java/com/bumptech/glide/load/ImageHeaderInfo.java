@@ -0,0 +1,78 @@
+package com.bumptech.glide.load;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.util.Preconditions;
+
+/**
+ * The type, exif orientation and dimensions of an image, read from its header by
+ * {@link ImageHeaderParserUtils#getHeaderInfo(java.util.List, java.io.InputStream,
+ * com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool)}.
+ */
+public final class ImageHeaderInfo {
+  /** A constant indicating that the width or height of the image couldn't be read. */
+  public static final int UNKNOWN_DIMENSION = -1;
+  /** Header info for data that isn't a recognized image. */
+  public static final ImageHeaderInfo UNKNOWN = new ImageHeaderInfo(ImageType.UNKNOWN,
+      ImageHeaderParser.UNKNOWN_ORIENTATION, UNKNOWN_DIMENSION, UNKNOWN_DIMENSION);
+
+  private final ImageType type;
+  private final int orientation;
+  private final int width;
+  private final int height;
+
+  /**
+   * @param type        The type of the image, or {@link ImageType#UNKNOWN}.
+   * @param orientation The exif orientation of the image, or
+   *                    {@link ImageHeaderParser#UNKNOWN_ORIENTATION}.
+   * @param width       The width of the image in pixels, or {@link #UNKNOWN_DIMENSION}.
+   * @param height      The height of the image in pixels, or {@link #UNKNOWN_DIMENSION}.
+   */
+  public ImageHeaderInfo(@NonNull ImageType type, int orientation, int width, int height) {
+    this.type = Preconditions.checkNotNull(type);
+    this.orientation = orientation;
+    // Only keep dimensions if both are valid so callers can check either one.
+    boolean hasDimensions = width > 0 && height > 0;
+    this.width = hasDimensions ? width : UNKNOWN_DIMENSION;
+    this.height = hasDimensions ? height : UNKNOWN_DIMENSION;
+  }
+
+  @NonNull
+  public ImageType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the exif orientation of the image, or {@link ImageHeaderParser#UNKNOWN_ORIENTATION}.
+   */
+  public int getOrientation() {
+    return orientation;
+  }
+
+  /** Returns the width of the image in pixels, or {@link #UNKNOWN_DIMENSION}. */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Returns the height of the image in pixels, or {@link #UNKNOWN_DIMENSION}. */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns {@code true} if both the width and the height of the image were read from its header.
+   */
+  public boolean hasDimensions() {
+    return width != UNKNOWN_DIMENSION;
+  }
+
+  @Override
+  public String toString() {
+    return "ImageHeaderInfo{"
+        + "type=" + type
+        + ", orientation=" + orientation
+        + ", width=" + width
+        + ", height=" + height
+        + '}';
+  }
+}
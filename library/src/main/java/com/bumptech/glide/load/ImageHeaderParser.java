@@ -47,6 +47,28 @@ public interface ImageHeaderParser {
     }
   }
 
+  /**
+   * An optional interface for parsers that can read the type, exif orientation and dimensions of
+   * an image in a single pass over its header.
+   *
+   * <p>{@link ImageHeaderParserUtils#getHeaderInfo(java.util.List, InputStream, ArrayPool)} uses
+   * this interface when it's implemented rather than making separate passes to read the type and
+   * the orientation, and avoids decoding the image's bounds when dimensions are returned.
+   */
+  interface HeaderInfoParser {
+    /**
+     * Returns the header info for the image in the given stream, or header info containing
+     * unknown values for any attributes that can't be read.
+     */
+    @NonNull
+    ImageHeaderInfo getHeaderInfo(@NonNull InputStream is, @NonNull ArrayPool byteArrayPool)
+        throws IOException;
+
+    @NonNull
+    ImageHeaderInfo getHeaderInfo(@NonNull ByteBuffer byteBuffer,
+        @NonNull ArrayPool byteArrayPool) throws IOException;
+  }
+
   @NonNull
   ImageType getType(@NonNull InputStream is) throws IOException;
 
@@ -28,6 +28,11 @@ public final class ImageHeaderParserUtils {
       return ImageType.UNKNOWN;
     }
 
+    ImageHeaderInfo memoized = getMemoizedHeaderInfo(is);
+    if (memoized != null) {
+      return memoized.getType();
+    }
+
     if (!is.markSupported()) {
       is = new RecyclableBufferedInputStream(is, byteArrayPool);
     }
@@ -79,6 +84,11 @@ public final class ImageHeaderParserUtils {
       return ImageHeaderParser.UNKNOWN_ORIENTATION;
     }
 
+    ImageHeaderInfo memoized = getMemoizedHeaderInfo(is);
+    if (memoized != null) {
+      return memoized.getOrientation();
+    }
+
     if (!is.markSupported()) {
       is = new RecyclableBufferedInputStream(is, byteArrayPool);
     }
@@ -99,4 +109,139 @@ public final class ImageHeaderParserUtils {
 
     return ImageHeaderParser.UNKNOWN_ORIENTATION;
   }
+
+  /**
+   * Returns the type, orientation and dimensions of the image in the given InputStream.
+   *
+   * <p>Parsers that implement {@link ImageHeaderParser.HeaderInfoParser} read all three in a single
+   * pass. Otherwise each attribute is taken from the first parser that can read it, just like
+   * {@link #getType(List, InputStream, ArrayPool)} and
+   * {@link #getOrientation(List, InputStream, ArrayPool)}.
+   *
+   * <p>The result is memoized on {@link RecyclableBufferedInputStream}s, including those returned
+   * by {@link com.bumptech.glide.load.data.InputStreamRewinder}, so the header is only parsed once
+   * however many decoders attempt to decode the same data.
+   */
+  @NonNull
+  public static ImageHeaderInfo getHeaderInfo(@NonNull List<ImageHeaderParser> parsers,
+      @Nullable InputStream is, @NonNull ArrayPool byteArrayPool) throws IOException {
+    return getHeaderInfo(parsers, is, null /*memo*/, byteArrayPool);
+  }
+
+  /**
+   * Like {@link #getHeaderInfo(List, InputStream, ArrayPool)}, but memoizes the result on the given
+   * stream, for callers that read the header via a stream that wraps it.
+   */
+  @NonNull
+  public static ImageHeaderInfo getHeaderInfo(@NonNull List<ImageHeaderParser> parsers,
+      @Nullable InputStream is, @Nullable RecyclableBufferedInputStream memo,
+      @NonNull ArrayPool byteArrayPool) throws IOException {
+    if (is == null) {
+      return ImageHeaderInfo.UNKNOWN;
+    }
+    if (memo == null && is instanceof RecyclableBufferedInputStream) {
+      memo = (RecyclableBufferedInputStream) is;
+    }
+    if (memo != null && memo.getImageHeaderInfo() != null) {
+      return memo.getImageHeaderInfo();
+    }
+
+    if (!is.markSupported()) {
+      is = new RecyclableBufferedInputStream(is, byteArrayPool);
+    }
+
+    is.mark(MARK_POSITION);
+    HeaderInfoBuilder builder = new HeaderInfoBuilder();
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = parsers.size(); i < size && !builder.isComplete(); i++) {
+      ImageHeaderParser parser = parsers.get(i);
+      try {
+        if (parser instanceof ImageHeaderParser.HeaderInfoParser) {
+          builder.add(((ImageHeaderParser.HeaderInfoParser) parser).getHeaderInfo(is,
+              byteArrayPool));
+          continue;
+        }
+        if (builder.type == ImageType.UNKNOWN) {
+          builder.type = parser.getType(is);
+          is.reset();
+        }
+        if (builder.orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+          builder.orientation = parser.getOrientation(is, byteArrayPool);
+        }
+      } finally {
+        is.reset();
+      }
+    }
+
+    ImageHeaderInfo result = builder.build();
+    if (memo != null) {
+      memo.setImageHeaderInfo(result);
+    }
+    return result;
+  }
+
+  /** Returns the type, orientation and dimensions of the image in the given ByteBuffer. */
+  @NonNull
+  public static ImageHeaderInfo getHeaderInfo(@NonNull List<ImageHeaderParser> parsers,
+      @Nullable ByteBuffer buffer, @NonNull ArrayPool byteArrayPool) throws IOException {
+    if (buffer == null) {
+      return ImageHeaderInfo.UNKNOWN;
+    }
+
+    HeaderInfoBuilder builder = new HeaderInfoBuilder();
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = parsers.size(); i < size && !builder.isComplete(); i++) {
+      ImageHeaderParser parser = parsers.get(i);
+      // Parsers move the buffer's position, so give each read its own view of the buffer.
+      if (parser instanceof ImageHeaderParser.HeaderInfoParser) {
+        builder.add(((ImageHeaderParser.HeaderInfoParser) parser).getHeaderInfo(
+            buffer.duplicate(), byteArrayPool));
+        continue;
+      }
+      if (builder.type == ImageType.UNKNOWN) {
+        builder.type = parser.getType(buffer.duplicate());
+      }
+      if (builder.orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+        builder.orientation = parser.getOrientation(buffer.duplicate(), byteArrayPool);
+      }
+    }
+    return builder.build();
+  }
+
+  @Nullable
+  private static ImageHeaderInfo getMemoizedHeaderInfo(InputStream is) {
+    return is instanceof RecyclableBufferedInputStream
+        ? ((RecyclableBufferedInputStream) is).getImageHeaderInfo() : null;
+  }
+
+  /** Keeps the first known value of each attribute. */
+  private static final class HeaderInfoBuilder {
+    ImageType type = ImageType.UNKNOWN;
+    int orientation = ImageHeaderParser.UNKNOWN_ORIENTATION;
+    int width = ImageHeaderInfo.UNKNOWN_DIMENSION;
+    int height = ImageHeaderInfo.UNKNOWN_DIMENSION;
+
+    void add(ImageHeaderInfo info) {
+      if (type == ImageType.UNKNOWN) {
+        type = info.getType();
+      }
+      if (orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+        orientation = info.getOrientation();
+      }
+      if (width == ImageHeaderInfo.UNKNOWN_DIMENSION && info.hasDimensions()) {
+        width = info.getWidth();
+        height = info.getHeight();
+      }
+    }
+
+    boolean isComplete() {
+      return type != ImageType.UNKNOWN
+          && orientation != ImageHeaderParser.UNKNOWN_ORIENTATION
+          && width != ImageHeaderInfo.UNKNOWN_DIMENSION;
+    }
+
+    ImageHeaderInfo build() {
+      return new ImageHeaderInfo(type, orientation, width, height);
+    }
+  }
 }
@@ -15,14 +15,24 @@ import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Holds weak references to resources that are currently in use, and moves resources whose
+ * references have been cleared by the garbage collector back into the memory cache.
+ *
+ * <p>By default cleared references are dequeued by a dedicated thread and handed to the main
+ * thread one message at a time. If cleanup is batched, no thread is started and cleared references
+ * are instead collected in bulk by {@link #drainClearedReferences()}, which {@link Engine} calls
+ * whenever a load starts or a resource is released on the main thread.
+ */
 final class ActiveResources {
   private static final int MSG_CLEAN_REF = 1;
 
   private final boolean isActiveResourceRetentionAllowed;
+  private final boolean isCleanupBatched;
   private final Handler mainHandler = new Handler(Looper.getMainLooper(), new Callback() {
     @Override
     public boolean handleMessage(Message msg) {
@@ -33,8 +43,10 @@ final class ActiveResources {
       return false;
     }
   });
+  // Also read and written by loads started on background threads, see Engine#load.
   @VisibleForTesting
-  final Map<Key, ResourceWeakReference> activeEngineResources = new HashMap<>();
+  final ConcurrentMap<Key, ResourceWeakReference> activeEngineResources =
+      new ConcurrentHashMap<>();
 
   private ResourceListener listener;
 
@@ -44,7 +56,7 @@ final class ActiveResources {
    * @see <a href="https://github.com/bumptech/glide/issues/295">#295</a>
    */
   @Nullable
-  private ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
+  private volatile ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
   @Nullable
   private Thread cleanReferenceQueueThread;
   private volatile boolean isShutdown;
@@ -52,7 +64,12 @@ final class ActiveResources {
   private volatile DequeuedResourceCallback cb;
 
   ActiveResources(boolean isActiveResourceRetentionAllowed) {
+    this(isActiveResourceRetentionAllowed, /*isCleanupBatched=*/ false);
+  }
+
+  ActiveResources(boolean isActiveResourceRetentionAllowed, boolean isCleanupBatched) {
     this.isActiveResourceRetentionAllowed = isActiveResourceRetentionAllowed;
+    this.isCleanupBatched = isCleanupBatched;
   }
 
   void setListener(ResourceListener listener) {
@@ -88,7 +105,8 @@ final class ActiveResources {
     }
 
     EngineResource<?> active = activeRef.get();
-    if (active == null) {
+    // Cleared references found on background threads are left for the reference queue.
+    if (active == null && Util.isOnMainThread()) {
       cleanupActiveReference(activeRef);
     }
     return active;
@@ -97,7 +115,10 @@ final class ActiveResources {
   @SuppressWarnings("WeakerAccess")
   @Synthetic void cleanupActiveReference(@NonNull ResourceWeakReference ref) {
     Util.assertMainThread();
-    activeEngineResources.remove(ref.key);
+    // The key may have been re-activated with a new resource on a background thread.
+    if (!activeEngineResources.remove(ref.key, ref)) {
+      return;
+    }
 
     if (!ref.isCacheable || ref.resource == null) {
       return;
@@ -108,9 +129,28 @@ final class ActiveResources {
     listener.onResourceReleased(ref.key, newResource);
   }
 
-  private ReferenceQueue<EngineResource<?>> getReferenceQueue() {
+  /**
+   * Cleans up all references that have been cleared by the garbage collector since the last call,
+   * if cleanup is batched, or does nothing otherwise.
+   */
+  void drainClearedReferences() {
+    Util.assertMainThread();
+    ReferenceQueue<EngineResource<?>> queue = resourceReferenceQueue;
+    if (!isCleanupBatched || queue == null) {
+      return;
+    }
+    ResourceWeakReference ref;
+    while ((ref = (ResourceWeakReference) queue.poll()) != null) {
+      cleanupActiveReference(ref);
+    }
+  }
+
+  private synchronized ReferenceQueue<EngineResource<?>> getReferenceQueue() {
     if (resourceReferenceQueue == null) {
       resourceReferenceQueue = new ReferenceQueue<>();
+      if (isCleanupBatched) {
+        return resourceReferenceQueue;
+      }
       cleanReferenceQueueThread = new Thread(new Runnable() {
         @SuppressWarnings("InfiniteLoopStatement")
         @Override
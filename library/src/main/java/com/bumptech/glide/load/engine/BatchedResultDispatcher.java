@@ -0,0 +1,128 @@
+package com.bumptech.glide.load.engine;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the results of {@link EngineJob}s completed on background threads and delivers them to
+ * the main thread in batches.
+ *
+ * <p>A batch starts when the first result arrives and is delivered at the start of the next frame
+ * on API 16 and above, or after the maximum latency, whichever comes first. Results that arrive
+ * close together, for example a burst of disk cache hits for a grid of thumbnails, are therefore
+ * delivered together and trigger a single layout pass rather than one per result.
+ */
+final class BatchedResultDispatcher implements Handler.Callback {
+  private static final int MSG_SCHEDULE = 1;
+  private static final int MSG_FLUSH = 2;
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper(), this);
+  private final long maxLatencyMillis;
+  // Only accessed on the main thread.
+  @Nullable
+  private FrameCallbackScheduler frameCallbackScheduler;
+  private List<EngineJob<?>> pending = new ArrayList<>();
+  // Swapped with pending when delivering a batch to avoid allocating and holding the lock while
+  // notifying jobs.
+  private List<EngineJob<?>> delivering = new ArrayList<>();
+
+  /**
+   * @param maxLatencyMillis The maximum time in milliseconds to wait for a frame before delivering
+   *                         a batch.
+   */
+  BatchedResultDispatcher(long maxLatencyMillis) {
+    this.maxLatencyMillis = maxLatencyMillis;
+  }
+
+  /**
+   * Schedules the given job's result or exception to be delivered on the main thread as part of the
+   * current batch.
+   */
+  void dispatch(EngineJob<?> job) {
+    boolean isFirstInBatch;
+    synchronized (this) {
+      isFirstInBatch = pending.isEmpty();
+      pending.add(job);
+    }
+    if (isFirstInBatch) {
+      mainHandler.sendEmptyMessage(MSG_SCHEDULE);
+    }
+  }
+
+  @Override
+  public boolean handleMessage(Message msg) {
+    switch (msg.what) {
+      case MSG_SCHEDULE:
+        schedule();
+        return true;
+      case MSG_FLUSH:
+        flush();
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void schedule() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      if (frameCallbackScheduler == null) {
+        frameCallbackScheduler = new FrameCallbackScheduler(this);
+      }
+      frameCallbackScheduler.schedule();
+    }
+    mainHandler.sendEmptyMessageDelayed(MSG_FLUSH, maxLatencyMillis);
+  }
+
+  @Synthetic
+  void flush() {
+    Util.assertMainThread();
+    mainHandler.removeMessages(MSG_FLUSH);
+    if (frameCallbackScheduler != null) {
+      frameCallbackScheduler.cancel();
+    }
+
+    List<EngineJob<?>> toDeliver;
+    synchronized (this) {
+      toDeliver = pending;
+      pending = delivering;
+      delivering = toDeliver;
+    }
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = toDeliver.size(); i < size; i++) {
+      toDeliver.get(i).handleCompletedOnMainThread();
+    }
+    toDeliver.clear();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static final class FrameCallbackScheduler implements Choreographer.FrameCallback {
+    private final BatchedResultDispatcher dispatcher;
+
+    @Synthetic
+    FrameCallbackScheduler(BatchedResultDispatcher dispatcher) {
+      this.dispatcher = dispatcher;
+    }
+
+    void schedule() {
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void cancel() {
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      dispatcher.flush();
+    }
+  }
+}
@@ -4,9 +4,11 @@ import android.support.annotation.NonNull;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -29,6 +31,9 @@ class DataCacheGenerator implements DataFetcherGenerator,
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
   private File cacheFile;
+  // The key of the entry that was last loaded from a buffer, so that the ModelLoaders for the
+  // entry's File can be tried if the buffer can't be decoded.
+  private Key bufferKey;
 
   DataCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this(helper.getCacheKeys(), helper, cb);
@@ -45,6 +50,17 @@ class DataCacheGenerator implements DataFetcherGenerator,
   @Override
   public boolean startNext() {
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (bufferKey != null) {
+        // Some data, like videos, can only be decoded from a File.
+        Key failedKey = bufferKey;
+        bufferKey = null;
+        cacheFile = helper.getDiskCache().get(failedKey);
+        if (cacheFile != null) {
+          modelLoaders = helper.getModelLoaders(cacheFile);
+          modelLoaderIndex = 0;
+          continue;
+        }
+      }
       sourceIdIndex++;
       if (sourceIdIndex >= cacheKeys.size()) {
         return false;
@@ -55,6 +71,17 @@ class DataCacheGenerator implements DataFetcherGenerator,
       // and the actions it performs are much more expensive than a single allocation.
       @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
       Key originalKey = new DataCacheKey(sourceId, helper.getSignature());
+      ByteBuffer cachedBuffer = helper.getCachedBuffer(originalKey);
+      if (cachedBuffer == DiskCache.ByteBufferReader.NOT_CACHED) {
+        continue;
+      }
+      if (cachedBuffer != null) {
+        this.sourceKey = sourceId;
+        bufferKey = originalKey;
+        loadData = helper.buildCachedLoadData(cachedBuffer);
+        loadData.fetcher.loadData(helper.getPriority(), this);
+        return true;
+      }
       cacheFile = helper.getDiskCache().get(originalKey);
       if (cacheFile != null) {
         this.sourceKey = sourceId;
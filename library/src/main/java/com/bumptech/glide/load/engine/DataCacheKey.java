@@ -1,13 +1,15 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import java.security.MessageDigest;
 
 /**
  * A cache key for original source data + any requested signature.
  */
-final class DataCacheKey implements Key {
+final class DataCacheKey implements Key, DiskCache.DataSourceKey {
 
   private final Key sourceKey;
   private final Key signature;
@@ -37,6 +39,12 @@ final class DataCacheKey implements Key {
     return result;
   }
 
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return DataSource.DATA_DISK_CACHE;
+  }
+
   @Override
   public String toString() {
     return "DataCacheKey{"
@@ -0,0 +1,31 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Option;
+
+/**
+ * Options related to writing source data to Glide's disk cache.
+ */
+public final class DataCacheOptions {
+
+  /**
+   * If set to {@code true} and the {@link DiskCacheStrategy} caches source data, source
+   * {@link java.io.InputStream}s are decoded directly while their bytes are written to the disk
+   * cache on a background thread. Defaults to {@code false}.
+   *
+   * <p>By default source data is written to the disk cache in full and then read back from the
+   * cache to be decoded, so the first image from a cold load can't be shown until the entire
+   * source has been written to disk. Teeing the data removes the write, the disk read and a thread
+   * switch from the time before the first image is shown, at the cost of holding a copy of the
+   * bytes read by the decoder in memory until the background thread writes them.
+   *
+   * <p>Data is only teed if the source {@link com.bumptech.glide.load.Encoder} registered for
+   * {@link java.io.InputStream}s is the default
+   * {@link com.bumptech.glide.load.model.StreamEncoder}, which writes the source bytes unchanged.
+   */
+  public static final Option<Boolean> TEE_SOURCE_DATA = Option.memory(
+      "com.bumptech.glide.load.engine.DataCacheOptions.TeeSourceData", false);
+
+  private DataCacheOptions() {
+    // Utility class.
+  }
+}
@@ -1,9 +1,11 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.Registry;
 import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceEncoder;
@@ -13,12 +15,17 @@ import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.load.model.UnitModelLoader;
 import com.bumptech.glide.load.resource.UnitTransformation;
+import com.bumptech.glide.util.ByteBufferUtil;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 final class DecodeHelper<Transcode> {
 
@@ -31,6 +38,7 @@ final class DecodeHelper<Transcode> {
   private int height;
   private Class<?> resourceClass;
   private DecodeJob.DiskCacheProvider diskCacheProvider;
+  private Executor sourceDataTeeExecutor;
   private Options options;
   private Map<Class<?>, Transformation<?>> transformations;
   private Class<Transcode> transcodeClass;
@@ -57,7 +65,8 @@ final class DecodeHelper<Transcode> {
       Map<Class<?>, Transformation<?>> transformations,
       boolean isTransformationRequired,
       boolean isScaleOnlyOrNoTransform,
-      DiskCacheProvider diskCacheProvider) {
+      DiskCacheProvider diskCacheProvider,
+      Executor sourceDataTeeExecutor) {
     this.glideContext = glideContext;
     this.model = model;
     this.signature = signature;
@@ -66,6 +75,7 @@ final class DecodeHelper<Transcode> {
     this.diskCacheStrategy = diskCacheStrategy;
     this.resourceClass = resourceClass;
     this.diskCacheProvider = diskCacheProvider;
+    this.sourceDataTeeExecutor = sourceDataTeeExecutor;
     this.transcodeClass = (Class<Transcode>) transcodeClass;
     this.priority = priority;
     this.options = options;
@@ -96,6 +106,43 @@ final class DecodeHelper<Transcode> {
     return diskCacheProvider.getDiskCache();
   }
 
+  Executor getSourceDataTeeExecutor() {
+    return sourceDataTeeExecutor;
+  }
+
+  /**
+   * Returns the cached data at the given key if the disk cache can return it as a
+   * {@link ByteBuffer} and the buffer can be decoded, either directly or as an {@link InputStream},
+   * or {@code null} otherwise.
+   *
+   * <p>Returns {@link DiskCache.ByteBufferReader#NOT_CACHED} if the disk cache knows that the key
+   * isn't cached, in which case there's no need to check for a cached {@link File} either.
+   */
+  @Nullable
+  ByteBuffer getCachedBuffer(Key key) {
+    DiskCache diskCache = getDiskCache();
+    if (!(diskCache instanceof DiskCache.ByteBufferReader)
+        || (!hasLoadPath(ByteBuffer.class) && !hasLoadPath(InputStream.class))) {
+      return null;
+    }
+    return ((DiskCache.ByteBufferReader) diskCache).getBuffer(key);
+  }
+
+  /**
+   * Returns load data for a buffer returned by {@link #getCachedBuffer(Key)}.
+   *
+   * <p>Avoids looking up and building the {@link ModelLoader}s for the cached {@link File} on
+   * cache hits.
+   */
+  LoadData<?> buildCachedLoadData(ByteBuffer buffer) {
+    if (hasLoadPath(ByteBuffer.class)) {
+      return UnitModelLoader.<ByteBuffer>getInstance()
+          .buildLoadData(buffer, width, height, options);
+    }
+    return UnitModelLoader.<InputStream>getInstance()
+        .buildLoadData(ByteBufferUtil.toStream(buffer), width, height, options);
+  }
+
   DiskCacheStrategy getDiskCacheStrategy() {
     return diskCacheStrategy;
   }
@@ -124,6 +171,10 @@ final class DecodeHelper<Transcode> {
     return glideContext.getArrayPool();
   }
 
+  List<ImageHeaderParser> getImageHeaderParsers() {
+    return glideContext.getRegistry().getImageHeaderParsers();
+  }
+
   List<Class<?>> getRegisteredResourceClasses() {
     return glideContext.getRegistry()
         .getRegisteredResourceClasses(model.getClass(), resourceClass, transcodeClass);
@@ -141,6 +192,14 @@ final class DecodeHelper<Transcode> {
     return isScaleOnlyOrNoTransform;
   }
 
+  /**
+   * Returns {@code true} if transformations are applied, but only ones that scale the decoded
+   * resource.
+   */
+  boolean isScaleOnlyTransform() {
+    return isScaleOnlyOrNoTransform && !transformations.isEmpty();
+  }
+
   @SuppressWarnings("unchecked")
   <Z> Transformation<Z> getTransformation(Class<Z> resourceClass) {
     Transformation<Z> result = (Transformation<Z>) transformations.get(resourceClass);
@@ -1,7 +1,9 @@
 package com.bumptech.glide.load.engine;
 
+import android.graphics.Bitmap;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.os.TraceCompat;
 import android.support.v4.util.Pools;
 import android.util.Log;
@@ -17,7 +19,9 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.executor.PrioritizedJob;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.load.resource.bitmap.TileDecoder;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
@@ -25,6 +29,7 @@ import com.bumptech.glide.util.pool.StateVerifier;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * A class responsible for decoding resources either from cached data or from the original source
@@ -36,8 +41,10 @@ import java.util.Map;
  *            resource.
  */
 class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
+    SourceGenerator.PreviewCallback,
     Runnable,
     Comparable<DecodeJob<?>>,
+    PrioritizedJob,
     Poolable {
   private static final String TAG = "DecodeJob";
 
@@ -45,6 +52,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final List<Throwable> throwables = new ArrayList<>();
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
   private final DiskCacheProvider diskCacheProvider;
+  private final Executor sourceDataTeeExecutor;
   private final Pools.Pool<DecodeJob<?>> pool;
   private final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
@@ -62,7 +70,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Stage stage;
   private RunReason runReason;
   private long startFetchTime;
+  private long startFetchNanos;
+  // The time the current thread spent blocked fetching data from source, or 0 if the data was
+  // fetched asynchronously.
+  private long blockedFetchNanos;
   private boolean onlyRetrieveFromCache;
+  @Nullable private Object fairnessGroup;
 
   private Thread currentThread;
   private Key currentSourceKey;
@@ -74,9 +87,14 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
+  private volatile boolean hasRun;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(
+      DiskCacheProvider diskCacheProvider,
+      Executor sourceDataTeeExecutor,
+      Pools.Pool<DecodeJob<?>> pool) {
     this.diskCacheProvider = diskCacheProvider;
+    this.sourceDataTeeExecutor = sourceDataTeeExecutor;
     this.pool = pool;
   }
 
@@ -97,7 +115,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       boolean onlyRetrieveFromCache,
       Options options,
       Callback<R> callback,
-      int order) {
+      int order,
+      @Nullable Object fairnessGroup) {
     decodeHelper.init(
         glideContext,
         model,
@@ -112,7 +131,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         transformations,
         isTransformationRequired,
         isScaleOnlyOrNoTransform,
-        diskCacheProvider);
+        diskCacheProvider,
+        sourceDataTeeExecutor);
     this.glideContext = glideContext;
     this.signature = signature;
     this.priority = priority;
@@ -124,6 +144,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     this.options = options;
     this.callback = callback;
     this.order = order;
+    this.fairnessGroup = fairnessGroup;
     this.runReason = RunReason.INITIALIZE;
     return this;
   }
@@ -137,6 +158,24 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
   }
 
+  /**
+   * Returns true if {@link #run()} has been called at least once since this job was initialized.
+   *
+   * <p>Jobs that haven't run yet can be removed from their executor's queue and released without
+   * being run, jobs that have run must be allowed to run again to clean up after themselves.
+   */
+  boolean hasRun() {
+    return hasRun;
+  }
+
+  /**
+   * Returns true if the next call to {@link #run()} will decode data that has already been
+   * retrieved.
+   */
+  boolean willDecodeRetrievedData() {
+    return runReason == RunReason.DECODE_DATA;
+  }
+
   /**
    * Called when this object is no longer in use externally.
    *
@@ -187,22 +226,34 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     currentDataSource = null;
     currentFetcher = null;
     startFetchTime = 0L;
+    startFetchNanos = 0L;
+    blockedFetchNanos = 0L;
     isCancelled = false;
+    hasRun = false;
+    fairnessGroup = null;
     throwables.clear();
     pool.release(this);
   }
 
   @Override
   public int compareTo(@NonNull DecodeJob<?> other) {
-    int result = getPriority() - other.getPriority();
+    int result = priority.ordinal() - other.priority.ordinal();
     if (result == 0) {
       result = order - other.order;
     }
     return result;
   }
 
-  private int getPriority() {
-    return priority.ordinal();
+  @NonNull
+  @Override
+  public Priority getPriority() {
+    return priority;
+  }
+
+  @Nullable
+  @Override
+  public Object getFairnessGroup() {
+    return fairnessGroup;
   }
 
   public void cancel() {
@@ -222,6 +273,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     // Methods in the try statement can invalidate currentFetcher, so set a local variable here to
     // ensure that the fetcher is cleaned up either way.
     DataFetcher<?> localFetcher = currentFetcher;
+    hasRun = true;
     try {
       if (isCancelled) {
         notifyFailed();
@@ -283,7 +335,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       case DATA_CACHE:
         return new DataCacheGenerator(decodeHelper, this);
       case SOURCE:
-        return new SourceGenerator(decodeHelper, this);
+        return new SourceGenerator(decodeHelper, this, this);
       case FINISHED:
         return null;
       default:
@@ -294,6 +346,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private void runGenerators() {
     currentThread = Thread.currentThread();
     startFetchTime = LogTime.getLogTime();
+    startFetchNanos = System.nanoTime();
+    blockedFetchNanos = 0L;
     boolean isStarted = false;
     while (!isCancelled && currentGenerator != null
         && !(isStarted = currentGenerator.startNext())) {
@@ -359,6 +413,20 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     callback.reschedule(this);
   }
 
+  @Override
+  public boolean isPreviewRequested() {
+    return callback.isPreviewRequested();
+  }
+
+  @Override
+  public void onPreviewReady(@NonNull Bitmap preview) {
+    if (isCancelled) {
+      preview.recycle();
+      return;
+    }
+    callback.onPreviewReady(preview);
+  }
+
   @Override
   public void onDataFetcherReady(Key sourceKey, Object data, DataFetcher<?> fetcher,
       DataSource dataSource, Key attemptedKey) {
@@ -370,6 +438,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     if (Thread.currentThread() != currentThread) {
       runReason = RunReason.DECODE_DATA;
       callback.reschedule(this);
+    } else if (stage == Stage.SOURCE && callback.isSourceDecodeSeparate()) {
+      // The fetch blocked this thread, so hand the data off to be decoded elsewhere and free this
+      // thread to start another fetch.
+      blockedFetchNanos = System.nanoTime() - startFetchNanos;
+      runReason = RunReason.DECODE_DATA;
+      callback.reschedule(this);
     } else {
       TraceCompat.beginSection("DecodeJob.decodeFromRetrievedData");
       try {
@@ -403,12 +477,16 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
               + ", fetcher: " + currentFetcher);
     }
     Resource<R> resource = null;
+    long startDecodeNanos = System.nanoTime();
     try {
       resource = decodeFromData(currentFetcher, currentData, currentDataSource);
     } catch (GlideException e) {
       e.setLoggingDetails(currentAttemptingKey, currentDataSource);
       throwables.add(e);
     }
+    if (stage == Stage.SOURCE) {
+      callback.onSourceDataDecoded(blockedFetchNanos, System.nanoTime() - startDecodeNanos);
+    }
     if (resource != null) {
       notifyEncodeAndRelease(resource, currentDataSource);
     } else {
@@ -489,9 +567,37 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return options;
   }
 
+  @NonNull
+  private Options getDecodeOptions(DataSource dataSource) {
+    Options options = getOptionsWithHardwareConfig(dataSource);
+    // Resources from the resource cache have already been transformed.
+    if (dataSource != DataSource.RESOURCE_DISK_CACHE && decodeHelper.isScaleOnlyTransform()
+        && !options.get(Downsampler.IS_SCALE_ONLY_TRANSFORM)) {
+      options = copyIfShared(options);
+      options.set(Downsampler.IS_SCALE_ONLY_TRANSFORM, true);
+    }
+    // Lets tiles of the same image share a region decoder. Resources from the resource cache are
+    // already decoded tiles, not the image the tiles are decoded from.
+    if (dataSource != DataSource.RESOURCE_DISK_CACHE && options.get(TileDecoder.TILE) != null
+        && options.get(TileDecoder.SOURCE_KEY) == null) {
+      options = copyIfShared(options);
+      options.set(TileDecoder.SOURCE_KEY, new DataCacheKey(currentSourceKey, signature));
+    }
+    return options;
+  }
+
+  private Options copyIfShared(Options options) {
+    if (options != this.options) {
+      return options;
+    }
+    Options result = new Options();
+    result.putAll(this.options);
+    return result;
+  }
+
   private <Data, ResourceType> Resource<R> runLoadPath(Data data, DataSource dataSource,
       LoadPath<Data, ResourceType, R> path) throws GlideException {
-    Options options = getOptionsWithHardwareConfig(dataSource);
+    Options options = getDecodeOptions(dataSource);
     DataRewinder<Data> rewinder = glideContext.getRegistry().getRewinder(data);
     try {
       // ResourceType in DecodeCallback below is required for compilation to work with gradle.
@@ -682,6 +788,28 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     void onLoadFailed(GlideException e);
 
     void reschedule(DecodeJob<?> job);
+
+    /**
+     * Returns {@code true} if data fetched from source should be decoded by rescheduling the job
+     * rather than on the thread that fetched it.
+     */
+    boolean isSourceDecodeSeparate();
+
+    /**
+     * Called after data fetched from source is decoded with the time the fetch blocked the fetching
+     * thread, or 0 if the data was fetched asynchronously, and the time taken to decode the data.
+     */
+    void onSourceDataDecoded(long blockedFetchNanos, long decodeNanos);
+
+    /**
+     * Returns {@code true} if previews should be decoded from partially loaded source data.
+     */
+    boolean isPreviewRequested();
+
+    /**
+     * Called on the thread loading source data with a preview of the partially loaded image.
+     */
+    void onPreviewReady(Bitmap preview);
   }
 
   interface DiskCacheProvider {
@@ -1,5 +1,7 @@
 package com.bumptech.glide.load.engine;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -21,7 +23,10 @@ import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -41,6 +46,9 @@ public class Engine implements EngineJobListener,
   private final LazyDiskCacheProvider diskCacheProvider;
   private final DecodeJobFactory decodeJobFactory;
   private final ActiveResources activeResources;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  // Guards moving resources between the memory cache and active resources, see #loadFromCache.
+  private final Object memoryLock = new Object();
 
   public Engine(
       MemoryCache memoryCache,
@@ -50,6 +58,28 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
       boolean isActiveResourceRetentionAllowed) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        isActiveResourceRetentionAllowed,
+        /*isActiveResourceCleanupBatched=*/ false,
+        /*batchedResultDeliveryMaxLatencyMillis=*/ 0);
+  }
+
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      boolean isActiveResourceRetentionAllowed,
+      boolean isActiveResourceCleanupBatched,
+      long batchedResultDeliveryMaxLatencyMillis) {
     this(
         memoryCache,
         diskCacheFactory,
@@ -63,7 +93,9 @@ public class Engine implements EngineJobListener,
         /*engineJobFactory=*/ null,
         /*decodeJobFactory=*/ null,
         /*resourceRecycler=*/ null,
-        isActiveResourceRetentionAllowed);
+        isActiveResourceRetentionAllowed,
+        isActiveResourceCleanupBatched,
+        batchedResultDeliveryMaxLatencyMillis);
   }
 
   @VisibleForTesting
@@ -79,12 +111,15 @@ public class Engine implements EngineJobListener,
       EngineJobFactory engineJobFactory,
       DecodeJobFactory decodeJobFactory,
       ResourceRecycler resourceRecycler,
-      boolean isActiveResourceRetentionAllowed) {
+      boolean isActiveResourceRetentionAllowed,
+      boolean isActiveResourceCleanupBatched,
+      long batchedResultDeliveryMaxLatencyMillis) {
     this.cache = cache;
     this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
 
     if (activeResources == null) {
-      activeResources = new ActiveResources(isActiveResourceRetentionAllowed);
+      activeResources =
+          new ActiveResources(isActiveResourceRetentionAllowed, isActiveResourceCleanupBatched);
     }
     this.activeResources = activeResources;
     activeResources.setListener(this);
@@ -100,14 +135,22 @@ public class Engine implements EngineJobListener,
     this.jobs = jobs;
 
     if (engineJobFactory == null) {
+      BatchedResultDispatcher resultDispatcher =
+          batchedResultDeliveryMaxLatencyMillis > 0
+              ? new BatchedResultDispatcher(batchedResultDeliveryMaxLatencyMillis) : null;
       engineJobFactory =
           new EngineJobFactory(
-              diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, animationExecutor, this);
+              diskCacheExecutor,
+              sourceExecutor,
+              sourceUnlimitedExecutor,
+              animationExecutor,
+              this,
+              resultDispatcher);
     }
     this.engineJobFactory = engineJobFactory;
 
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory = new DecodeJobFactory(diskCacheProvider, sourceUnlimitedExecutor);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -122,7 +165,13 @@ public class Engine implements EngineJobListener,
   /**
    * Starts a load for the given arguments.
    *
-   * <p>Must be called on the main thread.
+   * <p>May be called on any thread. The key for the load is always built on the calling thread. If
+   * the calling thread is the main thread, the load proceeds synchronously as described below. If
+   * the calling thread is a background thread, active resources and the memory cache are checked
+   * on the calling thread and any resource found is delivered to the given callback on the main
+   * thread. Otherwise joining or starting a load is posted to the main thread. The returned
+   * {@link LoadStatus} can be used to cancel the load in either case. Callbacks are always called
+   * on the main thread.
    *
    * <p>The flow for any request is as follows:
    * <ul>
@@ -164,13 +213,159 @@ public class Engine implements EngineJobListener,
       boolean useAnimationPool,
       boolean onlyRetrieveFromCache,
       ResourceCallback cb) {
-    Util.assertMainThread();
+    return load(
+        glideContext,
+        model,
+        signature,
+        width,
+        height,
+        resourceClass,
+        transcodeClass,
+        priority,
+        diskCacheStrategy,
+        transformations,
+        isTransformationRequired,
+        isScaleOnlyOrNoTransform,
+        options,
+        isMemoryCacheable,
+        useUnlimitedSourceExecutorPool,
+        useAnimationPool,
+        onlyRetrieveFromCache,
+        /*fairnessGroup=*/ null,
+        cb);
+  }
+
+  /**
+   * Starts a load for the given arguments as described in
+   * {@link #load(GlideContext, Object, Key, int, int, Class, Class, Priority, DiskCacheStrategy,
+   * Map, boolean, boolean, Options, boolean, boolean, boolean, boolean, ResourceCallback)}.
+   *
+   * @param fairnessGroup An object identifying the group of requests this load belongs to,
+   *                      typically a {@link com.bumptech.glide.RequestManager}, used by executors
+   *                      that limit how far one group's backlog can delay other groups' loads, or
+   *                      {@code null}. Only used if this load starts a new job.
+   */
+  public <R> LoadStatus load(
+      GlideContext glideContext,
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Class<?> resourceClass,
+      Class<R> transcodeClass,
+      Priority priority,
+      DiskCacheStrategy diskCacheStrategy,
+      Map<Class<?>, Transformation<?>> transformations,
+      boolean isTransformationRequired,
+      boolean isScaleOnlyOrNoTransform,
+      Options options,
+      boolean isMemoryCacheable,
+      boolean useUnlimitedSourceExecutorPool,
+      boolean useAnimationPool,
+      boolean onlyRetrieveFromCache,
+      @Nullable Object fairnessGroup,
+      ResourceCallback cb) {
     long startTime = LogTime.getLogTime();
 
-    EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
+    EngineKey key = keyFactory.obtainLookupKey(model, signature, width, height, transformations,
         resourceClass, transcodeClass, options);
 
-    EngineResource<?> active = loadFromActiveResources(key, isMemoryCacheable);
+    if (Util.isOnMainThread()) {
+      LoadStatus result = loadOnMainThread(
+          glideContext,
+          model,
+          key,
+          signature,
+          width,
+          height,
+          resourceClass,
+          transcodeClass,
+          priority,
+          diskCacheStrategy,
+          transformations,
+          isTransformationRequired,
+          isScaleOnlyOrNoTransform,
+          options,
+          isMemoryCacheable,
+          useUnlimitedSourceExecutorPool,
+          useAnimationPool,
+          onlyRetrieveFromCache,
+          fairnessGroup,
+          cb,
+          startTime);
+      keyFactory.release(key);
+      return result;
+    }
+
+    EngineResource<?> fromMemory = loadFromMemoryOnBackgroundThread(key, isMemoryCacheable);
+    if (fromMemory != null) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        logWithTimeAndKey("Loaded resource from memory on a background thread", startTime, key);
+      }
+      keyFactory.release(key);
+      return postResourceToMainThread(cb, fromMemory);
+    }
+
+    // The posted load takes ownership of the lookup key.
+    return postLoadToMainThread(
+        glideContext,
+        model,
+        key,
+        signature,
+        width,
+        height,
+        resourceClass,
+        transcodeClass,
+        priority,
+        diskCacheStrategy,
+        transformations,
+        isTransformationRequired,
+        isScaleOnlyOrNoTransform,
+        options,
+        isMemoryCacheable,
+        useUnlimitedSourceExecutorPool,
+        useAnimationPool,
+        onlyRetrieveFromCache,
+        fairnessGroup,
+        cb,
+        startTime);
+  }
+
+  private <R> LoadStatus loadOnMainThread(
+      GlideContext glideContext,
+      Object model,
+      EngineKey key,
+      Key signature,
+      int width,
+      int height,
+      Class<?> resourceClass,
+      Class<R> transcodeClass,
+      Priority priority,
+      DiskCacheStrategy diskCacheStrategy,
+      Map<Class<?>, Transformation<?>> transformations,
+      boolean isTransformationRequired,
+      boolean isScaleOnlyOrNoTransform,
+      Options options,
+      boolean isMemoryCacheable,
+      boolean useUnlimitedSourceExecutorPool,
+      boolean useAnimationPool,
+      boolean onlyRetrieveFromCache,
+      @Nullable Object fairnessGroup,
+      ResourceCallback cb,
+      long startTime) {
+    Util.assertMainThread();
+    activeResources.drainClearedReferences();
+
+    EngineResource<?> active;
+    EngineResource<?> cached = null;
+    // Both lookups are made while holding the lock so that a resource being moved from the memory
+    // cache to active resources by a load on a background thread is always found in one of them.
+    synchronized (memoryLock) {
+      active = loadFromActiveResources(key, isMemoryCacheable);
+      if (active == null) {
+        cached = loadFromCache(key, isMemoryCacheable);
+      }
+    }
     if (active != null) {
       cb.onResourceReady(active, DataSource.MEMORY_CACHE);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -179,7 +374,6 @@ public class Engine implements EngineJobListener,
       return null;
     }
 
-    EngineResource<?> cached = loadFromCache(key, isMemoryCacheable);
     if (cached != null) {
       cb.onResourceReady(cached, DataSource.MEMORY_CACHE);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -197,9 +391,11 @@ public class Engine implements EngineJobListener,
       return new LoadStatus(cb, current);
     }
 
+    // The lookup key is returned to the pool once load returns, so the job needs its own copy.
+    EngineKey jobKey = keyFactory.promote(key);
     EngineJob<R> engineJob =
         engineJobFactory.build(
-            key,
+            jobKey,
             isMemoryCacheable,
             useUnlimitedSourceExecutorPool,
             useAnimationPool,
@@ -209,7 +405,7 @@ public class Engine implements EngineJobListener,
         decodeJobFactory.build(
             glideContext,
             model,
-            key,
+            jobKey,
             signature,
             width,
             height,
@@ -222,9 +418,10 @@ public class Engine implements EngineJobListener,
             isScaleOnlyOrNoTransform,
             onlyRetrieveFromCache,
             options,
+            fairnessGroup,
             engineJob);
 
-    jobs.put(key, engineJob);
+    jobs.put(jobKey, engineJob);
 
     engineJob.addCallback(cb);
     engineJob.start(decodeJob);
@@ -235,6 +432,95 @@ public class Engine implements EngineJobListener,
     return new LoadStatus(cb, engineJob);
   }
 
+  /**
+   * Posts the remainder of a load started on a background thread to the main thread, where
+   * {@link EngineJob}s are created, joined and notified.
+   *
+   * <p>Memory is checked again on the main thread because the resource may have become available
+   * between the background thread lookup and the time the posted load runs.
+   */
+  private <R> LoadStatus postLoadToMainThread(
+      final GlideContext glideContext,
+      final Object model,
+      final EngineKey key,
+      final Key signature,
+      final int width,
+      final int height,
+      final Class<?> resourceClass,
+      final Class<R> transcodeClass,
+      final Priority priority,
+      final DiskCacheStrategy diskCacheStrategy,
+      final Map<Class<?>, Transformation<?>> transformations,
+      final boolean isTransformationRequired,
+      final boolean isScaleOnlyOrNoTransform,
+      final Options options,
+      final boolean isMemoryCacheable,
+      final boolean useUnlimitedSourceExecutorPool,
+      final boolean useAnimationPool,
+      final boolean onlyRetrieveFromCache,
+      @Nullable final Object fairnessGroup,
+      final ResourceCallback cb,
+      final long startTime) {
+    final LoadStatus loadStatus = new LoadStatus(cb, /*engineJob=*/ null);
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (loadStatus.isCancelled()) {
+          keyFactory.release(key);
+          return;
+        }
+        LoadStatus started =
+            loadOnMainThread(
+                glideContext,
+                model,
+                key,
+                signature,
+                width,
+                height,
+                resourceClass,
+                transcodeClass,
+                priority,
+                diskCacheStrategy,
+                transformations,
+                isTransformationRequired,
+                isScaleOnlyOrNoTransform,
+                options,
+                isMemoryCacheable,
+                useUnlimitedSourceExecutorPool,
+                useAnimationPool,
+                onlyRetrieveFromCache,
+                fairnessGroup,
+                cb,
+                startTime);
+        keyFactory.release(key);
+        if (started != null) {
+          loadStatus.setEngineJob(started.getEngineJob());
+        }
+      }
+    });
+    return loadStatus;
+  }
+
+  /**
+   * Delivers a resource acquired on a background thread to the given callback on the main thread,
+   * or releases it if the load is cancelled before the resource is delivered.
+   */
+  private LoadStatus postResourceToMainThread(
+      final ResourceCallback cb, final EngineResource<?> resource) {
+    final LoadStatus loadStatus = new LoadStatus(cb, /*engineJob=*/ null);
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (loadStatus.isCancelled()) {
+          resource.release();
+        } else {
+          cb.onResourceReady(resource, DataSource.MEMORY_CACHE);
+        }
+      }
+    });
+    return loadStatus;
+  }
+
   private static void logWithTimeAndKey(String log, long startTime, Key key) {
     Log.v(TAG, log + " in " + LogTime.getElapsedMillis(startTime) + "ms, key: " + key);
   }
@@ -252,17 +538,52 @@ public class Engine implements EngineJobListener,
     return active;
   }
 
-  private EngineResource<?> loadFromCache(Key key, boolean isMemoryCacheable) {
+  /**
+   * Returns an acquired resource from active resources or the memory cache, or {@code null}.
+   *
+   * <p>Resources are only released on the main thread, so an active resource found here may be
+   * released concurrently. Active resources are only acquired if they're still held by another
+   * consumer, otherwise they're looked up again in the memory cache. Removing a resource from the
+   * memory cache gives the calling thread the only reference to it.
+   */
+  @Nullable
+  private EngineResource<?> loadFromMemoryOnBackgroundThread(
+      EngineKey key, boolean isMemoryCacheable) {
     if (!isMemoryCacheable) {
       return null;
     }
+    EngineResource<?> active = activeResources.get(key);
+    if (active != null && active.acquireIfAcquired()) {
+      return active;
+    }
+    return loadFromCache(key, /*isMemoryCacheable=*/ true);
+  }
 
-    EngineResource<?> cached = getEngineResourceFromCache(key);
-    if (cached != null) {
-      cached.acquire();
-      activeResources.activate(key, cached);
+  /**
+   * Removes the resource for the given key from the memory cache and activates it.
+   *
+   * <p>The resource is briefly in neither the memory cache nor active resources, so the move is
+   * made while holding a lock that loads on the main thread also hold while they look in both.
+   * Otherwise a main thread load of the same key during the move would start a duplicate job.
+   */
+  private EngineResource<?> loadFromCache(EngineKey key, boolean isMemoryCacheable) {
+    if (!isMemoryCacheable) {
+      return null;
+    }
+
+    synchronized (memoryLock) {
+      EngineResource<?> cached = getEngineResourceFromCache(key);
+      if (cached != null) {
+        cached.acquire();
+        // Re-use the key the resource was cached with rather than copying the lookup key.
+        Key activeKey = cached.getKey();
+        if (activeKey == null) {
+          activeKey = keyFactory.promote(key);
+        }
+        activeResources.activate(activeKey, cached);
+      }
+      return cached;
     }
-    return cached;
   }
 
   private EngineResource<?> getEngineResourceFromCache(Key key) {
@@ -287,6 +608,7 @@ public class Engine implements EngineJobListener,
     } else {
       throw new IllegalArgumentException("Cannot release anything but an EngineResource");
     }
+    activeResources.drainClearedReferences();
   }
 
   @SuppressWarnings("unchecked")
@@ -321,11 +643,14 @@ public class Engine implements EngineJobListener,
   @Override
   public void onResourceReleased(Key cacheKey, EngineResource<?> resource) {
     Util.assertMainThread();
-    activeResources.deactivate(cacheKey);
-    if (resource.isCacheable()) {
-      cache.put(cacheKey, resource);
-    } else {
+    if (!resource.isCacheable()) {
+      activeResources.deactivate(cacheKey);
       resourceRecycler.recycle(resource);
+      return;
+    }
+    synchronized (memoryLock) {
+      activeResources.deactivate(cacheKey);
+      cache.put(cacheKey, resource);
     }
   }
 
@@ -333,6 +658,38 @@ public class Engine implements EngineJobListener,
     diskCacheProvider.getDiskCache().clear();
   }
 
+  /**
+   * Internal method.
+   */
+  public int importDiskCacheArchive(@NonNull InputStream archive) throws IOException {
+    DiskCache diskCache = diskCacheProvider.getDiskCache();
+    if (!(diskCache instanceof DiskCache.ArchiveImporter)) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to import archive, disk cache doesn't support imports: " + diskCache);
+      }
+      return 0;
+    }
+    return ((DiskCache.ArchiveImporter) diskCache).importArchive(archive);
+  }
+
+  /**
+   * Creates the disk cache on the disk cache executor and, if it implements
+   * {@link DiskCache.Warmable}, warms it up so that the first load doesn't wait for the cache to
+   * be opened.
+   */
+  public void warmUpDiskCache() {
+    final LazyDiskCacheProvider provider = diskCacheProvider;
+    engineJobFactory.diskCacheExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        DiskCache diskCache = provider.getDiskCache();
+        if (diskCache instanceof DiskCache.Warmable) {
+          ((DiskCache.Warmable) diskCache).warmUp();
+        }
+      }
+    });
+  }
+
   @VisibleForTesting
   public void shutdown() {
     engineJobFactory.shutdown();
@@ -342,18 +699,38 @@ public class Engine implements EngineJobListener,
 
   /**
    * Allows a request to indicate it no longer is interested in a given load.
+   *
+   * <p>Must be cancelled on the main thread.
    */
   public static class LoadStatus {
-    private final EngineJob<?> engineJob;
     private final ResourceCallback cb;
+    @Nullable
+    private EngineJob<?> engineJob;
+    private boolean isCancelled;
 
-    LoadStatus(ResourceCallback cb, EngineJob<?> engineJob) {
+    LoadStatus(ResourceCallback cb, @Nullable EngineJob<?> engineJob) {
       this.cb = cb;
       this.engineJob = engineJob;
     }
 
+    void setEngineJob(@Nullable EngineJob<?> engineJob) {
+      this.engineJob = engineJob;
+    }
+
+    @Nullable
+    EngineJob<?> getEngineJob() {
+      return engineJob;
+    }
+
+    boolean isCancelled() {
+      return isCancelled;
+    }
+
     public void cancel() {
-      engineJob.removeCallback(cb);
+      isCancelled = true;
+      if (engineJob != null) {
+        engineJob.removeCallback(cb);
+      }
     }
   }
 
@@ -393,18 +770,22 @@ public class Engine implements EngineJobListener,
   @VisibleForTesting
   static class DecodeJobFactory {
     @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+    // Writers for teed source data wait for their decoders, so they run on an unbounded executor.
+    @Synthetic final Executor sourceDataTeeExecutor;
     @Synthetic final Pools.Pool<DecodeJob<?>> pool =
         FactoryPools.simple(JOB_POOL_SIZE,
             new FactoryPools.Factory<DecodeJob<?>>() {
           @Override
           public DecodeJob<?> create() {
-            return new DecodeJob<>(diskCacheProvider, pool);
+            return new DecodeJob<>(diskCacheProvider, sourceDataTeeExecutor, pool);
           }
         });
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(
+        DecodeJob.DiskCacheProvider diskCacheProvider, Executor sourceDataTeeExecutor) {
       this.diskCacheProvider = diskCacheProvider;
+      this.sourceDataTeeExecutor = sourceDataTeeExecutor;
     }
 
     @SuppressWarnings("unchecked")
@@ -423,6 +804,7 @@ public class Engine implements EngineJobListener,
         boolean isScaleOnlyOrNoTransform,
         boolean onlyRetrieveFromCache,
         Options options,
+        @Nullable Object fairnessGroup,
         DecodeJob.Callback<R> callback) {
       DecodeJob<R> result = Preconditions.checkNotNull((DecodeJob<R>) pool.acquire());
       return result.init(
@@ -442,7 +824,8 @@ public class Engine implements EngineJobListener,
           onlyRetrieveFromCache,
           options,
           callback,
-          creationOrder++);
+          creationOrder++,
+          fairnessGroup);
     }
   }
 
@@ -453,6 +836,7 @@ public class Engine implements EngineJobListener,
     @Synthetic final GlideExecutor sourceUnlimitedExecutor;
     @Synthetic final GlideExecutor animationExecutor;
     @Synthetic final EngineJobListener listener;
+    @Nullable @Synthetic final BatchedResultDispatcher resultDispatcher;
     @Synthetic final Pools.Pool<EngineJob<?>> pool =
         FactoryPools.simple(
             JOB_POOL_SIZE,
@@ -465,7 +849,8 @@ public class Engine implements EngineJobListener,
                     sourceUnlimitedExecutor,
                     animationExecutor,
                     listener,
-                    pool);
+                    pool,
+                    resultDispatcher);
               }
             });
 
@@ -474,12 +859,14 @@ public class Engine implements EngineJobListener,
         GlideExecutor sourceExecutor,
         GlideExecutor sourceUnlimitedExecutor,
         GlideExecutor animationExecutor,
-        EngineJobListener listener) {
+        EngineJobListener listener,
+        @Nullable BatchedResultDispatcher resultDispatcher) {
       this.diskCacheExecutor = diskCacheExecutor;
       this.sourceExecutor = sourceExecutor;
       this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
       this.animationExecutor = animationExecutor;
       this.listener = listener;
+      this.resultDispatcher = resultDispatcher;
     }
 
     @VisibleForTesting
@@ -1,9 +1,11 @@
 package com.bumptech.glide.load.engine;
 
+import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.DataSource;
@@ -32,6 +34,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   // Used when we realize we're cancelled on a background thread in reschedule and can recycle
   // immediately rather than waiting for a result or an error.
   private static final int MSG_CANCELLED = 3;
+  private static final int MSG_PREVIEW = 4;
 
   private final List<ResourceCallback> cbs = new ArrayList<>(2);
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
@@ -42,6 +45,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private final GlideExecutor sourceExecutor;
   private final GlideExecutor sourceUnlimitedExecutor;
   private final GlideExecutor animationExecutor;
+  @Nullable
+  private final BatchedResultDispatcher resultDispatcher;
 
   private Key key;
   private boolean isCacheable;
@@ -61,6 +66,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   // Checked primarily on the main thread, but also on other threads in reschedule.
   private volatile boolean isCancelled;
+  // Set on the main thread and read on the thread loading source data.
+  private volatile boolean isPreviewRequested;
+  // Incremented each time this job is released so that previews posted by a previous load are
+  // ignored.
+  private volatile int generation;
 
   EngineJob(
       GlideExecutor diskCacheExecutor,
@@ -68,7 +78,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
       EngineJobListener listener,
-      Pools.Pool<EngineJob<?>> pool) {
+      Pools.Pool<EngineJob<?>> pool,
+      @Nullable BatchedResultDispatcher resultDispatcher) {
     this(
         diskCacheExecutor,
         sourceExecutor,
@@ -76,7 +87,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         animationExecutor,
         listener,
         pool,
-        DEFAULT_FACTORY);
+        DEFAULT_FACTORY,
+        resultDispatcher);
   }
 
   @VisibleForTesting
@@ -87,7 +99,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       GlideExecutor animationExecutor,
       EngineJobListener listener,
       Pools.Pool<EngineJob<?>> pool,
-      EngineResourceFactory engineResourceFactory) {
+      EngineResourceFactory engineResourceFactory,
+      @Nullable BatchedResultDispatcher resultDispatcher) {
     this.diskCacheExecutor = diskCacheExecutor;
     this.sourceExecutor = sourceExecutor;
     this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
@@ -95,6 +108,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     this.listener = listener;
     this.pool = pool;
     this.engineResourceFactory = engineResourceFactory;
+    this.resultDispatcher = resultDispatcher;
   }
 
   @VisibleForTesting
@@ -129,6 +143,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       cb.onLoadFailed(exception);
     } else {
       cbs.add(cb);
+      if (cb instanceof ResourceCallback.PreviewCallback
+          && ((ResourceCallback.PreviewCallback) cb).isPreviewRequested()) {
+        isPreviewRequested = true;
+      }
     }
   }
 
@@ -180,9 +198,36 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     isCancelled = true;
     decodeJob.cancel();
-    // TODO: Consider trying to remove jobs that have never been run before from executor queues.
-    // Removing jobs that have run before can break things. See #1996.
     listener.onEngineJobCancelled(this, key);
+    removeFromQueue();
+  }
+
+  /**
+   * Removes our decode job from its executor's queue if it's still waiting there, so that a
+   * cancelled job doesn't wait for or occupy a thread just to notice it has been cancelled.
+   *
+   * <p>Jobs that have never run are released immediately. Removing jobs that have run before can
+   * break things (see #1996), so if one is removed anyway because it was rescheduled concurrently,
+   * it's queued again so that it can clean itself up.
+   */
+  private void removeFromQueue() {
+    if (decodeJob.hasRun()) {
+      return;
+    }
+    GlideExecutor executor = null;
+    if (diskCacheExecutor.remove(decodeJob)) {
+      executor = diskCacheExecutor;
+    } else if (getActiveSourceExecutor().remove(decodeJob)) {
+      executor = getActiveSourceExecutor();
+    }
+    if (executor == null) {
+      return;
+    }
+    if (decodeJob.hasRun()) {
+      executor.execute(decodeJob);
+    } else {
+      release(true /*isRemovedFromQueue*/);
+    }
   }
 
   // Exposed for testing.
@@ -224,6 +269,33 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     release(false /*isRemovedFromQueue*/);
   }
 
+  /**
+   * Delivers the resource or the exception this job completed with, used when results are
+   * delivered in batches by {@link BatchedResultDispatcher}.
+   */
+  void handleCompletedOnMainThread() {
+    if (exception != null) {
+      handleExceptionOnMainThread();
+    } else {
+      handleResultOnMainThread();
+    }
+  }
+
+  @Synthetic
+  void handlePreviewOnMainThread(Bitmap preview, int previewGeneration) {
+    if (previewGeneration != generation || isCancelled || hasResource || hasLoadFailed) {
+      preview.recycle();
+      return;
+    }
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = cbs.size(); i < size; i++) {
+      ResourceCallback cb = cbs.get(i);
+      if (cb instanceof ResourceCallback.PreviewCallback && !isInIgnoredCallbacks(cb)) {
+        ((ResourceCallback.PreviewCallback) cb).onPreviewReady(preview);
+      }
+    }
+  }
+
   @Synthetic
   void handleCancelledOnMainThread() {
     stateVerifier.throwIfRecycled();
@@ -245,6 +317,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
     hasLoadFailed = false;
     isCancelled = false;
+    isPreviewRequested = false;
+    generation++;
     hasResource = false;
     decodeJob.release(isRemovedFromQueue);
     decodeJob = null;
@@ -257,20 +331,54 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   public void onResourceReady(Resource<R> resource, DataSource dataSource) {
     this.resource = resource;
     this.dataSource = dataSource;
-    MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
+    if (resultDispatcher != null) {
+      resultDispatcher.dispatch(this);
+    } else {
+      MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
+    }
   }
 
   @Override
   public void onLoadFailed(GlideException e) {
     this.exception = e;
-    MAIN_THREAD_HANDLER.obtainMessage(MSG_EXCEPTION, this).sendToTarget();
+    if (resultDispatcher != null) {
+      resultDispatcher.dispatch(this);
+    } else {
+      MAIN_THREAD_HANDLER.obtainMessage(MSG_EXCEPTION, this).sendToTarget();
+    }
   }
 
   @Override
   public void reschedule(DecodeJob<?> job) {
     // Even if the job is cancelled here, it still needs to be scheduled so that it can clean itself
     // up.
-    getActiveSourceExecutor().execute(job);
+    GlideExecutor executor = getActiveSourceExecutor();
+    GlideExecutor decodeExecutor = executor.getDecodeExecutor();
+    if (decodeExecutor != null && job.willDecodeRetrievedData()) {
+      executor = decodeExecutor;
+    }
+    executor.execute(job);
+  }
+
+  @Override
+  public boolean isSourceDecodeSeparate() {
+    return getActiveSourceExecutor().getDecodeExecutor() != null;
+  }
+
+  @Override
+  public void onSourceDataDecoded(long blockedFetchNanos, long decodeNanos) {
+    getActiveSourceExecutor().onSourceDataDecoded(blockedFetchNanos, decodeNanos);
+  }
+
+  @Override
+  public boolean isPreviewRequested() {
+    return isPreviewRequested;
+  }
+
+  @Override
+  public void onPreviewReady(Bitmap preview) {
+    MAIN_THREAD_HANDLER.obtainMessage(MSG_PREVIEW, new Preview(this, preview, generation))
+        .sendToTarget();
   }
 
   @Synthetic
@@ -310,6 +418,18 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
+  private static final class Preview {
+    @Synthetic final EngineJob<?> job;
+    @Synthetic final Bitmap bitmap;
+    @Synthetic final int generation;
+
+    Preview(EngineJob<?> job, Bitmap bitmap, int generation) {
+      this.job = job;
+      this.bitmap = bitmap;
+      this.generation = generation;
+    }
+  }
+
   private static class MainThreadCallback implements Handler.Callback {
 
     @Synthetic
@@ -318,6 +438,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     @Override
     public boolean handleMessage(Message message) {
+      if (message.what == MSG_PREVIEW) {
+        Preview preview = (Preview) message.obj;
+        preview.job.handlePreviewOnMainThread(preview.bitmap, preview.generation);
+        return true;
+      }
       EngineJob<?> job = (EngineJob<?>) message.obj;
       switch (message.what) {
         case MSG_COMPLETE:
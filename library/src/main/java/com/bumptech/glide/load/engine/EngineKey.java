@@ -10,16 +10,21 @@ import java.util.Map;
 
 /**
  * An in memory only cache key used to multiplex loads.
+ *
+ * <p>Keys obtained from {@link EngineKeyFactory#obtainLookupKey} are pooled and mutable and must
+ * only be used to look up existing resources and loads. Keys that are stored in maps or that
+ * outlive a single call to {@link Engine#load} must be created with
+ * {@link EngineKeyFactory#promote(EngineKey)}.
  */
 class EngineKey implements Key {
-  private final Object model;
-  private final int width;
-  private final int height;
-  private final Class<?> resourceClass;
-  private final Class<?> transcodeClass;
-  private final Key signature;
-  private final Map<Class<?>, Transformation<?>> transformations;
-  private final Options options;
+  private Object model;
+  private int width;
+  private int height;
+  private Class<?> resourceClass;
+  private Class<?> transcodeClass;
+  private Key signature;
+  private Map<Class<?>, Transformation<?>> transformations;
+  private Options options;
   private int hashCode;
 
   EngineKey(
@@ -31,6 +36,38 @@ class EngineKey implements Key {
       Class<?> resourceClass,
       Class<?> transcodeClass,
       Options options) {
+    init(model, signature, width, height, transformations, resourceClass, transcodeClass, options);
+  }
+
+  /**
+   * Creates an uninitialized key for {@link EngineKeyFactory}'s key pool.
+   */
+  EngineKey() { }
+
+  /**
+   * Copies the given key, including its already computed hash code.
+   */
+  EngineKey(EngineKey other) {
+    model = other.model;
+    signature = other.signature;
+    width = other.width;
+    height = other.height;
+    transformations = other.transformations;
+    resourceClass = other.resourceClass;
+    transcodeClass = other.transcodeClass;
+    options = other.options;
+    hashCode = other.hashCode;
+  }
+
+  void init(
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Map<Class<?>, Transformation<?>> transformations,
+      Class<?> resourceClass,
+      Class<?> transcodeClass,
+      Options options) {
     this.model = Preconditions.checkNotNull(model);
     this.signature = Preconditions.checkNotNull(signature, "Signature must not be null");
     this.width = width;
@@ -41,6 +78,17 @@ class EngineKey implements Key {
     this.transcodeClass =
         Preconditions.checkNotNull(transcodeClass, "Transcode class must not be null");
     this.options = Preconditions.checkNotNull(options);
+    hashCode = 0;
+  }
+
+  void clear() {
+    model = null;
+    signature = null;
+    transformations = null;
+    resourceClass = null;
+    transcodeClass = null;
+    options = null;
+    hashCode = 0;
   }
 
   @Override
@@ -3,15 +3,54 @@ package com.bumptech.glide.load.engine;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.util.Util;
 import java.util.Map;
+import java.util.Queue;
 
+/**
+ * Creates {@link EngineKey}s and pools the mutable keys used to look up resources and loads so
+ * that loads satisfied from memory or joined to existing jobs don't allocate a key.
+ */
 class EngineKeyFactory {
+  private static final int MAX_POOL_SIZE = 20;
+  private final Queue<EngineKey> keyPool = Util.createQueue(MAX_POOL_SIZE);
 
-  @SuppressWarnings("rawtypes")
-  EngineKey buildKey(Object model, Key signature, int width, int height,
+  /**
+   * Returns a pooled key for the given arguments that must be passed to
+   * {@link #release(EngineKey)} once the caller is done with it and must never be stored.
+   *
+   * <p>The key's hash code is computed here, once, so that the key can be used to probe active
+   * resources, the memory cache and in progress jobs without hashing its contents again.
+   */
+  EngineKey obtainLookupKey(Object model, Key signature, int width, int height,
       Map<Class<?>, Transformation<?>> transformations, Class<?> resourceClass,
       Class<?> transcodeClass, Options options) {
-    return new EngineKey(model, signature, width, height, transformations, resourceClass,
-        transcodeClass, options);
+    EngineKey result;
+    synchronized (keyPool) {
+      result = keyPool.poll();
+    }
+    if (result == null) {
+      result = new EngineKey();
+    }
+    result.init(model, signature, width, height, transformations, resourceClass, transcodeClass,
+        options);
+    result.hashCode();
+    return result;
+  }
+
+  /**
+   * Returns an immutable copy of the given lookup key that can safely be stored.
+   */
+  EngineKey promote(EngineKey lookupKey) {
+    return new EngineKey(lookupKey);
+  }
+
+  void release(EngineKey lookupKey) {
+    lookupKey.clear();
+    synchronized (keyPool) {
+      if (keyPool.size() < MAX_POOL_SIZE) {
+        keyPool.offer(lookupKey);
+      }
+    }
   }
 }
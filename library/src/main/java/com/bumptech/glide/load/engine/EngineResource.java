@@ -2,6 +2,7 @@ package com.bumptech.glide.load.engine;
 
 import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.Preconditions;
 
@@ -35,6 +36,11 @@ class EngineResource<Z> implements Resource<Z> {
     this.listener = listener;
   }
 
+  @Nullable
+  Key getKey() {
+    return key;
+  }
+
   Resource<Z> getResource() {
     return resource;
   }
@@ -75,22 +81,33 @@ class EngineResource<Z> implements Resource<Z> {
   }
 
   /**
-   * Increments the number of consumers using the wrapped resource. Must be called on the main
-   * thread.
+   * Increments the number of consumers using the wrapped resource. May be called on any thread.
    *
    * <p> This must be called with a number corresponding to the number of new consumers each time
    * new consumers begin using the wrapped resource. It is always safer to call acquire more often
    * than necessary. Generally external users should never call this method, the framework will take
    * care of this for you. </p>
    */
-  void acquire() {
+  synchronized void acquire() {
     if (isRecycled) {
       throw new IllegalStateException("Cannot acquire a recycled resource");
     }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call acquire on the main thread");
+    ++acquired;
+  }
+
+  /**
+   * Increments the number of consumers using the wrapped resource only if the resource is already
+   * held by at least one other consumer and returns {@code true} if the resource was acquired.
+   *
+   * <p>Used when acquiring active resources on background threads, where the last consumer may
+   * release the resource on the main thread at any time and move it to the memory cache.
+   */
+  synchronized boolean acquireIfAcquired() {
+    if (acquired <= 0 || isRecycled) {
+      return false;
     }
     ++acquired;
+    return true;
   }
 
   /**
@@ -101,7 +118,7 @@ class EngineResource<Z> implements Resource<Z> {
    * done with the resource. Generally external users should never call this method, the framework
    * will take care of this for you.
    */
-  void release() {
+  synchronized void release() {
     if (acquired <= 0) {
       throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
     }
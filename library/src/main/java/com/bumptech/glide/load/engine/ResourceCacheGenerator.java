@@ -5,9 +5,11 @@ import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -31,6 +33,9 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   @SuppressWarnings("PMD.SingularField")
   private File cacheFile;
   private ResourceCacheKey currentKey;
+  // The key of the entry that was last loaded from a buffer, so that the ModelLoaders for the
+  // entry's File can be tried if the buffer can't be decoded.
+  private Key bufferKey;
 
   ResourceCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this.helper = helper;
@@ -45,6 +50,17 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     }
     List<Class<?>> resourceClasses = helper.getRegisteredResourceClasses();
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (bufferKey != null) {
+        // Some data, like videos, can only be decoded from a File.
+        Key failedKey = bufferKey;
+        bufferKey = null;
+        cacheFile = helper.getDiskCache().get(failedKey);
+        if (cacheFile != null) {
+          modelLoaders = helper.getModelLoaders(cacheFile);
+          modelLoaderIndex = 0;
+          continue;
+        }
+      }
       resourceClassIndex++;
       if (resourceClassIndex >= resourceClasses.size()) {
         sourceIdIndex++;
@@ -70,6 +86,17 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
               transformation,
               resourceClass,
               helper.getOptions());
+      ByteBuffer cachedBuffer = helper.getCachedBuffer(currentKey);
+      if (cachedBuffer == DiskCache.ByteBufferReader.NOT_CACHED) {
+        continue;
+      }
+      if (cachedBuffer != null) {
+        sourceKey = sourceId;
+        bufferKey = currentKey;
+        loadData = helper.buildCachedLoadData(cachedBuffer);
+        loadData.fetcher.loadData(helper.getPriority(), this);
+        return true;
+      }
       cacheFile = helper.getDiskCache().get(currentKey);
       if (cacheFile != null) {
         sourceKey = sourceId;
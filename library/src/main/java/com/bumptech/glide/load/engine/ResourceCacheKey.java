@@ -1,10 +1,12 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.util.LruCache;
 import com.bumptech.glide.util.Util;
 import java.nio.ByteBuffer;
@@ -13,7 +15,7 @@ import java.security.MessageDigest;
 /**
  * A cache key for downsampled and transformed resource data + any requested signature.
  */
-final class ResourceCacheKey implements Key {
+final class ResourceCacheKey implements Key, DiskCache.DataSourceKey {
   private static final LruCache<Class<?>, byte[]> RESOURCE_CLASS_BYTES = new LruCache<>(50);
   private final ArrayPool arrayPool;
   private final Key sourceKey;
@@ -96,6 +98,12 @@ final class ResourceCacheKey implements Key {
     return result;
   }
 
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return DataSource.RESOURCE_DISK_CACHE;
+  }
+
   @Override
   public String toString() {
     return "ResourceCacheKey{"
@@ -0,0 +1,386 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the bytes of a source {@link InputStream} to the disk cache on a background thread while
+ * the same bytes are decoded.
+ *
+ * <p>The decoder reads from {@link #getStream()}, which copies the bytes it returns into pooled
+ * chunks that are handed to the writer thread through a small bounded queue. When the decoder is
+ * finished it cleans up {@link #getFetcher()}, which hands the source stream off to the writer
+ * thread. The writer copies any bytes the decoder didn't read, commits the cache entry and only
+ * then cleans up the original fetcher.
+ *
+ * <p>If the writer falls behind, for example because it's waiting for another write to the same
+ * key, the decoder waits a short time for space in the queue and then abandons the cache write
+ * rather than buffering the source in memory. Cache writes that fail, are interrupted or whose
+ * load is cancelled are abandoned the same way, without affecting the decode.
+ */
+final class SourceDataTee implements DiskCache.Writer, Runnable {
+  private static final String TAG = "SourceDataTee";
+  private static final int CHUNK_SIZE = ArrayPool.STANDARD_BUFFER_SIZE_BYTES;
+  private static final int MAX_QUEUED_CHUNKS = 8;
+  private static final long MAX_ENQUEUE_WAIT_MS = 500;
+  // Marks the point at which the decoder has handed the source stream off to the writer.
+  private static final Chunk HAND_OFF = new Chunk(new byte[0], 0);
+  // Wakes the writer if the write is abandoned while it's waiting for a chunk.
+  private static final Chunk ABANDONED = new Chunk(new byte[0], 0);
+
+  private final DiskCache diskCache;
+  private final Key key;
+  @Synthetic final DataFetcher<?> fetcher;
+  @Synthetic final InputStream source;
+  private final ArrayPool arrayPool;
+  private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(MAX_QUEUED_CHUNKS);
+  private final TeeInputStream stream = new TeeInputStream();
+  private final TeeDataFetcher teeFetcher = new TeeDataFetcher();
+
+  // Fetchers may be cleaned up on a different thread than the one that decoded their data.
+  @Synthetic volatile boolean isHandedOff;
+  private volatile boolean isAbandoned;
+  // Guarded by this, the original fetcher is cleaned up by whichever of the decoder and the writer
+  // finishes last.
+  private boolean isWriterDone;
+  // Guarded by this, the chunk the decoder is currently filling.
+  @Nullable private byte[] pendingChunk;
+  private int pendingChunkLength;
+
+  /**
+   * Starts writing the given source stream to the disk cache under the given key on the given
+   * executor and returns a tee whose stream and fetcher should be used to decode the data in place
+   * of the originals.
+   */
+  static SourceDataTee start(
+      DiskCache diskCache,
+      Key key,
+      DataFetcher<?> fetcher,
+      InputStream source,
+      ArrayPool arrayPool,
+      Executor executor) {
+    SourceDataTee result = new SourceDataTee(diskCache, key, fetcher, source, arrayPool);
+    executor.execute(result);
+    return result;
+  }
+
+  @VisibleForTesting
+  SourceDataTee(
+      DiskCache diskCache,
+      Key key,
+      DataFetcher<?> fetcher,
+      InputStream source,
+      ArrayPool arrayPool) {
+    this.diskCache = diskCache;
+    this.key = key;
+    this.fetcher = fetcher;
+    this.source = source;
+    this.arrayPool = arrayPool;
+  }
+
+  InputStream getStream() {
+    return stream;
+  }
+
+  DataFetcher<InputStream> getFetcher() {
+    return teeFetcher;
+  }
+
+  @Override
+  public void run() {
+    try {
+      // The cache may already contain the entry, in which case we're never asked to write.
+      diskCache.put(key, this);
+    } finally {
+      onWriterDone();
+    }
+  }
+
+  @Override
+  public boolean write(@NonNull File file) {
+    boolean success = false;
+    OutputStream os = null;
+    byte[] buffer = null;
+    try {
+      os = new FileOutputStream(file);
+      if (!writeChunks(os)) {
+        return false;
+      }
+
+      // Copy whatever the decoder didn't read.
+      buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+      int read;
+      while ((read = source.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      os.close();
+      success = true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to write teed source data to the disk cache", e);
+      }
+    } finally {
+      if (os != null) {
+        try {
+          os.close();
+        } catch (IOException e) {
+          // Do nothing.
+        }
+      }
+      if (buffer != null) {
+        arrayPool.put(buffer);
+      }
+    }
+    return success;
+  }
+
+  /**
+   * Writes chunks until the decoder hands off the source stream and returns {@code true}, or
+   * returns {@code false} if the write is abandoned first.
+   */
+  private boolean writeChunks(OutputStream os) throws IOException {
+    try {
+      while (true) {
+        Chunk chunk = chunks.take();
+        if (chunk == HAND_OFF) {
+          return true;
+        } else if (chunk == ABANDONED || isAbandoned) {
+          return false;
+        }
+        try {
+          os.write(chunk.bytes, 0, chunk.length);
+        } finally {
+          arrayPool.put(chunk.bytes);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abandon();
+      return false;
+    }
+  }
+
+  private void onWriterDone() {
+    // Stops the decoder from queueing chunks that will never be written.
+    abandon();
+    boolean isCleanupRequired;
+    synchronized (this) {
+      isWriterDone = true;
+      isCleanupRequired = isHandedOff;
+    }
+    // Otherwise the decoder is still reading from the source and will clean it up in handOff.
+    if (isCleanupRequired) {
+      fetcher.cleanup();
+    }
+  }
+
+  /**
+   * Stops writing to the cache, after which the decoder doesn't copy or wait for the writer.
+   */
+  @Synthetic
+  void abandon() {
+    isAbandoned = true;
+    Chunk chunk;
+    while ((chunk = chunks.poll()) != null) {
+      if (chunk != HAND_OFF && chunk != ABANDONED) {
+        arrayPool.put(chunk.bytes);
+      }
+    }
+    // The decoder queues at most one more chunk before it sees that the write was abandoned, so
+    // there's always room for this.
+    chunks.offer(ABANDONED);
+  }
+
+  @Synthetic
+  void handOff() {
+    byte[] lastChunk;
+    int lastChunkLength;
+    boolean isCleanupRequired;
+    synchronized (this) {
+      if (isHandedOff) {
+        return;
+      }
+      isHandedOff = true;
+      lastChunk = pendingChunk;
+      lastChunkLength = pendingChunkLength;
+      pendingChunk = null;
+      pendingChunkLength = 0;
+      isCleanupRequired = isWriterDone;
+    }
+    if (lastChunk != null && lastChunkLength > 0) {
+      enqueue(new Chunk(lastChunk, lastChunkLength));
+    } else if (lastChunk != null) {
+      arrayPool.put(lastChunk);
+    }
+    if (isCleanupRequired) {
+      fetcher.cleanup();
+    } else {
+      enqueue(HAND_OFF);
+    }
+  }
+
+  @Synthetic
+  void onBytesRead(byte[] bytes, int offset, int count) {
+    while (count > 0 && !isAbandoned) {
+      Chunk fullChunk = null;
+      synchronized (this) {
+        if (pendingChunk == null) {
+          pendingChunk = arrayPool.get(CHUNK_SIZE, byte[].class);
+        }
+        int copied = Math.min(count, pendingChunk.length - pendingChunkLength);
+        System.arraycopy(bytes, offset, pendingChunk, pendingChunkLength, copied);
+        pendingChunkLength += copied;
+        offset += copied;
+        count -= copied;
+        if (pendingChunkLength == pendingChunk.length) {
+          fullChunk = new Chunk(pendingChunk, pendingChunkLength);
+          pendingChunk = null;
+          pendingChunkLength = 0;
+        }
+      }
+      if (fullChunk != null) {
+        enqueue(fullChunk);
+      }
+    }
+  }
+
+  private void enqueue(Chunk chunk) {
+    boolean isQueued = false;
+    if (!isAbandoned) {
+      try {
+        isQueued = chunks.offer(chunk, MAX_ENQUEUE_WAIT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (!isQueued) {
+      if (chunk != HAND_OFF) {
+        arrayPool.put(chunk.bytes);
+      }
+      if (!isAbandoned && Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Abandoning cache write for " + key + ", the writer fell behind the decoder");
+      }
+      abandon();
+    }
+  }
+
+  private final class TeeInputStream extends InputStream {
+    private final byte[] singleByte = new byte[1];
+
+    @Synthetic
+    TeeInputStream() { }
+
+    @Override
+    public int read() throws IOException {
+      int result = read(singleByte, 0, 1);
+      return result == -1 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+      assertNotHandedOff();
+      int read = source.read(buffer, offset, count);
+      onBytesRead(buffer, offset, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+      if (byteCount <= 0) {
+        return 0;
+      }
+      // Skipped bytes still need to be written to the cache.
+      byte[] buffer = new byte[(int) Math.min(byteCount, 8 * 1024)];
+      long skipped = 0;
+      while (skipped < byteCount) {
+        int read = read(buffer, 0, (int) Math.min(buffer.length, byteCount - skipped));
+        if (read == -1) {
+          break;
+        }
+        skipped += read;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      assertNotHandedOff();
+      return source.available();
+    }
+
+    @Override
+    public void close() {
+      // The writer owns the source once the decoder is done, see TeeDataFetcher#cleanup().
+    }
+
+    private void assertNotHandedOff() throws IOException {
+      if (isHandedOff) {
+        throw new IOException("Teed stream read after its fetcher was cleaned up");
+      }
+    }
+  }
+
+  private final class TeeDataFetcher implements DataFetcher<InputStream> {
+
+    @Synthetic
+    TeeDataFetcher() { }
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super InputStream> callback) {
+      callback.onDataReady(stream);
+    }
+
+    @Override
+    public void cleanup() {
+      handOff();
+    }
+
+    @Override
+    public void cancel() {
+      abandon();
+      fetcher.cancel();
+    }
+
+    @NonNull
+    @Override
+    public Class<InputStream> getDataClass() {
+      return InputStream.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return fetcher.getDataSource();
+    }
+  }
+
+  private static final class Chunk {
+    @Synthetic final byte[] bytes;
+    @Synthetic final int length;
+
+    @Synthetic
+    Chunk(byte[] bytes, int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
+  }
+}
@@ -8,7 +8,10 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.load.model.StreamEncoder;
+import com.bumptech.glide.load.resource.bitmap.ProgressiveJpegPreviewStream;
 import com.bumptech.glide.util.LogTime;
+import java.io.InputStream;
 import java.util.Collections;
 
 /**
@@ -17,7 +20,9 @@ import java.util.Collections;
  * provided for the load.
  *
  * <p> Depending on the disk cache strategy, source data may first be written to disk and then
- * loaded from the cache file rather than returned directly. </p>
+ * loaded from the cache file rather than returned directly, or if
+ * {@link DataCacheOptions#TEE_SOURCE_DATA} is set, written to disk while it's returned directly.
+ * </p>
  */
 class SourceGenerator implements DataFetcherGenerator,
     DataFetcher.DataCallback<Object>,
@@ -26,6 +31,7 @@ class SourceGenerator implements DataFetcherGenerator,
 
   private final DecodeHelper<?> helper;
   private final FetcherReadyCallback cb;
+  private final PreviewCallback previewCallback;
 
   private int loadDataListIndex;
   private DataCacheGenerator sourceCacheGenerator;
@@ -33,9 +39,11 @@ class SourceGenerator implements DataFetcherGenerator,
   private volatile ModelLoader.LoadData<?> loadData;
   private DataCacheKey originalKey;
 
-  SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
+  SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb,
+      PreviewCallback previewCallback) {
     this.helper = helper;
     this.cb = cb;
+    this.previewCallback = previewCallback;
   }
 
   @Override
@@ -102,8 +110,18 @@ class SourceGenerator implements DataFetcherGenerator,
 
   @Override
   public void onDataReady(Object data) {
+    if (isPreviewable(data)) {
+      // Wrapped before the data is cached so that previews are decoded while the data is written
+      // to the disk cache, rather than only once it's complete.
+      data = new ProgressiveJpegPreviewStream((InputStream) data, helper.getImageHeaderParsers(),
+          helper.getArrayPool(), helper.getWidth(), helper.getHeight(), previewCallback);
+    }
     DiskCacheStrategy diskCacheStrategy = helper.getDiskCacheStrategy();
     if (data != null && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {
+      if (canTeeToCache(data)) {
+        teeToCache((InputStream) data);
+        return;
+      }
       dataToCache = data;
       // We might be being called back on someone else's thread. Before doing anything, we should
       // reschedule to get back onto Glide's thread.
@@ -114,6 +132,40 @@ class SourceGenerator implements DataFetcherGenerator,
     }
   }
 
+  private boolean isPreviewable(Object data) {
+    return data instanceof InputStream
+        && loadData.fetcher.getDataSource() == DataSource.REMOTE
+        && previewCallback.isPreviewRequested();
+  }
+
+  private boolean canTeeToCache(Object data) {
+    Boolean isTeeEnabled = helper.getOptions().get(DataCacheOptions.TEE_SOURCE_DATA);
+    if (isTeeEnabled == null || !isTeeEnabled || !(data instanceof InputStream)) {
+      return false;
+    }
+    // Custom encoders may transform the data, which we can't do while it's being decoded.
+    Encoder<?> encoder = helper.getSourceEncoder(data);
+    return encoder instanceof StreamEncoder;
+  }
+
+  private void teeToCache(InputStream data) {
+    originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    SourceDataTee tee = SourceDataTee.start(
+        helper.getDiskCache(),
+        originalKey,
+        loadData.fetcher,
+        data,
+        helper.getArrayPool(),
+        helper.getSourceDataTeeExecutor());
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Teeing source to cache"
+          + ", key: " + originalKey
+          + ", data: " + data);
+    }
+    cb.onDataFetcherReady(loadData.sourceKey, tee.getStream(), tee.getFetcher(),
+        loadData.fetcher.getDataSource(), loadData.sourceKey);
+  }
+
   @Override
   public void onLoadFailed(@NonNull Exception e) {
     cb.onDataFetcherFailed(originalKey, e, loadData.fetcher, loadData.fetcher.getDataSource());
@@ -140,4 +192,15 @@ class SourceGenerator implements DataFetcherGenerator,
       DataSource dataSource) {
     cb.onDataFetcherFailed(sourceKey, e, fetcher, loadData.fetcher.getDataSource());
   }
+
+  /**
+   * Decides whether previews should be decoded from source data while it's loaded and receives
+   * them.
+   */
+  interface PreviewCallback extends ProgressiveJpegPreviewStream.Listener {
+    /**
+     * Returns {@code true} if previews of partially loaded images should be decoded.
+     */
+    boolean isPreviewRequested();
+  }
 }
@@ -0,0 +1,202 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.util.Synthetic;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ArrayPool} that keeps a small per thread cache, or magazine, of
+ * {@link ArrayPool#STANDARD_BUFFER_SIZE_BYTES} sized {@code byte[]}s and {@code int[]}s in front of
+ * a shared {@link LruArrayPool}.
+ *
+ * <p>Almost all of the arrays Glide obtains while decoding and encoding are standard sized
+ * buffers that are returned to the pool by the same thread that obtained them. Serving those
+ * arrays from a thread local magazine means most get/put pairs never take the depot's lock. All
+ * other sizes, and standard sized arrays that don't fit in a full magazine, are passed through to
+ * the depot.
+ *
+ * <p>Arrays held in magazines are not counted against the depot's maximum size, so this pool may
+ * hold up to {@link #MAGAZINE_SIZE} additional arrays of each type for each thread that uses it.
+ * {@link #clearMemory()} and {@link #trimMemory(int)} can't reach into other threads' magazines
+ * directly. Instead each magazine discards its contents the next time its thread uses the pool.
+ */
+public final class MagazineArrayPool implements ArrayPool {
+  @VisibleForTesting
+  static final int MAGAZINE_SIZE = 2;
+  private static final int STANDARD_INT_ARRAY_LENGTH =
+      STANDARD_BUFFER_SIZE_BYTES / new IntegerArrayAdapter().getElementSizeInBytes();
+  /**
+   * The smallest request that will be served a standard sized array from a magazine, chosen so
+   * that we never return an array more than {@link LruArrayPool#MAX_OVER_SIZE_MULTIPLE} times
+   * larger than the requested size.
+   */
+  private static final int MIN_BYTE_ARRAY_REQUEST =
+      STANDARD_BUFFER_SIZE_BYTES / LruArrayPool.MAX_OVER_SIZE_MULTIPLE;
+  private static final int MIN_INT_ARRAY_REQUEST =
+      STANDARD_INT_ARRAY_LENGTH / LruArrayPool.MAX_OVER_SIZE_MULTIPLE;
+
+  private final ArrayPool depot;
+  private final AtomicInteger generation = new AtomicInteger();
+  private final ThreadLocal<Magazine> magazines = new ThreadLocal<Magazine>() {
+    @Override
+    protected Magazine initialValue() {
+      return new Magazine();
+    }
+  };
+
+  /**
+   * Constructor for a new pool.
+   *
+   * @param maxSize The maximum size in bytes of the shared {@link LruArrayPool}.
+   */
+  public MagazineArrayPool(int maxSize) {
+    this(new LruArrayPool(maxSize));
+  }
+
+  @VisibleForTesting
+  MagazineArrayPool(ArrayPool depot) {
+    this.depot = depot;
+  }
+
+  @Deprecated
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    put(array);
+  }
+
+  @Override
+  public <T> void put(T array) {
+    if (isStandardSize(array) && getMagazine().offer(array)) {
+      return;
+    }
+    depot.put(array);
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    if (size >= getMinRequestSize(arrayClass) && size <= getStandardLength(arrayClass)) {
+      T result = getMagazine().poll(arrayClass);
+      if (result != null) {
+        return result;
+      }
+    }
+    return depot.get(size, arrayClass);
+  }
+
+  @Override
+  public <T> T getExact(int size, Class<T> arrayClass) {
+    if (size == getStandardLength(arrayClass)) {
+      T result = getMagazine().poll(arrayClass);
+      if (result != null) {
+        return result;
+      }
+    }
+    return depot.getExact(size, arrayClass);
+  }
+
+  @Override
+  public void clearMemory() {
+    generation.incrementAndGet();
+    depot.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      generation.incrementAndGet();
+    }
+    depot.trimMemory(level);
+  }
+
+  private Magazine getMagazine() {
+    Magazine magazine = magazines.get();
+    magazine.setGeneration(generation.get());
+    return magazine;
+  }
+
+  private static boolean isStandardSize(Object array) {
+    if (array instanceof byte[]) {
+      return ((byte[]) array).length == STANDARD_BUFFER_SIZE_BYTES;
+    } else if (array instanceof int[]) {
+      return ((int[]) array).length == STANDARD_INT_ARRAY_LENGTH;
+    }
+    return false;
+  }
+
+  private static int getStandardLength(Class<?> arrayClass) {
+    if (arrayClass.equals(byte[].class)) {
+      return STANDARD_BUFFER_SIZE_BYTES;
+    } else if (arrayClass.equals(int[].class)) {
+      return STANDARD_INT_ARRAY_LENGTH;
+    }
+    return -1;
+  }
+
+  private static int getMinRequestSize(Class<?> arrayClass) {
+    if (arrayClass.equals(byte[].class)) {
+      return MIN_BYTE_ARRAY_REQUEST;
+    } else if (arrayClass.equals(int[].class)) {
+      return MIN_INT_ARRAY_REQUEST;
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Holds up to {@link #MAGAZINE_SIZE} standard sized arrays of each type for a single thread.
+   */
+  private static final class Magazine {
+    private final Object[] byteArrays = new Object[MAGAZINE_SIZE];
+    private final Object[] intArrays = new Object[MAGAZINE_SIZE];
+    private int byteArrayCount;
+    private int intArrayCount;
+    private int generation;
+
+    @Synthetic
+    Magazine() { }
+
+    void setGeneration(int currentGeneration) {
+      if (generation != currentGeneration) {
+        clear(byteArrays);
+        clear(intArrays);
+        byteArrayCount = 0;
+        intArrayCount = 0;
+        generation = currentGeneration;
+      }
+    }
+
+    boolean offer(Object array) {
+      if (array instanceof byte[]) {
+        if (byteArrayCount < MAGAZINE_SIZE) {
+          byteArrays[byteArrayCount++] = array;
+          return true;
+        }
+      } else if (intArrayCount < MAGAZINE_SIZE) {
+        intArrays[intArrayCount++] = array;
+        return true;
+      }
+      return false;
+    }
+
+    // Our cast is safe because we only store arrays of each type in the matching slots.
+    @SuppressWarnings("unchecked")
+    <T> T poll(Class<T> arrayClass) {
+      Object result = null;
+      if (arrayClass.equals(byte[].class)) {
+        if (byteArrayCount > 0) {
+          result = byteArrays[--byteArrayCount];
+          byteArrays[byteArrayCount] = null;
+        }
+      } else if (intArrayCount > 0) {
+        result = intArrays[--intArrayCount];
+        intArrays[intArrayCount] = null;
+      }
+      return (T) result;
+    }
+
+    private static void clear(Object[] arrays) {
+      for (int i = 0; i < arrays.length; i++) {
+        arrays[i] = null;
+      }
+    }
+  }
+}
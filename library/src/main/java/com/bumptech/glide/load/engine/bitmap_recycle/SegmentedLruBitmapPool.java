@@ -0,0 +1,472 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.annotation.SuppressLint;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.util.Util;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BitmapPool} that splits {@link Bitmap}s into independently locked segments by
+ * {@link Bitmap.Config} and byte size so that threads putting and getting {@link Bitmap}s of
+ * different configs or sizes don't contend on a single lock.
+ *
+ * <p>Each segment uses the same {@link LruPoolStrategy} as {@link LruBitmapPool} and all segments
+ * share a single maximum size. When the pool grows larger than its maximum size, {@link Bitmap}s
+ * are evicted from the least recently used bucket of the least recently used segment, which
+ * approximates the eviction order of {@link LruBitmapPool}. Finding the least recently used
+ * segment only reads the access order of non-empty segments and locks just the segment that is
+ * evicted from.
+ *
+ * <p>Configs that {@link SizeConfigStrategy} allows to be re-used for each other share segments.
+ * On KitKat and above, where a {@link Bitmap} up to 8x larger than the requested size may be
+ * re-used, gets check the segment for the requested size and the segments for the next three
+ * larger sizes.
+ */
+public class SegmentedLruBitmapPool implements BitmapPool {
+  private static final String TAG = "SegmentedBitmapPool";
+  private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
+  // CONFIG_STRIPES * SIZE_CLASSES must be at most 64 so that nonEmptySegments can have one bit per
+  // segment.
+  private static final int CONFIG_STRIPES = 4;
+  // Bitmaps smaller than 2^12 bytes (4kb) share a single segment.
+  private static final int MIN_SIZE_CLASS_SHIFT = 12;
+  // Bitmaps larger than 2^(12 + 15) bytes (128mb) share a single segment.
+  private static final int SIZE_CLASSES = 16;
+  // Matches SizeConfigStrategy, which re-uses Bitmaps up to 8x (2^3) the requested size.
+  private static final int MAX_LARGER_SIZE_CLASSES = 3;
+
+  private final Segment[] segments;
+  private final Set<Bitmap.Config> allowedConfigs;
+  private final long initialMaxSize;
+  private final int maxLargerSizeClasses;
+  private final AtomicLong currentSize = new AtomicLong();
+  private final AtomicLong accessOrder = new AtomicLong();
+  // Bit i is set if segments[i] contains Bitmaps and is only modified while holding segments[i]'s
+  // monitor.
+  private final AtomicLong nonEmptySegments = new AtomicLong();
+  private volatile long maxSize;
+
+  /**
+   * Constructor for SegmentedLruBitmapPool.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  public SegmentedLruBitmapPool(long maxSize) {
+    this(maxSize, LruBitmapPool.getDefaultAllowedConfigs());
+  }
+
+  /**
+   * Constructor for SegmentedLruBitmapPool.
+   *
+   * @param maxSize        The initial maximum size of the pool in bytes.
+   * @param allowedConfigs A white listed set of {@link android.graphics.Bitmap.Config} that are
+   *                       allowed to be put into the pool. Configs not in the allowed set will be
+   *                       rejected.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public SegmentedLruBitmapPool(long maxSize, Set<Bitmap.Config> allowedConfigs) {
+    this.initialMaxSize = maxSize;
+    this.maxSize = maxSize;
+    this.allowedConfigs = allowedConfigs;
+    maxLargerSizeClasses =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ? MAX_LARGER_SIZE_CLASSES : 0;
+    segments = new Segment[CONFIG_STRIPES * SIZE_CLASSES];
+    for (int stripe = 0; stripe < CONFIG_STRIPES; stripe++) {
+      for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+        int index = stripe * SIZE_CLASSES + sizeClass;
+        segments[index] =
+            new Segment(index, stripe, sizeClass, LruBitmapPool.getDefaultStrategy());
+      }
+    }
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of all {@link Bitmap}s in all segments in bytes.
+   */
+  public long getCurrentSize() {
+    return currentSize.get();
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    maxSize = Math.round(initialMaxSize * sizeMultiplier);
+    evict();
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    if (bitmap == null) {
+      throw new NullPointerException("Bitmap must not be null");
+    }
+    if (bitmap.isRecycled()) {
+      throw new IllegalStateException("Cannot pool recycled bitmap");
+    }
+    int size = Util.getBitmapByteSize(bitmap);
+    if (!bitmap.isMutable() || size > maxSize || !allowedConfigs.contains(bitmap.getConfig())) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Reject bitmap from pool"
+            + ", size: " + size
+            + ", config: " + bitmap.getConfig()
+            + ", is mutable: " + bitmap.isMutable()
+            + ", is allowed config: " + allowedConfigs.contains(bitmap.getConfig()));
+      }
+      bitmap.recycle();
+      return;
+    }
+
+    Segment segment = getSegment(getConfigStripe(bitmap.getConfig()), getSizeClass(size));
+    synchronized (segment) {
+      segment.strategy.put(bitmap);
+      if (segment.currentSize == 0) {
+        setNonEmpty(segment, true);
+      }
+      segment.currentSize += size;
+      segment.puts++;
+      segment.lastAccess = accessOrder.incrementAndGet();
+    }
+    currentSize.addAndGet(size);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Put bitmap in pool=" + size + "(" + bitmap.getConfig() + ")");
+    }
+
+    evict();
+  }
+
+  @NonNull
+  @Override
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result != null) {
+      // See LruBitmapPool#get and issue #131.
+      result.eraseColor(Color.TRANSPARENT);
+    } else {
+      result = LruBitmapPool.createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @NonNull
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result == null) {
+      result = LruBitmapPool.createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @Nullable
+  private Bitmap getDirtyOrNull(int width, int height, @Nullable Bitmap.Config config) {
+    LruBitmapPool.assertNotHardwareConfig(config);
+    // See LruBitmapPool#getDirtyOrNull and issue #194.
+    Bitmap.Config toGet = config != null ? config : DEFAULT_CONFIG;
+    int stripe = getConfigStripe(toGet);
+    int sizeClass = getSizeClass(Util.getBitmapByteSize(width, height, toGet));
+    int maxSizeClass = Math.min(SIZE_CLASSES - 1, sizeClass + maxLargerSizeClasses);
+
+    for (int i = sizeClass; i <= maxSizeClass; i++) {
+      Segment segment = getSegment(stripe, i);
+      Bitmap result;
+      int size;
+      synchronized (segment) {
+        if (segment.currentSize == 0) {
+          continue;
+        }
+        result = segment.strategy.get(width, height, toGet);
+        if (result == null) {
+          continue;
+        }
+        size = segment.strategy.getSize(result);
+        segment.currentSize -= size;
+        if (segment.currentSize == 0) {
+          setNonEmpty(segment, false);
+        }
+        segment.hits++;
+        segment.lastAccess = accessOrder.incrementAndGet();
+      }
+      currentSize.addAndGet(-size);
+      LruBitmapPool.normalize(result);
+      return result;
+    }
+
+    Segment requested = getSegment(stripe, sizeClass);
+    synchronized (requested) {
+      requested.misses++;
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Missing bitmap=" + width + "x" + height + "(" + toGet + ")");
+    }
+    return null;
+  }
+
+  @Override
+  public void clearMemory() {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "clearMemory");
+    }
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "trimMemory, level=" + level);
+    }
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      trimToSize(maxSize / 2);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the hits, misses, puts, evictions and size of every segment that has
+   * been used since the pool was created.
+   */
+  @NonNull
+  public List<SegmentStats> getSegmentStats() {
+    List<SegmentStats> result = new ArrayList<>();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        if (segment.puts > 0 || segment.misses > 0) {
+          result.add(new SegmentStats(segment));
+        }
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private void evict() {
+    trimToSize(maxSize);
+  }
+
+  private void trimToSize(long size) {
+    while (currentSize.get() > size) {
+      Segment segment = getLeastRecentlyUsedSegment();
+      if (segment == null) {
+        // Another thread may have emptied the pool between the size check and the segment scan.
+        return;
+      }
+      Bitmap removed;
+      int removedSize;
+      synchronized (segment) {
+        if (segment.currentSize == 0) {
+          // Another thread emptied the segment after it was chosen, pick a new one.
+          continue;
+        }
+        removed = segment.strategy.removeLast();
+        if (removed == null) {
+          // Bitmaps that are reconfigured after they're put can be removed with a different size
+          // than they were added with (see #331), so the segment's size may not reach zero when it
+          // runs out of Bitmaps. Drop the remaining size so that the pool's size matches its
+          // contents again.
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Size mismatch, resetting " + segment);
+          }
+          currentSize.addAndGet(-segment.currentSize);
+          segment.currentSize = 0;
+          setNonEmpty(segment, false);
+          continue;
+        }
+        removedSize = segment.strategy.getSize(removed);
+        segment.currentSize -= removedSize;
+        if (segment.currentSize == 0) {
+          setNonEmpty(segment, false);
+        }
+        segment.evictions++;
+      }
+      currentSize.addAndGet(-removedSize);
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Evicting bitmap=" + segment.strategy.logBitmap(removed));
+      }
+      removed.recycle();
+    }
+  }
+
+  /**
+   * Returns the non-empty segment with the oldest access, without taking any segment's monitor.
+   *
+   * <p>The result is approximate because segments may be accessed concurrently, callers must check
+   * that the segment is still non-empty while holding its monitor.
+   */
+  @Nullable
+  private Segment getLeastRecentlyUsedSegment() {
+    Segment result = null;
+    long resultLastAccess = Long.MAX_VALUE;
+    long remaining = nonEmptySegments.get();
+    while (remaining != 0) {
+      Segment segment = segments[Long.numberOfTrailingZeros(remaining)];
+      remaining &= remaining - 1;
+      long lastAccess = segment.lastAccess;
+      if (lastAccess < resultLastAccess) {
+        result = segment;
+        resultLastAccess = lastAccess;
+      }
+    }
+    return result;
+  }
+
+  // Must be called while holding the segment's monitor.
+  private void setNonEmpty(Segment segment, boolean isNonEmpty) {
+    long bit = 1L << segment.index;
+    long current;
+    long updated;
+    do {
+      current = nonEmptySegments.get();
+      updated = isNonEmpty ? current | bit : current & ~bit;
+    } while (!nonEmptySegments.compareAndSet(current, updated));
+  }
+
+  private Segment getSegment(int stripe, int sizeClass) {
+    return segments[stripe * SIZE_CLASSES + sizeClass];
+  }
+
+  @VisibleForTesting
+  static int getSizeClass(int byteSize) {
+    int log2 = 31 - Integer.numberOfLeadingZeros(Math.max(1, byteSize));
+    return Math.max(0, Math.min(SIZE_CLASSES - 1, log2 - MIN_SIZE_CLASS_SHIFT));
+  }
+
+  /**
+   * Returns the index of the stripe for the given config, where configs that
+   * {@link SizeConfigStrategy} allows to be re-used for each other share a stripe.
+   */
+  @VisibleForTesting
+  static int getConfigStripe(@Nullable Bitmap.Config config) {
+    if (config == null) {
+      return 0;
+    }
+    switch (config) {
+      case RGB_565:
+        return 1;
+      case ARGB_4444:
+        return 2;
+      case ALPHA_8:
+        return 3;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * A snapshot of the usage of a single segment of a {@link SegmentedLruBitmapPool}.
+   */
+  public static final class SegmentStats {
+    private final int configStripe;
+    private final int sizeClass;
+    private final int hits;
+    private final int misses;
+    private final int puts;
+    private final int evictions;
+    private final long currentSize;
+
+    SegmentStats(Segment segment) {
+      configStripe = segment.configStripe;
+      sizeClass = segment.sizeClass;
+      hits = segment.hits;
+      misses = segment.misses;
+      puts = segment.puts;
+      evictions = segment.evictions;
+      currentSize = segment.currentSize;
+    }
+
+    /**
+     * Returns {@code 0} for {@link Bitmap.Config#ARGB_8888} and configs that can be re-used for
+     * it, {@code 1} for {@link Bitmap.Config#RGB_565}, {@code 2} for
+     * {@link Bitmap.Config#ARGB_4444} and {@code 3} for {@link Bitmap.Config#ALPHA_8}.
+     */
+    public int getConfigStripe() {
+      return configStripe;
+    }
+
+    /**
+     * Returns the smallest size in bytes of {@link Bitmap}s in the segment, except for the first
+     * segment, which also contains all smaller {@link Bitmap}s.
+     */
+    public long getMinByteSize() {
+      return 1L << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+    }
+
+    public int getHits() {
+      return hits;
+    }
+
+    public int getMisses() {
+      return misses;
+    }
+
+    public int getPuts() {
+      return puts;
+    }
+
+    public int getEvictions() {
+      return evictions;
+    }
+
+    public long getCurrentSize() {
+      return currentSize;
+    }
+
+    @Override
+    public String toString() {
+      return "SegmentStats{"
+          + "configStripe=" + configStripe
+          + ", minByteSize=" + getMinByteSize()
+          + ", hits=" + hits
+          + ", misses=" + misses
+          + ", puts=" + puts
+          + ", evictions=" + evictions
+          + ", currentSize=" + currentSize
+          + '}';
+    }
+  }
+
+  // All mutable fields are guarded by the segment's monitor. lastAccess is also read without the
+  // monitor to find the least recently used segment.
+  private static final class Segment {
+    final int index;
+    final int configStripe;
+    final int sizeClass;
+    final LruPoolStrategy strategy;
+    long currentSize;
+    volatile long lastAccess;
+    int hits;
+    int misses;
+    int puts;
+    int evictions;
+
+    Segment(int index, int configStripe, int sizeClass, LruPoolStrategy strategy) {
+      this.index = index;
+      this.configStripe = configStripe;
+      this.sizeClass = sizeClass;
+      this.strategy = strategy;
+    }
+
+    @Override
+    public String toString() {
+      return "Segment{"
+          + "configStripe=" + configStripe
+          + ", sizeClass=" + sizeClass
+          + ", currentSize=" + currentSize
+          + ", strategy=" + strategy
+          + '}';
+    }
+  }
+}
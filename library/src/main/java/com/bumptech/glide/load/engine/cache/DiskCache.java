@@ -2,8 +2,12 @@ package com.bumptech.glide.load.engine.cache;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * An interface for writing to and reading from a disk cache.
@@ -36,6 +40,88 @@ public interface DiskCache {
     boolean write(@NonNull File file);
   }
 
+  /**
+   * An optional interface for disk caches that can return cached data directly as a
+   * {@link ByteBuffer} instead of as a {@link File}.
+   *
+   * <p>Glide checks {@link #getBuffer(Key)} before {@link DiskCache#get(Key)} when reading from
+   * caches that implement this interface, which lets caches that don't store each entry in a
+   * separate file, like {@link PackedDiskCache}, return entries without copying them. Buffers are
+   * passed directly to decoders for {@link ByteBuffer}s, or wrapped in an
+   * {@link java.io.InputStream} for decoders that only accept streams, without looking up the
+   * {@link com.bumptech.glide.load.model.ModelLoader}s for {@link File}s.
+   */
+  interface ByteBufferReader {
+    /**
+     * Returned by {@link #getBuffer(Key)} if the data for the key is definitely not cached, in
+     * which case Glide doesn't check {@link DiskCache#get(Key)} for it.
+     *
+     * <p>Compared by identity, never read.
+     */
+    ByteBuffer NOT_CACHED = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    /**
+     * Returns a read only buffer containing the data for the given key, {@link #NOT_CACHED} if the
+     * data isn't cached, or {@code null} if the data isn't cached or is only available via
+     * {@link DiskCache#get(Key)}.
+     *
+     * <p>The returned buffer is positioned at the start of the data and its limit is the end of
+     * the data.
+     */
+    @Nullable
+    ByteBuffer getBuffer(Key key);
+  }
+
+  /**
+   * An optional interface for disk caches that need to do expensive work, like reading their index,
+   * before they can be used.
+   *
+   * <p>Glide may call {@link #warmUp()} on a background thread before the first load so that the
+   * first load doesn't wait for that work. See
+   * {@link com.bumptech.glide.GlideBuilder#setIsDiskCacheWarmUpEnabled(boolean)}.
+   */
+  interface Warmable {
+    /**
+     * Performs any work required before the cache can be read from or written to.
+     *
+     * <p>Called on a background thread. Must be safe to call more than once and concurrently with
+     * the other methods of the cache.
+     */
+    void warmUp();
+  }
+
+  /**
+   * An optional interface for disk caches that can import archives of entries built ahead of time
+   * with {@link DiskCacheArchiveBuilder}.
+   */
+  interface ArchiveImporter {
+    /**
+     * Reads every entry from the given archive and writes those that aren't already cached.
+     *
+     * <p>Called on a background thread. The caller is responsible for closing the stream.
+     *
+     * @return The number of entries written.
+     * @throws IOException If the archive can't be read, isn't an archive, or was built for a cache
+     *                     that uses a different {@link SafeKeyGenerator.Algorithm}.
+     */
+    int importArchive(@NonNull InputStream archive) throws IOException;
+  }
+
+  /**
+   * An optional interface for {@link Key}s that identify the kind of data they're used to cache.
+   *
+   * <p>The keys Glide uses for its disk cache implement this interface, which allows caches like
+   * {@link PartitionedDiskCache} to store unmodified data and transformed resources separately.
+   */
+  interface DataSourceKey {
+    /**
+     * Returns {@link DataSource#DATA_DISK_CACHE} for keys of unmodified data or
+     * {@link DataSource#RESOURCE_DISK_CACHE} for keys of transformed resources.
+     */
+    @NonNull
+    DataSource getDataSource();
+  }
+
   /**
    * Get the cache for the value at the given key.
    *
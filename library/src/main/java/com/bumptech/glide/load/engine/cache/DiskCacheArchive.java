@@ -0,0 +1,246 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.util.Synthetic;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The format of the archives written by {@link DiskCacheArchiveBuilder} and read by
+ * {@link DiskCache.ArchiveImporter}s.
+ *
+ * <p>Archives start with a header containing a magic number, a version and the
+ * {@link SafeKeyGenerator.Algorithm} used to name the entries. Each entry is a boolean
+ * {@code true}, the safe key as modified UTF-8, the name of the {@link DataSource} of the key as
+ * modified UTF-8, the length of the data as a long, and then the data. The last entry is followed
+ * by a boolean {@code false}. The data source allows caches that store different kinds of keys
+ * separately, like {@link PartitionedDiskCache}, to route entries without the original keys.
+ *
+ * <p>Uses only classes available on the JVM so that archives can be built offline.
+ */
+final class DiskCacheArchive {
+  private static final int MAGIC = 0x47444341;
+  private static final int VERSION = 2;
+
+  private DiskCacheArchive() {
+    // Utility class.
+  }
+
+  static MessageDigest newMessageDigest(SafeKeyGenerator.Algorithm algorithm) {
+    if (algorithm == SafeKeyGenerator.Algorithm.MURMUR3_128) {
+      return new Murmur3Digest();
+    }
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static void writeHeader(DataOutputStream output, SafeKeyGenerator.Algorithm algorithm)
+      throws IOException {
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeUTF(algorithm.name());
+  }
+
+  /**
+   * Reads the header and throws if the archive isn't an archive or its entries weren't named with
+   * the given algorithm.
+   */
+  static void readHeader(DataInputStream input, SafeKeyGenerator.Algorithm algorithm)
+      throws IOException {
+    SafeKeyGenerator.Algorithm archiveAlgorithm = readHeader(input);
+    if (archiveAlgorithm != algorithm) {
+      throw new IOException("Archive was built with: " + archiveAlgorithm
+          + ", but the cache uses: " + algorithm);
+    }
+  }
+
+  /**
+   * Reads the header and returns the algorithm used to name the entries, or throws if the archive
+   * isn't an archive.
+   */
+  @NonNull
+  static SafeKeyGenerator.Algorithm readHeader(DataInputStream input) throws IOException {
+    int magic = input.readInt();
+    int version = input.readInt();
+    if (magic != MAGIC || version != VERSION) {
+      throw new IOException("Not a disk cache archive, magic: " + Integer.toHexString(magic)
+          + ", version: " + version);
+    }
+    String archiveAlgorithm = input.readUTF();
+    try {
+      return SafeKeyGenerator.Algorithm.valueOf(archiveAlgorithm);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown algorithm: " + archiveAlgorithm, e);
+    }
+  }
+
+  static void writeEntryHeader(
+      DataOutputStream output, String safeKey, DataSource dataSource, long length)
+      throws IOException {
+    output.writeBoolean(true);
+    output.writeUTF(safeKey);
+    output.writeUTF(dataSource.name());
+    output.writeLong(length);
+  }
+
+  static void writeEnd(DataOutputStream output) throws IOException {
+    output.writeBoolean(false);
+  }
+
+  /**
+   * Returns the header of the next entry, which must be followed by a read or skip of the entry's
+   * data, or {@code null} if there are no more entries.
+   */
+  @Nullable
+  static EntryHeader readEntryHeader(DataInputStream input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    String safeKey = input.readUTF();
+    String dataSourceName = input.readUTF();
+    DataSource dataSource;
+    if (DataSource.DATA_DISK_CACHE.name().equals(dataSourceName)) {
+      dataSource = DataSource.DATA_DISK_CACHE;
+    } else if (DataSource.RESOURCE_DISK_CACHE.name().equals(dataSourceName)) {
+      dataSource = DataSource.RESOURCE_DISK_CACHE;
+    } else {
+      throw new IOException("Invalid entry data source: " + dataSourceName);
+    }
+    long length = input.readLong();
+    if (length < 0) {
+      throw new IOException("Invalid entry length: " + length);
+    }
+    return new EntryHeader(safeKey, dataSource, length);
+  }
+
+  static void skipFully(InputStream is, long length) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      long skipped = is.skip(remaining);
+      if (skipped <= 0) {
+        if (is.read() == -1) {
+          throw new EOFException("Archive ended with " + remaining + " bytes remaining");
+        }
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
+  /**
+   * Imports a single entry, whose header has just been read from the given stream, by passing an
+   * archive containing only that entry to the given importer.
+   *
+   * <p>Allows caches made up of other caches to import each entry into the cache it belongs in
+   * without buffering the data.
+   *
+   * @return The number of entries written by the importer.
+   */
+  static int importEntry(DiskCache.ArchiveImporter importer, SafeKeyGenerator.Algorithm algorithm,
+      EntryHeader header, InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    writeHeader(output, algorithm);
+    writeEntryHeader(output, header.safeKey, header.dataSource, header.length);
+    output.flush();
+    InputStream prefix = new ByteArrayInputStream(bytes.toByteArray());
+
+    bytes.reset();
+    writeEnd(output);
+    output.flush();
+    InputStream suffix = new ByteArrayInputStream(bytes.toByteArray());
+
+    BoundedInputStream data = new BoundedInputStream(input, header.length);
+    int result = importer.importArchive(
+        new SequenceInputStream(prefix, new SequenceInputStream(data, suffix)));
+    // Keep the outer archive aligned on the next entry even if the importer stopped early.
+    skipFully(data, data.remaining);
+    return result;
+  }
+
+  /**
+   * The safe key, data source and data length of a single entry.
+   */
+  static final class EntryHeader {
+    final String safeKey;
+    final DataSource dataSource;
+    final long length;
+
+    @Synthetic
+    EntryHeader(String safeKey, DataSource dataSource, long length) {
+      this.safeKey = safeKey;
+      this.dataSource = dataSource;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Reads up to a fixed number of bytes from a stream without closing it.
+   */
+  private static final class BoundedInputStream extends InputStream {
+    private final InputStream is;
+    @Synthetic long remaining;
+
+    @Synthetic
+    BoundedInputStream(InputStream is, long length) {
+      this.is = is;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+      int result = is.read();
+      if (result != -1) {
+        remaining--;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+      int read = is.read(buffer, offset, (int) Math.min(length, remaining));
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = is.skip(Math.min(count, remaining));
+      if (skipped > 0) {
+        remaining -= skipped;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(is.available(), remaining);
+    }
+
+    @Override
+    public void close() {
+      // Do nothing, the caller owns the stream.
+    }
+  }
+}
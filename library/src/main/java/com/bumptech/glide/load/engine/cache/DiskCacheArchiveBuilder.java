@@ -0,0 +1,161 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.EmptySignature;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Writes archives of disk cache entries that can be imported into a disk cache in a single
+ * sequential pass, see {@link com.bumptech.glide.Glide#importDiskCacheArchive(InputStream)}.
+ *
+ * <p>Allows apps that ship with a known set of images to seed the disk cache on first launch
+ * rather than fetching each image. Only uses classes available on the JVM, so archives can be built
+ * offline, for example in a build step:
+ *
+ * <pre>
+ * {@code
+ * DiskCacheArchiveBuilder builder = new DiskCacheArchiveBuilder(new FileOutputStream(archive));
+ * try {
+ *   builder.addUrl("https://www.example.com/onboarding.png", new File("onboarding.png"));
+ * } finally {
+ *   builder.close();
+ * }
+ * }
+ * </pre>
+ *
+ * <p>Entries are added as unmodified source data, so they're decoded and transformed on device
+ * the first time they're loaded, just like data fetched from the network. The keys used for
+ * transformed resources depend on the options and the size of the view they're loaded into, which
+ * usually aren't known until runtime. They can be added with {@link #addEntry(Key, File)} if an
+ * equivalent {@link Key} can be constructed.
+ */
+// Public API.
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class DiskCacheArchiveBuilder implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final DataOutputStream output;
+  private final MessageDigest messageDigest;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private boolean isClosed;
+
+  /**
+   * Creates a builder for a cache that uses the default {@link SafeKeyGenerator.Algorithm}.
+   */
+  public DiskCacheArchiveBuilder(@NonNull OutputStream outputStream) throws IOException {
+    this(outputStream, SafeKeyGenerator.Algorithm.SHA_256);
+  }
+
+  /**
+   * Creates a builder for a cache that uses the given {@link SafeKeyGenerator.Algorithm}.
+   *
+   * <p>Archives can only be imported into caches that use the same algorithm.
+   */
+  public DiskCacheArchiveBuilder(
+      @NonNull OutputStream outputStream, @NonNull SafeKeyGenerator.Algorithm algorithm)
+      throws IOException {
+    output = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    messageDigest = DiskCacheArchive.newMessageDigest(algorithm);
+    DiskCacheArchive.writeHeader(output, algorithm);
+  }
+
+  /**
+   * Adds the data for a url loaded as a {@link String} or
+   * {@link com.bumptech.glide.load.model.GlideUrl} without a signature.
+   *
+   * <p>The url must exactly match the url that will be loaded.
+   */
+  public DiskCacheArchiveBuilder addUrl(@NonNull final String url, @NonNull File data)
+      throws IOException {
+    return addDataEntry(new Key() {
+      @Override
+      public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        // Matches GlideUrl.
+        messageDigest.update(url.getBytes(CHARSET));
+      }
+    }, EmptySignature.obtain(), data);
+  }
+
+  /**
+   * Adds the unmodified data for a model with the given source key and signature.
+   *
+   * @param sourceKey The key of the model, matching the key used by the model's
+   *                  {@link com.bumptech.glide.load.model.ModelLoader}.
+   * @param signature The signature of the request, {@link EmptySignature#obtain()} by default.
+   */
+  public DiskCacheArchiveBuilder addDataEntry(
+      @NonNull Key sourceKey, @NonNull Key signature, @NonNull File data) throws IOException {
+    // Matches the data cache key used by the engine.
+    sourceKey.updateDiskCacheKey(messageDigest);
+    signature.updateDiskCacheKey(messageDigest);
+    return addEntry(
+        SafeKeyGenerator.bytesToHex(messageDigest.digest()), DataSource.DATA_DISK_CACHE, data);
+  }
+
+  /**
+   * Adds data for an arbitrary key, which must match the key the data will be requested with.
+   *
+   * <p>Keys that implement {@link DiskCache.DataSourceKey} are recorded with their data source, so
+   * that caches that store unmodified data and transformed resources separately can import the
+   * entry into the right place. Other keys are treated as unmodified data.
+   */
+  public DiskCacheArchiveBuilder addEntry(@NonNull Key key, @NonNull File data)
+      throws IOException {
+    boolean isResource = key instanceof DiskCache.DataSourceKey
+        && ((DiskCache.DataSourceKey) key).getDataSource() == DataSource.RESOURCE_DISK_CACHE;
+    DataSource dataSource =
+        isResource ? DataSource.RESOURCE_DISK_CACHE : DataSource.DATA_DISK_CACHE;
+    key.updateDiskCacheKey(messageDigest);
+    return addEntry(SafeKeyGenerator.bytesToHex(messageDigest.digest()), dataSource, data);
+  }
+
+  private DiskCacheArchiveBuilder addEntry(String safeKey, DataSource dataSource, File data)
+      throws IOException {
+    if (isClosed) {
+      throw new IllegalStateException("Cannot add entries after the builder is closed");
+    }
+    long length = data.length();
+    DiskCacheArchive.writeEntryHeader(output, safeKey, dataSource, length);
+    InputStream is = new FileInputStream(data);
+    try {
+      long remaining = length;
+      while (remaining > 0) {
+        int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read == -1) {
+          throw new IOException("File changed while being added: " + data);
+        }
+        output.write(buffer, 0, read);
+        remaining -= read;
+      }
+    } finally {
+      is.close();
+    }
+    return this;
+  }
+
+  /**
+   * Finishes the archive and closes the underlying stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    try {
+      DiskCacheArchive.writeEnd(output);
+    } finally {
+      output.close();
+    }
+  }
+}
@@ -6,12 +6,17 @@ import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Keeps a map of keys to locks that allows locks to be removed from the map when no longer in use
- * so the size of the collection is bounded.
+ * Keeps a map of keys to read/write locks that allows locks to be removed from the map when no
+ * longer in use so the size of the collection is bounded.
+ *
+ * <p>Writes to a key are exclusive, reads of a key may happen concurrently with each other but
+ * wait for, or with {@link #tryAcquireRead(String)} give up on, any in progress write of the same
+ * key. Reads and writes of different keys never block each other, which allows the disk cache to
+ * be used from multiple threads.
  *
  * <p> This class will be accessed by multiple threads in a thread pool and ensures that the
  *  number of threads interested in each lock is updated atomically so that when the count reaches
@@ -21,48 +26,75 @@ final class DiskCacheWriteLocker {
   private final Map<String, WriteLock> locks = new HashMap<>();
   private final WriteLockPool writeLockPool = new WriteLockPool();
 
+  /** Acquires the exclusive lock used to write to the given key. */
   void acquire(String safeKey) {
-    WriteLock writeLock;
-    synchronized (this) {
-      writeLock = locks.get(safeKey);
-      if (writeLock == null) {
-        writeLock = writeLockPool.obtain();
-        locks.put(safeKey, writeLock);
-      }
-      writeLock.interestedThreads++;
+    obtain(safeKey).lock.writeLock().lock();
+  }
+
+  /** Releases a lock obtained with {@link #acquire(String)}. */
+  void release(String safeKey) {
+    remove(safeKey).lock.writeLock().unlock();
+  }
+
+  /** Acquires the shared lock used to read the given key. */
+  void acquireRead(String safeKey) {
+    obtain(safeKey).lock.readLock().lock();
+  }
+
+  /**
+   * Acquires the shared lock used to read the given key and returns {@code true}, or returns
+   * {@code false} without waiting if the key is being written.
+   */
+  boolean tryAcquireRead(String safeKey) {
+    if (obtain(safeKey).lock.readLock().tryLock()) {
+      return true;
     }
+    remove(safeKey);
+    return false;
+  }
 
-    writeLock.lock.lock();
+  /**
+   * Releases a lock obtained with {@link #acquireRead(String)} or
+   * {@link #tryAcquireRead(String)}.
+   */
+  void releaseRead(String safeKey) {
+    remove(safeKey).lock.readLock().unlock();
   }
 
-  void release(String safeKey) {
-    WriteLock writeLock;
-    synchronized (this) {
-      writeLock = Preconditions.checkNotNull(locks.get(safeKey));
-      if (writeLock.interestedThreads < 1) {
-        throw new IllegalStateException("Cannot release a lock that is not held"
-            + ", safeKey: " + safeKey
-            + ", interestedThreads: " + writeLock.interestedThreads);
-      }
+  private synchronized WriteLock obtain(String safeKey) {
+    WriteLock writeLock = locks.get(safeKey);
+    if (writeLock == null) {
+      writeLock = writeLockPool.obtain();
+      locks.put(safeKey, writeLock);
+    }
+    writeLock.interestedThreads++;
+    return writeLock;
+  }
 
-      writeLock.interestedThreads--;
-      if (writeLock.interestedThreads == 0) {
-        WriteLock removed = locks.remove(safeKey);
-        if (!removed.equals(writeLock)) {
-          throw new IllegalStateException("Removed the wrong lock"
-              + ", expected to remove: " + writeLock
-              + ", but actually removed: " + removed
-              + ", safeKey: " + safeKey);
-        }
-        writeLockPool.offer(removed);
-      }
+  private synchronized WriteLock remove(String safeKey) {
+    WriteLock writeLock = Preconditions.checkNotNull(locks.get(safeKey));
+    if (writeLock.interestedThreads < 1) {
+      throw new IllegalStateException("Cannot release a lock that is not held"
+          + ", safeKey: " + safeKey
+          + ", interestedThreads: " + writeLock.interestedThreads);
     }
 
-    writeLock.lock.unlock();
+    writeLock.interestedThreads--;
+    if (writeLock.interestedThreads == 0) {
+      WriteLock removed = locks.remove(safeKey);
+      if (!removed.equals(writeLock)) {
+        throw new IllegalStateException("Removed the wrong lock"
+            + ", expected to remove: " + writeLock
+            + ", but actually removed: " + removed
+            + ", safeKey: " + safeKey);
+      }
+      writeLockPool.offer(removed);
+    }
+    return writeLock;
   }
 
   private static class WriteLock  {
-    final Lock lock = new ReentrantLock();
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
     int interestedThreads;
 
     @Synthetic
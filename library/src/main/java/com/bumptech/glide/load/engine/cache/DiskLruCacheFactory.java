@@ -14,6 +14,8 @@ import java.io.File;
 public class DiskLruCacheFactory implements DiskCache.Factory {
   private final long diskCacheSize;
   private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final SafeKeyGenerator.Algorithm algorithm;
+  private final boolean isChecksumEnabled;
 
   /**
    * Interface called out of UI thread to get the cache folder.
@@ -51,8 +53,45 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize) {
+    this(cacheDirectoryGetter, diskCacheSize, SafeKeyGenerator.Algorithm.SHA_256);
+  }
+
+  /**
+   * Like {@link #DiskLruCacheFactory(CacheDirectoryGetter, long)}, but allows the algorithm used
+   * to generate file names from keys to be specified.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param algorithm            The algorithm used to generate file names, see
+   *                             {@link DiskLruCacheWrapper#create(File, long,
+   *                             SafeKeyGenerator.Algorithm)}.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      SafeKeyGenerator.Algorithm algorithm) {
+    this(cacheDirectoryGetter, diskCacheSize, algorithm, false /*isChecksumEnabled*/);
+  }
+
+  /**
+   * Like {@link #DiskLruCacheFactory(CacheDirectoryGetter, long, SafeKeyGenerator.Algorithm)}, but
+   * allows checksums to be stored and verified for each entry.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param algorithm            The algorithm used to generate file names.
+   * @param isChecksumEnabled    {@code true} to remove corrupt entries, see
+   *                             {@link DiskLruCacheWrapper#create(File, long,
+   *                             SafeKeyGenerator.Algorithm, boolean)}.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      SafeKeyGenerator.Algorithm algorithm, boolean isChecksumEnabled) {
     this.diskCacheSize = diskCacheSize;
     this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.algorithm = algorithm;
+    this.isChecksumEnabled = isChecksumEnabled;
   }
 
   @Override
@@ -67,6 +106,6 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
       return null;
     }
 
-    return DiskLruCacheWrapper.create(cacheDir, diskCacheSize);
+    return DiskLruCacheWrapper.create(cacheDir, diskCacheSize, algorithm, isChecksumEnabled);
   }
 }
@@ -4,31 +4,95 @@
 
 package com.bumptech.glide.load.engine.cache;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.disklrucache.DiskLruCache;
 import com.bumptech.glide.disklrucache.DiskLruCache.Value;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.LruCache;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 /**
  * The default DiskCache implementation. There must be no more than one active instance for a given
  * directory at a time.
  *
+ * <p>Caches created with checksums enabled, see
+ * {@link #create(File, long, SafeKeyGenerator.Algorithm, boolean)}, store a CRC32 of each entry
+ * alongside it. Entries whose length doesn't match the length recorded when they were committed, or
+ * whose data doesn't match their checksum the first time they're read by this process, are removed
+ * from the cache and counted separately from misses, see {@link #getCacheStats()}. Corrupt entries,
+ * for example those left by a process killed before the data was flushed to disk, are then loaded
+ * from source again rather than failing to decode on every load.
+ *
  * @see #get(java.io.File, long)
  */
-public class DiskLruCacheWrapper implements DiskCache {
+public class DiskLruCacheWrapper
+    implements DiskCache, DiskCache.ByteBufferReader, DiskCache.Warmable,
+    DiskCache.ArchiveImporter {
   private static final String TAG = "DiskLruCacheWrapper";
 
   private static final int APP_VERSION = 1;
   private static final int VALUE_COUNT = 1;
+  // The data and its checksum.
+  private static final int CHECKSUM_VALUE_COUNT = 2;
+  private static final int DATA_INDEX = 0;
+  private static final int CHECKSUM_INDEX = 1;
+  private static final int CHECKSUM_BUFFER_SIZE = 16 * 1024;
+  // Bounds the memory used to avoid checksumming entries that have already been verified.
+  private static final int MAX_VERIFIED_KEYS = 1024;
+  // DiskLruCache names the clean file for each value <key>.<index>.
+  private static final String CLEAN_FILE_SUFFIX = ".0";
+  // Used to decide when to rebuild the key set for caches that haven't yet been filled.
+  private static final int ESTIMATED_ENTRY_SIZE = 32 * 1024;
+  private static final int IMPORT_BUFFER_SIZE = 64 * 1024;
   private static DiskLruCacheWrapper wrapper;
 
   private final SafeKeyGenerator safeKeyGenerator;
   private final File directory;
   private final long maxSize;
+  private final boolean isChecksumEnabled;
   private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  private final LruCache<String, Boolean> verifiedKeys = new LruCache<>(MAX_VERIFIED_KEYS);
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger corruptEntries = new AtomicInteger();
   private DiskLruCache diskLruCache;
+  // The keys of the entries in the cache, null until the keys on disk have been listed. Read
+  // without holding the lock on this object, replaced while holding it.
+  private volatile SafeKeySet keySet;
+  // Keys added to the key set whose entries may not have been committed yet, and so may not be
+  // found in the directory when the key set is rebuilt. Guarded by the lock on this object.
+  private final Set<String> committingKeys = new HashSet<>();
+  // Keys added (true) or removed (false) while the key set is being rebuilt, or null if it isn't
+  // being rebuilt. Guarded by the lock on this object.
+  @Nullable private Map<String, Boolean> keySetChanges;
+  // Incremented when the cache is cleared so that rebuilt key sets for the old cache are dropped.
+  // Guarded by the lock on this object.
+  private int keySetGeneration;
+  // Evicted keys can't be removed from the key set, so it's rebuilt once it grows past this size.
+  // Guarded by the lock on this object.
+  private int keySetRebuildSize;
 
   /**
    * Get a DiskCache in the given directory and size. If a disk cache has already been created with
@@ -64,6 +128,47 @@ public class DiskLruCacheWrapper implements DiskCache {
     return new DiskLruCacheWrapper(directory, maxSize);
   }
 
+  /**
+   * Create a new DiskCache in the given directory with a specified max size that names its entries
+   * using the given {@link SafeKeyGenerator.Algorithm}.
+   *
+   * <p>Entries written using one algorithm can't be read using another, so changing the algorithm
+   * for an existing cache directory will cause previously cached entries to miss until they're
+   * evicted.
+   *
+   * @param directory The directory for the disk cache
+   * @param maxSize   The max size for the disk cache
+   * @param algorithm The algorithm used to generate file names from keys
+   * @return The new disk cache with the given arguments
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static DiskCache create(
+      File directory, long maxSize, SafeKeyGenerator.Algorithm algorithm) {
+    return create(directory, maxSize, algorithm, false /*isChecksumEnabled*/);
+  }
+
+  /**
+   * Like {@link #create(File, long, SafeKeyGenerator.Algorithm)}, but optionally stores and
+   * verifies a checksum for each entry so that corrupt entries are removed rather than returned.
+   *
+   * <p>Enabling or disabling checksums for an existing cache directory clears the cache the next
+   * time it's opened.
+   *
+   * @param directory         The directory for the disk cache
+   * @param maxSize           The max size for the disk cache
+   * @param algorithm         The algorithm used to generate file names from keys
+   * @param isChecksumEnabled {@code true} to store and verify a checksum for each entry
+   * @return The new disk cache with the given arguments
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static DiskCache create(File directory, long maxSize,
+      SafeKeyGenerator.Algorithm algorithm, boolean isChecksumEnabled) {
+    return new DiskLruCacheWrapper(
+        directory, maxSize, new SafeKeyGenerator(algorithm), isChecksumEnabled);
+  }
+
   /**
    * @deprecated Do not extend this class.
    */
@@ -71,41 +176,235 @@ public class DiskLruCacheWrapper implements DiskCache {
   // Deprecated public API.
   @SuppressWarnings({"WeakerAccess", "DeprecatedIsStillUsed"})
   protected DiskLruCacheWrapper(File directory, long maxSize) {
+    this(directory, maxSize, new SafeKeyGenerator(), false /*isChecksumEnabled*/);
+  }
+
+  private DiskLruCacheWrapper(File directory, long maxSize, SafeKeyGenerator safeKeyGenerator,
+      boolean isChecksumEnabled) {
     this.directory = directory;
     this.maxSize = maxSize;
-    this.safeKeyGenerator = new SafeKeyGenerator();
+    this.safeKeyGenerator = safeKeyGenerator;
+    this.isChecksumEnabled = isChecksumEnabled;
+  }
+
+  private DiskLruCache getDiskCache() throws IOException {
+    DiskLruCache result;
+    boolean isOpened = false;
+    synchronized (this) {
+      if (diskLruCache == null) {
+        // DiskLruCache clears caches opened with a different value count.
+        diskLruCache = DiskLruCache.open(directory, APP_VERSION,
+            isChecksumEnabled ? CHECKSUM_VALUE_COUNT : VALUE_COUNT, maxSize);
+        isOpened = true;
+      }
+      result = diskLruCache;
+    }
+    if (isOpened) {
+      rebuildKeySet();
+    }
+    return result;
+  }
+
+  /**
+   * Adds the given key to the set of keys that may be present in the cache.
+   *
+   * <p>Must be called before the key's entry is committed so that the entry is never present in
+   * the cache but absent from the key set, followed by {@link #onCommitFinished(String)} once the
+   * commit succeeds or fails.
+   */
+  private synchronized void addToKeySet(String safeKey) {
+    committingKeys.add(safeKey);
+    putInKeySet(safeKey);
+  }
+
+  private synchronized void onCommitFinished(String safeKey) {
+    committingKeys.remove(safeKey);
+  }
+
+  /** Adds the key of an entry that's known to be in the cache if the key set is missing it. */
+  private synchronized void restoreInKeySet(String safeKey) {
+    if (keySet != null && !keySet.mightContain(safeKey)) {
+      putInKeySet(safeKey);
+    }
+  }
+
+  // Must be called while holding the lock on this object.
+  private void putInKeySet(String safeKey) {
+    if (keySet != null) {
+      keySet.add(safeKey);
+    }
+    if (keySetChanges != null) {
+      keySetChanges.put(safeKey, true);
+    }
   }
 
-  private synchronized DiskLruCache getDiskCache() throws IOException {
-    if (diskLruCache == null) {
-      diskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+  private synchronized void removeFromKeySet(String safeKey) {
+    if (keySet != null) {
+      keySet.remove(safeKey);
+    }
+    if (keySetChanges != null) {
+      keySetChanges.put(safeKey, false);
+    }
+  }
+
+  private void rebuildKeySetIfNeeded() {
+    boolean isRebuildNeeded;
+    synchronized (this) {
+      isRebuildNeeded =
+          keySet != null && keySetChanges == null && keySet.size() > keySetRebuildSize;
+    }
+    if (isRebuildNeeded) {
+      rebuildKeySet();
+    }
+  }
+
+  /**
+   * Replaces the key set with one built from the entries on disk, dropping evicted keys.
+   *
+   * <p>The directory is listed without holding the lock on this object. Keys added or removed in
+   * the meantime are recorded and applied to the new key set before it replaces the current one.
+   */
+  private void rebuildKeySet() {
+    int generation;
+    synchronized (this) {
+      if (keySetChanges != null) {
+        // Already being rebuilt by another thread.
+        return;
+      }
+      keySetChanges = new HashMap<>();
+      generation = keySetGeneration;
+    }
+
+    List<String> safeKeys = new ArrayList<>();
+    String[] fileNames = directory.list();
+    if (fileNames != null) {
+      for (String fileName : fileNames) {
+        if (fileName.endsWith(CLEAN_FILE_SUFFIX)) {
+          safeKeys.add(
+              fileName.substring(0, fileName.length() - CLEAN_FILE_SUFFIX.length()));
+        }
+      }
+    }
+    SafeKeySet rebuilt = new SafeKeySet(safeKeys.size());
+    for (String safeKey : safeKeys) {
+      rebuilt.add(safeKey);
+    }
+
+    synchronized (this) {
+      if (generation != keySetGeneration) {
+        // Cleared while we were listing the directory.
+        return;
+      }
+      // Entries that are being committed don't have clean files yet.
+      for (String safeKey : committingKeys) {
+        rebuilt.add(safeKey);
+      }
+      for (Map.Entry<String, Boolean> change : keySetChanges.entrySet()) {
+        if (change.getValue()) {
+          rebuilt.add(change.getKey());
+        } else {
+          rebuilt.remove(change.getKey());
+        }
+      }
+      keySetChanges = null;
+      keySetRebuildSize = (int) Math.max(
+          Math.min(Integer.MAX_VALUE / 2, maxSize / ESTIMATED_ENTRY_SIZE), 2L * rebuilt.size());
+      keySet = rebuilt;
+    }
+  }
+
+  @Override
+  public void warmUp() {
+    try {
+      // Opening the cache replays its journal, which is slow for large caches.
+      getDiskCache();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to open disk cache", e);
+      }
     }
-    return diskLruCache;
   }
 
   @Override
   public File get(Key key) {
+    return get(key, /*isHitCounted=*/ true);
+  }
+
+  // Hits aren't counted for getBuffer until the file is mapped, because get(Key) is called for
+  // the same entry if it can't be.
+  @Nullable
+  private File get(Key key, boolean isHitCounted) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       Log.v(TAG, "Get: Obtained: " + safeKey + " for for Key: " + key);
     }
+    // Cold loads probe several keys that were never written, skip them without waiting for the
+    // write lock or for the cache to be opened.
+    SafeKeySet keys = keySet;
+    if (keys != null && !keys.mightContain(safeKey)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    // Reads of different keys run concurrently. A put of the same key holds the write lock while
+    // the entry is fetched, which may take as long as a download, so rather than block the disk
+    // cache thread until it finishes, treat the entry as missing.
+    if (!writeLocker.tryAcquireRead(safeKey)) {
+      misses.incrementAndGet();
+      return null;
+    }
     File result = null;
     try {
       // It is possible that the there will be a put in between these two gets. If so that shouldn't
       // be a problem because we will always put the same value at the same key so our input streams
       // will still represent the same data.
-      final DiskLruCache.Value value = getDiskCache().get(safeKey);
-      if (value != null) {
-        result = value.getFile(0);
+      DiskLruCache diskCache = getDiskCache();
+      final DiskLruCache.Value value = diskCache.get(safeKey);
+      if (value == null) {
+        misses.incrementAndGet();
+      } else if (isChecksumEnabled && !isIntact(safeKey, value)) {
+        quarantine(diskCache, safeKey);
+      } else {
+        if (isHitCounted) {
+          hits.incrementAndGet();
+        }
+        result = value.getFile(DATA_INDEX);
       }
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.WARN)) {
         Log.w(TAG, "Unable to get from disk cache", e);
       }
+    } finally {
+      writeLocker.releaseRead(safeKey);
     }
     return result;
   }
 
+  /**
+   * Returns the cached file for the given key mapped into memory so that it can be decoded without
+   * looking up the {@link com.bumptech.glide.load.model.ModelLoader}s for {@link File}s, or
+   * {@link #NOT_CACHED} if the key isn't cached.
+   */
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    File file = get(key, /*isHitCounted=*/ false);
+    if (file == null) {
+      return NOT_CACHED;
+    }
+    try {
+      ByteBuffer result = ByteBufferUtil.fromFile(file);
+      hits.incrementAndGet();
+      return result;
+    } catch (IOException e) {
+      // The entry may have been evicted since it was read, or may be empty. Returning null lets
+      // the caller fall back to get(Key).
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Unable to map file from disk cache", e);
+      }
+      return null;
+    }
+  }
+
   @Override
   public void put(Key key, Writer writer) {
     // We want to make sure that puts block so that data is available when put completes. We may
@@ -122,6 +421,9 @@ public class DiskLruCacheWrapper implements DiskCache {
         DiskLruCache diskCache = getDiskCache();
         Value current = diskCache.get(safeKey);
         if (current != null) {
+          // The key set may have been rebuilt without the key if it was being committed at the
+          // time, re-add it so that gets don't skip the entry.
+          restoreInKeySet(safeKey);
           return;
         }
 
@@ -130,9 +432,17 @@ public class DiskLruCacheWrapper implements DiskCache {
           throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
         }
         try {
-          File file = editor.getFile(0);
+          File file = editor.getFile(DATA_INDEX);
           if (writer.write(file)) {
-            editor.commit();
+            if (isChecksumEnabled) {
+              writeChecksum(editor, getChecksum(file));
+            }
+            addToKeySet(safeKey);
+            try {
+              editor.commit();
+            } finally {
+              onCommitFinished(safeKey);
+            }
           }
         } finally {
           editor.abortUnlessCommitted();
@@ -145,11 +455,155 @@ public class DiskLruCacheWrapper implements DiskCache {
     } finally {
       writeLocker.release(safeKey);
     }
+    rebuildKeySetIfNeeded();
+  }
+
+  @Override
+  public int importArchive(@NonNull InputStream archive) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(archive));
+    DiskCacheArchive.readHeader(input, safeKeyGenerator.getAlgorithm());
+    DiskLruCache diskCache = getDiskCache();
+    byte[] buffer = new byte[IMPORT_BUFFER_SIZE];
+    int imported = 0;
+    DiskCacheArchive.EntryHeader header;
+    while ((header = DiskCacheArchive.readEntryHeader(input)) != null) {
+      String safeKey = header.safeKey;
+      long length = header.length;
+      writeLocker.acquire(safeKey);
+      try {
+        DiskLruCache.Editor editor =
+            diskCache.get(safeKey) == null ? diskCache.edit(safeKey) : null;
+        if (editor == null) {
+          // Already cached, or being written by another thread.
+          DiskCacheArchive.skipFully(input, length);
+          continue;
+        }
+        try {
+          CRC32 checksum = isChecksumEnabled ? new CRC32() : null;
+          OutputStream os = new FileOutputStream(editor.getFile(DATA_INDEX));
+          try {
+            copy(input, os, buffer, length, checksum);
+          } finally {
+            os.close();
+          }
+          if (checksum != null) {
+            writeChecksum(editor, checksum.getValue());
+          }
+          addToKeySet(safeKey);
+          try {
+            editor.commit();
+          } finally {
+            onCommitFinished(safeKey);
+          }
+          imported++;
+        } finally {
+          editor.abortUnlessCommitted();
+        }
+      } finally {
+        writeLocker.release(safeKey);
+      }
+    }
+    rebuildKeySetIfNeeded();
+    return imported;
+  }
+
+  private static void copy(
+      InputStream is, OutputStream os, byte[] buffer, long length, @Nullable Checksum checksum)
+      throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read == -1) {
+        throw new EOFException("Archive ended with " + remaining + " bytes remaining");
+      }
+      os.write(buffer, 0, read);
+      if (checksum != null) {
+        checksum.update(buffer, 0, read);
+      }
+      remaining -= read;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the entry's data has the length recorded when it was committed and, if
+   * the entry hasn't been verified already, matches its checksum.
+   */
+  private boolean isIntact(String safeKey, DiskLruCache.Value value) {
+    File file = value.getFile(DATA_INDEX);
+    // Cheap enough to check on every read, catches most truncated writes.
+    if (file.length() != value.getLength(DATA_INDEX)) {
+      return false;
+    }
+    if (verifiedKeys.get(safeKey) != null) {
+      return true;
+    }
+    try {
+      DataInputStream is = new DataInputStream(
+          new FileInputStream(value.getFile(CHECKSUM_INDEX)));
+      long expected;
+      try {
+        expected = is.readLong();
+      } finally {
+        is.close();
+      }
+      if (getChecksum(file) != expected) {
+        return false;
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Unable to verify checksum for: " + safeKey, e);
+      }
+      return false;
+    }
+    verifiedKeys.put(safeKey, true);
+    return true;
+  }
+
+  private void quarantine(DiskLruCache diskCache, String safeKey) throws IOException {
+    verifiedKeys.remove(safeKey);
+    removeFromKeySet(safeKey);
+    // Another thread may have removed the entry already.
+    if (diskCache.remove(safeKey)) {
+      corruptEntries.incrementAndGet();
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Removed corrupt entry: " + safeKey);
+      }
+    }
+  }
+
+  private static long getChecksum(File file) throws IOException {
+    CRC32 checksum = new CRC32();
+    byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+    InputStream is = new FileInputStream(file);
+    try {
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        checksum.update(buffer, 0, read);
+      }
+    } finally {
+      is.close();
+    }
+    return checksum.getValue();
+  }
+
+  private static void writeChecksum(DiskLruCache.Editor editor, long checksum)
+      throws IOException {
+    DataOutputStream os = new DataOutputStream(
+        new FileOutputStream(editor.getFile(CHECKSUM_INDEX)));
+    try {
+      os.writeLong(checksum);
+    } finally {
+      os.close();
+    }
   }
 
   @Override
   public void delete(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
+    verifiedKeys.remove(safeKey);
+    // Removed before the entry so that a concurrent put of the key can't be removed from the key
+    // set after it's committed.
+    removeFromKeySet(safeKey);
     try {
       getDiskCache().remove(safeKey);
     } catch (IOException e) {
@@ -177,5 +631,62 @@ public class DiskLruCacheWrapper implements DiskCache {
 
   private synchronized void resetDiskCache() {
     diskLruCache = null;
+    keySet = null;
+    keySetChanges = null;
+    keySetGeneration++;
+    verifiedKeys.clearMemory();
+  }
+
+  /**
+   * Returns a snapshot of the number of hits, misses and corrupt entries found by {@link #get(Key)}
+   * and {@link #getBuffer(Key)} since this cache was created.
+   *
+   * <p>A {@link #getBuffer(Key)} call that can't map the entry, which is followed by a call to
+   * {@link #get(Key)} for the same entry, counts as a single lookup.
+   */
+  @NonNull
+  public CacheStats getCacheStats() {
+    return new CacheStats(hits.get(), misses.get(), corruptEntries.get());
+  }
+
+  /**
+   * A snapshot of the reads made from a {@link DiskLruCacheWrapper}.
+   */
+  public static final class CacheStats {
+    private final int hits;
+    private final int misses;
+    private final int corruptEntries;
+
+    CacheStats(int hits, int misses, int corruptEntries) {
+      this.hits = hits;
+      this.misses = misses;
+      this.corruptEntries = corruptEntries;
+    }
+
+    public int getHits() {
+      return hits;
+    }
+
+    /** Returns the number of reads of keys that weren't cached, excluding corrupt entries. */
+    public int getMisses() {
+      return misses;
+    }
+
+    /**
+     * Returns the number of entries that failed verification and were removed, always {@code 0} for
+     * caches without checksums.
+     */
+    public int getCorruptEntries() {
+      return corruptEntries;
+    }
+
+    @Override
+    public String toString() {
+      return "CacheStats{"
+          + "hits=" + hits
+          + ", misses=" + misses
+          + ", corruptEntries=" + corruptEntries
+          + '}';
+    }
   }
 }
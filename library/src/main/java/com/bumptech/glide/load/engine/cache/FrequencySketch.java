@@ -0,0 +1,133 @@
+package com.bumptech.glide.load.engine.cache;
+
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * A count-min sketch of 4-bit counters used to estimate how often a key has been requested
+ * recently.
+ *
+ * <p>Each long in the table holds sixteen counters. A key maps to one group of four counters in
+ * each of four rows chosen by independent hashes, and its estimated frequency is the minimum of
+ * those four counters. Counters saturate at 15. Once the number of increments reaches a sample
+ * size proportional to the table size, every counter is halved so that old popularity decays.
+ *
+ * <p>Adapted from Caffeine's {@code com.github.benmanes.caffeine.cache.FrequencySketch}.
+ *
+ * <p>This class is not thread safe.
+ */
+final class FrequencySketch {
+  private static final long[] SEEDS = new long[] {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int SAMPLE_SIZE_MULTIPLIER = 10;
+  private static final int MAX_COUNT = 15;
+  // The largest power of two that fits in an int.
+  private static final int MAX_TABLE_LENGTH = 1 << 30;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param expectedEntries The expected maximum number of entries in the cache, used to size the
+   *                        table so that collisions stay infrequent.
+   */
+  FrequencySketch(int expectedEntries) {
+    int length = ceilingPowerOfTwo(Math.max(expectedEntries, 1));
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = (int) Math.min(Integer.MAX_VALUE, (long) SAMPLE_SIZE_MULTIPLIER * length);
+  }
+
+  /**
+   * Returns the estimated number of recent occurrences of the given key, at most 15.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the estimated frequency of the given key, halving all counters if the sample size
+   * has been reached.
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      added |= incrementAt(index, start + i);
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    int oddCounts = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounts += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    // Halving truncates odd counters, so subtract the increments lost to rounding.
+    size = (size >>> 1) - (oddCounts >>> 2);
+  }
+
+  private int indexOf(int hash, int row) {
+    long result = (hash + SEEDS[row]) * SEEDS[row];
+    result += result >>> 32;
+    return ((int) result) & tableMask;
+  }
+
+  private static int spread(int hash) {
+    int result = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    result = ((result >>> 16) ^ result) * 0x45d9f3b;
+    return (result >>> 16) ^ result;
+  }
+
+  @VisibleForTesting
+  static int ceilingPowerOfTwo(int value) {
+    if (value >= MAX_TABLE_LENGTH) {
+      return MAX_TABLE_LENGTH;
+    }
+    int result = Integer.highestOneBit(value);
+    return result == value ? result : result << 1;
+  }
+}
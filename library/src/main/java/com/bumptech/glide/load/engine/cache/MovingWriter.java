@@ -0,0 +1,21 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import java.io.File;
+
+/**
+ * A {@link DiskCache.Writer} that moves an already written file into a cache, allowing data to be
+ * written once to a temporary file and then handed to whichever cache should hold it.
+ */
+final class MovingWriter implements DiskCache.Writer {
+  private final File source;
+
+  MovingWriter(File source) {
+    this.source = source;
+  }
+
+  @Override
+  public boolean write(@NonNull File file) {
+    return source.renameTo(file);
+  }
+}
@@ -0,0 +1,170 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the 128 bit x64 variant of MurmurHash3 with a seed of 0.
+ *
+ * <p>MurmurHash3 is not a cryptographic hash, but it distributes keys well and is several times
+ * cheaper to compute than SHA-256, which makes it a reasonable choice for disk cache file names
+ * where collisions only cause a cache miss. Implementing {@link MessageDigest} allows the existing
+ * {@link com.bumptech.glide.load.Key#updateDiskCacheKey(MessageDigest)} implementations to be used
+ * unchanged.
+ *
+ * <p>The output matches the reference implementation, with {@code h1} followed by {@code h2}, each
+ * in little endian order.
+ */
+final class Murmur3Digest extends MessageDigest {
+  private static final int DIGEST_LENGTH = 16;
+  private static final int BLOCK_SIZE = 16;
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final byte[] buffer = new byte[BLOCK_SIZE];
+  private int bufferLength;
+  private long totalLength;
+  private long h1;
+  private long h2;
+
+  Murmur3Digest() {
+    super("MurmurHash3-128");
+  }
+
+  @Override
+  protected int engineGetDigestLength() {
+    return DIGEST_LENGTH;
+  }
+
+  @Override
+  protected void engineUpdate(byte input) {
+    buffer[bufferLength++] = input;
+    totalLength++;
+    if (bufferLength == BLOCK_SIZE) {
+      processBlock(buffer, 0);
+      bufferLength = 0;
+    }
+  }
+
+  @Override
+  protected void engineUpdate(byte[] input, int offset, int length) {
+    totalLength += length;
+    int end = offset + length;
+    if (bufferLength > 0) {
+      int toCopy = Math.min(BLOCK_SIZE - bufferLength, length);
+      System.arraycopy(input, offset, buffer, bufferLength, toCopy);
+      bufferLength += toCopy;
+      offset += toCopy;
+      if (bufferLength < BLOCK_SIZE) {
+        return;
+      }
+      processBlock(buffer, 0);
+      bufferLength = 0;
+    }
+    while (end - offset >= BLOCK_SIZE) {
+      processBlock(input, offset);
+      offset += BLOCK_SIZE;
+    }
+    bufferLength = end - offset;
+    System.arraycopy(input, offset, buffer, 0, bufferLength);
+  }
+
+  @Override
+  protected byte[] engineDigest() {
+    processTail();
+
+    h1 ^= totalLength;
+    h2 ^= totalLength;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix(h1);
+    h2 = fmix(h2);
+    h1 += h2;
+    h2 += h1;
+
+    byte[] result = new byte[DIGEST_LENGTH];
+    putLongLittleEndian(result, 0, h1);
+    putLongLittleEndian(result, 8, h2);
+    engineReset();
+    return result;
+  }
+
+  @Override
+  protected void engineReset() {
+    bufferLength = 0;
+    totalLength = 0;
+    h1 = 0;
+    h2 = 0;
+  }
+
+  private void processBlock(byte[] block, int offset) {
+    long k1 = getLongLittleEndian(block, offset);
+    long k2 = getLongLittleEndian(block, offset + 8);
+
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+  }
+
+  private void processTail() {
+    long k1 = 0;
+    long k2 = 0;
+    for (int i = bufferLength - 1; i >= 8; i--) {
+      k2 ^= (buffer[i] & 0xffL) << ((i - 8) * 8);
+    }
+    for (int i = Math.min(bufferLength, 8) - 1; i >= 0; i--) {
+      k1 ^= (buffer[i] & 0xffL) << (i * 8);
+    }
+    if (bufferLength > 8) {
+      h2 ^= mixK2(k2);
+    }
+    if (bufferLength > 0) {
+      h1 ^= mixK1(k1);
+    }
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  private static long fmix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLongLittleEndian(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xffL)
+        | (bytes[offset + 1] & 0xffL) << 8
+        | (bytes[offset + 2] & 0xffL) << 16
+        | (bytes[offset + 3] & 0xffL) << 24
+        | (bytes[offset + 4] & 0xffL) << 32
+        | (bytes[offset + 5] & 0xffL) << 40
+        | (bytes[offset + 6] & 0xffL) << 48
+        | (bytes[offset + 7] & 0xffL) << 56;
+  }
+
+  private static void putLongLittleEndian(byte[] bytes, int offset, long value) {
+    for (int i = 0; i < 8; i++) {
+      bytes[offset + i] = (byte) (value >>> (i * 8));
+    }
+  }
+}
@@ -0,0 +1,1026 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link DiskCache} for small entries, like thumbnails, that appends entries to a small number
+ * of large segment files instead of writing each entry to its own file.
+ *
+ * <p>Entries are read via {@link #getBuffer(Key)}, which returns a slice of a memory mapped
+ * segment so that the entry can be decoded without copying it or opening a file. Entries larger
+ * than the maximum entry size are stored in a separate {@link DiskLruCacheWrapper} and are
+ * returned by {@link #get(Key)} as usual. Packed entries requested via {@link #get(Key)} are
+ * copied to the same cache first, so that callers that need a {@link File} still find them.
+ *
+ * <p>The location of each entry is kept in an in memory index. A binary snapshot of the index is
+ * written periodically on a background thread. When the cache is opened, the snapshot is memory
+ * mapped and only the records appended to the segments since the snapshot was written are
+ * scanned. If the snapshot is missing or doesn't match the segments, the segments are scanned in
+ * full instead. {@link #warmUp()} can be used to open the cache before the first load.
+ *
+ * <p>Deleted entries are marked by appending a tombstone record. Once less than half of a
+ * segment's bytes belong to live entries, the live entries are copied to the newest segment and
+ * the old segment is removed on a background thread. When the cache grows larger than its
+ * maximum size, the oldest segment is removed along with all of its entries.
+ *
+ * <p>There must be no more than one active instance for a given directory at a time.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class PackedDiskCache
+    implements DiskCache, DiskCache.ByteBufferReader, DiskCache.Warmable,
+    DiskCache.ArchiveImporter {
+  private static final String TAG = "PackedDiskCache";
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".pack";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String LARGE_ENTRY_DIRECTORY = "large";
+  private static final String SNAPSHOT_FILE = "index.snapshot";
+  private static final int SNAPSHOT_MAGIC = 0x47504958;
+  private static final int SNAPSHOT_VERSION = 1;
+  @VisibleForTesting
+  static final int RECORDS_PER_SNAPSHOT = 256;
+  private static final int TOMBSTONE = -1;
+  // A key length and a data length.
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int KEY_LENGTH_SIZE = 4;
+  // Safe keys are 64 character hex strings, this just rejects garbage when scanning segments.
+  private static final int MAX_KEY_LENGTH = 1024;
+  private static final float MIN_LIVE_RATIO = 0.5f;
+  private static Executor compactionExecutor;
+
+  /** 4 MB segments. */
+  public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+  /** Entries larger than 64 KB are stored in their own files. */
+  public static final int DEFAULT_MAX_ENTRY_SIZE = 64 * 1024;
+
+  private final SafeKeyGenerator safeKeyGenerator;
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  // Only modified while holding the lock on this object, but read by getBuffer without it.
+  private final Map<String, Entry> index = new ConcurrentHashMap<>();
+  // Ordered from oldest to newest, the last segment is the only one that's written to.
+  private final List<Segment> segments = new ArrayList<>();
+  private final File directory;
+  private final long maxPackedSize;
+  private final int segmentSize;
+  private final int maxEntrySize;
+  private final DiskCache largeEntryCache;
+  private final Executor executor;
+  private final Runnable compactRunnable = new Runnable() {
+    @Override
+    public void run() {
+      compact();
+    }
+  };
+  private final Runnable snapshotRunnable = new Runnable() {
+    @Override
+    public void run() {
+      writeSnapshot();
+    }
+  };
+
+  private volatile boolean isOpen;
+  private boolean isCompactionScheduled;
+  private boolean isSnapshotScheduled;
+  // The number of records that have been written or scanned since the last snapshot.
+  private int recordsSinceSnapshot;
+  // Incremented when the cache is cleared so that stale snapshots aren't written afterwards.
+  private int generation;
+  private long packedSize;
+  @Nullable private RandomAccessFile activeFile;
+
+  /**
+   * Creates a new packed disk cache in the given directory.
+   *
+   * <p>Half of the given size is used for packed entries and the other half for entries larger
+   * than {@link #DEFAULT_MAX_ENTRY_SIZE}.
+   *
+   * @param directory The directory for the disk cache.
+   * @param maxSize The max size for the disk cache.
+   */
+  public static DiskCache create(File directory, long maxSize) {
+    return create(directory, maxSize, SafeKeyGenerator.Algorithm.SHA_256);
+  }
+
+  /**
+   * Like {@link #create(File, long)}, but allows the algorithm used to generate keys to be
+   * specified, see {@link DiskLruCacheWrapper#create(File, long, SafeKeyGenerator.Algorithm)}.
+   *
+   * @param directory The directory for the disk cache.
+   * @param maxSize The max size for the disk cache.
+   * @param algorithm The algorithm used to generate keys for both packed and large entries.
+   */
+  public static DiskCache create(
+      File directory, long maxSize, SafeKeyGenerator.Algorithm algorithm) {
+    long maxPackedSize = maxSize / 2;
+    // Small caches use smaller segments so that evicting a segment doesn't empty the cache.
+    int segmentSize = (int) Math.min(
+        DEFAULT_SEGMENT_SIZE, Math.max(maxPackedSize / 4, 2 * DEFAULT_MAX_ENTRY_SIZE));
+    return new PackedDiskCache(
+        directory,
+        Math.max(maxPackedSize, segmentSize),
+        segmentSize,
+        DEFAULT_MAX_ENTRY_SIZE,
+        DiskLruCacheWrapper.create(
+            new File(directory, LARGE_ENTRY_DIRECTORY), maxSize - maxPackedSize, algorithm),
+        getCompactionExecutor(),
+        algorithm);
+  }
+
+  private static synchronized Executor getCompactionExecutor() {
+    if (compactionExecutor == null) {
+      compactionExecutor = GlideExecutor.newDiskCacheExecutor(
+          1, "disk-cache-compaction", UncaughtThrowableStrategy.DEFAULT);
+    }
+    return compactionExecutor;
+  }
+
+  @VisibleForTesting
+  PackedDiskCache(
+      File directory,
+      long maxPackedSize,
+      int segmentSize,
+      int maxEntrySize,
+      DiskCache largeEntryCache,
+      Executor executor) {
+    this(directory, maxPackedSize, segmentSize, maxEntrySize, largeEntryCache, executor,
+        SafeKeyGenerator.Algorithm.SHA_256);
+  }
+
+  @VisibleForTesting
+  PackedDiskCache(
+      File directory,
+      long maxPackedSize,
+      int segmentSize,
+      int maxEntrySize,
+      DiskCache largeEntryCache,
+      Executor executor,
+      SafeKeyGenerator.Algorithm algorithm) {
+    if (segmentSize > maxPackedSize || maxEntrySize + RECORD_HEADER_SIZE + MAX_KEY_LENGTH
+        > segmentSize) {
+      throw new IllegalArgumentException("Invalid sizes, max packed size: " + maxPackedSize
+          + ", segment size: " + segmentSize + ", max entry size: " + maxEntrySize);
+    }
+    this.directory = directory;
+    this.maxPackedSize = maxPackedSize;
+    this.segmentSize = segmentSize;
+    this.maxEntrySize = maxEntrySize;
+    this.largeEntryCache = largeEntryCache;
+    this.executor = executor;
+    safeKeyGenerator = new SafeKeyGenerator(algorithm);
+  }
+
+  /**
+   * Returns the file for the given key, or {@code null} if there's no entry for the key.
+   *
+   * <p>Packed entries don't have their own file, so they're copied to the cache for large entries
+   * the first time they're requested here. Callers that can read a {@link ByteBuffer} should use
+   * {@link #getBuffer(Key)} instead.
+   */
+  @Nullable
+  @Override
+  public File get(Key key) {
+    File result = largeEntryCache.get(key);
+    if (result == null) {
+      ByteBuffer buffer = getBuffer(key);
+      if (buffer != null) {
+        largeEntryCache.put(key, new BufferWriter(buffer));
+        result = largeEntryCache.get(key);
+      }
+    }
+    return result;
+  }
+
+  /** Reads the index of the cache if it hasn't been read already. */
+  @Override
+  public synchronized void warmUp() {
+    try {
+      open();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to open packed disk cache", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the packed entry for the given key, or {@code null} if the entry isn't packed or is
+   * being written by another thread.
+   */
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    // Puts hold the write lock while the entry is fetched, so waiting would block this thread
+    // until the fetch completes.
+    if (!writeLocker.tryAcquireRead(safeKey)) {
+      return null;
+    }
+    try {
+      return readEntry(safeKey);
+    } finally {
+      writeLocker.releaseRead(safeKey);
+    }
+  }
+
+  // Only takes the lock on this object to open the cache, so that reads of different keys aren't
+  // serialized with each other or with appends and compaction. The caller's read lock prevents the
+  // entry from being written concurrently.
+  @Nullable
+  private ByteBuffer readEntry(String safeKey) {
+    try {
+      if (!isOpen) {
+        synchronized (this) {
+          open();
+        }
+      }
+      Entry entry = index.get(safeKey);
+      if (entry == null) {
+        return null;
+      }
+      ByteBuffer buffer = entry.segment.map(entry.offset + entry.length).duplicate();
+      buffer.limit(entry.offset + entry.length);
+      buffer.position(entry.offset);
+      return buffer.slice();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to get from packed disk cache", e);
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    writeLocker.acquire(safeKey);
+    try {
+      synchronized (this) {
+        open();
+        if (index.containsKey(safeKey)) {
+          return;
+        }
+      }
+      if (largeEntryCache.get(key) != null) {
+        return;
+      }
+
+      File temp = new File(directory, safeKey + TEMP_SUFFIX);
+      try {
+        if (!writer.write(temp)) {
+          return;
+        }
+        long length = temp.length();
+        if (length > maxEntrySize) {
+          largeEntryCache.put(key, new MovingWriter(temp));
+        } else {
+          byte[] data = readFully(temp, (int) length);
+          synchronized (this) {
+            append(safeKey, data);
+          }
+        }
+      } finally {
+        //noinspection ResultOfMethodCallIgnored
+        temp.delete();
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to put to packed disk cache", e);
+      }
+    } finally {
+      writeLocker.release(safeKey);
+    }
+  }
+
+  @Override
+  public void delete(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    synchronized (this) {
+      try {
+        open();
+        Entry removed = index.remove(safeKey);
+        if (removed != null) {
+          removed.segment.liveBytes -= removed.recordSize;
+          append(safeKey, /*data=*/ null);
+          scheduleCompactionIfNeeded();
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to delete from packed disk cache", e);
+        }
+      }
+    }
+    largeEntryCache.delete(key);
+  }
+
+  /**
+   * Packs entries no larger than the maximum entry size and imports larger entries into the cache
+   * for large entries, if it's also an {@link DiskCache.ArchiveImporter}. Large entries are
+   * skipped otherwise.
+   */
+  @Override
+  public int importArchive(@NonNull InputStream archive) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(archive));
+    SafeKeyGenerator.Algorithm algorithm = safeKeyGenerator.getAlgorithm();
+    DiskCacheArchive.readHeader(input, algorithm);
+    int imported = 0;
+    int skipped = 0;
+    DiskCacheArchive.EntryHeader header;
+    while ((header = DiskCacheArchive.readEntryHeader(input)) != null) {
+      if (header.length > maxEntrySize) {
+        if (largeEntryCache instanceof ArchiveImporter) {
+          imported += DiskCacheArchive.importEntry(
+              (ArchiveImporter) largeEntryCache, algorithm, header, input);
+        } else {
+          DiskCacheArchive.skipFully(input, header.length);
+          skipped++;
+        }
+        continue;
+      }
+
+      byte[] data = new byte[(int) header.length];
+      input.readFully(data);
+      writeLocker.acquire(header.safeKey);
+      try {
+        synchronized (this) {
+          open();
+          if (!index.containsKey(header.safeKey)) {
+            append(header.safeKey, data);
+            imported++;
+          }
+        }
+      } finally {
+        writeLocker.release(header.safeKey);
+      }
+    }
+    if (skipped > 0 && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Skipped " + skipped + " large entries, the cache for large entries doesn't"
+          + " support imports: " + largeEntryCache);
+    }
+    return imported;
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this) {
+      closeActiveFile();
+      for (Segment segment : segments) {
+        //noinspection ResultOfMethodCallIgnored
+        segment.file.delete();
+      }
+      segments.clear();
+      index.clear();
+      packedSize = 0;
+      recordsSinceSnapshot = 0;
+      generation++;
+      // Reopen lazily so that segments written by a previous instance are removed too.
+      isOpen = false;
+      File[] files = directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.isFile()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+          }
+        }
+      }
+    }
+    largeEntryCache.clear();
+  }
+
+  @VisibleForTesting
+  synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  @VisibleForTesting
+  synchronized int getRecordsSinceSnapshot() {
+    return recordsSinceSnapshot;
+  }
+
+  private void open() throws IOException {
+    if (isOpen) {
+      return;
+    }
+    if (!directory.mkdirs() && !directory.isDirectory()) {
+      throw new FileNotFoundException("Unable to create cache directory: " + directory);
+    }
+    File[] files = directory.listFiles();
+    List<Segment> found = new ArrayList<>();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.endsWith(TEMP_SUFFIX)) {
+          // Left over from a put that was interrupted by the process dying.
+          //noinspection ResultOfMethodCallIgnored
+          file.delete();
+        } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+          try {
+            long id = Long.parseLong(
+                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            found.add(new Segment(id, file));
+          } catch (NumberFormatException e) {
+            // Not one of ours, ignore it.
+          }
+        }
+      }
+    }
+    Segment[] sorted = found.toArray(new Segment[found.size()]);
+    Arrays.sort(sorted);
+    long startTime = LogTime.getLogTime();
+    boolean isSnapshotLoaded = loadSnapshot(sorted);
+    for (Segment segment : sorted) {
+      scan(segment);
+      segments.add(segment);
+      packedSize += segment.length;
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Opened cache with " + index.size() + " entries in "
+          + LogTime.getElapsedMillis(startTime) + "ms, loaded snapshot: " + isSnapshotLoaded
+          + ", scanned records: " + recordsSinceSnapshot);
+    }
+    isOpen = true;
+    evictIfNeeded();
+    scheduleCompactionIfNeeded();
+    scheduleSnapshotIfNeeded();
+  }
+
+  /**
+   * Adds the entries in the snapshot to the index and sets the length of each segment in the
+   * snapshot to the length it had when the snapshot was written, or returns {@code false} without
+   * modifying the index or the segments if there's no valid snapshot.
+   */
+  private boolean loadSnapshot(Segment[] sorted) {
+    File file = new File(directory, SNAPSHOT_FILE);
+    if (!file.exists()) {
+      return false;
+    }
+    try {
+      ByteBuffer buffer = map(file, file.length());
+      if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+        return false;
+      }
+
+      Map<Long, Segment> segmentsById = new HashMap<>();
+      for (Segment segment : sorted) {
+        segmentsById.put(segment.id, segment);
+      }
+      int segmentCount = buffer.getInt();
+      // Null for segments that have been removed since the snapshot was written.
+      Segment[] snapshotSegments = new Segment[segmentCount];
+      int[] snapshotLengths = new int[segmentCount];
+      long maxSnapshotId = -1;
+      for (int i = 0; i < segmentCount; i++) {
+        long id = buffer.getLong();
+        int length = buffer.getInt();
+        if (length < 0 || length > segmentSize) {
+          return false;
+        }
+        Segment segment = segmentsById.remove(id);
+        // The segment was truncated or replaced since the snapshot was written.
+        if (segment != null && segment.file.length() < length) {
+          return false;
+        }
+        snapshotSegments[i] = segment;
+        snapshotLengths[i] = length;
+        maxSnapshotId = Math.max(maxSnapshotId, id);
+      }
+      // Segments are only ever added with increasing ids, so any segment that's older than the
+      // newest segment in the snapshot but isn't in the snapshot means the snapshot is stale.
+      for (Segment segment : segmentsById.values()) {
+        if (segment.id <= maxSnapshotId) {
+          return false;
+        }
+      }
+
+      int entryCount = buffer.getInt();
+      Map<String, Entry> entries = new HashMap<>(entryCount);
+      for (int i = 0; i < entryCount; i++) {
+        int segmentIndex = buffer.getInt();
+        int offset = buffer.getInt();
+        int length = buffer.getInt();
+        int keyLength = buffer.getInt();
+        if (segmentIndex < 0 || segmentIndex >= segmentCount || offset < 0 || length < 0
+            || keyLength <= 0 || keyLength > MAX_KEY_LENGTH
+            || offset + length > snapshotLengths[segmentIndex]) {
+          return false;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        buffer.get(keyBytes);
+        Segment segment = snapshotSegments[segmentIndex];
+        if (segment != null) {
+          entries.put(new String(keyBytes, Key.CHARSET),
+              new Entry(segment, offset, length, RECORD_HEADER_SIZE + keyLength + length));
+        }
+      }
+
+      for (int i = 0; i < segmentCount; i++) {
+        if (snapshotSegments[i] != null) {
+          snapshotSegments[i].length = snapshotLengths[i];
+        }
+      }
+      for (Entry entry : entries.values()) {
+        entry.segment.liveBytes += entry.recordSize;
+      }
+      index.putAll(entries);
+      return true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Unable to read snapshot", e);
+      }
+    } catch (BufferUnderflowException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Snapshot is truncated", e);
+      }
+    }
+    return false;
+  }
+
+  private void scheduleSnapshotIfNeeded() {
+    if (!isSnapshotScheduled && recordsSinceSnapshot >= RECORDS_PER_SNAPSHOT) {
+      isSnapshotScheduled = true;
+      executor.execute(snapshotRunnable);
+    }
+  }
+
+  /**
+   * Writes a snapshot of the index, replacing any previous snapshot.
+   *
+   * <p>The snapshot is built with the lock held but written without it, so the cache can be used
+   * while the snapshot is written.
+   */
+  @VisibleForTesting
+  void writeSnapshot() {
+    byte[] snapshot;
+    int snapshotGeneration;
+    synchronized (this) {
+      isSnapshotScheduled = false;
+      if (!isOpen) {
+        return;
+      }
+      snapshot = buildSnapshot();
+      snapshotGeneration = generation;
+      recordsSinceSnapshot = 0;
+    }
+
+    File temp = new File(directory, SNAPSHOT_FILE + TEMP_SUFFIX);
+    try {
+      FileOutputStream os = new FileOutputStream(temp);
+      try {
+        os.write(snapshot);
+      } finally {
+        os.close();
+      }
+      synchronized (this) {
+        // Replace the previous snapshot atomically, unless the cache was cleared in the meantime.
+        if (snapshotGeneration == generation
+            && temp.renameTo(new File(directory, SNAPSHOT_FILE))) {
+          return;
+        }
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to write snapshot", e);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    temp.delete();
+  }
+
+  private byte[] buildSnapshot() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream os = new DataOutputStream(bytes);
+    try {
+      os.writeInt(SNAPSHOT_MAGIC);
+      os.writeInt(SNAPSHOT_VERSION);
+      os.writeInt(segments.size());
+      Map<Segment, Integer> segmentIndices = new HashMap<>();
+      for (int i = 0; i < segments.size(); i++) {
+        Segment segment = segments.get(i);
+        os.writeLong(segment.id);
+        os.writeInt(segment.length);
+        segmentIndices.put(segment, i);
+      }
+      os.writeInt(index.size());
+      for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        byte[] keyBytes = mapEntry.getKey().getBytes(Key.CHARSET);
+        os.writeInt(segmentIndices.get(entry.segment));
+        os.writeInt(entry.offset);
+        os.writeInt(entry.length);
+        os.writeInt(keyBytes.length);
+        os.write(keyBytes);
+      }
+    } catch (IOException e) {
+      // Writing to a ByteArrayOutputStream never throws.
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Adds the entries in the given segment after the segment's current length to the index,
+   * truncating any partially written record at the end of the segment.
+   */
+  private void scan(Segment segment) throws IOException {
+    int offset = segment.length;
+    long fileLength = segment.file.length();
+    if (fileLength > segmentSize) {
+      fileLength = segmentSize;
+    }
+    segment.length = (int) fileLength;
+    ByteBuffer buffer = segment.map(segment.length).duplicate();
+    buffer.position(offset);
+    try {
+      while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+        int keyLength = buffer.getInt();
+        if (keyLength <= 0 || keyLength > MAX_KEY_LENGTH || keyLength > buffer.remaining()) {
+          break;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        buffer.get(keyBytes);
+        int dataLength = buffer.getInt();
+        if (dataLength < TOMBSTONE || dataLength > buffer.remaining()) {
+          break;
+        }
+        String safeKey = new String(keyBytes, Key.CHARSET);
+        int recordSize = RECORD_HEADER_SIZE + keyLength + Math.max(0, dataLength);
+        Entry previous;
+        if (dataLength == TOMBSTONE) {
+          previous = index.remove(safeKey);
+        } else {
+          Entry entry = new Entry(segment, buffer.position(), dataLength, recordSize);
+          buffer.position(buffer.position() + dataLength);
+          previous = index.put(safeKey, entry);
+          segment.liveBytes += recordSize;
+        }
+        if (previous != null) {
+          previous.segment.liveBytes -= previous.recordSize;
+        }
+        offset += recordSize;
+        recordsSinceSnapshot++;
+      }
+    } catch (BufferUnderflowException e) {
+      // Treated as a partially written record below.
+    }
+    if (offset != segment.length) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Truncating " + segment.file + " from " + segment.length + " to " + offset);
+      }
+      segment.length = offset;
+      segment.mapped = null;
+      RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+      try {
+        raf.setLength(offset);
+      } finally {
+        raf.close();
+      }
+    }
+  }
+
+  /** Appends an entry, or a tombstone if the given data is {@code null}, to the newest segment. */
+  @Synthetic
+  void append(String safeKey, @Nullable byte[] data) throws IOException {
+    byte[] keyBytes = safeKey.getBytes(Key.CHARSET);
+    int dataLength = data == null ? 0 : data.length;
+    int recordSize = RECORD_HEADER_SIZE + keyBytes.length + dataLength;
+    ByteBuffer record = ByteBuffer.allocate(recordSize);
+    record.putInt(keyBytes.length);
+    record.put(keyBytes);
+    record.putInt(data == null ? TOMBSTONE : dataLength);
+    if (data != null) {
+      record.put(data);
+    }
+    record.flip();
+
+    Segment segment = getWritableSegment(recordSize);
+    FileChannel channel = getActiveFile(segment).getChannel();
+    try {
+      // The active segment is preallocated with zeros, so the key length is written last. A record
+      // that's only partially written when the process dies then reads back as the end of the
+      // segment.
+      record.position(KEY_LENGTH_SIZE);
+      write(channel, record, segment.length + KEY_LENGTH_SIZE);
+      record.position(0);
+      record.limit(KEY_LENGTH_SIZE);
+      write(channel, record, segment.length);
+    } catch (IOException e) {
+      channel.truncate(segment.length);
+      // Reopening the file preallocates it again, with zeros after the last complete record.
+      closeActiveFile();
+      throw e;
+    }
+
+    int offset = segment.length + RECORD_HEADER_SIZE + keyBytes.length;
+    segment.length += recordSize;
+    packedSize += recordSize;
+    recordsSinceSnapshot++;
+    if (data != null) {
+      Entry previous = index.put(safeKey, new Entry(segment, offset, dataLength, recordSize));
+      segment.liveBytes += recordSize;
+      if (previous != null) {
+        previous.segment.liveBytes -= previous.recordSize;
+      }
+    }
+    evictIfNeeded();
+    scheduleSnapshotIfNeeded();
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private Segment getWritableSegment(int recordSize) throws IOException {
+    Segment newest = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (newest != null && newest.length + recordSize <= segmentSize) {
+      return newest;
+    }
+    if (newest != null && activeFile != null) {
+      // Remove the preallocated space now that the segment is full.
+      activeFile.setLength(newest.length);
+      newest.mapped = null;
+    }
+    closeActiveFile();
+    long id = newest == null ? 0 : newest.id + 1;
+    Segment result = new Segment(id, new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+    segments.add(result);
+    return result;
+  }
+
+  private RandomAccessFile getActiveFile(Segment segment) throws IOException {
+    if (activeFile == null) {
+      activeFile = new RandomAccessFile(segment.file, "rw");
+      if (activeFile.length() < segmentSize) {
+        // Preallocate the whole segment so that it's mapped once, rather than each time it grows.
+        activeFile.setLength(segmentSize);
+        segment.mapped = null;
+      }
+    }
+    return activeFile;
+  }
+
+  private void closeActiveFile() {
+    if (activeFile != null) {
+      try {
+        activeFile.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+      activeFile = null;
+    }
+  }
+
+  private void evictIfNeeded() {
+    // Never evict the newest segment, it's the one we're writing to.
+    while (packedSize > maxPackedSize && segments.size() > 1) {
+      removeSegment(segments.get(0));
+    }
+  }
+
+  private void removeSegment(Segment segment) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Removing segment: " + segment.file + ", live bytes: " + segment.liveBytes
+          + " of " + segment.length);
+    }
+    segments.remove(segment);
+    packedSize -= segment.length;
+    Iterator<Entry> iterator = index.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().segment == segment) {
+        iterator.remove();
+      }
+    }
+    // Buffers previously returned from getBuffer remain valid after the file is deleted.
+    segment.mapped = null;
+    //noinspection ResultOfMethodCallIgnored
+    segment.file.delete();
+  }
+
+  private void scheduleCompactionIfNeeded() {
+    if (!isCompactionScheduled && findCompactionCandidate() != null) {
+      isCompactionScheduled = true;
+      executor.execute(compactRunnable);
+    }
+  }
+
+  @Nullable
+  private Segment findCompactionCandidate() {
+    Segment result = null;
+    float minLiveRatio = MIN_LIVE_RATIO;
+    // The newest segment is still being written to.
+    for (int i = 0; i < segments.size() - 1; i++) {
+      Segment segment = segments.get(i);
+      float liveRatio = segment.length == 0 ? 0 : segment.liveBytes / (float) segment.length;
+      if (liveRatio < minLiveRatio) {
+        minLiveRatio = liveRatio;
+        result = segment;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Copies the live entries in sparsely populated segments to the newest segment and removes the
+   * old segments.
+   *
+   * <p>The lock is released between records so that reads and writes aren't blocked while a
+   * whole segment is copied.
+   */
+  @Synthetic
+  void compact() {
+    Segment segment;
+    synchronized (this) {
+      segment = findCompactionCandidate();
+    }
+    while (segment != null) {
+      try {
+        compact(segment);
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to compact packed disk cache", e);
+        }
+        synchronized (this) {
+          isCompactionScheduled = false;
+        }
+        return;
+      }
+      synchronized (this) {
+        if (segments.contains(segment)) {
+          removeSegment(segment);
+        }
+        segment = findCompactionCandidate();
+        if (segment == null) {
+          isCompactionScheduled = false;
+        }
+      }
+    }
+  }
+
+  private void compact(Segment segment) throws IOException {
+    ByteBuffer buffer;
+    synchronized (this) {
+      buffer = segment.map(segment.length).duplicate();
+      buffer.limit(segment.length);
+    }
+    while (buffer.hasRemaining()) {
+      byte[] keyBytes = new byte[buffer.getInt()];
+      buffer.get(keyBytes);
+      int dataLength = buffer.getInt();
+      String safeKey = new String(keyBytes, Key.CHARSET);
+      int dataOffset = buffer.position();
+      if (dataLength != TOMBSTONE) {
+        buffer.position(dataOffset + dataLength);
+      }
+      synchronized (this) {
+        if (!segments.contains(segment)) {
+          // Evicted or cleared while we were copying.
+          return;
+        }
+        Entry entry = index.get(safeKey);
+        if (dataLength == TOMBSTONE) {
+          // Older segments may still contain the deleted entry, so the tombstone has to be kept
+          // unless the entry has been written again since.
+          if (entry == null && segments.indexOf(segment) > 0) {
+            append(safeKey, /*data=*/ null);
+          }
+        } else if (entry != null && entry.segment == segment && entry.offset == dataOffset) {
+          byte[] data = new byte[dataLength];
+          ByteBuffer source = buffer.duplicate();
+          source.position(dataOffset);
+          source.get(data);
+          append(safeKey, data);
+        }
+      }
+    }
+  }
+
+  @Synthetic
+  static ByteBuffer map(File file, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static byte[] readFully(File file, int length) throws IOException {
+    byte[] result = new byte[length];
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      raf.readFully(result);
+    } finally {
+      raf.close();
+    }
+    return result;
+  }
+
+  private static final class Segment implements Comparable<Segment> {
+    @Synthetic final long id;
+    @Synthetic final File file;
+    @Synthetic int length;
+    @Synthetic long liveBytes;
+    // Read and replaced without holding the cache's lock by getBuffer.
+    @Nullable @Synthetic volatile ByteBuffer mapped;
+
+    @Synthetic
+    Segment(long id, File file) {
+      this.id = id;
+      this.file = file;
+    }
+
+    /**
+     * Returns a read only mapping of the whole file of this segment, which includes at least the
+     * given number of bytes.
+     *
+     * <p>The segment being written to is preallocated to the full segment size, so it's mapped
+     * once rather than each time a record is appended.
+     */
+    @NonNull
+    ByteBuffer map(int minLength) throws IOException {
+      ByteBuffer result = mapped;
+      // A read that raced with preallocation may have mapped the segment at its previous length.
+      if (result == null || result.capacity() < minLength) {
+        // Concurrent reads may both map the segment, either mapping is valid.
+        result = PackedDiskCache.map(file, Math.max(minLength, file.length()));
+        mapped = result;
+      }
+      return result;
+    }
+
+    @Override
+    public int compareTo(@NonNull Segment other) {
+      return id < other.id ? -1 : (id == other.id ? 0 : 1);
+    }
+  }
+
+  private static final class BufferWriter implements Writer {
+    private final ByteBuffer buffer;
+
+    @Synthetic
+    BufferWriter(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      try {
+        ByteBufferUtil.toFile(buffer, file);
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to copy packed entry to file", e);
+        }
+        return false;
+      }
+    }
+  }
+
+  private static final class Entry {
+    @Synthetic final Segment segment;
+    @Synthetic final int offset;
+    @Synthetic final int length;
+    @Synthetic final int recordSize;
+
+    @Synthetic
+    Entry(Segment segment, int offset, int length, int recordSize) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.recordSize = recordSize;
+    }
+  }
+}
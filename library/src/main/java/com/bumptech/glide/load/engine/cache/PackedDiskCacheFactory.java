@@ -0,0 +1,74 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Creates a {@link PackedDiskCache} in the specified disk cache directory.
+ *
+ * <p>Packed caches avoid creating a file per entry, which makes them a good fit for caches that
+ * mostly contain small thumbnails.
+ */
+// Public API.
+@SuppressWarnings("unused")
+public class PackedDiskCacheFactory implements DiskCache.Factory {
+  private final long diskCacheSize;
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final SafeKeyGenerator.Algorithm algorithm;
+
+  public PackedDiskCacheFactory(final String diskCacheFolder, long diskCacheSize) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        return new File(diskCacheFolder);
+      }
+    }, diskCacheSize);
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the disk cache.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public PackedDiskCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize) {
+    this(cacheDirectoryGetter, diskCacheSize, SafeKeyGenerator.Algorithm.SHA_256);
+  }
+
+  /**
+   * Like {@link #PackedDiskCacheFactory(CacheDirectoryGetter, long)}, but allows the algorithm
+   * used to generate keys to be specified.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the disk cache.
+   * @param algorithm            The algorithm used to generate keys, see
+   *                             {@link PackedDiskCache#create(File, long,
+   *                             SafeKeyGenerator.Algorithm)}.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public PackedDiskCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      SafeKeyGenerator.Algorithm algorithm) {
+    this.diskCacheSize = diskCacheSize;
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.algorithm = algorithm;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return PackedDiskCache.create(cacheDir, diskCacheSize, algorithm);
+  }
+}
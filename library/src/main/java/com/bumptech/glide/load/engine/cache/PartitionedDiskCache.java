@@ -0,0 +1,359 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DiskCache} that splits entries between two independent caches, each with its own size
+ * budget, eviction order and statistics.
+ *
+ * <p>With a single cache a handful of large original images can evict thousands of small
+ * transformed thumbnails that are cheap to store but expensive to regenerate. Partitioning keeps
+ * the two apart, either by the kind of key (see {@link #byDataSource(DiskCache, DiskCache)}) or by
+ * the size of each entry (see {@link #byEntrySize(File, long, DiskCache, DiskCache)}).
+ *
+ * <p>Partitions must not share directories.
+ */
+// Public API.
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class PartitionedDiskCache
+    implements DiskCache, DiskCache.ByteBufferReader, DiskCache.Warmable,
+    DiskCache.ArchiveImporter {
+  private static final String TAG = "PartitionedDiskCache";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final List<Partition> partitions;
+  // Only set when routing by size.
+  @Nullable private final File tempDirectory;
+  private final long maxSmallEntrySize;
+  private final SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator();
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+
+  /**
+   * Returns a cache that stores transformed resources, keys whose
+   * {@link DiskCache.DataSourceKey#getDataSource()} is {@link DataSource#RESOURCE_DISK_CACHE}, in
+   * {@code resourceCache} and everything else, including unmodified source data, in
+   * {@code dataCache}.
+   */
+  public static PartitionedDiskCache byDataSource(
+      @NonNull DiskCache dataCache, @NonNull DiskCache resourceCache) {
+    return new PartitionedDiskCache(
+        new Partition("data", dataCache),
+        new Partition("resource", resourceCache),
+        /*tempDirectory=*/ null,
+        /*maxSmallEntrySize=*/ 0);
+  }
+
+  /**
+   * Returns a cache that stores entries of up to {@code maxSmallEntrySize} bytes in
+   * {@code smallEntryCache} and larger entries in {@code largeEntryCache}.
+   *
+   * <p>Entries are written to a temporary file in {@code tempDirectory} and then moved into the
+   * appropriate partition, so {@code tempDirectory} should be on the same file system as the
+   * partitions. Reads check both partitions, which is cheap for caches like
+   * {@link DiskLruCacheWrapper} that can answer misses from memory.
+   */
+  public static PartitionedDiskCache byEntrySize(
+      @NonNull File tempDirectory,
+      long maxSmallEntrySize,
+      @NonNull DiskCache smallEntryCache,
+      @NonNull DiskCache largeEntryCache) {
+    Preconditions.checkArgument(maxSmallEntrySize > 0, "maxSmallEntrySize must be positive");
+    return new PartitionedDiskCache(
+        new Partition("small", smallEntryCache),
+        new Partition("large", largeEntryCache),
+        Preconditions.checkNotNull(tempDirectory),
+        maxSmallEntrySize);
+  }
+
+  private PartitionedDiskCache(
+      Partition first, Partition second, @Nullable File tempDirectory, long maxSmallEntrySize) {
+    List<Partition> partitions = new ArrayList<>(2);
+    partitions.add(first);
+    partitions.add(second);
+    this.partitions = Collections.unmodifiableList(partitions);
+    this.tempDirectory = tempDirectory;
+    this.maxSmallEntrySize = maxSmallEntrySize;
+  }
+
+  /**
+   * Returns a snapshot of the hits, misses and puts of each partition, in the order the partitions
+   * were given when the cache was created.
+   */
+  @NonNull
+  public List<PartitionStats> getPartitionStats() {
+    List<PartitionStats> result = new ArrayList<>(partitions.size());
+    for (Partition partition : partitions) {
+      result.add(new PartitionStats(partition));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    if (!isRoutedBySize()) {
+      return get(getPartition(key), key);
+    }
+    for (int i = 0; i < partitions.size() - 1; i++) {
+      File result = partitions.get(i).cache.get(key);
+      if (result != null) {
+        partitions.get(i).hits.incrementAndGet();
+        return result;
+      }
+    }
+    return get(partitions.get(partitions.size() - 1), key);
+  }
+
+  @Nullable
+  private static File get(Partition partition, Key key) {
+    File result = partition.cache.get(key);
+    if (result != null) {
+      partition.hits.incrementAndGet();
+    } else {
+      partition.misses.incrementAndGet();
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    if (!isRoutedBySize()) {
+      Partition partition = getPartition(key);
+      ByteBuffer result = getBuffer(partition, key);
+      if (result == NOT_CACHED) {
+        partition.misses.incrementAndGet();
+      }
+      return result;
+    }
+    boolean isNotCached = true;
+    for (Partition partition : partitions) {
+      ByteBuffer result = getBuffer(partition, key);
+      if (result == NOT_CACHED) {
+        continue;
+      }
+      if (result != null) {
+        return result;
+      }
+      isNotCached = false;
+    }
+    if (!isNotCached) {
+      return null;
+    }
+    // Only a miss in every partition means get(Key) would miss too. Like get(Key), count the miss
+    // against the last partition.
+    partitions.get(partitions.size() - 1).misses.incrementAndGet();
+    return NOT_CACHED;
+  }
+
+  // Misses are counted by the caller if the data is definitely not cached, otherwise Glide falls
+  // back to get(Key), which counts them.
+  @Nullable
+  private static ByteBuffer getBuffer(Partition partition, Key key) {
+    if (!(partition.cache instanceof ByteBufferReader)) {
+      return null;
+    }
+    ByteBuffer result = ((ByteBufferReader) partition.cache).getBuffer(key);
+    if (result != null && result != NOT_CACHED) {
+      partition.hits.incrementAndGet();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    if (!isRoutedBySize()) {
+      Partition partition = getPartition(key);
+      partition.cache.put(key, writer);
+      partition.puts.incrementAndGet();
+      return;
+    }
+
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    writeLocker.acquire(safeKey);
+    try {
+      for (Partition partition : partitions) {
+        if (partition.cache.get(key) != null) {
+          return;
+        }
+      }
+
+      File directory = Preconditions.checkNotNull(tempDirectory);
+      if (!directory.mkdirs() && !directory.isDirectory()) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to create temp directory: " + directory);
+        }
+        return;
+      }
+      File temp = new File(directory, safeKey + TEMP_SUFFIX);
+      try {
+        if (!writer.write(temp)) {
+          return;
+        }
+        Partition partition =
+            partitions.get(temp.length() <= maxSmallEntrySize ? 0 : partitions.size() - 1);
+        partition.cache.put(key, new MovingWriter(temp));
+        partition.puts.incrementAndGet();
+      } finally {
+        //noinspection ResultOfMethodCallIgnored
+        temp.delete();
+      }
+    } finally {
+      writeLocker.release(safeKey);
+    }
+  }
+
+  @Override
+  public void delete(Key key) {
+    if (!isRoutedBySize()) {
+      getPartition(key).cache.delete(key);
+      return;
+    }
+    for (Partition partition : partitions) {
+      partition.cache.delete(key);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Partition partition : partitions) {
+      partition.cache.clear();
+    }
+  }
+
+  @Override
+  public void warmUp() {
+    for (Partition partition : partitions) {
+      if (partition.cache instanceof Warmable) {
+        ((Warmable) partition.cache).warmUp();
+      }
+    }
+  }
+
+  /**
+   * Imports each entry into the partition it would be put in, using the data source recorded in
+   * the archive or the length of the entry. Entries for partitions that aren't
+   * {@link DiskCache.ArchiveImporter}s are skipped.
+   *
+   * <p>The archive must use the {@link SafeKeyGenerator.Algorithm} of the partitions.
+   */
+  @Override
+  public int importArchive(@NonNull InputStream archive) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(archive));
+    // Each partition checks the algorithm against its own.
+    SafeKeyGenerator.Algorithm algorithm = DiskCacheArchive.readHeader(input);
+    int imported = 0;
+    int skipped = 0;
+    DiskCacheArchive.EntryHeader header;
+    while ((header = DiskCacheArchive.readEntryHeader(input)) != null) {
+      Partition partition;
+      if (isRoutedBySize()) {
+        partition =
+            partitions.get(header.length <= maxSmallEntrySize ? 0 : partitions.size() - 1);
+      } else {
+        partition = partitions.get(header.dataSource == DataSource.RESOURCE_DISK_CACHE ? 1 : 0);
+      }
+      if (!(partition.cache instanceof ArchiveImporter)) {
+        DiskCacheArchive.skipFully(input, header.length);
+        skipped++;
+        continue;
+      }
+      int count = DiskCacheArchive.importEntry(
+          (ArchiveImporter) partition.cache, algorithm, header, input);
+      partition.puts.addAndGet(count);
+      imported += count;
+    }
+    if (skipped > 0 && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Skipped " + skipped + " entries for partitions that don't support imports");
+    }
+    return imported;
+  }
+
+  private boolean isRoutedBySize() {
+    return tempDirectory != null;
+  }
+
+  private Partition getPartition(Key key) {
+    boolean isResource = key instanceof DataSourceKey
+        && ((DataSourceKey) key).getDataSource() == DataSource.RESOURCE_DISK_CACHE;
+    return partitions.get(isResource ? 1 : 0);
+  }
+
+  /**
+   * A snapshot of the usage of a single partition of a {@link PartitionedDiskCache}.
+   */
+  public static final class PartitionStats {
+    private final String name;
+    private final int hits;
+    private final int misses;
+    private final int puts;
+
+    PartitionStats(Partition partition) {
+      name = partition.name;
+      hits = partition.hits.get();
+      misses = partition.misses.get();
+      puts = partition.puts.get();
+    }
+
+    /**
+     * Returns {@code data} or {@code resource} for caches partitioned by data source, or
+     * {@code small} or {@code large} for caches partitioned by entry size.
+     */
+    @NonNull
+    public String getName() {
+      return name;
+    }
+
+    public int getHits() {
+      return hits;
+    }
+
+    public int getMisses() {
+      return misses;
+    }
+
+    public int getPuts() {
+      return puts;
+    }
+
+    @Override
+    public String toString() {
+      return "PartitionStats{"
+          + "name=" + name
+          + ", hits=" + hits
+          + ", misses=" + misses
+          + ", puts=" + puts
+          + '}';
+    }
+  }
+
+  private static final class Partition {
+    final String name;
+    final DiskCache cache;
+    final AtomicInteger hits = new AtomicInteger();
+    final AtomicInteger misses = new AtomicInteger();
+    final AtomicInteger puts = new AtomicInteger();
+
+    @Synthetic
+    Partition(String name, DiskCache cache) {
+      this.name = name;
+      this.cache = Preconditions.checkNotNull(cache);
+    }
+  }
+}
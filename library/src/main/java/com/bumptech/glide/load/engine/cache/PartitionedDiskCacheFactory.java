@@ -0,0 +1,75 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Creates a {@link PartitionedDiskCache} that stores unmodified source data and transformed
+ * resources in separate {@link com.bumptech.glide.disklrucache.DiskLruCache}s, each with its own
+ * size budget, in subdirectories of the specified disk cache directory.
+ *
+ * <p>To partition by entry size instead, or to use other caches for each partition, create a
+ * {@link DiskCache.Factory} that returns a cache from
+ * {@link PartitionedDiskCache#byEntrySize(File, long, DiskCache, DiskCache)} or
+ * {@link PartitionedDiskCache#byDataSource(DiskCache, DiskCache)}.
+ */
+// Public API.
+@SuppressWarnings("unused")
+public class PartitionedDiskCacheFactory implements DiskCache.Factory {
+  private static final String DATA_DIRECTORY = "data";
+  private static final String RESOURCE_DIRECTORY = "resource";
+
+  private final long dataCacheSize;
+  private final long resourceCacheSize;
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+
+  public PartitionedDiskCacheFactory(
+      final String diskCacheFolder, long dataCacheSize, long resourceCacheSize) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        return new File(diskCacheFolder);
+      }
+    }, dataCacheSize, resourceCacheSize);
+  }
+
+  /**
+   * When using this constructor {@link CacheDirectoryGetter#getCacheDirectory()} will be called out
+   * of UI thread, allowing to do I/O access without performance impacts.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param dataCacheSize        Desired max bytes size for unmodified source data.
+   * @param resourceCacheSize    Desired max bytes size for transformed resources.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public PartitionedDiskCacheFactory(
+      CacheDirectoryGetter cacheDirectoryGetter, long dataCacheSize, long resourceCacheSize) {
+    this.dataCacheSize = dataCacheSize;
+    this.resourceCacheSize = resourceCacheSize;
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    File dataDir = new File(cacheDir, DATA_DIRECTORY);
+    File resourceDir = new File(cacheDir, RESOURCE_DIRECTORY);
+    if (!isDirectory(dataDir) || !isDirectory(resourceDir)) {
+      return null;
+    }
+
+    return PartitionedDiskCache.byDataSource(
+        DiskLruCacheWrapper.create(dataDir, dataCacheSize),
+        DiskLruCacheWrapper.create(resourceDir, resourceCacheSize));
+  }
+
+  private static boolean isDirectory(File dir) {
+    return dir.mkdirs() || (dir.exists() && dir.isDirectory());
+  }
+}
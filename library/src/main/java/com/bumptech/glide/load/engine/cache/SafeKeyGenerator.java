@@ -3,23 +3,53 @@ package com.bumptech.glide.load.engine.cache;
 import android.support.annotation.NonNull;
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.Key;
-import com.bumptech.glide.util.LruCache;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
 import com.bumptech.glide.util.pool.StateVerifier;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A class that generates and caches safe and unique string file names from {@link
  * com.bumptech.glide.load.Key}s.
+ *
+ * <p>Safe keys are memoized in a fixed size, lock free table so that the repeated lookups of the
+ * same {@link Key} made while loading a single request (for example the cache probe followed by
+ * the cache write of the same {@link com.bumptech.glide.load.engine.DataCacheKey}) only compute
+ * the digest once.
  */
 // Public API.
 @SuppressWarnings("WeakerAccess")
 public class SafeKeyGenerator {
-  private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
+  // Must be a power of two.
+  private static final int MEMO_SIZE = 1024;
+  private static final char[] HEX_CHAR_ARRAY = "0123456789abcdef".toCharArray();
+
+  /**
+   * The hash functions that can be used to generate safe keys.
+   *
+   * <p>Each algorithm produces different file names for the same {@link Key}, so changing the
+   * algorithm used by an existing disk cache will cause all previously cached entries to miss.
+   */
+  public enum Algorithm {
+    /**
+     * SHA-256, producing 64 character keys.
+     *
+     * <p>The default, compatible with caches written by previous versions.
+     */
+    SHA_256,
+    /**
+     * The 128 bit x64 variant of MurmurHash3, producing 32 character keys.
+     *
+     * <p>Not cryptographically secure, but substantially cheaper to compute than SHA-256.
+     */
+    MURMUR3_128,
+  }
+
+  private final AtomicReferenceArray<MemoEntry> memo = new AtomicReferenceArray<>(MEMO_SIZE);
+  private final Algorithm algorithm;
   private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
       new FactoryPools.Factory<PoolableDigestContainer>() {
         @Override
@@ -32,31 +62,76 @@ public class SafeKeyGenerator {
         }
       });
 
+  public SafeKeyGenerator() {
+    this(Algorithm.SHA_256);
+  }
+
+  public SafeKeyGenerator(Algorithm algorithm) {
+    this.algorithm = Preconditions.checkNotNull(algorithm);
+  }
+
+  Algorithm getAlgorithm() {
+    return algorithm;
+  }
+
   public String getSafeKey(Key key) {
-    String safeKey;
-    synchronized (loadIdToSafeHash) {
-      safeKey = loadIdToSafeHash.get(key);
-    }
-    if (safeKey == null) {
-      safeKey = calculateHexStringDigest(key);
-    }
-    synchronized (loadIdToSafeHash) {
-      loadIdToSafeHash.put(key, safeKey);
+    int index = indexFor(key);
+    MemoEntry entry = memo.get(index);
+    if (entry != null && entry.key.equals(key)) {
+      return entry.safeKey;
     }
+    String safeKey = calculateHexStringDigest(key);
+    // Racing writers may overwrite each other, which only costs a recomputation later.
+    memo.lazySet(index, new MemoEntry(key, safeKey));
     return safeKey;
   }
 
+  private static int indexFor(Key key) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (MEMO_SIZE - 1);
+  }
+
   private String calculateHexStringDigest(Key key) {
+    if (algorithm == Algorithm.MURMUR3_128) {
+      // Cheaper to allocate than to acquire from the synchronized pool.
+      MessageDigest messageDigest = new Murmur3Digest();
+      key.updateDiskCacheKey(messageDigest);
+      return bytesToHex(messageDigest.digest());
+    }
+
     PoolableDigestContainer container = Preconditions.checkNotNull(digestPool.acquire());
     try {
       key.updateDiskCacheKey(container.messageDigest);
       // calling digest() will automatically reset()
-      return Util.sha256BytesToHex(container.messageDigest.digest());
+      return bytesToHex(container.messageDigest.digest());
     } finally {
       digestPool.release(container);
     }
   }
 
+  // Uses a new char array each time rather than Util#sha256BytesToHex, which synchronizes on a
+  // shared buffer.
+  static String bytesToHex(byte[] bytes) {
+    char[] hexChars = new char[bytes.length * 2];
+    int v;
+    for (int j = 0; j < bytes.length; j++) {
+      v = bytes[j] & 0xFF;
+      hexChars[j * 2] = HEX_CHAR_ARRAY[v >>> 4];
+      hexChars[j * 2 + 1] = HEX_CHAR_ARRAY[v & 0x0F];
+    }
+    return new String(hexChars);
+  }
+
+  private static final class MemoEntry {
+    @Synthetic final Key key;
+    @Synthetic final String safeKey;
+
+    MemoEntry(Key key, String safeKey) {
+      this.key = key;
+      this.safeKey = safeKey;
+    }
+  }
+
   private static final class PoolableDigestContainer implements FactoryPools.Poolable {
 
     @Synthetic final MessageDigest messageDigest;
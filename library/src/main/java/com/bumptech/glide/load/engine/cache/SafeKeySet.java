@@ -0,0 +1,143 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A set of the safe keys generated by {@link SafeKeyGenerator} that allows lookups of keys that
+ * aren't in a disk cache to be answered without touching the cache.
+ *
+ * <p>Safe keys are hex encoded digests, so only the first 64 bits of each key are stored, in an
+ * open addressed table of longs. {@link #mightContain(String)} may return false positives for keys
+ * whose prefixes collide, but never returns false negatives for keys passed to {@link #add(String)}
+ * and not since passed to {@link #remove(String)}. Keys too short to have a prefix are never
+ * stored and are always reported as possibly present.
+ *
+ * <p>This class is thread safe. Each method holds the lock on the set only while probing the
+ * table.
+ */
+final class SafeKeySet {
+  private static final int PREFIX_LENGTH = 16;
+  private static final int MIN_CAPACITY = 16;
+  // Zero marks empty slots, so a zero prefix is tracked separately.
+  private static final long EMPTY = 0;
+
+  private long[] table;
+  private int mask;
+  private int size;
+  private boolean containsZero;
+
+  SafeKeySet(int expectedEntries) {
+    int capacity = MIN_CAPACITY;
+    // Keep the table at most half full so that probe sequences stay short.
+    while (capacity < 2L * expectedEntries && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    table = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized boolean mightContain(String safeKey) {
+    if (safeKey.length() < PREFIX_LENGTH) {
+      return true;
+    }
+    long prefix = parsePrefix(safeKey);
+    return prefix == EMPTY ? containsZero : table[indexOf(prefix)] == prefix;
+  }
+
+  synchronized void add(String safeKey) {
+    if (safeKey.length() < PREFIX_LENGTH) {
+      return;
+    }
+    long prefix = parsePrefix(safeKey);
+    if (prefix == EMPTY) {
+      if (!containsZero) {
+        containsZero = true;
+        size++;
+      }
+      return;
+    }
+    int index = indexOf(prefix);
+    if (table[index] == prefix) {
+      return;
+    }
+    table[index] = prefix;
+    size++;
+    if (2L * size > table.length && table.length < (1 << 30)) {
+      resize(table.length << 1);
+    }
+  }
+
+  synchronized void remove(String safeKey) {
+    if (safeKey.length() < PREFIX_LENGTH) {
+      return;
+    }
+    long prefix = parsePrefix(safeKey);
+    if (prefix == EMPTY) {
+      if (containsZero) {
+        containsZero = false;
+        size--;
+      }
+      return;
+    }
+    int hole = indexOf(prefix);
+    if (table[hole] != prefix) {
+      return;
+    }
+    size--;
+    // Shift later entries in the probe sequence back so that lookups don't stop at the hole.
+    int current = hole;
+    while (true) {
+      current = (current + 1) & mask;
+      long value = table[current];
+      if (value == EMPTY) {
+        break;
+      }
+      int home = slotOf(value);
+      boolean isHomeAfterHole =
+          hole <= current ? hole < home && home <= current : hole < home || home <= current;
+      if (!isHomeAfterHole) {
+        table[hole] = value;
+        hole = current;
+      }
+    }
+    table[hole] = EMPTY;
+  }
+
+  /**
+   * Returns the index of the given prefix in the table, or of the empty slot where it would be
+   * added.
+   */
+  private int indexOf(long prefix) {
+    int index = slotOf(prefix);
+    while (table[index] != EMPTY && table[index] != prefix) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private int slotOf(long prefix) {
+    // Prefixes are digests, so their bits are already uniformly distributed.
+    return (int) (prefix ^ (prefix >>> 32)) & mask;
+  }
+
+  private void resize(int capacity) {
+    long[] previous = table;
+    table = new long[capacity];
+    mask = capacity - 1;
+    for (long value : previous) {
+      if (value != EMPTY) {
+        table[indexOf(value)] = value;
+      }
+    }
+  }
+
+  private static long parsePrefix(String safeKey) {
+    long result = 0;
+    for (int i = 0; i < PREFIX_LENGTH; i++) {
+      result = (result << 4) | (Character.digit(safeKey.charAt(i), 16) & 0xF);
+    }
+    return result;
+  }
+}
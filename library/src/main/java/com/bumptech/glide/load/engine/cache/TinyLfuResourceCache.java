@@ -0,0 +1,351 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in memory cache for {@link com.bumptech.glide.load.engine.Resource}s that uses frequency based
+ * admission (W-TinyLFU) to keep popular resources cached when many resources are loaded only
+ * once, for example during a long fling through a feed.
+ *
+ * <p>New resources are first added to a small LRU window. Resources evicted from the window are
+ * only admitted to the main region if they've been requested more often than the resources they
+ * would displace, as estimated by a {@link FrequencySketch}. The main region is segmented into a
+ * probation area for newly admitted resources and a protected area for resources that have been
+ * retrieved from the main region at least once.
+ *
+ * <p>{@link com.bumptech.glide.load.engine.Engine} removes resources from the memory cache when
+ * they're used and puts them back when they're released, so every call to {@link #remove(Key)}
+ * counts as a request for the key, whether or not the key is present. A resource that was removed
+ * from the main region is put back directly in the protected area.
+ */
+public class TinyLfuResourceCache implements MemoryCache {
+  /**
+   * The default fraction of the cache's size used for the LRU window. Larger than the 1% often used
+   * for caches of small objects because individual resources are typically large relative to the
+   * size of the cache and a tiny window would be unable to hold even a single resource.
+   */
+  private static final float DEFAULT_WINDOW_FRACTION = 0.1f;
+  private static final float PROTECTED_FRACTION = 0.8f;
+  /** Used to size the frequency sketch from the byte size of the cache. */
+  private static final int ESTIMATED_RESOURCE_SIZE_BYTES = 32 * 1024;
+  private static final int MIN_SKETCH_ENTRIES = 64;
+  private static final int MAX_SKETCH_ENTRIES = 1 << 16;
+  /**
+   * The maximum number of keys removed from the main region that we'll remember while we wait for
+   * them to be put back.
+   *
+   * <p>Only the hash codes of the keys are remembered because callers may remove resources with
+   * keys that are cleared and re-used after the call, like the pooled keys used by
+   * {@link com.bumptech.glide.load.engine.Engine}. A collision at worst puts a resource directly in
+   * the protected area.
+   */
+  private static final int MAX_RETURNING_KEYS = 256;
+
+  private final Map<Key, Resource<?>> window = new LinkedHashMap<>();
+  private final Map<Key, Resource<?>> probation = new LinkedHashMap<>();
+  private final Map<Key, Resource<?>> protectedResources = new LinkedHashMap<>();
+  private final Map<Integer, Boolean> returningKeyHashes =
+      new LinkedHashMap<Integer, Boolean>() {
+        private static final long serialVersionUID = 6314598125703567439L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+          return size() > MAX_RETURNING_KEYS;
+        }
+      };
+  private final FrequencySketch sketch;
+  private final long initialMaxSize;
+  private final float windowFraction;
+  private ResourceRemovedListener listener;
+  private long maxSize;
+  private long windowMaxSize;
+  private long mainMaxSize;
+  private long protectedMaxSize;
+  private long windowSize;
+  private long probationSize;
+  private long protectedSize;
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(long size) {
+    this(size, DEFAULT_WINDOW_FRACTION);
+  }
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size           The maximum size in bytes the in memory cache can use.
+   * @param windowFraction The fraction of the cache between 0 and 1 to use for the LRU window that
+   *                       all new resources are added to. Larger windows favor recently loaded
+   *                       resources, smaller windows favor frequently loaded resources.
+   */
+  public TinyLfuResourceCache(long size, float windowFraction) {
+    if (windowFraction < 0 || windowFraction > 1) {
+      throw new IllegalArgumentException("Window fraction must be between 0 and 1");
+    }
+    this.initialMaxSize = size;
+    this.windowFraction = windowFraction;
+    long expectedEntries = size / ESTIMATED_RESOURCE_SIZE_BYTES;
+    sketch = new FrequencySketch(
+        (int) Math.max(MIN_SKETCH_ENTRIES, Math.min(MAX_SKETCH_ENTRIES, expectedEntries)));
+    setMaxSize(size);
+  }
+
+  @Override
+  public void setResourceRemovedListener(@NonNull ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized long getCurrentSize() {
+    return windowSize + probationSize + protectedSize;
+  }
+
+  @Override
+  public synchronized long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    setMaxSize(Math.round(initialMaxSize * multiplier));
+    evict();
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(@NonNull Key key) {
+    sketch.increment(key);
+    Resource<?> result = window.remove(key);
+    if (result != null) {
+      windowSize -= result.getSize();
+      return result;
+    }
+    result = probation.remove(key);
+    if (result != null) {
+      probationSize -= result.getSize();
+    } else {
+      result = protectedResources.remove(key);
+      if (result != null) {
+        protectedSize -= result.getSize();
+      }
+    }
+    if (result != null) {
+      returningKeyHashes.put(key.hashCode(), Boolean.TRUE);
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(@NonNull Key key, @Nullable Resource<?> resource) {
+    boolean isReturning = returningKeyHashes.remove(key.hashCode()) != null;
+    if (resource != null && resource.getSize() >= maxSize) {
+      notifyRemoved(resource);
+      return null;
+    }
+
+    Resource<?> old = removeWithoutRecording(key);
+    if (old != null && !old.equals(resource)) {
+      notifyRemoved(old);
+    }
+    if (resource == null) {
+      return old;
+    }
+
+    int size = resource.getSize();
+    if (isReturning && size <= protectedMaxSize) {
+      protectedResources.put(key, resource);
+      protectedSize += size;
+    } else {
+      window.put(key, resource);
+      windowSize += size;
+    }
+    evict();
+    return old;
+  }
+
+  @Override
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Nearing middle of list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      // Entering list of cached background apps
+      // Evict the least valuable half of our bitmap cache
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  /**
+   * Removes resources until the cache is smaller than the given size, starting with resources on
+   * probation, followed by the window and finally protected resources.
+   */
+  private synchronized void trimToSize(long size) {
+    while (getCurrentSize() > size) {
+      if (!probation.isEmpty()) {
+        probationSize -= evictEldest(probation);
+      } else if (!window.isEmpty()) {
+        windowSize -= evictEldest(window);
+      } else {
+        protectedSize -= evictEldest(protectedResources);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean isInWindow(@NonNull Key key) {
+    return window.containsKey(key);
+  }
+
+  @VisibleForTesting
+  synchronized boolean isOnProbation(@NonNull Key key) {
+    return probation.containsKey(key);
+  }
+
+  @VisibleForTesting
+  synchronized boolean isProtected(@NonNull Key key) {
+    return protectedResources.containsKey(key);
+  }
+
+  private void setMaxSize(long size) {
+    maxSize = size;
+    windowMaxSize = Math.round(size * windowFraction);
+    mainMaxSize = size - windowMaxSize;
+    protectedMaxSize = Math.round(mainMaxSize * PROTECTED_FRACTION);
+  }
+
+  @Nullable
+  private Resource<?> removeWithoutRecording(@NonNull Key key) {
+    Resource<?> result = window.remove(key);
+    if (result != null) {
+      windowSize -= result.getSize();
+      return result;
+    }
+    result = probation.remove(key);
+    if (result != null) {
+      probationSize -= result.getSize();
+      return result;
+    }
+    result = protectedResources.remove(key);
+    if (result != null) {
+      protectedSize -= result.getSize();
+    }
+    return result;
+  }
+
+  private void evict() {
+    // Demote the least recently returned protected resources to probation.
+    while (protectedSize > protectedMaxSize) {
+      Iterator<Map.Entry<Key, Resource<?>>> iterator = protectedResources.entrySet().iterator();
+      Map.Entry<Key, Resource<?>> eldest = iterator.next();
+      iterator.remove();
+      int size = eldest.getValue().getSize();
+      protectedSize -= size;
+      probation.put(eldest.getKey(), eldest.getValue());
+      probationSize += size;
+    }
+
+    while (windowSize > windowMaxSize) {
+      Iterator<Map.Entry<Key, Resource<?>>> iterator = window.entrySet().iterator();
+      Map.Entry<Key, Resource<?>> candidate = iterator.next();
+      iterator.remove();
+      windowSize -= candidate.getValue().getSize();
+      admit(candidate.getKey(), candidate.getValue());
+    }
+
+    // Only necessary if the maximum size has shrunk.
+    trimToSize(maxSize);
+  }
+
+  /**
+   * Adds the given resource evicted from the window to probation if it's been requested more often
+   * than all of the resources that would have to be evicted to make room for it, or evicts it
+   * otherwise.
+   */
+  private void admit(@NonNull Key key, @NonNull Resource<?> candidate) {
+    int candidateSize = candidate.getSize();
+    long toFree = probationSize + protectedSize + candidateSize - mainMaxSize;
+    if (toFree > 0) {
+      int candidateFrequency = sketch.frequency(key);
+      int victims = countVictimsToFree(toFree, candidateFrequency);
+      if (victims < 0) {
+        notifyRemoved(candidate);
+        return;
+      }
+      for (int i = 0; i < victims; i++) {
+        if (!probation.isEmpty()) {
+          probationSize -= evictEldest(probation);
+        } else {
+          protectedSize -= evictEldest(protectedResources);
+        }
+      }
+    }
+    probation.put(key, candidate);
+    probationSize += candidateSize;
+  }
+
+  /**
+   * Returns the number of resources from the main region, in eviction order, that need to be
+   * evicted to free the given number of bytes, or -1 if any of them is requested at least as often
+   * as the candidate or the main region isn't large enough.
+   */
+  private int countVictimsToFree(long toFree, int candidateFrequency) {
+    int victims = 0;
+    long freed = 0;
+    Iterator<Map.Entry<Key, Resource<?>>> probationIterator = probation.entrySet().iterator();
+    Iterator<Map.Entry<Key, Resource<?>>> protectedIterator =
+        protectedResources.entrySet().iterator();
+    while (freed < toFree) {
+      final Map.Entry<Key, Resource<?>> victim;
+      if (probationIterator.hasNext()) {
+        victim = probationIterator.next();
+      } else if (protectedIterator.hasNext()) {
+        victim = protectedIterator.next();
+      } else {
+        return -1;
+      }
+      if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+        return -1;
+      }
+      freed += victim.getValue().getSize();
+      victims++;
+    }
+    return victims;
+  }
+
+  private int evictEldest(Map<Key, Resource<?>> region) {
+    Iterator<Map.Entry<Key, Resource<?>>> iterator = region.entrySet().iterator();
+    Resource<?> evicted = iterator.next().getValue();
+    iterator.remove();
+    notifyRemoved(evicted);
+    return evicted.getSize();
+  }
+
+  private void notifyRemoved(@NonNull Resource<?> resource) {
+    if (listener != null) {
+      listener.onResourceRemoved(resource);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Resizes the pool of threads that fetch data from source based on how long fetches block those
+ * threads relative to how long it takes to decode the fetched data on a separate pool with one
+ * thread per core.
+ *
+ * <p>If each fetch blocks a thread for {@code W} and each decode takes {@code C} on one of
+ * {@code cores} decode threads, the decode pool finishes {@code cores / C} jobs per unit of time
+ * and {@code F} fetch threads supply {@code F / W}. Keeping the decode pool busy without queuing
+ * more fetched data than it can decode requires {@code F = cores * W / C} fetch threads, which is
+ * clamped to the given minimum and maximum.
+ *
+ * <p>Timings are accumulated over a small number of jobs and halved after each adjustment so that
+ * the pool follows changes in network conditions without reacting to individual slow requests.
+ */
+final class FetchPoolSizer {
+  private static final String TAG = "FetchPoolSizer";
+  @VisibleForTesting
+  static final int JOBS_PER_ADJUSTMENT = 8;
+
+  private final ThreadPoolExecutor fetchPool;
+  private final int decodeThreadCount;
+  private final int minThreadCount;
+  private final int maxThreadCount;
+
+  private long blockedFetchNanos;
+  private long decodeNanos;
+  private int jobCount;
+
+  FetchPoolSizer(
+      ThreadPoolExecutor fetchPool, int decodeThreadCount, int minThreadCount, int maxThreadCount) {
+    if (minThreadCount < 1 || maxThreadCount < minThreadCount) {
+      throw new IllegalArgumentException("Invalid thread counts, min: " + minThreadCount
+          + ", max: " + maxThreadCount);
+    }
+    this.fetchPool = fetchPool;
+    this.decodeThreadCount = decodeThreadCount;
+    this.minThreadCount = minThreadCount;
+    this.maxThreadCount = maxThreadCount;
+  }
+
+  /**
+   * Records the time a job's source fetch blocked a fetch thread, which is zero for fetchers that
+   * load data asynchronously, and the time taken to decode the fetched data.
+   */
+  synchronized void onSourceDataDecoded(long blockedFetchNanos, long decodeNanos) {
+    this.blockedFetchNanos += blockedFetchNanos;
+    this.decodeNanos += decodeNanos;
+    if (++jobCount < JOBS_PER_ADJUSTMENT) {
+      return;
+    }
+    resize(getTargetThreadCount(this.blockedFetchNanos, this.decodeNanos));
+    this.blockedFetchNanos /= 2;
+    this.decodeNanos /= 2;
+    jobCount = 0;
+  }
+
+  @VisibleForTesting
+  int getTargetThreadCount(long blockedFetchNanos, long decodeNanos) {
+    if (decodeNanos <= 0) {
+      return blockedFetchNanos > 0 ? maxThreadCount : minThreadCount;
+    }
+    long target = Math.round(decodeThreadCount * (double) blockedFetchNanos / decodeNanos);
+    return (int) Math.max(minThreadCount, Math.min(maxThreadCount, target));
+  }
+
+  private void resize(int targetThreadCount) {
+    int current = fetchPool.getCorePoolSize();
+    if (targetThreadCount == current) {
+      return;
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Resizing fetch pool from " + current + " to " + targetThreadCount + " threads");
+    }
+    // The core size may not exceed the maximum size, so order the updates based on the direction.
+    if (targetThreadCount > current) {
+      fetchPool.setMaximumPoolSize(targetThreadCount);
+      fetchPool.setCorePoolSize(targetThreadCount);
+    } else {
+      fetchPool.setCorePoolSize(targetThreadCount);
+      fetchPool.setMaximumPoolSize(targetThreadCount);
+    }
+  }
+}
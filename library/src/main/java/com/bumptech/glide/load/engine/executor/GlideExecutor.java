@@ -3,8 +3,10 @@ package com.bumptech.glide.load.engine.executor;
 import android.os.StrictMode;
 import android.os.StrictMode.ThreadPolicy;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.util.Synthetic;
 import java.util.Collection;
 import java.util.List;
@@ -56,6 +58,24 @@ public final class GlideExecutor implements ExecutorService {
    */
   private static final long KEEP_ALIVE_TIME_MS = TimeUnit.SECONDS.toMillis(10);
 
+  /**
+   * The default time in milliseconds after which a queued job in a prioritized executor is run
+   * ahead of newer jobs one {@link Priority} level higher.
+   */
+  private static final long DEFAULT_AGING_INTERVAL_MS = 1000;
+
+  /**
+   * The default number of jobs a single group, typically a
+   * {@link com.bumptech.glide.RequestManager}, may queue in a prioritized executor before its
+   * additional jobs are interleaved with jobs from other groups.
+   */
+  private static final int DEFAULT_FAIRNESS_BUDGET = 8;
+
+  /**
+   * The default maximum number of threads adaptive source executors use to fetch data.
+   */
+  private static final int DEFAULT_MAXIMUM_ADAPTIVE_FETCH_THREADS = 16;
+
   // Don't use more than four threads when automatically determining thread count..
   private static final int MAXIMUM_AUTOMATIC_THREAD_COUNT = 4;
 
@@ -64,6 +84,8 @@ public final class GlideExecutor implements ExecutorService {
   private static volatile int bestThreadCount;
 
   private final ExecutorService delegate;
+  @Nullable private final GlideExecutor decodeExecutor;
+  @Nullable private final FetchPoolSizer fetchPoolSizer;
 
   /**
    * Returns a new fixed thread pool with the default thread count returned from
@@ -129,6 +151,51 @@ public final class GlideExecutor implements ExecutorService {
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, true)));
   }
 
+  /**
+   * Returns a new fixed thread pool for loading data from Glide's disk cache with the thread count
+   * returned from {@link #calculateBestThreadCount()} rather than a single thread.
+   *
+   * <p>Glide's disk caches lock individual keys rather than the whole cache, so multiple threads
+   * can read and decode different cache entries at the same time. Flash storage serves parallel
+   * reads well, which lets a screen full of cache hits load in parallel instead of one at a time.
+   * Queued jobs are handled like those in {@link #newPrioritizedSourceExecutor()}, including the
+   * queue depth and wait time reported by {@link #getJobQueueStats(Priority)}.
+   *
+   * <p>Disk cache executors do not allow network operations on their threads.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  public static GlideExecutor newParallelDiskCacheExecutor() {
+    return newParallelDiskCacheExecutor(
+        calculateBestThreadCount(),
+        DEFAULT_DISK_CACHE_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool like {@link #newParallelDiskCacheExecutor()} with the given
+   * thread count, thread name prefix, and
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}.
+   *
+   * <p>Disk cache executors do not allow network operations on their threads.
+   *
+   * @param threadCount The number of threads.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newParallelDiskCacheExecutor(
+      int threadCount, String name, UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    return new GlideExecutor(
+        new PrioritizedThreadPoolExecutor(
+            threadCount,
+            new PrioritizedJobQueue(DEFAULT_AGING_INTERVAL_MS, DEFAULT_FAIRNESS_BUDGET),
+            new DefaultThreadFactory(name, uncaughtThrowableStrategy, true)));
+  }
+
   /**
    * Returns a new fixed thread pool with the default thread count returned from
    * {@link #calculateBestThreadCount()}, the {@link #DEFAULT_SOURCE_EXECUTOR_NAME} thread name
@@ -194,6 +261,133 @@ public final class GlideExecutor implements ExecutorService {
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, false)));
   }
 
+  /**
+   * Returns a new fixed thread pool like {@link #newSourceExecutor()} whose queued jobs can be
+   * removed cheaply when they're cancelled, whose low priority jobs age so that they're not starved
+   * by a steady stream of higher priority jobs, and that prevents a single
+   * {@link com.bumptech.glide.RequestManager} from delaying every other request with a large
+   * backlog.
+   *
+   * <p>Queue depth, wait time and run time for each {@link Priority} are available from
+   * {@link #getJobQueueStats(Priority)}.
+   *
+   * <p>Source executors allow network operations on their threads.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  public static GlideExecutor newPrioritizedSourceExecutor() {
+    return newPrioritizedSourceExecutor(
+        calculateBestThreadCount(),
+        DEFAULT_SOURCE_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT,
+        DEFAULT_AGING_INTERVAL_MS,
+        DEFAULT_FAIRNESS_BUDGET);
+  }
+
+  /**
+   * Returns a new fixed thread pool like {@link #newPrioritizedSourceExecutor()} with the given
+   * thread count, thread name prefix,
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}, aging
+   * interval and fairness budget.
+   *
+   * <p>Source executors allow network operations on their threads.
+   *
+   * @param threadCount The number of threads.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   * @param agingIntervalMillis The time in milliseconds after which a queued job is run ahead of
+   *                            newer jobs one {@link Priority} level higher.
+   * @param fairnessBudget The number of jobs a single group may queue before its additional jobs
+   *                       are interleaved with jobs from other groups.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newPrioritizedSourceExecutor(
+      int threadCount,
+      String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy,
+      long agingIntervalMillis,
+      int fairnessBudget) {
+    return new GlideExecutor(
+        new PrioritizedThreadPoolExecutor(
+            threadCount,
+            new PrioritizedJobQueue(agingIntervalMillis, fairnessBudget),
+            new DefaultThreadFactory(name, uncaughtThrowableStrategy, false)));
+  }
+
+  /**
+   * Returns a new source executor that fetches data on a pool of threads sized based on how long
+   * fetches block those threads and decodes the fetched data on a separate pool with one thread per
+   * core.
+   *
+   * <p>The fetch pool starts with the thread count returned from
+   * {@link #calculateBestThreadCount()} and grows up to {@link
+   * #DEFAULT_MAXIMUM_ADAPTIVE_FETCH_THREADS} threads while fetches spend more time blocked on I/O
+   * than the decode pool takes to decode their data, for example on slow networks. Fetchers that
+   * load data asynchronously don't block fetch threads and don't grow the pool.
+   *
+   * <p>Source executors allow network operations on their threads.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  public static GlideExecutor newAdaptiveSourceExecutor() {
+    return newAdaptiveSourceExecutor(
+        calculateBestThreadCount(),
+        DEFAULT_MAXIMUM_ADAPTIVE_FETCH_THREADS,
+        DEFAULT_SOURCE_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new source executor like {@link #newAdaptiveSourceExecutor()} with the given minimum
+   * and maximum fetch thread counts, thread name prefix, and
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}.
+   *
+   * <p>Source executors allow network operations on their threads.
+   *
+   * @param minFetchThreadCount The minimum and initial number of threads used to fetch data.
+   * @param maxFetchThreadCount The maximum number of threads used to fetch data.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newAdaptiveSourceExecutor(
+      int minFetchThreadCount,
+      int maxFetchThreadCount,
+      String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    ThreadPoolExecutor fetchPool =
+        new ThreadPoolExecutor(
+            minFetchThreadCount /* corePoolSize */,
+            minFetchThreadCount /* maximumPoolSize */,
+            KEEP_ALIVE_TIME_MS,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<Runnable>(),
+            new DefaultThreadFactory(name, uncaughtThrowableStrategy, false));
+    int decodeThreadCount = RuntimeCompat.availableProcessors();
+    // Decoding may fall back to fetching from another source if the data can't be decoded, so
+    // network operations are allowed on decode threads too.
+    GlideExecutor decodeExecutor =
+        new GlideExecutor(
+            new ThreadPoolExecutor(
+                decodeThreadCount /* corePoolSize */,
+                decodeThreadCount /* maximumPoolSize */,
+                0 /* keepAliveTime */,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new DefaultThreadFactory(name + "-decode", uncaughtThrowableStrategy, false)));
+    return new GlideExecutor(
+        fetchPool,
+        decodeExecutor,
+        new FetchPoolSizer(
+            fetchPool, decodeThreadCount, minFetchThreadCount, maxFetchThreadCount));
+  }
+
   /**
    * Returns a new unlimited thread pool with zero core thread count to make sure no threads are
    * created by default, {@link #KEEP_ALIVE_TIME_MS} keep alive
@@ -260,7 +454,17 @@ public final class GlideExecutor implements ExecutorService {
 
   @VisibleForTesting
   GlideExecutor(ExecutorService delegate) {
+    this(delegate, /*decodeExecutor=*/ null, /*fetchPoolSizer=*/ null);
+  }
+
+  @VisibleForTesting
+  GlideExecutor(
+      ExecutorService delegate,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable FetchPoolSizer fetchPoolSizer) {
     this.delegate = delegate;
+    this.decodeExecutor = decodeExecutor;
+    this.fetchPoolSizer = fetchPoolSizer;
   }
 
   @Override
@@ -319,12 +523,19 @@ public final class GlideExecutor implements ExecutorService {
   @Override
   public void shutdown() {
     delegate.shutdown();
+    if (decodeExecutor != null) {
+      decodeExecutor.shutdown();
+    }
   }
 
   @NonNull
   @Override
   public List<Runnable> shutdownNow() {
-    return delegate.shutdownNow();
+    List<Runnable> result = delegate.shutdownNow();
+    if (decodeExecutor != null) {
+      result.addAll(decodeExecutor.shutdownNow());
+    }
+    return result;
   }
 
   @Override
@@ -334,13 +545,19 @@ public final class GlideExecutor implements ExecutorService {
 
   @Override
   public boolean isTerminated() {
-    return delegate.isTerminated();
+    return delegate.isTerminated() && (decodeExecutor == null || decodeExecutor.isTerminated());
   }
 
   @Override
   public boolean awaitTermination(long timeout, @NonNull TimeUnit unit)
       throws InterruptedException {
-    return delegate.awaitTermination(timeout, unit);
+    long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+    boolean result = delegate.awaitTermination(timeout, unit);
+    if (decodeExecutor != null) {
+      result = decodeExecutor.awaitTermination(
+          deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS) && result;
+    }
+    return result;
   }
 
   @Override
@@ -348,6 +565,63 @@ public final class GlideExecutor implements ExecutorService {
     return delegate.toString();
   }
 
+  /**
+   * Returns the executor that decodes data fetched by jobs run on this executor if this executor
+   * was created by {@link #newAdaptiveSourceExecutor()}, or {@code null} if data is decoded on the
+   * thread that fetched it.
+   */
+  @Nullable
+  public GlideExecutor getDecodeExecutor() {
+    return decodeExecutor;
+  }
+
+  /**
+   * Records the time a job run on this executor spent blocked fetching data from source and the
+   * time taken to decode that data, which adaptive executors use to size their fetch pool.
+   *
+   * <p>Fetchers that load data asynchronously don't block the fetching thread and should report
+   * zero for {@code blockedFetchNanos}.
+   */
+  public void onSourceDataDecoded(long blockedFetchNanos, long decodeNanos) {
+    if (fetchPoolSizer != null) {
+      fetchPoolSizer.onSourceDataDecoded(blockedFetchNanos, decodeNanos);
+    }
+  }
+
+  /**
+   * Removes the given job if it's queued and hasn't started running.
+   *
+   * <p>Returns {@code true} if the job was removed and will not be run, or {@code false} if the
+   * job wasn't queued, for example because it's already running or has finished.
+   */
+  public boolean remove(@NonNull Runnable runnable) {
+    return delegate instanceof ThreadPoolExecutor
+        && ((ThreadPoolExecutor) delegate).remove(runnable);
+  }
+
+  /**
+   * Returns statistics about jobs with the given {@link Priority} if this executor was created by
+   * {@link #newPrioritizedSourceExecutor()} or {@link #newParallelDiskCacheExecutor()}, or
+   * {@code null} otherwise.
+   */
+  @Nullable
+  public JobQueueStats getJobQueueStats(@NonNull Priority priority) {
+    return delegate instanceof PrioritizedThreadPoolExecutor
+        ? ((PrioritizedThreadPoolExecutor) delegate).queue.getStats(priority) : null;
+  }
+
+  /**
+   * Returns the number of jobs that are waiting for a thread in this executor.
+   */
+  public int getQueueDepth() {
+    int result = delegate instanceof ThreadPoolExecutor
+        ? ((ThreadPoolExecutor) delegate).getQueue().size() : 0;
+    if (decodeExecutor != null) {
+      result += decodeExecutor.getQueueDepth();
+    }
+    return result;
+  }
+
   /**
    * Determines the number of cores available on the device.
    */
@@ -408,6 +682,54 @@ public final class GlideExecutor implements ExecutorService {
     void handle(Throwable t);
   }
 
+  /**
+   * A fixed size {@link ThreadPoolExecutor} backed by a {@link PrioritizedJobQueue} that records
+   * how long each job runs.
+   */
+  private static final class PrioritizedThreadPoolExecutor extends ThreadPoolExecutor {
+    private static final ThreadLocal<long[]> START_TIME_NANOS = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+        return new long[1];
+      }
+    };
+    // Read before the job runs because jobs may be released and re-used by the time they return.
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+
+    @Synthetic final PrioritizedJobQueue queue;
+
+    PrioritizedThreadPoolExecutor(
+        int threadCount, PrioritizedJobQueue queue, ThreadFactory threadFactory) {
+      super(
+          threadCount /* corePoolSize */,
+          threadCount /* maximumPoolSize */,
+          0 /* keepAliveTime */,
+          TimeUnit.MILLISECONDS,
+          queue,
+          threadFactory);
+      this.queue = queue;
+      // Until the pool has its core threads, ThreadPoolExecutor runs each new job on a new thread
+      // instead of queueing it, which would skip the queue's ordering.
+      prestartAllCoreThreads();
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+      super.beforeExecute(t, r);
+      PRIORITY.set(PrioritizedJobQueue.getPriority(r));
+      START_TIME_NANOS.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+      super.afterExecute(r, t);
+      long runTimeNanos = System.nanoTime() - START_TIME_NANOS.get()[0];
+      Priority priority = PRIORITY.get();
+      PRIORITY.remove();
+      queue.onJobCompleted(priority, runTimeNanos);
+    }
+  }
+
   /**
    * A {@link java.util.concurrent.ThreadFactory} that builds threads slightly above priority {@link
    * android.os.Process#THREAD_PRIORITY_BACKGROUND}.
@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+
+/**
+ * A snapshot of the jobs of a single {@link Priority} scheduled by an executor created with
+ * {@link GlideExecutor#newPrioritizedSourceExecutor()}.
+ */
+public final class JobQueueStats {
+  private final Priority priority;
+  private final int queueDepth;
+  private final long startedCount;
+  private final long removedCount;
+  private final long totalWaitTimeNanos;
+  private final long completedCount;
+  private final long totalRunTimeNanos;
+
+  JobQueueStats(
+      Priority priority,
+      int queueDepth,
+      long startedCount,
+      long removedCount,
+      long totalWaitTimeNanos,
+      long completedCount,
+      long totalRunTimeNanos) {
+    this.priority = priority;
+    this.queueDepth = queueDepth;
+    this.startedCount = startedCount;
+    this.removedCount = removedCount;
+    this.totalWaitTimeNanos = totalWaitTimeNanos;
+    this.completedCount = completedCount;
+    this.totalRunTimeNanos = totalRunTimeNanos;
+  }
+
+  @NonNull
+  public Priority getPriority() {
+    return priority;
+  }
+
+  /**
+   * Returns the number of jobs currently waiting to run.
+   */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /**
+   * Returns the number of jobs that have been taken from the queue to run.
+   */
+  public long getStartedCount() {
+    return startedCount;
+  }
+
+  /**
+   * Returns the number of jobs that were removed from the queue before they were run, typically
+   * because they were cancelled.
+   */
+  public long getRemovedCount() {
+    return removedCount;
+  }
+
+  /**
+   * Returns the total time in milliseconds started jobs spent waiting in the queue.
+   */
+  public long getTotalWaitTimeMillis() {
+    return totalWaitTimeNanos / 1000000L;
+  }
+
+  /**
+   * Returns the number of jobs that have finished running.
+   */
+  public long getCompletedCount() {
+    return completedCount;
+  }
+
+  /**
+   * Returns the total time in milliseconds finished jobs spent running.
+   */
+  public long getTotalRunTimeMillis() {
+    return totalRunTimeNanos / 1000000L;
+  }
+
+  @Override
+  public String toString() {
+    return "JobQueueStats{"
+        + "priority=" + priority
+        + ", queueDepth=" + queueDepth
+        + ", startedCount=" + startedCount
+        + ", removedCount=" + removedCount
+        + ", totalWaitTimeMillis=" + getTotalWaitTimeMillis()
+        + ", completedCount=" + completedCount
+        + ", totalRunTimeMillis=" + getTotalRunTimeMillis()
+        + '}';
+  }
+}
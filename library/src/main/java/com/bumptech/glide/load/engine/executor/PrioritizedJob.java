@@ -0,0 +1,32 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+
+/**
+ * Implemented by {@link Runnable}s that provide scheduling information to executors created with
+ * {@link GlideExecutor#newPrioritizedSourceExecutor()}.
+ *
+ * <p>Runnables that don't implement this interface are scheduled with {@link Priority#NORMAL} and
+ * without a fairness group.
+ */
+public interface PrioritizedJob {
+
+  /**
+   * Returns the {@link Priority} of this job, which must not change while the job is queued.
+   */
+  @NonNull
+  Priority getPriority();
+
+  /**
+   * Returns an object identifying the group of jobs this job belongs to, typically the
+   * {@link com.bumptech.glide.RequestManager} that started it, or {@code null} if the job doesn't
+   * belong to a group.
+   *
+   * <p>Groups with many queued jobs are prevented from delaying jobs from other groups
+   * indefinitely.
+   */
+  @Nullable
+  Object getFairnessGroup();
+}
@@ -0,0 +1,474 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.Priority;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link BlockingQueue} of {@link Runnable}s ordered by {@link Priority} that supports removing
+ * queued jobs in O(log n), ages waiting jobs so that low priority jobs can't starve, and limits how
+ * far a single fairness group can delay jobs from other groups.
+ *
+ * <p>Jobs are kept in an indexed binary heap ordered by a deadline computed once when the job is
+ * queued:
+ * <ul>
+ *   <li>The time the job was queued.</li>
+ *   <li>Plus one aging interval for each priority level below {@link Priority#IMMEDIATE}, so a job
+ *   that has waited longer than an aging interval runs before newly queued jobs one priority level
+ *   higher.</li>
+ *   <li>Plus a fraction of an aging interval for each job its group already has queued beyond the
+ *   fairness budget, so a group's backlog is interleaved with other groups' jobs rather than
+ *   running entirely before them.</li>
+ * </ul>
+ * Jobs with equal deadlines run in the order they were queued.
+ *
+ * <p>A job that is already queued is not queued again.
+ */
+final class PrioritizedJobQueue extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable> {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Map<Runnable, Entry> entries = new IdentityHashMap<>();
+  private final Map<Object, Integer> queuedPerGroup = new HashMap<>();
+  private final long agingIntervalNanos;
+  private final int fairnessBudget;
+  private final TimeSource timeSource;
+
+  private final int[] queueDepth = new int[PRIORITIES.length];
+  private final long[] startedCount = new long[PRIORITIES.length];
+  private final long[] removedCount = new long[PRIORITIES.length];
+  private final long[] totalWaitTimeNanos = new long[PRIORITIES.length];
+  private final long[] completedCount = new long[PRIORITIES.length];
+  private final long[] totalRunTimeNanos = new long[PRIORITIES.length];
+
+  private Entry[] heap = new Entry[INITIAL_CAPACITY];
+  private int size;
+  private long sequence;
+
+  /**
+   * @param agingIntervalMillis The time in milliseconds after which a waiting job is treated as
+   *                            though its priority were one level higher.
+   * @param fairnessBudget      The number of jobs a single fairness group may queue before its
+   *                            additional jobs are interleaved with other groups' jobs.
+   */
+  PrioritizedJobQueue(long agingIntervalMillis, int fairnessBudget) {
+    this(agingIntervalMillis, fairnessBudget, TimeSource.SYSTEM);
+  }
+
+  @VisibleForTesting
+  PrioritizedJobQueue(long agingIntervalMillis, int fairnessBudget, TimeSource timeSource) {
+    if (fairnessBudget < 1) {
+      throw new IllegalArgumentException("Fairness budget must be >= 1");
+    }
+    this.agingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(agingIntervalMillis);
+    this.fairnessBudget = fairnessBudget;
+    this.timeSource = timeSource;
+  }
+
+  @Override
+  public boolean offer(@NonNull Runnable runnable) {
+    if (runnable == null) {
+      throw new NullPointerException();
+    }
+    lock.lock();
+    try {
+      if (entries.containsKey(runnable)) {
+        return true;
+      }
+      Priority priority = getPriority(runnable);
+      Object group = getFairnessGroup(runnable);
+      long now = timeSource.nanoTime();
+      long deadline = now + priority.ordinal() * agingIntervalNanos;
+      if (group != null) {
+        Integer queued = queuedPerGroup.get(group);
+        int count = queued == null ? 0 : queued;
+        if (count >= fairnessBudget) {
+          deadline += (count - fairnessBudget + 1) * agingIntervalNanos / fairnessBudget;
+        }
+        queuedPerGroup.put(group, count + 1);
+      }
+
+      Entry entry = new Entry(runnable, priority, group, now, deadline, sequence++);
+      entries.put(runnable, entry);
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      entry.heapIndex = size;
+      heap[size++] = entry;
+      siftUp(entry.heapIndex);
+      queueDepth[priority.ordinal()]++;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(@NonNull Runnable runnable) {
+    offer(runnable);
+  }
+
+  @Override
+  public boolean offer(Runnable runnable, long timeout, @NonNull TimeUnit unit) {
+    return offer(runnable);
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      return size == 0 ? null : dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      return size == 0 ? null : heap[0].runnable;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the given job in O(log n) if it's queued and returns {@code true}, or returns
+   * {@code false} if it isn't queued, for example because it's already running.
+   */
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      Entry entry = entries.get(o);
+      if (entry == null) {
+        return false;
+      }
+      removeEntry(entry);
+      removedCount[entry.priority.ordinal()]++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    lock.lock();
+    try {
+      return entries.containsKey(o);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int drained = 0;
+      while (size > 0 && drained < maxElements) {
+        c.add(dequeue());
+        drained++;
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      while (size > 0) {
+        Entry entry = heap[0];
+        removeEntry(entry);
+        removedCount[entry.priority.ordinal()]++;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the queued jobs, in no particular order.
+   */
+  @NonNull
+  @Override
+  public Iterator<Runnable> iterator() {
+    final List<Runnable> snapshot;
+    lock.lock();
+    try {
+      snapshot = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        snapshot.add(heap[i].runnable);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return new Iterator<Runnable>() {
+      private int index;
+      private Runnable last;
+
+      @Override
+      public boolean hasNext() {
+        return index < snapshot.size();
+      }
+
+      @Override
+      public Runnable next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = snapshot.get(index++);
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        PrioritizedJobQueue.this.remove(last);
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * Records the time a job taken from this queue spent running.
+   */
+  void onJobCompleted(@NonNull Priority priority, long runTimeNanos) {
+    lock.lock();
+    try {
+      completedCount[priority.ordinal()]++;
+      totalRunTimeNanos[priority.ordinal()] += runTimeNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  JobQueueStats getStats(@NonNull Priority priority) {
+    int index = priority.ordinal();
+    lock.lock();
+    try {
+      return new JobQueueStats(
+          priority,
+          queueDepth[index],
+          startedCount[index],
+          removedCount[index],
+          totalWaitTimeNanos[index],
+          completedCount[index],
+          totalRunTimeNanos[index]);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NonNull
+  static Priority getPriority(@NonNull Runnable runnable) {
+    return runnable instanceof PrioritizedJob
+        ? ((PrioritizedJob) runnable).getPriority() : Priority.NORMAL;
+  }
+
+  @Nullable
+  private static Object getFairnessGroup(@NonNull Runnable runnable) {
+    return runnable instanceof PrioritizedJob
+        ? ((PrioritizedJob) runnable).getFairnessGroup() : null;
+  }
+
+  private Runnable dequeue() {
+    Entry entry = heap[0];
+    removeEntry(entry);
+    int index = entry.priority.ordinal();
+    startedCount[index]++;
+    totalWaitTimeNanos[index] += timeSource.nanoTime() - entry.enqueueTimeNanos;
+    return entry.runnable;
+  }
+
+  private void removeEntry(Entry entry) {
+    entries.remove(entry.runnable);
+    queueDepth[entry.priority.ordinal()]--;
+    if (entry.group != null) {
+      int remaining = queuedPerGroup.get(entry.group) - 1;
+      if (remaining == 0) {
+        queuedPerGroup.remove(entry.group);
+      } else {
+        queuedPerGroup.put(entry.group, remaining);
+      }
+    }
+
+    int index = entry.heapIndex;
+    Entry last = heap[--size];
+    heap[size] = null;
+    if (index != size) {
+      heap[index] = last;
+      last.heapIndex = index;
+      siftDown(index);
+      if (heap[index] == last) {
+        siftUp(index);
+      }
+    }
+  }
+
+  private void siftUp(int index) {
+    Entry entry = heap[index];
+    while (index > 0) {
+      int parentIndex = (index - 1) >>> 1;
+      Entry parent = heap[parentIndex];
+      if (entry.compareTo(parent) >= 0) {
+        break;
+      }
+      heap[index] = parent;
+      parent.heapIndex = index;
+      index = parentIndex;
+    }
+    heap[index] = entry;
+    entry.heapIndex = index;
+  }
+
+  private void siftDown(int index) {
+    Entry entry = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int childIndex = (index << 1) + 1;
+      Entry child = heap[childIndex];
+      int rightIndex = childIndex + 1;
+      if (rightIndex < size && heap[rightIndex].compareTo(child) < 0) {
+        childIndex = rightIndex;
+        child = heap[childIndex];
+      }
+      if (entry.compareTo(child) <= 0) {
+        break;
+      }
+      heap[index] = child;
+      child.heapIndex = index;
+      index = childIndex;
+    }
+    heap[index] = entry;
+    entry.heapIndex = index;
+  }
+
+  @VisibleForTesting
+  interface TimeSource {
+    TimeSource SYSTEM = new TimeSource() {
+      @Override
+      public long nanoTime() {
+        return System.nanoTime();
+      }
+    };
+
+    long nanoTime();
+  }
+
+  private static final class Entry implements Comparable<Entry> {
+    final Runnable runnable;
+    final Priority priority;
+    @Nullable final Object group;
+    final long enqueueTimeNanos;
+    final long deadlineNanos;
+    final long sequence;
+    int heapIndex;
+
+    Entry(
+        Runnable runnable,
+        Priority priority,
+        @Nullable Object group,
+        long enqueueTimeNanos,
+        long deadlineNanos,
+        long sequence) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.group = group;
+      this.enqueueTimeNanos = enqueueTimeNanos;
+      this.deadlineNanos = deadlineNanos;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(@NonNull Entry other) {
+      // Subtract rather than compare directly to tolerate nanoTime overflow.
+      long difference = deadlineNanos - other.deadlineNanos;
+      if (difference != 0) {
+        return difference < 0 ? -1 : 1;
+      }
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+  }
+}
@@ -29,6 +29,9 @@ import java.io.OutputStream;
  * to preserve alpha and all other bitmaps are written using
  * {@link android.graphics.Bitmap.CompressFormat#JPEG}. </p>
  *
+ * <p>A {@link BitmapEncodingPolicy} set with {@link #ENCODING_POLICY} can choose other formats
+ * and skip writing {@link android.graphics.Bitmap}s that are too expensive to encode.
+ *
  * @see android.graphics.Bitmap#compress(android.graphics.Bitmap.CompressFormat, int,
  * java.io.OutputStream)
  */
@@ -51,6 +54,16 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
   public static final Option<Bitmap.CompressFormat> COMPRESSION_FORMAT = Option.memory(
       "com.bumptech.glide.load.resource.bitmap.BitmapEncoder.CompressionFormat");
 
+  /**
+   * A {@link BitmapEncodingPolicy} used to choose the format for each
+   * {@link android.graphics.Bitmap} and to decide whether it should be written at all.
+   *
+   * <p>Defaults to {@code null}, in which case formats are chosen as described for
+   * {@link #COMPRESSION_FORMAT} and every {@link android.graphics.Bitmap} is written.
+   */
+  public static final Option<BitmapEncodingPolicy> ENCODING_POLICY = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.BitmapEncoder.EncodingPolicy");
+
   private static final String TAG = "BitmapEncoder";
   @Nullable
   private final ArrayPool arrayPool;
@@ -71,7 +84,15 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
   public boolean encode(@NonNull Resource<Bitmap> resource, @NonNull File file,
       @NonNull Options options) {
     final Bitmap bitmap = resource.get();
-    Bitmap.CompressFormat format = getFormat(bitmap, options);
+    BitmapEncodingPolicy policy = options.get(ENCODING_POLICY);
+    Bitmap.CompressFormat format = getFormat(bitmap, options, policy);
+    if (policy != null && !policy.shouldEncode(bitmap, format)) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Skipping encode of [" + bitmap.getWidth() + "x" + bitmap.getHeight() + "] "
+            + format + ", expected to exceed the encoding policy's time budget");
+      }
+      return false;
+    }
     TraceCompat.beginSection(
         "encode: [" + bitmap.getWidth() + "x" + bitmap.getHeight() + "] " + format);
     try {
@@ -102,9 +123,13 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
         }
       }
 
+      double elapsedMillis = LogTime.getElapsedMillis(start);
+      if (success && policy != null) {
+        policy.onEncoded(bitmap, format, file.length(), elapsedMillis);
+      }
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         Log.v(TAG, "Compressed with type: " + format + " of size " + Util.getBitmapByteSize(bitmap)
-            + " in " + LogTime.getElapsedMillis(start)
+            + " in " + elapsedMillis
             + ", options format: " + options.get(COMPRESSION_FORMAT)
             + ", hasAlpha: " + bitmap.hasAlpha());
       }
@@ -114,10 +139,13 @@ public class BitmapEncoder implements ResourceEncoder<Bitmap> {
     }
   }
 
-  private Bitmap.CompressFormat getFormat(Bitmap bitmap, Options options) {
+  private Bitmap.CompressFormat getFormat(
+      Bitmap bitmap, Options options, @Nullable BitmapEncodingPolicy policy) {
     Bitmap.CompressFormat format = options.get(COMPRESSION_FORMAT);
     if (format != null) {
       return format;
+    } else if (policy != null) {
+      return policy.getFormat(bitmap);
     } else if (bitmap.hasAlpha()) {
       return Bitmap.CompressFormat.PNG;
     } else {
@@ -0,0 +1,277 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+
+/**
+ * Chooses the {@link CompressFormat} that {@link BitmapEncoder} uses to write each
+ * {@link Bitmap} to the resource disk cache, and decides whether writing it is worth the cost.
+ *
+ * <p>By default {@link BitmapEncoder} writes {@link Bitmap}s with alpha as
+ * {@link CompressFormat#PNG}, which is slow and produces large files for big transformed
+ * {@link Bitmap}s like the output of {@link CircleCrop}. A policy can instead write them as
+ * {@link CompressFormat#WEBP}, or only write those larger than a given number of pixels as
+ * {@link CompressFormat#WEBP} so that small {@link Bitmap}s stay lossless, and can skip writing
+ * {@link Bitmap}s whose encode is expected to take longer than a time budget, typically about the
+ * time it takes to decode the original image again.
+ *
+ * <p>Policies record the time taken and bytes written by each encode, see
+ * {@link #getStats(CompressFormat)}, and use the average time per pixel for each format to estimate
+ * the cost of subsequent encodes. Policies are thread safe and should be shared between requests
+ * so that their estimates improve, for example by setting them in the default request options:
+ *
+ * <pre>
+ * {@code
+ * BitmapEncodingPolicy policy = new BitmapEncodingPolicy.Builder()
+ *     .setAlphaFormat(CompressFormat.WEBP)
+ *     .setMaxEncodeTimeMillis(30)
+ *     .build();
+ * builder.setDefaultRequestOptions(
+ *     new RequestOptions().set(BitmapEncoder.ENCODING_POLICY, policy));
+ * }
+ * </pre>
+ *
+ * <p>An explicit {@link BitmapEncoder#COMPRESSION_FORMAT} takes precedence over the formats chosen
+ * by the policy, but the time budget still applies.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class BitmapEncodingPolicy {
+  // Estimates based on fewer encodes are too noisy to skip writes with.
+  private static final int MIN_ENCODES_FOR_ESTIMATE = 3;
+
+  private final CompressFormat opaqueFormat;
+  private final CompressFormat alphaFormat;
+  private final CompressFormat largeAlphaFormat;
+  private final long minLargeAlphaPixels;
+  private final double maxEncodeTimeMillis;
+  private final FormatStatsTracker[] trackers =
+      new FormatStatsTracker[CompressFormat.values().length];
+
+  BitmapEncodingPolicy(Builder builder) {
+    opaqueFormat = builder.opaqueFormat;
+    alphaFormat = getSupportedAlphaFormat(builder.alphaFormat);
+    largeAlphaFormat = builder.largeAlphaFormat == null
+        ? alphaFormat : getSupportedAlphaFormat(builder.largeAlphaFormat);
+    minLargeAlphaPixels = builder.minLargeAlphaPixels;
+    maxEncodeTimeMillis = builder.maxEncodeTimeMillis;
+    for (int i = 0; i < trackers.length; i++) {
+      trackers[i] = new FormatStatsTracker();
+    }
+  }
+
+  // WEBP doesn't support alpha prior to JB MR2.
+  private static CompressFormat getSupportedAlphaFormat(CompressFormat format) {
+    if (format == CompressFormat.WEBP
+        && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      return CompressFormat.PNG;
+    }
+    return format;
+  }
+
+  /**
+   * Returns the format that should be used to encode the given {@link Bitmap}.
+   */
+  @NonNull
+  public CompressFormat getFormat(@NonNull Bitmap bitmap) {
+    if (!bitmap.hasAlpha()) {
+      return opaqueFormat;
+    }
+    return getPixels(bitmap) >= minLargeAlphaPixels ? largeAlphaFormat : alphaFormat;
+  }
+
+  /**
+   * Returns {@code false} if encoding the given {@link Bitmap} in the given format is expected to
+   * exceed the time budget, in which case the {@link Bitmap} should not be written to the disk
+   * cache.
+   */
+  public boolean shouldEncode(@NonNull Bitmap bitmap, @NonNull CompressFormat format) {
+    if (maxEncodeTimeMillis == Double.MAX_VALUE) {
+      return true;
+    }
+    FormatStatsTracker tracker = trackers[format.ordinal()];
+    boolean result;
+    synchronized (tracker) {
+      if (tracker.encodes < MIN_ENCODES_FOR_ESTIMATE) {
+        return true;
+      }
+      double estimatedMillis = tracker.totalMillis / tracker.totalPixels * getPixels(bitmap);
+      result = estimatedMillis <= maxEncodeTimeMillis;
+      if (!result) {
+        tracker.skipped++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Records the time taken and number of bytes written to encode the given {@link Bitmap}.
+   */
+  public void onEncoded(@NonNull Bitmap bitmap, @NonNull CompressFormat format, long bytes,
+      double elapsedMillis) {
+    FormatStatsTracker tracker = trackers[format.ordinal()];
+    synchronized (tracker) {
+      tracker.encodes++;
+      tracker.totalPixels += getPixels(bitmap);
+      tracker.totalBytes += bytes;
+      tracker.totalMillis += elapsedMillis;
+    }
+  }
+
+  /**
+   * Returns a snapshot of the encodes recorded for the given format.
+   */
+  @NonNull
+  public FormatStats getStats(@NonNull CompressFormat format) {
+    FormatStatsTracker tracker = trackers[format.ordinal()];
+    synchronized (tracker) {
+      return new FormatStats(format, tracker);
+    }
+  }
+
+  private static long getPixels(Bitmap bitmap) {
+    return Math.max(1L, (long) bitmap.getWidth() * bitmap.getHeight());
+  }
+
+  /**
+   * A snapshot of the encodes of a single {@link CompressFormat} made using a
+   * {@link BitmapEncodingPolicy}.
+   */
+  public static final class FormatStats {
+    private final CompressFormat format;
+    private final int encodes;
+    private final int skipped;
+    private final long totalPixels;
+    private final long totalBytes;
+    private final double totalMillis;
+
+    FormatStats(CompressFormat format, FormatStatsTracker tracker) {
+      this.format = format;
+      encodes = tracker.encodes;
+      skipped = tracker.skipped;
+      totalPixels = tracker.totalPixels;
+      totalBytes = tracker.totalBytes;
+      totalMillis = tracker.totalMillis;
+    }
+
+    @NonNull
+    public CompressFormat getFormat() {
+      return format;
+    }
+
+    /** Returns the number of {@link Bitmap}s written in this format. */
+    public int getEncodes() {
+      return encodes;
+    }
+
+    /** Returns the number of {@link Bitmap}s not written because of the time budget. */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    public double getTotalMillis() {
+      return totalMillis;
+    }
+
+    /** Returns the average number of bytes written per pixel, or {@code 0} if none were written. */
+    public double getBytesPerPixel() {
+      return totalPixels == 0 ? 0 : (double) totalBytes / totalPixels;
+    }
+
+    @Override
+    public String toString() {
+      return "FormatStats{"
+          + "format=" + format
+          + ", encodes=" + encodes
+          + ", skipped=" + skipped
+          + ", totalBytes=" + totalBytes
+          + ", totalMillis=" + totalMillis
+          + ", bytesPerPixel=" + getBytesPerPixel()
+          + '}';
+    }
+  }
+
+  // All fields are guarded by the tracker's monitor.
+  private static final class FormatStatsTracker {
+    int encodes;
+    int skipped;
+    long totalPixels;
+    long totalBytes;
+    double totalMillis;
+  }
+
+  /**
+   * Builds {@link BitmapEncodingPolicy}s, which by default match the formats used by
+   * {@link BitmapEncoder} without a policy and have no time budget.
+   */
+  public static final class Builder {
+    @Synthetic CompressFormat opaqueFormat = CompressFormat.JPEG;
+    @Synthetic CompressFormat alphaFormat = CompressFormat.PNG;
+    @Nullable @Synthetic CompressFormat largeAlphaFormat;
+    @Synthetic long minLargeAlphaPixels = Long.MAX_VALUE;
+    @Synthetic double maxEncodeTimeMillis = Double.MAX_VALUE;
+
+    /**
+     * Sets the format used for {@link Bitmap}s without alpha, {@link CompressFormat#JPEG} by
+     * default.
+     */
+    public Builder setOpaqueFormat(@NonNull CompressFormat format) {
+      opaqueFormat = Preconditions.checkNotNull(format);
+      return this;
+    }
+
+    /**
+     * Sets the format used for {@link Bitmap}s with alpha, {@link CompressFormat#PNG} by default.
+     *
+     * <p>{@link CompressFormat#JPEG} discards alpha. {@link CompressFormat#WEBP} is replaced by
+     * {@link CompressFormat#PNG} on versions of Android that can't encode WEBP with alpha.
+     */
+    public Builder setAlphaFormat(@NonNull CompressFormat format) {
+      alphaFormat = Preconditions.checkNotNull(format);
+      return this;
+    }
+
+    /**
+     * Sets the format used for {@link Bitmap}s with alpha that have at least the given number of
+     * pixels, smaller {@link Bitmap}s with alpha use the format set with
+     * {@link #setAlphaFormat(CompressFormat)}.
+     *
+     * <p>Encoding large {@link Bitmap}s as {@link CompressFormat#PNG} is slow and produces large
+     * files, while the artifacts of lossy {@link CompressFormat#WEBP} are most visible in small
+     * {@link Bitmap}s like icons, so a lossy format is typically only worth using above a size
+     * threshold. {@link CompressFormat#WEBP} is replaced by {@link CompressFormat#PNG} on
+     * versions of Android that can't encode WEBP with alpha.
+     */
+    public Builder setLargeAlphaFormat(@NonNull CompressFormat format, long minPixels) {
+      Preconditions.checkArgument(minPixels > 0, "minPixels must be positive");
+      largeAlphaFormat = Preconditions.checkNotNull(format);
+      minLargeAlphaPixels = minPixels;
+      return this;
+    }
+
+    /**
+     * Sets the maximum expected time to encode a single {@link Bitmap}, above which the
+     * {@link Bitmap} isn't written to the disk cache and will instead be decoded again the next
+     * time it's requested.
+     */
+    public Builder setMaxEncodeTimeMillis(double maxEncodeTimeMillis) {
+      Preconditions.checkArgument(maxEncodeTimeMillis > 0, "maxEncodeTimeMillis must be positive");
+      this.maxEncodeTimeMillis = maxEncodeTimeMillis;
+      return this;
+    }
+
+    @NonNull
+    public BitmapEncodingPolicy build() {
+      return new BitmapEncodingPolicy(this);
+    }
+  }
+}
@@ -8,6 +8,7 @@ import static com.bumptech.glide.load.ImageHeaderParser.ImageType.UNKNOWN;
 
 import android.support.annotation.NonNull;
 import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderInfo;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.util.Preconditions;
@@ -20,7 +21,8 @@ import java.nio.charset.Charset;
 /**
  * A class for parsing the exif orientation and other data from an image header.
  */
-public final class DefaultImageHeaderParser implements ImageHeaderParser {
+public final class DefaultImageHeaderParser
+    implements ImageHeaderParser, ImageHeaderParser.HeaderInfoParser {
   // Due to https://code.google.com/p/android/issues/detail?id=97751.
   // TAG needs to be under 23 chars, so "Default" > "Dflt".
   private static final String TAG = "DfltImageHeaderParser";
@@ -56,6 +58,12 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
   private static final int VP8_HEADER_TYPE_LOSSLESS = 0x0000004C;
   private static final int WEBP_EXTENDED_ALPHA_FLAG = 1 << 4;
   private static final int WEBP_LOSSLESS_ALPHA_FLAG = 1 << 3;
+  // ' '
+  private static final int VP8_HEADER_TYPE_LOSSY = 0x00000020;
+  private static final int VP8_LOSSLESS_SIGNATURE = 0x2F;
+  private static final int VP8_DIMENSION_MASK = 0x3FFF;
+  // The largest number of bytes read at once while parsing dimensions.
+  private static final int MAX_DIMENSION_BYTES = 10;
 
   @NonNull
   @Override
@@ -83,6 +91,179 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
         Preconditions.checkNotNull(byteArrayPool));
   }
 
+  @NonNull
+  @Override
+  public ImageHeaderInfo getHeaderInfo(@NonNull InputStream is, @NonNull ArrayPool byteArrayPool)
+      throws IOException {
+    return getHeaderInfo(new StreamReader(Preconditions.checkNotNull(is)),
+        Preconditions.checkNotNull(byteArrayPool));
+  }
+
+  @NonNull
+  @Override
+  public ImageHeaderInfo getHeaderInfo(@NonNull ByteBuffer byteBuffer,
+      @NonNull ArrayPool byteArrayPool) throws IOException {
+    return getHeaderInfo(new ByteBufferReader(Preconditions.checkNotNull(byteBuffer)),
+        Preconditions.checkNotNull(byteArrayPool));
+  }
+
+  /**
+   * Reads the type, orientation and dimensions of the image in a single pass, returning the same
+   * type and orientation as {@link #getType(Reader)} and
+   * {@link #getOrientation(Reader, ArrayPool)}.
+   */
+  @NonNull
+  private ImageHeaderInfo getHeaderInfo(Reader reader, ArrayPool byteArrayPool)
+      throws IOException {
+    final int firstTwoBytes = reader.getUInt16();
+    if (firstTwoBytes == EXIF_MAGIC_NUMBER) {
+      return getJpegHeaderInfo(reader, byteArrayPool);
+    }
+    // Matches getType, which doesn't recognize any of the other formats getOrientation handles.
+    if (handles(firstTwoBytes)) {
+      return new ImageHeaderInfo(UNKNOWN, getOrientationAfterMagicNumber(reader, byteArrayPool),
+          ImageHeaderInfo.UNKNOWN_DIMENSION, ImageHeaderInfo.UNKNOWN_DIMENSION);
+    }
+
+    byte[] bytes = new byte[MAX_DIMENSION_BYTES];
+    final int firstFourBytes = (firstTwoBytes << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    if (firstFourBytes == PNG_HEADER) {
+      // Skip the rest of the signature, the IHDR chunk's length and type.
+      reader.skip(16 - 4);
+      // Width, height, bit depth and color type.
+      if (reader.read(bytes, 10) != 10) {
+        return unknownDimensions(PNG);
+      }
+      ByteBuffer ihdr = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+      return new ImageHeaderInfo(bytes[9] >= 3 ? PNG_A : PNG, UNKNOWN_ORIENTATION,
+          ihdr.getInt(0), ihdr.getInt(4));
+    }
+
+    if (firstFourBytes >> 8 == GIF_HEADER) {
+      // Skip the rest of the version to the logical screen width and height.
+      reader.skip(2);
+      if (reader.read(bytes, 4) != 4) {
+        return unknownDimensions(GIF);
+      }
+      ByteBuffer screen = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      return new ImageHeaderInfo(GIF, UNKNOWN_ORIENTATION,
+          screen.getShort(0) & 0xFFFF, screen.getShort(2) & 0xFFFF);
+    }
+
+    if (firstFourBytes != RIFF_HEADER) {
+      return ImageHeaderInfo.UNKNOWN;
+    }
+    reader.skip(4);
+    final int thirdFourBytes =
+        (reader.getUInt16() << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    if (thirdFourBytes != WEBP_HEADER) {
+      return ImageHeaderInfo.UNKNOWN;
+    }
+    final int fourthFourBytes =
+        (reader.getUInt16() << 16 & 0xFFFF0000) | (reader.getUInt16() & 0xFFFF);
+    if ((fourthFourBytes & VP8_HEADER_MASK) != VP8_HEADER) {
+      return ImageHeaderInfo.UNKNOWN;
+    }
+    // Skip the chunk length.
+    reader.skip(4);
+    ByteBuffer chunk = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    final int headerType = fourthFourBytes & VP8_HEADER_TYPE_MASK;
+    if (headerType == VP8_HEADER_TYPE_EXTENDED) {
+      // Flags, reserved bytes, then the canvas width and height minus one as 24 bit integers.
+      int read = reader.read(bytes, 10);
+      ImageType type = read > 0 && (bytes[0] & WEBP_EXTENDED_ALPHA_FLAG) != 0
+          ? ImageType.WEBP_A : ImageType.WEBP;
+      if (read != 10) {
+        return unknownDimensions(type);
+      }
+      return new ImageHeaderInfo(type, UNKNOWN_ORIENTATION,
+          (chunk.getInt(3) >>> 8) + 1, (chunk.getInt(6) >>> 8) + 1);
+    }
+    if (headerType == VP8_HEADER_TYPE_LOSSLESS) {
+      // The signature, then the width and height minus one as 14 bit integers.
+      int read = reader.read(bytes, 5);
+      ImageType type = read > 0 && (bytes[0] & WEBP_LOSSLESS_ALPHA_FLAG) != 0
+          ? ImageType.WEBP_A : ImageType.WEBP;
+      if (read != 5 || bytes[0] != VP8_LOSSLESS_SIGNATURE) {
+        return unknownDimensions(type);
+      }
+      int size = chunk.getInt(1);
+      return new ImageHeaderInfo(type, UNKNOWN_ORIENTATION,
+          (size & VP8_DIMENSION_MASK) + 1, (size >>> 14 & VP8_DIMENSION_MASK) + 1);
+    }
+    if (headerType == VP8_HEADER_TYPE_LOSSY) {
+      // The frame tag, the start code 0x9D 0x01 0x2A, then the width and height as 14 bit
+      // integers, the top two bits of which are scaling factors.
+      if (reader.read(bytes, 10) != 10
+          || (bytes[3] & 0xFF) != 0x9D || bytes[4] != 0x01 || bytes[5] != 0x2A) {
+        return unknownDimensions(ImageType.WEBP);
+      }
+      return new ImageHeaderInfo(ImageType.WEBP, UNKNOWN_ORIENTATION,
+          chunk.getShort(6) & VP8_DIMENSION_MASK, chunk.getShort(8) & VP8_DIMENSION_MASK);
+    }
+    return unknownDimensions(ImageType.WEBP);
+  }
+
+  private static ImageHeaderInfo unknownDimensions(ImageType type) {
+    return new ImageHeaderInfo(type, UNKNOWN_ORIENTATION, ImageHeaderInfo.UNKNOWN_DIMENSION,
+        ImageHeaderInfo.UNKNOWN_DIMENSION);
+  }
+
+  /**
+   * Walks the JPEG's segments up to the start of the first frame, reading the orientation from the
+   * first exif segment and the dimensions from the frame header.
+   */
+  private ImageHeaderInfo getJpegHeaderInfo(Reader reader, ArrayPool byteArrayPool)
+      throws IOException {
+    int orientation = UNKNOWN_ORIENTATION;
+    boolean isExifSegmentFound = false;
+    byte[] frameHeader = new byte[MAX_DIMENSION_BYTES];
+    while (true) {
+      short segmentId = reader.getUInt8();
+      if (segmentId != SEGMENT_START_ID) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Unknown segmentId=" + segmentId);
+        }
+        break;
+      }
+      short segmentType = reader.getUInt8();
+      if (segmentType == SEGMENT_SOS || segmentType == MARKER_EOI) {
+        break;
+      }
+      // Segment length includes bytes for segment length.
+      int segmentLength = reader.getUInt16() - 2;
+      if (segmentType == EXIF_SEGMENT_TYPE && !isExifSegmentFound) {
+        // Like getOrientation, only the first exif segment is considered.
+        isExifSegmentFound = true;
+        byte[] exifData = byteArrayPool.get(segmentLength, byte[].class);
+        try {
+          orientation = parseExifSegment(reader, exifData, segmentLength);
+        } finally {
+          byteArrayPool.put(exifData);
+        }
+      } else if (isStartOfFrame(segmentType)) {
+        // Sample precision, then the height and the width.
+        if (segmentLength < 5 || reader.read(frameHeader, 5) != 5) {
+          break;
+        }
+        ByteBuffer frame = ByteBuffer.wrap(frameHeader).order(ByteOrder.BIG_ENDIAN);
+        // A height of zero is defined later in the stream, fall back to decoding the bounds.
+        return new ImageHeaderInfo(JPEG, orientation, frame.getShort(3) & 0xFFFF,
+            frame.getShort(1) & 0xFFFF);
+      } else if (reader.skip(segmentLength) != segmentLength) {
+        break;
+      }
+    }
+    return new ImageHeaderInfo(JPEG, orientation, ImageHeaderInfo.UNKNOWN_DIMENSION,
+        ImageHeaderInfo.UNKNOWN_DIMENSION);
+  }
+
+  // SOF0 - SOF15, excluding DHT, JPG and DAC which share the range.
+  private static boolean isStartOfFrame(int segmentType) {
+    return segmentType >= 0xC0 && segmentType <= 0xCF
+        && segmentType != 0xC4 && segmentType != 0xC8 && segmentType != 0xCC;
+  }
+
   @NonNull
   private ImageType getType(Reader reader) throws IOException {
     final int firstTwoBytes = reader.getUInt16();
@@ -155,20 +336,25 @@ public final class DefaultImageHeaderParser implements ImageHeaderParser {
       }
       return UNKNOWN_ORIENTATION;
     } else {
-      int exifSegmentLength = moveToExifSegmentAndGetLength(reader);
-      if (exifSegmentLength == -1) {
-        if (Log.isLoggable(TAG, Log.DEBUG)) {
-          Log.d(TAG, "Failed to parse exif segment length, or exif segment not found");
-        }
-        return UNKNOWN_ORIENTATION;
-      }
+      return getOrientationAfterMagicNumber(reader, byteArrayPool);
+    }
+  }
 
-      byte[] exifData = byteArrayPool.get(exifSegmentLength, byte[].class);
-      try {
-        return parseExifSegment(reader, exifData, exifSegmentLength);
-      } finally {
-        byteArrayPool.put(exifData);
+  private int getOrientationAfterMagicNumber(Reader reader, ArrayPool byteArrayPool)
+      throws IOException {
+    int exifSegmentLength = moveToExifSegmentAndGetLength(reader);
+    if (exifSegmentLength == -1) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to parse exif segment length, or exif segment not found");
       }
+      return UNKNOWN_ORIENTATION;
+    }
+
+    byte[] exifData = byteArrayPool.get(exifSegmentLength, byte[].class);
+    try {
+      return parseExifSegment(reader, exifData, exifSegmentLength);
+    } finally {
+      byteArrayPool.put(exifData);
     }
   }
 
@@ -6,12 +6,13 @@ import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.ImageHeaderInfo;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.ImageHeaderParser.ImageType;
-import com.bumptech.glide.load.ImageHeaderParserUtils;
 import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
@@ -89,6 +90,21 @@ public final class Downsampler {
   public static final Option<Boolean> ALLOW_HARDWARE_CONFIG =
       Option.memory("com.bumtpech.glide.load.resource.bitmap.Downsampler.AllowHardwareDecode");
 
+  /**
+   * Indicates that the decoded {@link Bitmap} will only be scaled by the applied
+   * {@link com.bumptech.glide.load.Transformation}s, using the same {@link DownsampleStrategy}, as
+   * for example {@link RequestOptions#fitCenter()} and {@link RequestOptions#centerInside()} do.
+   *
+   * <p>On KitKat and above, this decodes images directly to the size the transformation would
+   * scale them to, so that the transformation can return the decoded {@link Bitmap} rather than
+   * drawing it into a second {@link Bitmap}.
+   *
+   * <p>Glide sets this option for requests that only apply scale only transformations, callers
+   * should not usually need to set it.
+   */
+  public static final Option<Boolean> IS_SCALE_ONLY_TRANSFORM = Option.memory(
+      "com.bumptech.glide.load.resource.bitmap.Downsampler.IsScaleOnlyTransform", false);
+
   private static final String WBMP_MIME_TYPE = "image/vnd.wap.wbmp";
   private static final String ICO_MIME_TYPE = "image/x-ico";
   private static final Set<String> NO_DOWNSAMPLE_PRE_N_MIME_TYPES =
@@ -120,9 +136,6 @@ public final class Downsampler {
           )
       );
   private static final Queue<BitmapFactory.Options> OPTIONS_QUEUE = Util.createQueue(0);
-  // 10MB. This is the max image header size we can handle, we preallocate a much smaller buffer
-  // but will resize up to this amount if necessary.
-  private static final int MARK_POSITION = 10 * 1024 * 1024;
 
   private final BitmapPool bitmapPool;
   private final DisplayMetrics displayMetrics;
@@ -184,12 +197,45 @@ public final class Downsampler {
    * @return A new bitmap containing the image from the given InputStream, or recycle if recycle is
    * not null.
    */
-  @SuppressWarnings({"resource", "deprecation"})
   public Resource<Bitmap> decode(InputStream is, int requestedWidth, int requestedHeight,
       Options options, DecodeCallbacks callbacks) throws IOException {
-    Preconditions.checkArgument(is.markSupported(), "You must provide an InputStream that supports"
-        + " mark()");
+    return decode(is, null /*headerInfoMemo*/, requestedWidth, requestedHeight, options,
+        callbacks);
+  }
+
+  /**
+   * Like {@link #decode(InputStream, int, int, Options, DecodeCallbacks)}, but reads and memoizes
+   * the image's header info on the given stream, which may be wrapped by {@code is}.
+   */
+  Resource<Bitmap> decode(InputStream is, @Nullable RecyclableBufferedInputStream headerInfoMemo,
+      int requestedWidth, int requestedHeight, Options options, DecodeCallbacks callbacks)
+      throws IOException {
+    return decode(new ImageReader.InputStreamImageReader(is, headerInfoMemo, parsers,
+        byteArrayPool), requestedWidth, requestedHeight, options, callbacks);
+  }
+
+  /**
+   * Returns a Bitmap decoded from the given {@link ByteBuffer} that is rotated to match any EXIF
+   * data present in the buffer and that is downsampled according to the given dimensions and any
+   * provided {@link com.bumptech.glide.load.resource.bitmap.DownsampleStrategy} option.
+   *
+   * <p>The data between the buffer's position and limit is decoded directly, without wrapping the
+   * buffer in an {@link InputStream}. Heap buffers are decoded from their backing arrays, other
+   * buffers are copied once into an array from the
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool}. The position of the buffer is
+   * not changed.
+   *
+   * @see #decode(InputStream, int, int, Options, DecodeCallbacks)
+   */
+  public Resource<Bitmap> decode(ByteBuffer buffer, int requestedWidth, int requestedHeight,
+      Options options) throws IOException {
+    return decode(new ImageReader.ByteBufferImageReader(buffer, parsers, byteArrayPool),
+        requestedWidth, requestedHeight, options, EMPTY_CALLBACKS);
+  }
 
+  @SuppressWarnings("deprecation")
+  private Resource<Bitmap> decode(ImageReader reader, int requestedWidth, int requestedHeight,
+      Options options, DecodeCallbacks callbacks) throws IOException {
     byte[] bytesForOptions = byteArrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
     BitmapFactory.Options bitmapFactoryOptions = getDefaultOptions();
     bitmapFactoryOptions.inTempStorage = bytesForOptions;
@@ -197,6 +243,7 @@ public final class Downsampler {
     DecodeFormat decodeFormat = options.get(DECODE_FORMAT);
     DownsampleStrategy downsampleStrategy = options.get(DOWNSAMPLE_STRATEGY);
     boolean fixBitmapToRequestedDimensions = options.get(FIX_BITMAP_SIZE_TO_REQUESTED_DIMENSIONS);
+    boolean isScaleOnlyTransform = options.get(IS_SCALE_ONLY_TRANSFORM);
     boolean isHardwareConfigAllowed =
       options.get(ALLOW_HARDWARE_CONFIG) != null && options.get(ALLOW_HARDWARE_CONFIG);
     if (decodeFormat == DecodeFormat.PREFER_ARGB_8888_DISALLOW_HARDWARE) {
@@ -204,26 +251,37 @@ public final class Downsampler {
     }
 
     try {
-      Bitmap result = decodeFromWrappedStreams(is, bitmapFactoryOptions,
-          downsampleStrategy, decodeFormat, isHardwareConfigAllowed, requestedWidth,
-          requestedHeight, fixBitmapToRequestedDimensions, callbacks);
+      Bitmap result = decodeFromReader(reader, bitmapFactoryOptions, downsampleStrategy,
+          decodeFormat, isHardwareConfigAllowed, requestedWidth, requestedHeight,
+          fixBitmapToRequestedDimensions, isScaleOnlyTransform, callbacks);
       return BitmapResource.obtain(result, bitmapPool);
     } finally {
       releaseOptions(bitmapFactoryOptions);
       byteArrayPool.put(bytesForOptions);
+      reader.release();
     }
   }
 
-  private Bitmap decodeFromWrappedStreams(InputStream is,
-      BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
+  private Bitmap decodeFromReader(ImageReader reader, BitmapFactory.Options options,
+      DownsampleStrategy downsampleStrategy,
       DecodeFormat decodeFormat, boolean isHardwareConfigAllowed, int requestedWidth,
-      int requestedHeight, boolean fixBitmapToRequestedDimensions,
+      int requestedHeight, boolean fixBitmapToRequestedDimensions, boolean isScaleOnlyTransform,
       DecodeCallbacks callbacks) throws IOException {
     long startTime = LogTime.getLogTime();
 
-    int[] sourceDimensions = getDimensions(is, options, callbacks, bitmapPool);
-    int sourceWidth = sourceDimensions[0];
-    int sourceHeight = sourceDimensions[1];
+    // Reads the type, orientation and, for common formats, dimensions in a single pass.
+    ImageHeaderInfo headerInfo = reader.getHeaderInfo();
+    int sourceWidth;
+    int sourceHeight;
+    if (headerInfo.hasDimensions() && !isBoundsDecodeRequired(headerInfo.getType())) {
+      sourceWidth = headerInfo.getWidth();
+      sourceHeight = headerInfo.getHeight();
+      setOutOptionsFromHeader(headerInfo.getType(), options);
+    } else {
+      int[] sourceDimensions = getDimensions(reader, options, callbacks, bitmapPool);
+      sourceWidth = sourceDimensions[0];
+      sourceHeight = sourceDimensions[1];
+    }
     String sourceMimeType = options.outMimeType;
 
     // If we failed to obtain the image dimensions, we may end up with an incorrectly sized Bitmap,
@@ -234,18 +292,18 @@ public final class Downsampler {
       isHardwareConfigAllowed = false;
     }
 
-    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    int orientation = headerInfo.getOrientation();
     int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
     boolean isExifOrientationRequired = TransformationUtils.isExifOrientationRequired(orientation);
 
     int targetWidth = requestedWidth == Target.SIZE_ORIGINAL ? sourceWidth : requestedWidth;
     int targetHeight = requestedHeight == Target.SIZE_ORIGINAL ? sourceHeight : requestedHeight;
 
-    ImageType imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    ImageType imageType = headerInfo.getType();
 
     calculateScaling(
         imageType,
-        is,
+        reader,
         callbacks,
         bitmapPool,
         downsampleStrategy,
@@ -254,9 +312,10 @@ public final class Downsampler {
         sourceHeight,
         targetWidth,
         targetHeight,
+        isScaleOnlyTransform,
         options);
     calculateConfig(
-        is,
+        imageType,
         decodeFormat,
         isHardwareConfigAllowed,
         isExifOrientationRequired,
@@ -297,7 +356,7 @@ public final class Downsampler {
         setInBitmap(options, bitmapPool, expectedWidth, expectedHeight);
       }
     }
-    Bitmap downsampled = decodeStream(is, options, callbacks, bitmapPool);
+    Bitmap downsampled = decodeBitmap(reader, options, callbacks, bitmapPool);
     callbacks.onDecodeComplete(bitmapPool, downsampled);
 
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -322,7 +381,7 @@ public final class Downsampler {
 
   private static void calculateScaling(
       ImageType imageType,
-      InputStream is,
+      ImageReader reader,
       DecodeCallbacks decodeCallbacks,
       BitmapPool bitmapPool,
       DownsampleStrategy downsampleStrategy,
@@ -331,6 +390,7 @@ public final class Downsampler {
       int sourceHeight,
       int targetWidth,
       int targetHeight,
+      boolean isScaleOnlyTransform,
       BitmapFactory.Options options) throws IOException {
     // We can't downsample source content if we can't determine its dimensions.
     if (sourceWidth <= 0 || sourceHeight <= 0) {
@@ -424,7 +484,7 @@ public final class Downsampler {
         sourceWidth % powerOfTwoSampleSize != 0 || sourceHeight % powerOfTwoSampleSize != 0) {
       // If we're not confident the image is in one of our types, fall back to checking the
       // dimensions again. inJustDecodeBounds decodes do obey inSampleSize.
-      int[] dimensions = getDimensions(is, options, decodeCallbacks, bitmapPool);
+      int[] dimensions = getDimensions(reader, options, decodeCallbacks, bitmapPool);
       // Power of two downsampling in BitmapFactory uses a variety of random factors to determine
       // rounding that we can't reliably replicate for all image formats. Use ceiling here to make
       // sure that we at least provide a Bitmap that's large enough to fit the content we're going
@@ -441,7 +501,9 @@ public final class Downsampler {
 
     // Density scaling is only supported if inBitmap is null prior to KitKat. Avoid setting
     // densities here so we calculate the final Bitmap size correctly.
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+        && !(isScaleOnlyTransform && setExactDensities(downsampleStrategy, degreesToRotate,
+            powerOfTwoWidth, powerOfTwoHeight, targetWidth, targetHeight, options))) {
       options.inTargetDensity = adjustTargetDensityForError(adjustedScaleFactor);
       options.inDensity = getDensityMultiplier(adjustedScaleFactor);
     }
@@ -464,6 +526,58 @@ public final class Downsampler {
     }
   }
 
+  /**
+   * Sets densities that scale the power of two downsampled image to exactly the size that a scale
+   * only transformation using the given strategy would produce, or returns {@code false} if the
+   * densities can't be chosen that way.
+   *
+   * <p>The ratio of the densities is the ratio of one dimension of the image to its size in the
+   * transformation's output, chosen so that BitmapFactory's rounding of the other dimension also
+   * matches the output. Transformations like
+   * {@link TransformationUtils#fitCenter(BitmapPool, Bitmap, int, int)} then find that the decoded
+   * {@link Bitmap} already fits and return it as is.
+   */
+  @VisibleForTesting
+  static boolean setExactDensities(DownsampleStrategy downsampleStrategy,
+      int degreesToRotate, int powerOfTwoWidth, int powerOfTwoHeight, int targetWidth,
+      int targetHeight, BitmapFactory.Options options) {
+    if (powerOfTwoWidth <= 0 || powerOfTwoHeight <= 0) {
+      return false;
+    }
+    // The transformation is applied after the image is rotated, so compare the unrotated
+    // dimensions of the image to the rotated target.
+    boolean isRotated = degreesToRotate == 90 || degreesToRotate == 270;
+    int orientedTargetWidth = isRotated ? targetHeight : targetWidth;
+    int orientedTargetHeight = isRotated ? targetWidth : targetHeight;
+    float scaleFactor = downsampleStrategy.getScaleFactor(
+        powerOfTwoWidth, powerOfTwoHeight, orientedTargetWidth, orientedTargetHeight);
+
+    int expectedWidth = round(scaleFactor * powerOfTwoWidth);
+    int expectedHeight = round(scaleFactor * powerOfTwoHeight);
+    if (expectedWidth <= 0 || expectedHeight <= 0) {
+      return false;
+    }
+    // Using the sizes themselves as densities avoids most of the error BitmapFactory's float
+    // division would otherwise introduce.
+    if (getDensityScaledSize(powerOfTwoHeight, expectedWidth, powerOfTwoWidth)
+        == expectedHeight) {
+      options.inDensity = powerOfTwoWidth;
+      options.inTargetDensity = expectedWidth;
+    } else if (getDensityScaledSize(powerOfTwoWidth, expectedHeight, powerOfTwoHeight)
+        == expectedWidth) {
+      options.inDensity = powerOfTwoHeight;
+      options.inTargetDensity = expectedHeight;
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  // Matches the rounding BitmapFactory uses when scaling by density.
+  private static int getDensityScaledSize(int size, int targetDensity, int density) {
+    return (int) (size * ((float) targetDensity / density) + 0.5f);
+  }
+
   /**
    * BitmapFactory calculates the density scale factor as a float. This introduces some non-trivial
    * error. This method attempts to account for that error by adjusting the inTargetDensity so that
@@ -503,7 +617,7 @@ public final class Downsampler {
 
   @SuppressWarnings("deprecation")
   private void calculateConfig(
-      InputStream is,
+      ImageType imageType,
       DecodeFormat format,
       boolean isHardwareConfigAllowed,
       boolean isExifOrientationRequired,
@@ -529,16 +643,7 @@ public final class Downsampler {
       return;
     }
 
-    boolean hasAlpha = false;
-    try {
-      hasAlpha = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool).hasAlpha();
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Cannot determine whether the image has alpha or not from header"
-            + ", format " + format, e);
-      }
-    }
-
+    boolean hasAlpha = imageType.hasAlpha();
     optionsWithScaling.inPreferredConfig =
         hasAlpha ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
     if (optionsWithScaling.inPreferredConfig == Config.RGB_565) {
@@ -547,26 +652,68 @@ public final class Downsampler {
   }
 
   /**
-   * A method for getting the dimensions of an image from the given InputStream.
+   * A method for getting the dimensions of an image from the given ImageReader.
    *
-   * @param is      The InputStream representing the image.
-   * @param options The options to pass to {@link BitmapFactory#decodeStream(java.io.InputStream,
-   *                android.graphics.Rect, android.graphics.BitmapFactory.Options)}.
+   * @param reader  The ImageReader representing the image.
+   * @param options The options to pass to {@link ImageReader#decodeBitmap(BitmapFactory.Options)}.
    * @return an array containing the dimensions of the image in the form {width, height}.
    */
-  private static int[] getDimensions(InputStream is, BitmapFactory.Options options,
+  private static int[] getDimensions(ImageReader reader, BitmapFactory.Options options,
       DecodeCallbacks decodeCallbacks, BitmapPool bitmapPool) throws IOException {
     options.inJustDecodeBounds = true;
-    decodeStream(is, options, decodeCallbacks, bitmapPool);
+    decodeBitmap(reader, options, decodeCallbacks, bitmapPool);
     options.inJustDecodeBounds = false;
     return new int[] { options.outWidth, options.outHeight };
   }
 
-  private static Bitmap decodeStream(InputStream is, BitmapFactory.Options options,
+  /**
+   * Returns {@code true} if the bounds of an image of the given type must still be decoded to fill
+   * in the out fields of {@link BitmapFactory.Options} that the rest of the decode relies on, even
+   * if its dimensions were read from its header.
+   */
+  private static boolean isBoundsDecodeRequired(ImageType imageType) {
+    if (getMimeType(imageType) == null) {
+      return true;
+    }
+    // 16 bit PNGs are decoded to RGBA_F16 on O+, which only the bounds decode reports in outConfig.
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+        && (imageType == ImageType.PNG || imageType == ImageType.PNG_A);
+  }
+
+  /**
+   * Sets the out fields of {@link BitmapFactory.Options} that a bounds decode of an image of the
+   * given type would have set, other than its dimensions.
+   */
+  @TargetApi(Build.VERSION_CODES.O)
+  private static void setOutOptionsFromHeader(ImageType imageType, BitmapFactory.Options options) {
+    options.outMimeType = getMimeType(imageType);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      // JPEG, GIF and WebP images are always decoded to 8888 unless we request a smaller config.
+      options.outConfig = Config.ARGB_8888;
+    }
+  }
+
+  @Nullable
+  private static String getMimeType(ImageType imageType) {
+    switch (imageType) {
+      case JPEG:
+        return "image/jpeg";
+      case PNG:
+      case PNG_A:
+        return "image/png";
+      case GIF:
+        return "image/gif";
+      case WEBP:
+      case WEBP_A:
+        return "image/webp";
+      default:
+        return null;
+    }
+  }
+
+  private static Bitmap decodeBitmap(ImageReader reader, BitmapFactory.Options options,
       DecodeCallbacks callbacks, BitmapPool bitmapPool) throws IOException {
-    if (options.inJustDecodeBounds) {
-      is.mark(MARK_POSITION);
-    } else {
+    if (!options.inJustDecodeBounds) {
       // Once we've read the image header, we no longer need to allow the buffer to expand in
       // size. To avoid unnecessary allocations reading image data, we fix the mark limit so that it
       // is no larger than our current buffer size here. We need to do so immediately before
@@ -582,7 +729,7 @@ public final class Downsampler {
     final Bitmap result;
     TransformationUtils.getBitmapDrawableLock().lock();
     try {
-      result = BitmapFactory.decodeStream(is, null, options);
+      result = reader.decodeBitmap(options);
     } catch (IllegalArgumentException e) {
       IOException bitmapAssertionException =
           newIoExceptionForInBitmapAssertion(e, sourceWidth, sourceHeight, outMimeType, options);
@@ -592,10 +739,10 @@ public final class Downsampler {
       }
       if (options.inBitmap != null) {
         try {
-          is.reset();
+          reader.rewind();
           bitmapPool.put(options.inBitmap);
           options.inBitmap = null;
-          return decodeStream(is, options, callbacks, bitmapPool);
+          return decodeBitmap(reader, options, callbacks, bitmapPool);
         } catch (IOException resetException) {
           throw bitmapAssertionException;
         }
@@ -604,11 +751,6 @@ public final class Downsampler {
     } finally {
       TransformationUtils.getBitmapDrawableLock().unlock();
     }
-
-    if (options.inJustDecodeBounds) {
-      is.reset();
-
-    }
     return result;
   }
 
@@ -709,6 +851,7 @@ public final class Downsampler {
   }
 
   @SuppressWarnings("deprecation")
+  @TargetApi(Build.VERSION_CODES.O)
   private static void resetOptions(BitmapFactory.Options decodeBitmapOptions) {
     decodeBitmapOptions.inTempStorage = null;
     decodeBitmapOptions.inDither = false;
@@ -723,6 +866,10 @@ public final class Downsampler {
     decodeBitmapOptions.outMimeType = null;
     decodeBitmapOptions.inBitmap = null;
     decodeBitmapOptions.inMutable = true;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      // Options are reused, so don't let a later decode see the config of an earlier image.
+      decodeBitmapOptions.outConfig = null;
+    }
   }
 
   /**
@@ -0,0 +1,161 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.ImageHeaderInfo;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reads the header and decodes {@link Bitmap}s from a single source of image data for
+ * {@link Downsampler}, which may decode the same data more than once.
+ */
+interface ImageReader {
+
+  ImageHeaderInfo getHeaderInfo() throws IOException;
+
+  /**
+   * Decodes the data using the given options.
+   *
+   * <p>If {@link BitmapFactory.Options#inJustDecodeBounds} is set, the reader is ready to decode
+   * the data again once this method returns.
+   */
+  @Nullable
+  Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException;
+
+  /**
+   * Prepares the reader to decode the data again after a failed decode.
+   */
+  void rewind() throws IOException;
+
+  /**
+   * Releases any resources held by the reader once decoding is finished.
+   */
+  void release();
+
+  /**
+   * Decodes data from {@link InputStream}s that support {@link InputStream#mark(int)}.
+   */
+  final class InputStreamImageReader implements ImageReader {
+    // 10MB. This is the max image header size we can handle, we preallocate a much smaller buffer
+    // but will resize up to this amount if necessary.
+    private static final int MARK_POSITION = 10 * 1024 * 1024;
+
+    private final InputStream is;
+    @Nullable private final RecyclableBufferedInputStream headerInfoMemo;
+    private final List<ImageHeaderParser> parsers;
+    private final ArrayPool byteArrayPool;
+
+    InputStreamImageReader(InputStream is,
+        @Nullable RecyclableBufferedInputStream headerInfoMemo, List<ImageHeaderParser> parsers,
+        ArrayPool byteArrayPool) {
+      Preconditions.checkArgument(is.markSupported(), "You must provide an InputStream that"
+          + " supports mark()");
+      this.is = is;
+      this.headerInfoMemo = headerInfoMemo;
+      this.parsers = parsers;
+      this.byteArrayPool = byteArrayPool;
+    }
+
+    @Override
+    public ImageHeaderInfo getHeaderInfo() throws IOException {
+      return ImageHeaderParserUtils.getHeaderInfo(parsers, is, headerInfoMemo, byteArrayPool);
+    }
+
+    @Nullable
+    @Override
+    public Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException {
+      boolean isDecodingBounds = options.inJustDecodeBounds;
+      if (isDecodingBounds) {
+        is.mark(MARK_POSITION);
+      }
+      Bitmap result = BitmapFactory.decodeStream(is, null, options);
+      if (isDecodingBounds) {
+        is.reset();
+      }
+      return result;
+    }
+
+    @Override
+    public void rewind() throws IOException {
+      is.reset();
+    }
+
+    @Override
+    public void release() {
+      // Do nothing, the caller owns the stream.
+    }
+  }
+
+  /**
+   * Decodes data from {@link ByteBuffer}s without wrapping them in streams.
+   *
+   * <p>Heap buffers are decoded from their backing arrays. Direct and read only buffers are copied
+   * once into an array obtained from the {@link ArrayPool} that's reused for each decode, unless
+   * they're too large for the pool to retain, in which case they're decoded from a stream over the
+   * buffer instead. The position of the buffer is never changed.
+   */
+  final class ByteBufferImageReader implements ImageReader {
+    // 1MB. Half of the array pool Glide uses on low memory devices, which is the largest array that
+    // pool will retain. Copying larger buffers would allocate an array the pool then drops.
+    private static final int MAX_COPIED_BUFFER_SIZE_BYTES = 1024 * 1024;
+
+    private final ByteBuffer buffer;
+    private final List<ImageHeaderParser> parsers;
+    private final ArrayPool byteArrayPool;
+    @Nullable private byte[] copiedBytes;
+
+    ByteBufferImageReader(ByteBuffer buffer, List<ImageHeaderParser> parsers,
+        ArrayPool byteArrayPool) {
+      this.buffer = buffer;
+      this.parsers = parsers;
+      this.byteArrayPool = byteArrayPool;
+    }
+
+    @Override
+    public ImageHeaderInfo getHeaderInfo() throws IOException {
+      return ImageHeaderParserUtils.getHeaderInfo(parsers, buffer, byteArrayPool);
+    }
+
+    @Nullable
+    @Override
+    public Bitmap decodeBitmap(BitmapFactory.Options options) {
+      int length = buffer.remaining();
+      if (buffer.hasArray()) {
+        return BitmapFactory.decodeByteArray(
+            buffer.array(), buffer.arrayOffset() + buffer.position(), length, options);
+      }
+      if (length > MAX_COPIED_BUFFER_SIZE_BYTES) {
+        // Each decode reads from its own duplicate so the buffer's position is left untouched.
+        InputStream is = ByteBufferUtil.toStream(buffer.duplicate());
+        return BitmapFactory.decodeStream(is, null, options);
+      }
+      if (copiedBytes == null) {
+        copiedBytes = byteArrayPool.get(length, byte[].class);
+        buffer.duplicate().get(copiedBytes, 0, length);
+      }
+      return BitmapFactory.decodeByteArray(copiedBytes, 0, length, options);
+    }
+
+    @Override
+    public void rewind() {
+      // Do nothing, decoding never moves the buffer.
+    }
+
+    @Override
+    public void release() {
+      if (copiedBytes != null) {
+        byteArrayPool.put(copiedBytes);
+        copiedBytes = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.LogTime;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Wraps image data while it's being downloaded and decodes previews of progressive JPEGs from the
+ * scans received so far.
+ *
+ * <p>Previews are decoded on the thread reading the stream, which is otherwise waiting on the
+ * network, so they're only decoded at the end of a scan, and no more than once every 100ms after
+ * the first. Reading stops buffering data once the image turns out not to be a progressive JPEG,
+ * the last scan is received or 16MB have been read.
+ *
+ * <p>Previews are RGB_565 {@link Bitmap}s downsampled to roughly the requested size. They're
+ * allocated outside of the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} and
+ * aren't cached.
+ *
+ * <p>Doesn't support {@link #mark(int)}.
+ */
+public final class ProgressiveJpegPreviewStream extends FilterInputStream {
+  private static final String TAG = "ProgressivePreview";
+  private static final int INITIAL_BUFFER_SIZE_BYTES = 64 * 1024;
+  private static final int MAX_BUFFER_SIZE_BYTES = 16 * 1024 * 1024;
+  private static final int MIN_PREVIEW_INTERVAL_MS = 100;
+
+  /**
+   * Receives previews decoded from the stream.
+   */
+  public interface Listener {
+    /**
+     * Called on the thread reading the stream with a preview of the image.
+     */
+    void onPreviewReady(@NonNull Bitmap preview);
+  }
+
+  private final ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+  private final List<ImageHeaderParser> parsers;
+  private final ArrayPool arrayPool;
+  private final int requestedWidth;
+  private final int requestedHeight;
+  private final Listener listener;
+
+  @Nullable private byte[] buffer = new byte[INITIAL_BUFFER_SIZE_BYTES];
+  private int count;
+  private int lastPreviewScanCount;
+  private long lastPreviewTime;
+  private int orientation = ImageHeaderParser.UNKNOWN_ORIENTATION;
+  @Nullable private byte[] skipBuffer;
+
+  /**
+   * @param requestedWidth  The width previews should be close to, or {@link Target#SIZE_ORIGINAL}.
+   * @param requestedHeight The height previews should be close to, or
+   *                        {@link Target#SIZE_ORIGINAL}.
+   */
+  public ProgressiveJpegPreviewStream(@NonNull InputStream in,
+      @NonNull List<ImageHeaderParser> parsers, @NonNull ArrayPool arrayPool, int requestedWidth,
+      int requestedHeight, @NonNull Listener listener) {
+    super(in);
+    this.parsers = parsers;
+    this.arrayPool = arrayPool;
+    this.requestedWidth = requestedWidth;
+    this.requestedHeight = requestedHeight;
+    this.listener = listener;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int result = in.read();
+    if (result == -1) {
+      release();
+    } else if (buffer != null) {
+      ensureCapacity(1);
+      if (buffer != null) {
+        buffer[count++] = (byte) result;
+        onDataAppended();
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int read(@NonNull byte[] b, int off, int len) throws IOException {
+    int read = in.read(b, off, len);
+    if (read == -1) {
+      release();
+    } else if (read > 0 && buffer != null) {
+      ensureCapacity(read);
+      if (buffer != null) {
+        System.arraycopy(b, off, buffer, count, read);
+        count += read;
+        onDataAppended();
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (buffer == null) {
+      return in.skip(n);
+    }
+    // Skipped bytes still need to be scanned.
+    if (skipBuffer == null) {
+      skipBuffer = new byte[ArrayPool.STANDARD_BUFFER_SIZE_BYTES];
+    }
+    int read = read(skipBuffer, 0, (int) Math.min(n, skipBuffer.length));
+    return Math.max(0, read);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+    // Not supported.
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  @Override
+  public void close() throws IOException {
+    release();
+    super.close();
+  }
+
+  private void ensureCapacity(int additional) {
+    if (count + additional <= buffer.length) {
+      return;
+    }
+    int required = count + additional;
+    if (required > MAX_BUFFER_SIZE_BYTES) {
+      release();
+      return;
+    }
+    byte[] expanded =
+        new byte[Math.min(MAX_BUFFER_SIZE_BYTES, Math.max(required, buffer.length * 2))];
+    System.arraycopy(buffer, 0, expanded, 0, count);
+    buffer = expanded;
+  }
+
+  private void onDataAppended() {
+    scanner.scan(buffer, count);
+    if (scanner.isDone()) {
+      // Either the image isn't a progressive JPEG, or it's complete and will be decoded normally.
+      release();
+      return;
+    }
+    if (scanner.getScanCount() > lastPreviewScanCount && isPreviewIntervalElapsed()) {
+      lastPreviewScanCount = scanner.getScanCount();
+      Bitmap preview = decodePreview(scanner.getLastScanEndOffset());
+      lastPreviewTime = LogTime.getLogTime();
+      if (preview != null) {
+        listener.onPreviewReady(preview);
+      }
+    }
+  }
+
+  private boolean isPreviewIntervalElapsed() {
+    return lastPreviewScanCount == 0
+        || LogTime.getElapsedMillis(lastPreviewTime) >= MIN_PREVIEW_INTERVAL_MS;
+  }
+
+  @Nullable
+  private Bitmap decodePreview(int length) {
+    long startTime = LogTime.getLogTime();
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = getSampleSize();
+    options.inPreferredConfig = Bitmap.Config.RGB_565;
+    Bitmap decoded = BitmapFactory.decodeByteArray(buffer, 0, length, options);
+    if (decoded == null) {
+      return null;
+    }
+    if (orientation == ImageHeaderParser.UNKNOWN_ORIENTATION) {
+      orientation = getOrientation(length);
+    }
+    Bitmap rotated =
+        TransformationUtils.rotateImageExif(new BitmapPoolAdapter(), decoded, orientation);
+    if (rotated != decoded) {
+      decoded.recycle();
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Decoded preview from " + scanner.getScanCount() + " scans"
+          + ", bytes: " + length
+          + ", sample size: " + options.inSampleSize
+          + ", size: [" + rotated.getWidth() + "x" + rotated.getHeight() + "]"
+          + ", duration: " + LogTime.getElapsedMillis(startTime));
+    }
+    return rotated;
+  }
+
+  private int getOrientation(int length) {
+    try {
+      return ImageHeaderParserUtils.getOrientation(
+          parsers, new ByteArrayInputStream(buffer, 0, length), arrayPool);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to read orientation for preview", e);
+      }
+      return ImageHeaderParser.UNKNOWN_ORIENTATION;
+    }
+  }
+
+  private int getSampleSize() {
+    int width = scanner.getWidth();
+    int height = scanner.getHeight();
+    if (requestedWidth == Target.SIZE_ORIGINAL || requestedHeight == Target.SIZE_ORIGINAL
+        || requestedWidth <= 0 || requestedHeight <= 0 || width <= 0 || height <= 0) {
+      return 1;
+    }
+    // Ignores orientation, so rotated previews may be sampled more than necessary.
+    int scaleFactor = Math.min(width / requestedWidth, height / requestedHeight);
+    return Math.max(1, Integer.highestOneBit(scaleFactor));
+  }
+
+  private void release() {
+    buffer = null;
+    count = 0;
+  }
+}
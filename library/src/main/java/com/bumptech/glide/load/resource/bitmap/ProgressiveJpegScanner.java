@@ -0,0 +1,217 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+/**
+ * Incrementally finds the ends of the scans of a progressive JPEG as its data is received.
+ *
+ * <p>Each scan of a progressive JPEG refines the whole image, so the data up to the end of any
+ * complete scan can be decoded into a lower quality version of the full image.
+ */
+final class ProgressiveJpegScanner {
+  private static final int MARKER_FIRST_BYTE = 0xFF;
+  private static final int SOI = 0xD8;
+  private static final int EOI = 0xD9;
+  private static final int SOS = 0xDA;
+  private static final int TEM = 0x01;
+  private static final int RST0 = 0xD0;
+  private static final int RST7 = 0xD7;
+  private static final int SOF0 = 0xC0;
+  private static final int SOF15 = 0xCF;
+  private static final int DHT = 0xC4;
+  private static final int JPG = 0xC8;
+  private static final int DAC = 0xCC;
+  // SOF2 (huffman), SOF6 (differential huffman), SOF10 (arithmetic), SOF14 (differential
+  // arithmetic).
+  private static final int SOF2 = 0xC2;
+  private static final int SOF6 = 0xC6;
+  private static final int SOF10 = 0xCA;
+  private static final int SOF14 = 0xCE;
+
+  private enum State {
+    START,
+    MARKER,
+    ENTROPY_CODED_DATA,
+    /** The data isn't a progressive JPEG, or the image is complete. */
+    DONE,
+  }
+
+  private State state = State.START;
+  private int position;
+  private boolean isProgressive;
+  private boolean isEndOfImage;
+  private int scanCount;
+  private int lastScanEndOffset;
+  private int width;
+  private int height;
+
+  /**
+   * Scans any data that hasn't been scanned yet.
+   *
+   * @param data   All of the data received so far, starting with the first byte of the image.
+   * @param length The number of valid bytes in {@code data}.
+   */
+  void scan(byte[] data, int length) {
+    while (state != State.DONE) {
+      boolean isMoreDataNeeded;
+      switch (state) {
+        case START:
+          isMoreDataNeeded = scanStart(data, length);
+          break;
+        case MARKER:
+          isMoreDataNeeded = scanMarker(data, length);
+          break;
+        case ENTROPY_CODED_DATA:
+          isMoreDataNeeded = scanEntropyCodedData(data, length);
+          break;
+        default:
+          throw new IllegalStateException("Unrecognized state: " + state);
+      }
+      if (isMoreDataNeeded) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if no more scans will be found, either because the data isn't a
+   * progressive JPEG or because the end of the image was reached.
+   */
+  boolean isDone() {
+    return state == State.DONE;
+  }
+
+  /** Returns {@code true} if the end of the image was reached. */
+  boolean isEndOfImage() {
+    return isEndOfImage;
+  }
+
+  /** Returns {@code true} if a progressive start of frame segment was found. */
+  boolean isProgressive() {
+    return isProgressive;
+  }
+
+  /** Returns the number of complete scans found so far. */
+  int getScanCount() {
+    return scanCount;
+  }
+
+  /**
+   * Returns the length of the data containing all complete scans found so far, or 0 if no scans
+   * are complete.
+   */
+  int getLastScanEndOffset() {
+    return lastScanEndOffset;
+  }
+
+  /** Returns the width of the image, or 0 if the start of frame segment hasn't been found. */
+  int getWidth() {
+    return width;
+  }
+
+  /** Returns the height of the image, or 0 if the start of frame segment hasn't been found. */
+  int getHeight() {
+    return height;
+  }
+
+  private boolean scanStart(byte[] data, int length) {
+    if (length < 2) {
+      return true;
+    }
+    if ((data[0] & 0xFF) != MARKER_FIRST_BYTE || (data[1] & 0xFF) != SOI) {
+      state = State.DONE;
+      return false;
+    }
+    position = 2;
+    state = State.MARKER;
+    return false;
+  }
+
+  private boolean scanMarker(byte[] data, int length) {
+    if (position + 2 > length) {
+      return true;
+    }
+    if ((data[position] & 0xFF) != MARKER_FIRST_BYTE) {
+      // Corrupt or unsupported data.
+      state = State.DONE;
+      return false;
+    }
+    int marker = data[position + 1] & 0xFF;
+    if (marker == MARKER_FIRST_BYTE) {
+      // Markers may be preceded by any number of fill bytes.
+      position++;
+      return false;
+    }
+    if (marker == EOI) {
+      isEndOfImage = true;
+      state = State.DONE;
+      return false;
+    }
+    if (marker == TEM || (marker >= RST0 && marker <= RST7)) {
+      position += 2;
+      return false;
+    }
+
+    if (position + 4 > length) {
+      return true;
+    }
+    int segmentLength = readUInt16(data, position + 2);
+    if (segmentLength < 2) {
+      state = State.DONE;
+      return false;
+    }
+    if (isStartOfFrame(marker)) {
+      // Precision (1 byte), then height and width.
+      if (position + 9 > length) {
+        return true;
+      }
+      if (!isProgressiveStartOfFrame(marker)) {
+        state = State.DONE;
+        return false;
+      }
+      isProgressive = true;
+      height = readUInt16(data, position + 5);
+      width = readUInt16(data, position + 7);
+    }
+    position += 2 + segmentLength;
+    if (marker == SOS) {
+      state = State.ENTROPY_CODED_DATA;
+    }
+    return false;
+  }
+
+  private boolean scanEntropyCodedData(byte[] data, int length) {
+    while (position < length) {
+      if ((data[position] & 0xFF) != MARKER_FIRST_BYTE) {
+        position++;
+        continue;
+      }
+      if (position + 1 >= length) {
+        return true;
+      }
+      int next = data[position + 1] & 0xFF;
+      if (next == 0 || (next >= RST0 && next <= RST7)) {
+        // Either a stuffed 0xFF byte or a restart marker, both of which are part of the scan.
+        position += 2;
+      } else if (next == MARKER_FIRST_BYTE) {
+        position++;
+      } else {
+        scanCount++;
+        lastScanEndOffset = position;
+        state = State.MARKER;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isStartOfFrame(int marker) {
+    return marker >= SOF0 && marker <= SOF15 && marker != DHT && marker != JPG && marker != DAC;
+  }
+
+  private static boolean isProgressiveStartOfFrame(int marker) {
+    return marker == SOF2 || marker == SOF6 || marker == SOF10 || marker == SOF14;
+  }
+
+  private static int readUInt16(byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+  }
+}
@@ -18,7 +18,9 @@ package com.bumptech.glide.load.resource.bitmap;
  */
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.load.ImageHeaderInfo;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import java.io.FilterInputStream;
 import java.io.IOException;
@@ -64,6 +66,8 @@ public class RecyclableBufferedInputStream extends FilterInputStream {
    */
   private int pos;
   private final ArrayPool byteArrayPool;
+  @Nullable
+  private volatile ImageHeaderInfo imageHeaderInfo;
 
   public RecyclableBufferedInputStream(@NonNull InputStream in, @NonNull ArrayPool byteArrayPool) {
     this(in, byteArrayPool, ArrayPool.STANDARD_BUFFER_SIZE_BYTES);
@@ -112,6 +116,27 @@ public class RecyclableBufferedInputStream extends FilterInputStream {
     marklimit = buf.length;
   }
 
+  /**
+   * Returns the header info memoized for the data in this stream, or {@code null} if it hasn't been
+   * read yet.
+   *
+   * @see com.bumptech.glide.load.ImageHeaderParserUtils#getHeaderInfo(java.util.List,
+   * InputStream, ArrayPool)
+   */
+  @Nullable
+  public ImageHeaderInfo getImageHeaderInfo() {
+    return imageHeaderInfo;
+  }
+
+  /**
+   * Memoizes the header info for the data in this stream so that decoders given the same stream,
+   * for example by the same {@link com.bumptech.glide.load.data.InputStreamRewinder}, don't parse
+   * the header again.
+   */
+  public void setImageHeaderInfo(@NonNull ImageHeaderInfo imageHeaderInfo) {
+    this.imageHeaderInfo = imageHeaderInfo;
+  }
+
   public synchronized void release() {
     if (buf != null) {
       byteArrayPool.put(buf);
@@ -59,7 +59,8 @@ public class StreamBitmapDecoder implements ResourceDecoder<InputStream, Bitmap>
     MarkEnforcingInputStream invalidatingStream = new MarkEnforcingInputStream(exceptionStream);
     UntrustedCallbacks callbacks = new UntrustedCallbacks(bufferedStream, exceptionStream);
     try {
-      return downsampler.decode(invalidatingStream, width, height, options, callbacks);
+      return downsampler.decode(
+          invalidatingStream, bufferedStream, width, height, options, callbacks);
     } finally {
       exceptionStream.release();
       if (ownsBufferedStream) {
@@ -0,0 +1,34 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes {@link Tile}s of images from {@link InputStream}s for requests that set
+ * {@link TileDecoder#TILE}.
+ */
+public class StreamTileDecoder implements ResourceDecoder<InputStream, Bitmap> {
+  private final TileDecoder tileDecoder;
+
+  public StreamTileDecoder(TileDecoder tileDecoder) {
+    this.tileDecoder = tileDecoder;
+  }
+
+  @Override
+  public boolean handles(@NonNull InputStream source, @NonNull Options options) {
+    return tileDecoder.handles(options);
+  }
+
+  @Nullable
+  @Override
+  public Resource<Bitmap> decode(@NonNull InputStream source, int width, int height,
+      @NonNull Options options) throws IOException {
+    return tileDecoder.decode(source, options);
+  }
+}
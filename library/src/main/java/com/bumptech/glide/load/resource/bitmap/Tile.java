@@ -0,0 +1,151 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * A rectangular region of an image and the sample size to decode it with, set with
+ * {@link TileDecoder#TILE} to decode only part of an image.
+ *
+ * <p>Coordinates are in pixels of the encoded image, exif orientation is not applied. The region
+ * is decoded at {@code 1 / sampleSize} of its original size.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class Tile implements Key {
+  private static final int DIGEST_SIZE_BYTES = 5 * Integer.SIZE / Byte.SIZE;
+
+  private final int left;
+  private final int top;
+  private final int right;
+  private final int bottom;
+  private final int sampleSize;
+
+  /**
+   * @param left       The left edge of the region, inclusive.
+   * @param top        The top edge of the region, inclusive.
+   * @param right      The right edge of the region, exclusive.
+   * @param bottom     The bottom edge of the region, exclusive.
+   * @param sampleSize A power of two greater than or equal to 1 to divide the size of the region
+   *                   by, see {@link android.graphics.BitmapFactory.Options#inSampleSize}.
+   */
+  public Tile(int left, int top, int right, int bottom, int sampleSize) {
+    Preconditions.checkArgument(left >= 0 && top >= 0 && right > left && bottom > top,
+        "Invalid region: [" + left + ", " + top + ", " + right + ", " + bottom + "]");
+    Preconditions.checkArgument(sampleSize >= 1 && Integer.bitCount(sampleSize) == 1,
+        "Sample size must be a power of two, but was: " + sampleSize);
+    this.left = left;
+    this.top = top;
+    this.right = right;
+    this.bottom = bottom;
+    this.sampleSize = sampleSize;
+  }
+
+  public int getLeft() {
+    return left;
+  }
+
+  public int getTop() {
+    return top;
+  }
+
+  public int getRight() {
+    return right;
+  }
+
+  public int getBottom() {
+    return bottom;
+  }
+
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  /** Returns the width of the region in pixels of the encoded image. */
+  public int getWidth() {
+    return right - left;
+  }
+
+  /** Returns the height of the region in pixels of the encoded image. */
+  public int getHeight() {
+    return bottom - top;
+  }
+
+  /**
+   * Returns the width of the decoded tile, which may be off by one pixel if the width of the region
+   * isn't divisible by the sample size.
+   */
+  public int getSampledWidth() {
+    return (getWidth() + sampleSize - 1) / sampleSize;
+  }
+
+  /**
+   * Returns the height of the decoded tile, which may be off by one pixel if the height of the
+   * region isn't divisible by the sample size.
+   */
+  public int getSampledHeight() {
+    return (getHeight() + sampleSize - 1) / sampleSize;
+  }
+
+  /**
+   * Returns {@code true} if the size of the decoded tile is known exactly, which is the case if the
+   * width and height of the region are divisible by the sample size.
+   */
+  boolean isSampledSizeExact() {
+    return getWidth() % sampleSize == 0 && getHeight() % sampleSize == 0;
+  }
+
+  @NonNull
+  public Rect toRect() {
+    return new Rect(left, top, right, bottom);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof Tile) {
+      Tile other = (Tile) o;
+      return left == other.left
+          && top == other.top
+          && right == other.right
+          && bottom == other.bottom
+          && sampleSize == other.sampleSize;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = left;
+    result = 31 * result + top;
+    result = 31 * result + right;
+    result = 31 * result + bottom;
+    result = 31 * result + sampleSize;
+    return result;
+  }
+
+  @Override
+  public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    messageDigest.update(ByteBuffer.allocate(DIGEST_SIZE_BYTES)
+        .putInt(left)
+        .putInt(top)
+        .putInt(right)
+        .putInt(bottom)
+        .putInt(sampleSize)
+        .array());
+  }
+
+  @Override
+  public String toString() {
+    return "Tile{"
+        + "left=" + left
+        + ", top=" + top
+        + ", right=" + right
+        + ", bottom=" + bottom
+        + ", sampleSize=" + sampleSize
+        + '}';
+  }
+}
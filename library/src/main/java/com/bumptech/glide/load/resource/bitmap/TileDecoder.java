@@ -0,0 +1,296 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes a single {@link Tile} of an image using {@link BitmapRegionDecoder}, so that parts of
+ * very large images can be displayed at full resolution without decoding the entire image.
+ *
+ * <p>Used by {@link StreamTileDecoder} and {@link ByteBufferTileDecoder} for requests that set
+ * {@link #TILE}. Because the {@link Tile} is part of the request's options, each tile is loaded,
+ * cached in memory and on disk, and de-duplicated by the
+ * {@link com.bumptech.glide.load.engine.Engine} like any other request.
+ *
+ * <p>Creating a {@link BitmapRegionDecoder} parses the entire image, so the most recently used
+ * region decoders are kept, keyed by {@link #SOURCE_KEY}, and reused for subsequent tiles of the
+ * same image.
+ */
+public final class TileDecoder {
+  private static final String TAG = "TileDecoder";
+
+  /**
+   * The region of the image to decode and the sample size to decode it with.
+   *
+   * <p>Only JPEG, PNG and WebP images can be decoded in tiles. If the image can't be decoded by
+   * {@link BitmapRegionDecoder}, the full image is decoded by the next available decoder instead.
+   *
+   * <p>Tiles are only decoded when loading {@link Bitmap}s or
+   * {@link android.graphics.drawable.BitmapDrawable}s. Tiles are not transformed by the
+   * {@link DownsampleStrategy}, so requests for tiles should usually not apply
+   * {@link com.bumptech.glide.load.Transformation}s.
+   */
+  public static final Option<Tile> TILE = Option.disk(
+      "com.bumptech.glide.load.resource.bitmap.TileDecoder.Tile",
+      new Option.CacheKeyUpdater<Tile>() {
+        @Override
+        public void update(@NonNull byte[] keyBytes, @NonNull Tile value,
+            @NonNull MessageDigest messageDigest) {
+          messageDigest.update(keyBytes);
+          value.updateDiskCacheKey(messageDigest);
+        }
+      });
+
+  /**
+   * The key of the data tiles are decoded from, used to reuse the {@link BitmapRegionDecoder} for
+   * an image across tiles.
+   *
+   * <p>Glide sets this option when decoding tiles from source data or the data cache, callers
+   * should not usually need to set it.
+   */
+  public static final Option<Key> SOURCE_KEY =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.TileDecoder.SourceKey");
+
+  private static final int MAX_CACHED_REGION_DECODERS = 2;
+
+  private final BitmapPool bitmapPool;
+  private final RegionDecoderCache regionDecoders =
+      new RegionDecoderCache(MAX_CACHED_REGION_DECODERS);
+
+  public TileDecoder(BitmapPool bitmapPool) {
+    this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
+  }
+
+  /**
+   * Recycles the cached {@link BitmapRegionDecoder}s once any decodes using them finish.
+   */
+  public void clearMemory() {
+    regionDecoders.clear();
+  }
+
+  public boolean handles(@NonNull Options options) {
+    return options.get(TILE) != null;
+  }
+
+  /**
+   * Returns the {@link Tile} set in the given options decoded from the given {@link InputStream}.
+   */
+  @Nullable
+  public Resource<Bitmap> decode(@NonNull InputStream is, @NonNull Options options)
+      throws IOException {
+    Key sourceKey = options.get(SOURCE_KEY);
+    RegionDecoderCache.Entry entry = regionDecoders.acquire(sourceKey);
+    if (entry == null) {
+      entry = regionDecoders.put(
+          sourceKey, BitmapRegionDecoder.newInstance(is, false /*isShareable*/));
+    }
+    return decodeAndRelease(entry, options);
+  }
+
+  /**
+   * Returns the {@link Tile} set in the given options decoded from the given {@link ByteBuffer},
+   * decoding heap buffers directly from their backing arrays.
+   */
+  @Nullable
+  public Resource<Bitmap> decode(@NonNull ByteBuffer buffer, @NonNull Options options)
+      throws IOException {
+    Key sourceKey = options.get(SOURCE_KEY);
+    RegionDecoderCache.Entry entry = regionDecoders.acquire(sourceKey);
+    if (entry == null) {
+      BitmapRegionDecoder regionDecoder;
+      if (buffer.hasArray()) {
+        regionDecoder = BitmapRegionDecoder.newInstance(buffer.array(),
+            buffer.arrayOffset() + buffer.position(), buffer.remaining(), false /*isShareable*/);
+      } else {
+        regionDecoder = BitmapRegionDecoder.newInstance(
+            ByteBufferUtil.toStream(buffer), false /*isShareable*/);
+      }
+      entry = regionDecoders.put(sourceKey, regionDecoder);
+    }
+    return decodeAndRelease(entry, options);
+  }
+
+  private Resource<Bitmap> decodeAndRelease(RegionDecoderCache.Entry entry, Options options)
+      throws IOException {
+    try {
+      return decodeTile(entry.regionDecoder, options);
+    } finally {
+      regionDecoders.release(entry);
+    }
+  }
+
+  private Resource<Bitmap> decodeTile(BitmapRegionDecoder regionDecoder, Options options)
+      throws IOException {
+    Tile tile = Preconditions.checkNotNull(options.get(TILE));
+    long startTime = LogTime.getLogTime();
+    int imageWidth = regionDecoder.getWidth();
+    int imageHeight = regionDecoder.getHeight();
+    BitmapFactory.Options bitmapFactoryOptions = new BitmapFactory.Options();
+    bitmapFactoryOptions.inSampleSize = tile.getSampleSize();
+    bitmapFactoryOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    if (isInBitmapSupported(imageWidth, imageHeight, tile)) {
+      setInBitmap(bitmapFactoryOptions, tile);
+    }
+    Bitmap result = null;
+    try {
+      result = decodeRegion(regionDecoder, tile, bitmapFactoryOptions);
+    } finally {
+      Bitmap inBitmap = bitmapFactoryOptions.inBitmap;
+      // decodeRegion returns null or throws without using inBitmap if the region can't be decoded.
+      if (inBitmap != null && result != inBitmap) {
+        bitmapPool.put(inBitmap);
+        bitmapFactoryOptions.inBitmap = null;
+      }
+    }
+
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Decoded " + tile
+          + " of [" + imageWidth + "x" + imageHeight + "]"
+          + " into " + (result == null ? null : result.getWidth() + "x" + result.getHeight())
+          + ", reused bitmap: " + (bitmapFactoryOptions.inBitmap != null)
+          + ", duration: " + LogTime.getElapsedMillis(startTime));
+    }
+    return BitmapResource.obtain(result, bitmapPool);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private void setInBitmap(BitmapFactory.Options options, Tile tile) {
+    // BitmapRegionDecoder clips the decoded region to inBitmap without changing inBitmap's size and
+    // doesn't draw over pixels outside the region, so only exactly sized, cleared Bitmaps are used.
+    options.inBitmap = bitmapPool.get(
+        tile.getSampledWidth(), tile.getSampledHeight(), options.inPreferredConfig);
+  }
+
+  private Bitmap decodeRegion(BitmapRegionDecoder regionDecoder, Tile tile,
+      BitmapFactory.Options options) throws IOException {
+    TransformationUtils.getBitmapDrawableLock().lock();
+    try {
+      return regionDecoder.decodeRegion(tile.toRect(), options);
+    } catch (IllegalArgumentException e) {
+      if (options.inBitmap == null) {
+        throw new IOException("Failed to decode " + tile + " of ["
+            + regionDecoder.getWidth() + "x" + regionDecoder.getHeight() + "]", e);
+      }
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to decode with inBitmap, trying again without Bitmap re-use", e);
+      }
+      bitmapPool.put(options.inBitmap);
+      options.inBitmap = null;
+      return decodeRegion(regionDecoder, tile, options);
+    } finally {
+      TransformationUtils.getBitmapDrawableLock().unlock();
+    }
+  }
+
+  private static boolean isInBitmapSupported(int imageWidth, int imageHeight, Tile tile) {
+    // We can only predict the size of the decoded tile if it's entirely within the image and its
+    // size is divisible by the sample size.
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+        && tile.isSampledSizeExact()
+        && tile.getRight() <= imageWidth
+        && tile.getBottom() <= imageHeight;
+  }
+
+  /**
+   * A small LRU cache of {@link BitmapRegionDecoder}s that recycles each region decoder once it's
+   * been evicted and is no longer being used to decode a tile.
+   */
+  private static final class RegionDecoderCache {
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true /*accessOrder*/);
+    private final int maxSize;
+
+    RegionDecoderCache(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the entry for the given key, which must be released after use, or {@code null} if
+     * there's no cached region decoder for the key.
+     */
+    @Nullable
+    synchronized Entry acquire(@Nullable Key key) {
+      Entry entry = key == null ? null : entries.get(key);
+      if (entry != null) {
+        entry.acquired++;
+      }
+      return entry;
+    }
+
+    /**
+     * Caches the given region decoder if possible and returns an acquired entry for it, which must
+     * be released after use.
+     */
+    @NonNull
+    synchronized Entry put(@Nullable Key key, BitmapRegionDecoder regionDecoder) {
+      Entry entry = new Entry(regionDecoder);
+      entry.acquired++;
+      // Concurrent decodes of the same image may each create a region decoder, only one is kept.
+      if (key == null || entries.containsKey(key)) {
+        entry.isEvicted = true;
+        return entry;
+      }
+      entries.put(key, entry);
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (entries.size() > maxSize) {
+        Entry eldest = iterator.next();
+        iterator.remove();
+        evict(eldest);
+      }
+      return entry;
+    }
+
+    synchronized void release(Entry entry) {
+      entry.acquired--;
+      if (entry.acquired == 0 && entry.isEvicted) {
+        entry.regionDecoder.recycle();
+      }
+    }
+
+    synchronized void clear() {
+      for (Entry entry : entries.values()) {
+        evict(entry);
+      }
+      entries.clear();
+    }
+
+    private static void evict(Entry entry) {
+      entry.isEvicted = true;
+      if (entry.acquired == 0) {
+        entry.regionDecoder.recycle();
+      }
+    }
+
+    static final class Entry {
+      @Synthetic final BitmapRegionDecoder regionDecoder;
+      @Synthetic int acquired;
+      @Synthetic boolean isEvicted;
+
+      @Synthetic
+      Entry(BitmapRegionDecoder regionDecoder) {
+        this.regionDecoder = regionDecoder;
+      }
+    }
+  }
+}
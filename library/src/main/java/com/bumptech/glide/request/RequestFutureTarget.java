@@ -137,14 +137,15 @@ public class RequestFutureTarget<R> implements FutureTarget<R>,
     // Do nothing because we do not retain references to SizeReadyCallbacks.
   }
 
+  // The request may be set on a background thread, see RequestBuilder#submit(int, int).
   @Override
-  public void setRequest(@Nullable Request request) {
+  public synchronized void setRequest(@Nullable Request request) {
     this.request = request;
   }
 
   @Override
   @Nullable
-  public Request getRequest() {
+  public synchronized Request getRequest() {
     return request;
   }
 
@@ -224,10 +225,14 @@ public class RequestFutureTarget<R> implements FutureTarget<R>,
    */
   @Override
   public void run() {
-    if (request != null) {
-      request.clear();
+    Request toClear;
+    synchronized (this) {
+      toClear = request;
       request = null;
     }
+    if (toClear != null) {
+      toClear.clear();
+    }
   }
 
   private void clearOnMainThread() {
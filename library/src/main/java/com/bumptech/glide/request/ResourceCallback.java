@@ -1,5 +1,7 @@
 package com.bumptech.glide.request;
 
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.engine.Resource;
@@ -23,4 +25,23 @@ public interface ResourceCallback {
    * @param e a non-null {@link GlideException}.
    */
   void onLoadFailed(GlideException e);
+
+  /**
+   * An optional interface for {@link ResourceCallback}s that display previews of images while
+   * they're being loaded, see {@link com.bumptech.glide.request.target.ProgressiveTarget}.
+   */
+  interface PreviewCallback {
+
+    /**
+     * Returns {@code true} if previews should be decoded for this callback.
+     */
+    boolean isPreviewRequested();
+
+    /**
+     * Called on the main thread with a preview of a partially loaded image.
+     *
+     * <p>The preview may be shared with other callbacks and must not be recycled.
+     */
+    void onPreviewReady(@NonNull Bitmap preview);
+  }
 }
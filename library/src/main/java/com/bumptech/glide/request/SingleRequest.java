@@ -2,6 +2,7 @@ package com.bumptech.glide.request;
 
 import android.content.Context;
 import android.content.res.Resources.Theme;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
@@ -15,6 +16,7 @@ import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.resource.drawable.DrawableDecoderCompat;
+import com.bumptech.glide.request.target.ProgressiveTarget;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
@@ -29,17 +31,24 @@ import com.bumptech.glide.util.pool.StateVerifier;
  * A {@link Request} that loads a {@link com.bumptech.glide.load.engine.Resource} into a given
  * {@link Target}.
  *
+ * <p>Requests are usually started, notified and cleared on the main thread. Requests for
+ * {@link com.bumptech.glide.request.FutureTarget}s may also be started on the background thread
+ * that submitted them, so that thread builds the key for the load and checks the memory caches,
+ * see {@link Engine#load}. Callbacks are still delivered on the main thread, which may clear the
+ * request while it's starting, so the request's state is guarded by its monitor.
+ *
  * @param <R> The type of the resource that will be transcoded from the loaded resource.
  */
 public final class SingleRequest<R> implements Request,
     SizeReadyCallback,
     ResourceCallback,
+    ResourceCallback.PreviewCallback,
     FactoryPools.Poolable {
   /** Tag for logging internal events, not generally suitable for public use. */
   private static final String TAG = "Request";
   /** Tag for logging externally useful events (request completion, timing etc). */
   private static final String GLIDE_TAG = "Glide";
-  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.simple(150,
+  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.threadSafe(150,
       new FactoryPools.Factory<SingleRequest<?>>() {
         @Override
         public SingleRequest<?> create() {
@@ -106,6 +115,8 @@ public final class SingleRequest<R> implements Request,
   private RequestListener<R> requestListener;
   private Engine engine;
   private TransitionFactory<? super R> animationFactory;
+  @Nullable
+  private Object fairnessGroup;
   private Resource<R> resource;
   private Engine.LoadStatus loadStatus;
   private long startTime;
@@ -130,7 +141,8 @@ public final class SingleRequest<R> implements Request,
       RequestListener<R> requestListener,
       RequestCoordinator requestCoordinator,
       Engine engine,
-      TransitionFactory<? super R> animationFactory) {
+      TransitionFactory<? super R> animationFactory,
+      @Nullable Object fairnessGroup) {
     @SuppressWarnings("unchecked") SingleRequest<R> request =
         (SingleRequest<R>) POOL.acquire();
     if (request == null) {
@@ -150,7 +162,8 @@ public final class SingleRequest<R> implements Request,
         requestListener,
         requestCoordinator,
         engine,
-        animationFactory);
+        animationFactory,
+        fairnessGroup);
     return request;
   }
 
@@ -174,7 +187,8 @@ public final class SingleRequest<R> implements Request,
       RequestListener<R> requestListener,
       RequestCoordinator requestCoordinator,
       Engine engine,
-      TransitionFactory<? super R> animationFactory) {
+      TransitionFactory<? super R> animationFactory,
+      @Nullable Object fairnessGroup) {
     this.context = context;
     this.glideContext = glideContext;
     this.model = model;
@@ -189,6 +203,7 @@ public final class SingleRequest<R> implements Request,
     this.requestCoordinator = requestCoordinator;
     this.engine = engine;
     this.animationFactory = animationFactory;
+    this.fairnessGroup = fairnessGroup;
     status = Status.PENDING;
   }
 
@@ -199,7 +214,7 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public void recycle() {
+  public synchronized void recycle() {
     assertNotCallingCallbacks();
     context = null;
     glideContext = null;
@@ -213,6 +228,7 @@ public final class SingleRequest<R> implements Request,
     targetListener = null;
     requestCoordinator = null;
     animationFactory = null;
+    fairnessGroup = null;
     loadStatus = null;
     errorDrawable = null;
     placeholderDrawable = null;
@@ -223,7 +239,7 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public void begin() {
+  public synchronized void begin() {
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
     startTime = LogTime.getLogTime();
@@ -281,7 +297,7 @@ public final class SingleRequest<R> implements Request,
    *
    * @see #clear()
    */
-  void cancel() {
+  synchronized void cancel() {
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
     target.removeCallback(this);
@@ -311,7 +327,7 @@ public final class SingleRequest<R> implements Request,
    * @see #cancel()
    */
   @Override
-  public void clear() {
+  public synchronized void clear() {
     Util.assertMainThread();
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
@@ -331,12 +347,12 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public boolean isPaused() {
+  public synchronized boolean isPaused() {
     return status == Status.PAUSED;
   }
 
   @Override
-  public void pause() {
+  public synchronized void pause() {
     clear();
     status = Status.PAUSED;
   }
@@ -347,27 +363,27 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public boolean isRunning() {
+  public synchronized boolean isRunning() {
     return status == Status.RUNNING || status == Status.WAITING_FOR_SIZE;
   }
 
   @Override
-  public boolean isComplete() {
+  public synchronized boolean isComplete() {
     return status == Status.COMPLETE;
   }
 
   @Override
-  public boolean isResourceSet() {
+  public synchronized boolean isResourceSet() {
     return isComplete();
   }
 
   @Override
-  public boolean isCancelled() {
+  public synchronized boolean isCancelled() {
     return status == Status.CANCELLED || status == Status.CLEARED;
   }
 
   @Override
-  public boolean isFailed() {
+  public synchronized boolean isFailed() {
     return status == Status.FAILED;
   }
 
@@ -431,7 +447,7 @@ public final class SingleRequest<R> implements Request,
    * A callback method that should never be invoked directly.
    */
   @Override
-  public void onSizeReady(int width, int height) {
+  public synchronized void onSizeReady(int width, int height) {
     stateVerifier.throwIfRecycled();
     if (IS_VERBOSE_LOGGABLE) {
       logV("Got onSizeReady in " + LogTime.getElapsedMillis(startTime));
@@ -466,6 +482,7 @@ public final class SingleRequest<R> implements Request,
         requestOptions.getUseUnlimitedSourceGeneratorsPool(),
         requestOptions.getUseAnimationPool(),
         requestOptions.getOnlyRetrieveFromCache(),
+        fairnessGroup,
         this);
 
     // This is a hack that's only useful for testing right now where loads complete synchronously
@@ -511,12 +528,28 @@ public final class SingleRequest<R> implements Request,
     }
   }
 
+  @Override
+  public boolean isPreviewRequested() {
+    return target instanceof ProgressiveTarget;
+  }
+
+  /**
+   * A callback method that should never be invoked directly.
+   */
+  @Override
+  public synchronized void onPreviewReady(@NonNull Bitmap preview) {
+    stateVerifier.throwIfRecycled();
+    if (status == Status.RUNNING && target instanceof ProgressiveTarget && canSetResource()) {
+      ((ProgressiveTarget) target).onPreviewReady(preview);
+    }
+  }
+
   /**
    * A callback method that should never be invoked directly.
    */
   @SuppressWarnings("unchecked")
   @Override
-  public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+  public synchronized void onResourceReady(Resource<?> resource, DataSource dataSource) {
     stateVerifier.throwIfRecycled();
     loadStatus = null;
     if (resource == null) {
@@ -589,7 +622,7 @@ public final class SingleRequest<R> implements Request,
    * A callback method that should never be invoked directly.
    */
   @Override
-  public void onLoadFailed(GlideException e) {
+  public synchronized void onLoadFailed(GlideException e) {
     onLoadFailed(e, Log.WARN);
   }
 
@@ -0,0 +1,22 @@
+package com.bumptech.glide.request.target;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.support.annotation.NonNull;
+import android.widget.ImageView;
+
+/**
+ * A {@link DrawableImageViewTarget} that displays previews of progressive JPEGs while they load.
+ */
+public class ProgressiveImageViewTarget extends DrawableImageViewTarget
+    implements ProgressiveTarget {
+
+  public ProgressiveImageViewTarget(ImageView view) {
+    super(view);
+  }
+
+  @Override
+  public void onPreviewReady(@NonNull Bitmap preview) {
+    view.setImageDrawable(new BitmapDrawable(view.getResources(), preview));
+  }
+}
@@ -0,0 +1,25 @@
+package com.bumptech.glide.request.target;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+/**
+ * An optional interface for {@link Target}s that display lower quality previews of progressive
+ * JPEGs while they're loaded from a remote source, before the complete image is decoded and passed
+ * to {@link Target#onResourceReady(Object, com.bumptech.glide.request.transition.Transition)}.
+ *
+ * <p>Previews are decoded at the end of each scan of the image received so far, downsampled to
+ * roughly the size of the target, and aren't transformed. They're only decoded for progressive
+ * JPEGs loaded from {@link com.bumptech.glide.load.DataSource#REMOTE} sources, so targets must not
+ * rely on receiving any.
+ */
+public interface ProgressiveTarget {
+
+  /**
+   * Called on the main thread with a preview of the partially loaded image.
+   *
+   * <p>The preview may be shared with other targets loading the same image and must not be
+   * recycled.
+   */
+  void onPreviewReady(@NonNull Bitmap preview);
+}
@@ -0,0 +1,269 @@
+package com.bumptech.glide.request.target;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.resource.bitmap.Tile;
+import com.bumptech.glide.load.resource.bitmap.TileDecoder;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the {@link Tile}s of a single large image that are needed to display the visible part of
+ * the image at the current scale, for example in a zoomable photo viewer.
+ *
+ * <p>Each time the viewport changes, tiles that intersect the visible region are loaded at
+ * {@link Priority#HIGH}, starting from the center of the viewport. Tiles in a one tile wide ring
+ * around the visible region are prefetched at {@link Priority#LOW}. Prefetched tiles that become
+ * visible before they've loaded are requested again at {@link Priority#HIGH}. Requests for tiles
+ * that are no longer needed are cleared, which returns them to the memory cache so that panning
+ * back is cheap.
+ *
+ * <p>The given {@link RequestBuilder} is used as a template for each tile and should not apply any
+ * {@link com.bumptech.glide.load.Transformation}s:
+ *
+ * <pre>
+ * {@code
+ * TiledTarget tiledTarget = new TiledTarget(requestManager,
+ *     requestManager.asBitmap().load(uri), imageWidth, imageHeight, callback);
+ * tiledTarget.setViewport(visibleImageRegion, scale);
+ * }
+ * </pre>
+ *
+ * <p>All methods must be called on the main thread.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class TiledTarget {
+  /**
+   * The default width and height in pixels of decoded tiles.
+   *
+   * <p>A power of two so that the regions of all tiles other than those along the right and bottom
+   * edges of the image are divisible by any sample size, which allows their {@link Bitmap}s to be
+   * reused from the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool}.
+   */
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  /**
+   * Receives decoded tiles.
+   */
+  public interface Callback {
+    /**
+     * Called when the given tile is available and should be drawn.
+     */
+    void onTileReady(@NonNull Tile tile, @NonNull Bitmap bitmap);
+
+    /**
+     * Called when the given tile was cleared, after which its {@link Bitmap} must no longer be
+     * drawn.
+     */
+    void onTileCleared(@NonNull Tile tile);
+  }
+
+  private final Map<Tile, TileTarget> targets = new HashMap<>();
+  private final RequestManager requestManager;
+  private final RequestBuilder<Bitmap> requestBuilder;
+  private final int imageWidth;
+  private final int imageHeight;
+  private final int tileSize;
+  @Synthetic final Callback callback;
+
+  /**
+   * Creates a target that uses {@link #DEFAULT_TILE_SIZE}.
+   *
+   * @see #TiledTarget(RequestManager, RequestBuilder, int, int, int, Callback)
+   */
+  public TiledTarget(@NonNull RequestManager requestManager,
+      @NonNull RequestBuilder<Bitmap> requestBuilder, int imageWidth, int imageHeight,
+      @NonNull Callback callback) {
+    this(requestManager, requestBuilder, imageWidth, imageHeight, DEFAULT_TILE_SIZE, callback);
+  }
+
+  /**
+   * @param requestManager The {@link RequestManager} used to clear tiles that are no longer needed.
+   * @param requestBuilder The request for the image, cloned for each tile.
+   * @param imageWidth     The width of the encoded image in pixels, without exif orientation.
+   * @param imageHeight    The height of the encoded image in pixels, without exif orientation.
+   * @param tileSize       The width and height in pixels of decoded tiles.
+   * @param callback       The callback to notify when tiles are ready or cleared.
+   */
+  public TiledTarget(@NonNull RequestManager requestManager,
+      @NonNull RequestBuilder<Bitmap> requestBuilder, int imageWidth, int imageHeight,
+      int tileSize, @NonNull Callback callback) {
+    Preconditions.checkArgument(imageWidth > 0 && imageHeight > 0 && tileSize > 0,
+        "Image and tile sizes must be > 0, but given image: [" + imageWidth + "x" + imageHeight
+            + "], tile size: " + tileSize);
+    this.requestManager = Preconditions.checkNotNull(requestManager);
+    this.requestBuilder = Preconditions.checkNotNull(requestBuilder);
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+    this.tileSize = tileSize;
+    this.callback = Preconditions.checkNotNull(callback);
+  }
+
+  /**
+   * Loads the tiles needed to display the given region of the image at the given scale and clears
+   * any tiles that are no longer needed.
+   *
+   * @param visibleRegion The visible region in pixels of the encoded image.
+   * @param scale         The ratio of the displayed size to the size of the encoded image, which
+   *                      determines the sample size tiles are decoded with.
+   */
+  public void setViewport(@NonNull Rect visibleRegion, float scale) {
+    Util.assertMainThread();
+    Preconditions.checkArgument(scale > 0, "Scale must be > 0, but given: " + scale);
+    int sampleSize = getSampleSize(scale);
+    List<Tile> visibleTiles =
+        getTiles(imageWidth, imageHeight, tileSize, sampleSize, visibleRegion);
+    int margin = tileSize * sampleSize;
+    Rect prefetchRegion = new Rect(visibleRegion.left - margin, visibleRegion.top - margin,
+        visibleRegion.right + margin, visibleRegion.bottom + margin);
+    List<Tile> prefetchTiles =
+        getTiles(imageWidth, imageHeight, tileSize, sampleSize, prefetchRegion);
+
+    Set<Tile> neededTiles = new HashSet<>(prefetchTiles);
+    Iterator<Map.Entry<Tile, TileTarget>> iterator = targets.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Tile, TileTarget> entry = iterator.next();
+      if (!neededTiles.contains(entry.getKey())) {
+        iterator.remove();
+        requestManager.clear(entry.getValue());
+      }
+    }
+
+    for (Tile tile : visibleTiles) {
+      load(tile, Priority.HIGH);
+    }
+    for (Tile tile : prefetchTiles) {
+      load(tile, Priority.LOW);
+    }
+  }
+
+  /**
+   * Clears all tiles.
+   */
+  public void clear() {
+    Util.assertMainThread();
+    List<TileTarget> toClear = new ArrayList<>(targets.values());
+    targets.clear();
+    for (TileTarget target : toClear) {
+      requestManager.clear(target);
+    }
+  }
+
+  private void load(Tile tile, Priority priority) {
+    TileTarget existing = targets.get(tile);
+    if (existing != null) {
+      // Lower ordinals are higher priorities.
+      if (existing.isReady || existing.priority.ordinal() <= priority.ordinal()) {
+        return;
+      }
+      // Clearing the prefetch cancels it, so the tile is decoded at the new priority instead.
+      requestManager.clear(existing);
+    }
+    TileTarget target = new TileTarget(tile, priority);
+    targets.put(tile, target);
+    requestBuilder.clone()
+        .apply(new RequestOptions()
+            .set(TileDecoder.TILE, tile)
+            .priority(priority))
+        .into(target);
+  }
+
+  /**
+   * Returns the largest power of two sample size that decodes the image at no less than the given
+   * scale.
+   */
+  static int getSampleSize(float scale) {
+    if (scale >= 1f) {
+      return 1;
+    }
+    return Math.max(1, Integer.highestOneBit((int) (1f / scale)));
+  }
+
+  /**
+   * Returns the tiles that intersect the given region, sorted by the distance of their centers from
+   * the center of the region.
+   */
+  static List<Tile> getTiles(int imageWidth, int imageHeight, int tileSize, int sampleSize,
+      Rect region) {
+    int left = Math.max(0, region.left);
+    int top = Math.max(0, region.top);
+    int right = Math.min(imageWidth, region.right);
+    int bottom = Math.min(imageHeight, region.bottom);
+    if (left >= right || top >= bottom) {
+      return Collections.emptyList();
+    }
+
+    int extent = tileSize * sampleSize;
+    List<Tile> result = new ArrayList<>();
+    for (int row = top / extent; row <= (bottom - 1) / extent; row++) {
+      for (int column = left / extent; column <= (right - 1) / extent; column++) {
+        result.add(new Tile(column * extent, row * extent,
+            Math.min((column + 1) * extent, imageWidth), Math.min((row + 1) * extent, imageHeight),
+            sampleSize));
+      }
+    }
+
+    final long doubledCenterX = region.left + (long) region.right;
+    final long doubledCenterY = region.top + (long) region.bottom;
+    Collections.sort(result, new Comparator<Tile>() {
+      @Override
+      public int compare(Tile first, Tile second) {
+        long firstDistance = distanceSquared(first, doubledCenterX, doubledCenterY);
+        long secondDistance = distanceSquared(second, doubledCenterX, doubledCenterY);
+        return firstDistance < secondDistance ? -1 : (firstDistance == secondDistance ? 0 : 1);
+      }
+    });
+    return result;
+  }
+
+  // Compares doubled coordinates to avoid rounding the centers.
+  static long distanceSquared(Tile tile, long doubledCenterX, long doubledCenterY) {
+    long deltaX = tile.getLeft() + (long) tile.getRight() - doubledCenterX;
+    long deltaY = tile.getTop() + (long) tile.getBottom() - doubledCenterY;
+    return deltaX * deltaX + deltaY * deltaY;
+  }
+
+  private final class TileTarget extends SimpleTarget<Bitmap> {
+    private final Tile tile;
+    @Synthetic final Priority priority;
+    @Synthetic boolean isReady;
+
+    TileTarget(Tile tile, Priority priority) {
+      super(tile.getSampledWidth(), tile.getSampledHeight());
+      this.tile = tile;
+      this.priority = priority;
+    }
+
+    @Override
+    public void onResourceReady(@NonNull Bitmap resource,
+        @Nullable Transition<? super Bitmap> transition) {
+      isReady = true;
+      callback.onTileReady(tile, resource);
+    }
+
+    @Override
+    public void onLoadCleared(@Nullable Drawable placeholder) {
+      isReady = false;
+      callback.onTileCleared(tile);
+    }
+  }
+}
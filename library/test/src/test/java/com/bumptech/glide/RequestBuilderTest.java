@@ -5,6 +5,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,6 +26,7 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 @SuppressWarnings("unchecked")
 @RunWith(RobolectricTestRunner.class)
@@ -112,6 +114,37 @@ public class RequestBuilderTest {
     });
   }
 
+  @Test
+  public void submit_onBackgroundThread_tracksRequestOnBackgroundThread()
+      throws InterruptedException {
+    final RequestBuilder<Object> builder = getNullModelRequest().load(new Object());
+    testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        builder.submit();
+      }
+    });
+
+    verify(requestManager).track(isA(Target.class), isA(Request.class));
+  }
+
+  @Test
+  public void submit_onBackgroundThread_withNullModel_tracksRequestOnMainThread()
+      throws InterruptedException {
+    final RequestBuilder<Object> builder = getNullModelRequest();
+    ShadowLooper.pauseMainLooper();
+    testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        builder.submit();
+      }
+    });
+
+    verify(requestManager, never()).track(any(Target.class), any(Request.class));
+    ShadowLooper.runUiThreadTasks();
+    verify(requestManager).track(isA(Target.class), isA(Request.class));
+  }
+
   private RequestBuilder<Object> getNullModelRequest() {
     when(glideContext.buildImageViewTarget(isA(ImageView.class), isA(Class.class)))
         .thenReturn(mock(ViewTarget.class));
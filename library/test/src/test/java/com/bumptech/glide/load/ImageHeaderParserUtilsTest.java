@@ -0,0 +1,203 @@
+package com.bumptech.glide.load;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.resource.bitmap.RecyclableBufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ImageHeaderParserUtilsTest {
+  private static final byte[] DATA = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+  private ArrayPool byteArrayPool;
+
+  @Before
+  public void setUp() {
+    byteArrayPool = new LruArrayPool();
+  }
+
+  @Test
+  public void getHeaderInfo_withHeaderInfoParser_returnsParsedHeaderInfo() throws IOException {
+    FakeHeaderInfoParser parser =
+        new FakeHeaderInfoParser(new ImageHeaderInfo(ImageType.JPEG, 6, 100, 200));
+
+    ImageHeaderInfo info = ImageHeaderParserUtils.getHeaderInfo(
+        Collections.<ImageHeaderParser>singletonList(parser), newStream(), byteArrayPool);
+
+    assertThat(info.getType()).isEqualTo(ImageType.JPEG);
+    assertThat(info.getOrientation()).isEqualTo(6);
+    assertThat(info.getWidth()).isEqualTo(100);
+    assertThat(info.getHeight()).isEqualTo(200);
+    assertThat(parser.headerInfoCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void getHeaderInfo_withParserWithoutHeaderInfo_returnsTypeAndOrientation()
+      throws IOException {
+    ImageHeaderInfo info = ImageHeaderParserUtils.getHeaderInfo(
+        Collections.<ImageHeaderParser>singletonList(new FakeParser(ImageType.PNG, 3)),
+        newStream(), byteArrayPool);
+
+    assertThat(info.getType()).isEqualTo(ImageType.PNG);
+    assertThat(info.getOrientation()).isEqualTo(3);
+    assertThat(info.hasDimensions()).isFalse();
+  }
+
+  @Test
+  public void getHeaderInfo_withMultipleParsers_returnsFirstKnownValueOfEach()
+      throws IOException {
+    FakeHeaderInfoParser first = new FakeHeaderInfoParser(new ImageHeaderInfo(ImageType.JPEG,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, 100, 200));
+    FakeParser second = new FakeParser(ImageType.PNG, 8);
+    FakeParser third = new FakeParser(ImageType.GIF, 3);
+
+    ImageHeaderInfo info = ImageHeaderParserUtils.getHeaderInfo(
+        Arrays.<ImageHeaderParser>asList(first, second, third), newStream(), byteArrayPool);
+
+    assertThat(info.getType()).isEqualTo(ImageType.JPEG);
+    assertThat(info.getOrientation()).isEqualTo(8);
+    assertThat(info.getWidth()).isEqualTo(100);
+    assertThat(third.calls).isEqualTo(0);
+  }
+
+  @Test
+  public void getHeaderInfo_withRecyclableBufferedInputStream_memoizesResult()
+      throws IOException {
+    FakeHeaderInfoParser parser =
+        new FakeHeaderInfoParser(new ImageHeaderInfo(ImageType.JPEG, 6, 100, 200));
+    List<ImageHeaderParser> parsers = Collections.<ImageHeaderParser>singletonList(parser);
+    RecyclableBufferedInputStream is = newStream();
+
+    ImageHeaderInfo first = ImageHeaderParserUtils.getHeaderInfo(parsers, is, byteArrayPool);
+    ImageHeaderInfo second = ImageHeaderParserUtils.getHeaderInfo(parsers, is, byteArrayPool);
+
+    assertThat(second).isSameAs(first);
+    assertThat(parser.headerInfoCalls).isEqualTo(1);
+    assertThat(ImageHeaderParserUtils.getType(parsers, is, byteArrayPool))
+        .isEqualTo(ImageType.JPEG);
+    assertThat(ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool)).isEqualTo(6);
+    assertThat(parser.calls).isEqualTo(0);
+  }
+
+  @Test
+  public void getHeaderInfo_withMemo_memoizesResultOnMemo() throws IOException {
+    FakeHeaderInfoParser parser =
+        new FakeHeaderInfoParser(new ImageHeaderInfo(ImageType.JPEG, 6, 100, 200));
+    List<ImageHeaderParser> parsers = Collections.<ImageHeaderParser>singletonList(parser);
+    RecyclableBufferedInputStream memo = newStream();
+
+    ImageHeaderInfo first =
+        ImageHeaderParserUtils.getHeaderInfo(parsers, newStream(), memo, byteArrayPool);
+    ImageHeaderInfo second =
+        ImageHeaderParserUtils.getHeaderInfo(parsers, newStream(), memo, byteArrayPool);
+
+    assertThat(memo.getImageHeaderInfo()).isSameAs(first);
+    assertThat(second).isSameAs(first);
+    assertThat(parser.headerInfoCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void getHeaderInfo_withByteBuffer_doesNotMoveBuffer() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA);
+    ImageHeaderParserUtils.getHeaderInfo(
+        Collections.<ImageHeaderParser>singletonList(new FakeParser(ImageType.PNG, 3)),
+        buffer, byteArrayPool);
+
+    assertThat(buffer.position()).isEqualTo(0);
+  }
+
+  @Test
+  public void getHeaderInfo_withNullStream_returnsUnknown() throws IOException {
+    assertThat(ImageHeaderParserUtils.getHeaderInfo(new ArrayList<ImageHeaderParser>(),
+        (InputStream) null, byteArrayPool)).isSameAs(ImageHeaderInfo.UNKNOWN);
+  }
+
+  private RecyclableBufferedInputStream newStream() {
+    return new RecyclableBufferedInputStream(new ByteArrayInputStream(DATA), byteArrayPool);
+  }
+
+  private static class FakeParser implements ImageHeaderParser {
+    private final ImageType type;
+    private final int orientation;
+    int calls;
+
+    FakeParser(ImageType type, int orientation) {
+      this.type = type;
+      this.orientation = orientation;
+    }
+
+    @NonNull
+    @Override
+    public ImageType getType(@NonNull InputStream is) throws IOException {
+      calls++;
+      is.read();
+      return type;
+    }
+
+    @NonNull
+    @Override
+    public ImageType getType(@NonNull ByteBuffer byteBuffer) {
+      calls++;
+      byteBuffer.get();
+      return type;
+    }
+
+    @Override
+    public int getOrientation(@NonNull InputStream is, @NonNull ArrayPool byteArrayPool)
+        throws IOException {
+      calls++;
+      is.read();
+      return orientation;
+    }
+
+    @Override
+    public int getOrientation(@NonNull ByteBuffer byteBuffer, @NonNull ArrayPool byteArrayPool) {
+      calls++;
+      byteBuffer.get();
+      return orientation;
+    }
+  }
+
+  private static final class FakeHeaderInfoParser extends FakeParser
+      implements ImageHeaderParser.HeaderInfoParser {
+    private final ImageHeaderInfo headerInfo;
+    int headerInfoCalls;
+
+    FakeHeaderInfoParser(ImageHeaderInfo headerInfo) {
+      super(headerInfo.getType(), headerInfo.getOrientation());
+      this.headerInfo = headerInfo;
+    }
+
+    @NonNull
+    @Override
+    public ImageHeaderInfo getHeaderInfo(@NonNull InputStream is,
+        @NonNull ArrayPool byteArrayPool) {
+      headerInfoCalls++;
+      return headerInfo;
+    }
+
+    @NonNull
+    @Override
+    public ImageHeaderInfo getHeaderInfo(@NonNull ByteBuffer byteBuffer,
+        @NonNull ArrayPool byteArrayPool) {
+      headerInfoCalls++;
+      return headerInfo;
+    }
+  }
+}
@@ -3,8 +3,10 @@ package com.bumptech.glide.load.engine;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.bumptech.glide.load.Key;
@@ -361,6 +363,86 @@ public class ActiveResourcesTest {
     verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
   }
 
+  @Test
+  public void drainClearedReferences_withBatchedCleanup_callsListenerForEnqueuedReference() {
+    resources = newBatchedActiveResources();
+    EngineResource<Object> engineResource =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, engineResource);
+    resources.activeEngineResources.get(key).enqueue();
+
+    resources.drainClearedReferences();
+
+    verify(listener).onResourceReleased(eq(key), any(EngineResource.class));
+    assertThat(resources.activeEngineResources).isEmpty();
+  }
+
+  @Test
+  public void drainClearedReferences_withBatchedCleanup_drainsAllEnqueuedReferences() {
+    resources = newBatchedActiveResources();
+    Key otherKey = mock(Key.class);
+    resources.activate(
+        key, new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activate(
+        otherKey, new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    resources.activeEngineResources.get(key).enqueue();
+    resources.activeEngineResources.get(otherKey).enqueue();
+
+    resources.drainClearedReferences();
+
+    verify(listener).onResourceReleased(eq(key), any(EngineResource.class));
+    verify(listener).onResourceReleased(eq(otherKey), any(EngineResource.class));
+  }
+
+  @Test
+  public void drainClearedReferences_withBatchedCleanup_andDeactivatedKey_doesNotCallListener() {
+    resources = newBatchedActiveResources();
+    resources.activate(
+        key, new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+    ResourceWeakReference weakRef = resources.activeEngineResources.get(key);
+    resources.deactivate(key);
+    weakRef.enqueue();
+
+    resources.drainClearedReferences();
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+  }
+
+  @Test
+  public void drainClearedReferences_withBatchedCleanup_beforeAnyReferenceIsEnqueued_doesNothing() {
+    resources = newBatchedActiveResources();
+    resources.activate(
+        key, new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true));
+
+    resources.drainClearedReferences();
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertThat(resources.activeEngineResources).containsKey(key);
+  }
+
+  @Test
+  public void drainClearedReferences_withoutBatchedCleanup_leavesReferencesForQueueThread() {
+    EngineResource<Object> engineResource =
+        new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    resources.activate(key, engineResource);
+    ResourceWeakReference weakRef = resources.activeEngineResources.get(key);
+    CountDownLatch latch = getLatchForClearedRef();
+    weakRef.enqueue();
+
+    resources.drainClearedReferences();
+    waitForLatch(latch);
+
+    verify(listener, times(1)).onResourceReleased(eq(key), any(EngineResource.class));
+  }
+
+  private ActiveResources newBatchedActiveResources() {
+    resources.shutdown();
+    ActiveResources result = new ActiveResources(
+        /*isActiveResourceRetentionAllowed=*/ true, /*isCleanupBatched=*/ true);
+    result.setListener(listener);
+    return result;
+  }
+
   private void enqueueAndWaitForRef(ResourceWeakReference ref) {
     CountDownLatch latch = getLatchForClearedRef();
     ref.enqueue();
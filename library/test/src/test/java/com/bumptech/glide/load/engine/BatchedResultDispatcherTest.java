@@ -0,0 +1,92 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.tests.BackgroundUtil;
+import com.bumptech.glide.tests.BackgroundUtil.BackgroundTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class BatchedResultDispatcherTest {
+  private BatchedResultDispatcher dispatcher;
+  private EngineJob<?> first;
+  private EngineJob<?> second;
+
+  @Before
+  public void setUp() {
+    ShadowLooper.pauseMainLooper();
+    dispatcher = new BatchedResultDispatcher(/*maxLatencyMillis=*/ 16);
+    first = mock(EngineJob.class);
+    second = mock(EngineJob.class);
+  }
+
+  @After
+  public void tearDown() {
+    ShadowLooper.unPauseMainLooper();
+  }
+
+  @Test
+  public void dispatch_doesNotDeliverSynchronously() {
+    dispatcher.dispatch(first);
+
+    verify(first, never()).handleCompletedOnMainThread();
+  }
+
+  @Test
+  public void dispatch_withMultipleJobs_postsSingleMessage() {
+    dispatcher.dispatch(first);
+    dispatcher.dispatch(second);
+
+    assertThat(ShadowLooper.getShadowMainLooper().getScheduler().size()).isEqualTo(1);
+  }
+
+  @Test
+  public void dispatch_withMultipleJobs_deliversAllInOrder() {
+    dispatcher.dispatch(first);
+    dispatcher.dispatch(second);
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    InOrder order = inOrder(first, second);
+    order.verify(first).handleCompletedOnMainThread();
+    order.verify(second).handleCompletedOnMainThread();
+  }
+
+  @Test
+  public void dispatch_onBackgroundThread_deliversOnMainThread() throws InterruptedException {
+    BackgroundUtil.testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        dispatcher.dispatch(first);
+      }
+    });
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    verify(first).handleCompletedOnMainThread();
+  }
+
+  @Test
+  public void dispatch_afterBatchIsDelivered_startsNewBatch() {
+    dispatcher.dispatch(first);
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    dispatcher.dispatch(second);
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    verify(first).handleCompletedOnMainThread();
+    verify(second).handleCompletedOnMainThread();
+  }
+}
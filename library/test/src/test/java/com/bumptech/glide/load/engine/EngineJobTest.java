@@ -6,6 +6,7 @@ import static com.bumptech.glide.tests.Util.mockResource;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doAnswer;
@@ -16,6 +17,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.graphics.Bitmap;
 import android.os.Handler;
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.DataSource;
@@ -25,6 +27,8 @@ import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -56,6 +60,29 @@ public class EngineJobTest {
     verify(harness.cb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
   }
 
+  @Test
+  public void onResourceReady_withResultDispatcher_passesResourceToCallbacks() {
+    harness.resultDispatcher = new BatchedResultDispatcher(/*maxLatencyMillis=*/ 16);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.onResourceReady(harness.resource, harness.dataSource);
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    verify(harness.cb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+  }
+
+  @Test
+  public void onLoadFailed_withResultDispatcher_passesExceptionToCallbacks() {
+    harness.resultDispatcher = new BatchedResultDispatcher(/*maxLatencyMillis=*/ 16);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    GlideException exception = new GlideException("test");
+    job.onLoadFailed(exception);
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    verify(harness.cb).onLoadFailed(eq(exception));
+  }
+
   @Test
   public void testListenerNotifiedJobCompleteOnOnResourceReady() {
     EngineJob<Object> job = harness.getJob();
@@ -413,6 +440,135 @@ public class EngineJobTest {
     verify(harness.decodeJob).cancel();
   }
 
+  @Test
+  public void cancel_withQueuedDecodeJobThatHasNotRun_removesAndReleasesDecodeJob() {
+    ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+    when(executor.remove(harness.decodeJob)).thenReturn(true);
+    harness.diskCacheService = MockGlideExecutor.newTestExecutor(executor);
+    when(harness.decodeJob.willDecodeFromCache()).thenReturn(true);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    job.cancel();
+
+    verify(harness.decodeJob).release(true /*isRemovedFromQueue*/);
+    verify(harness.listener).onEngineJobCancelled(eq(job), eq(harness.key));
+  }
+
+  @Test
+  public void cancel_withDecodeJobThatHasRun_doesNotRemoveDecodeJob() {
+    ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+    harness.diskCacheService = MockGlideExecutor.newTestExecutor(executor);
+    when(harness.decodeJob.willDecodeFromCache()).thenReturn(true);
+    when(harness.decodeJob.hasRun()).thenReturn(true);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    job.cancel();
+
+    verify(executor, never()).remove(any(Runnable.class));
+    verify(harness.decodeJob, never()).release(anyBoolean());
+  }
+
+  @Test
+  public void cancel_withDecodeJobThatRunsWhileBeingRemoved_requeuesDecodeJob() {
+    ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+    when(executor.remove(harness.decodeJob)).thenReturn(true);
+    harness.diskCacheService = MockGlideExecutor.newTestExecutor(executor);
+    when(harness.decodeJob.willDecodeFromCache()).thenReturn(true);
+    when(harness.decodeJob.hasRun()).thenReturn(false, true);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    job.cancel();
+
+    verify(executor, times(2)).execute(harness.decodeJob);
+    verify(harness.decodeJob, never()).release(anyBoolean());
+  }
+
+  @Test
+  public void onPreviewReady_withPreviewCallback_passesPreviewOnlyToPreviewCallbacks() {
+    EngineJob<Object> job = harness.getJob();
+    PreviewResourceCallback previewCallback = mock(PreviewResourceCallback.class);
+    job.addCallback(previewCallback);
+    job.start(harness.decodeJob);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    job.onPreviewReady(preview);
+    ShadowLooper.runUiThreadTasks();
+
+    verify(previewCallback).onPreviewReady(eq(preview));
+    assertFalse(preview.isRecycled());
+  }
+
+  @Test
+  public void onPreviewReady_afterResourceReady_recyclesPreview() {
+    ShadowLooper shadowLooper = Shadows.shadowOf(harness.mainHandler.getLooper());
+    shadowLooper.pause();
+    EngineJob<Object> job = harness.getJob();
+    PreviewResourceCallback previewCallback = mock(PreviewResourceCallback.class);
+    job.addCallback(previewCallback);
+    job.start(harness.decodeJob);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    job.onResourceReady(harness.resource, harness.dataSource);
+    job.onPreviewReady(preview);
+    shadowLooper.runToEndOfTasks();
+
+    verify(previewCallback).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    verify(previewCallback, never()).onPreviewReady(any(Bitmap.class));
+    assertTrue(preview.isRecycled());
+  }
+
+  @Test
+  public void onPreviewReady_afterCancel_recyclesPreview() {
+    ShadowLooper shadowLooper = Shadows.shadowOf(harness.mainHandler.getLooper());
+    shadowLooper.pause();
+    when(harness.decodeJob.hasRun()).thenReturn(true);
+    EngineJob<Object> job = harness.getJob();
+    PreviewResourceCallback previewCallback = mock(PreviewResourceCallback.class);
+    job.addCallback(previewCallback);
+    job.start(harness.decodeJob);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    job.onPreviewReady(preview);
+    job.cancel();
+    shadowLooper.runToEndOfTasks();
+
+    verify(previewCallback, never()).onPreviewReady(any(Bitmap.class));
+    assertTrue(preview.isRecycled());
+  }
+
+  @Test
+  public void onPreviewReady_fromLoadBeforeJobWasReleasedAndReused_recyclesPreview() {
+    ShadowLooper shadowLooper = Shadows.shadowOf(harness.mainHandler.getLooper());
+    shadowLooper.pause();
+    ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+    when(executor.remove(harness.decodeJob)).thenReturn(true);
+    harness.diskCacheService = MockGlideExecutor.newTestExecutor(executor);
+    when(harness.decodeJob.willDecodeFromCache()).thenReturn(true);
+    EngineJob<Object> job = harness.getJob();
+    job.addCallback(mock(PreviewResourceCallback.class));
+    job.start(harness.decodeJob);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    job.onPreviewReady(preview);
+    // Releases the job immediately because its decode job hasn't run yet.
+    job.cancel();
+    job.init(
+        harness.key,
+        harness.isCacheable,
+        harness.useUnlimitedSourceGeneratorPool,
+        harness.useAnimationPool,
+        harness.onlyRetrieveFromCache);
+    PreviewResourceCallback newCallback = mock(PreviewResourceCallback.class);
+    job.addCallback(newCallback);
+    shadowLooper.runToEndOfTasks();
+
+    verify(newCallback, never()).onPreviewReady(any(Bitmap.class));
+    assertTrue(preview.isRecycled());
+  }
+
   @Test
   public void testSubmitsDecodeJobToSourceServiceOnSubmitForSource() {
     EngineJob<Object> job = harness.getJob();
@@ -422,6 +578,47 @@ public class EngineJobTest {
     verify(harness.decodeJob).run();
   }
 
+  @Test
+  public void reschedule_withDecodeExecutorAndRetrievedData_submitsDecodeJobToDecodeExecutor() {
+    ExecutorService decodeService = mock(ExecutorService.class);
+    harness.sourceService =
+        MockGlideExecutor.newMainThreadExecutor(MockGlideExecutor.newTestExecutor(decodeService));
+    when(harness.decodeJob.willDecodeRetrievedData()).thenReturn(true);
+    EngineJob<Object> job = harness.getJob();
+
+    job.reschedule(harness.decodeJob);
+
+    verify(decodeService).execute(harness.decodeJob);
+    verify(harness.decodeJob, never()).run();
+  }
+
+  @Test
+  public void reschedule_withDecodeExecutorAndNoRetrievedData_submitsDecodeJobToSourceService() {
+    ExecutorService decodeService = mock(ExecutorService.class);
+    harness.sourceService =
+        MockGlideExecutor.newMainThreadExecutor(MockGlideExecutor.newTestExecutor(decodeService));
+    when(harness.decodeJob.willDecodeRetrievedData()).thenReturn(false);
+    EngineJob<Object> job = harness.getJob();
+
+    job.reschedule(harness.decodeJob);
+
+    verify(decodeService, never()).execute(any(Runnable.class));
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void isSourceDecodeSeparate_withDecodeExecutor_returnsTrue() {
+    harness.sourceService =
+        MockGlideExecutor.newMainThreadExecutor(MockGlideExecutor.newMainThreadExecutor());
+
+    assertTrue(harness.getJob().isSourceDecodeSeparate());
+  }
+
+  @Test
+  public void isSourceDecodeSeparate_withoutDecodeExecutor_returnsFalse() {
+    assertFalse(harness.getJob().isSourceDecodeSeparate());
+  }
+
   @Test
   public void testSubmitsDecodeJobToDiskCacheServiceWhenDecodingFromCacheOnStart() {
     EngineJob<Object> job = harness.getJob();
@@ -486,7 +683,8 @@ public class EngineJobTest {
               animationService,
               listener,
               pool,
-              factory);
+              factory,
+              /*resultDispatcher=*/ null);
       job.init(
           key,
           isCacheable,
@@ -511,8 +709,8 @@ public class EngineJobTest {
     final Resource<Object> resource = mockResource();
     final EngineResource<Object> engineResource = mock(EngineResource.class);
     final EngineJobListener listener = mock(EngineJobListener.class);
-    final GlideExecutor diskCacheService = MockGlideExecutor.newMainThreadExecutor();
-    final GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
+    GlideExecutor diskCacheService = MockGlideExecutor.newMainThreadExecutor();
+    GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor sourceUnlimitedService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor animationService = MockGlideExecutor.newMainThreadExecutor();
     boolean isCacheable = true;
@@ -522,6 +720,7 @@ public class EngineJobTest {
     final DecodeJob<Object> decodeJob = mock(DecodeJob.class);
     final Pools.Pool<EngineJob<?>> pool = new Pools.SimplePool<>(1);
     final DataSource dataSource = DataSource.DATA_DISK_CACHE;
+    BatchedResultDispatcher resultDispatcher;
 
     EngineJob<Object> getJob() {
       when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
@@ -533,7 +732,8 @@ public class EngineJobTest {
               animationService,
               listener,
               pool,
-              factory);
+              factory,
+              resultDispatcher);
       result.init(
           key,
           isCacheable,
@@ -544,4 +744,6 @@ public class EngineJobTest {
       return result;
     }
   }
+
+  interface PreviewResourceCallback extends ResourceCallback, ResourceCallback.PreviewCallback { }
 }
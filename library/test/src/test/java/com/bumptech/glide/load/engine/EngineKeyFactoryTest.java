@@ -0,0 +1,80 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class EngineKeyFactoryTest {
+  private EngineKeyFactory factory;
+  private Options options;
+
+  @Before
+  public void setUp() {
+    factory = new EngineKeyFactory();
+    options = new Options();
+  }
+
+  @Test
+  public void obtainLookupKey_equalsKeyWithSameArguments() {
+    EngineKey lookupKey = obtain("model");
+
+    EngineKey expected = new EngineKey(
+        "model",
+        new ObjectKey("signature"),
+        100,
+        200,
+        Collections.<Class<?>, Transformation<?>>emptyMap(),
+        Object.class,
+        Object.class,
+        options);
+    assertThat(lookupKey).isEqualTo(expected);
+    assertThat(lookupKey.hashCode()).isEqualTo(expected.hashCode());
+  }
+
+  @Test
+  public void obtainLookupKey_afterRelease_reusesKey() {
+    EngineKey first = obtain("first");
+    factory.release(first);
+
+    EngineKey second = obtain("second");
+
+    assertThat(second).isSameAs(first);
+    assertThat(second).isEqualTo(factory.promote(obtain("second")));
+  }
+
+  @Test
+  public void promote_returnsEqualKeyThatIsNotAffectedByRelease() {
+    EngineKey lookupKey = obtain("model");
+    EngineKey promoted = factory.promote(lookupKey);
+    int hashCode = lookupKey.hashCode();
+
+    factory.release(lookupKey);
+    obtain("other");
+
+    assertThat(promoted).isNotSameAs(lookupKey);
+    assertThat(promoted).isEqualTo(factory.promote(obtain("model")));
+    assertThat(promoted.hashCode()).isEqualTo(hashCode);
+  }
+
+  private EngineKey obtain(String model) {
+    return factory.obtainLookupKey(
+        model,
+        new ObjectKey("signature"),
+        100,
+        200,
+        Collections.<Class<?>, Transformation<?>>emptyMap(),
+        Object.class,
+        Object.class,
+        options);
+  }
+}
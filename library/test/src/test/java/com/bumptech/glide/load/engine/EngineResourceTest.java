@@ -100,20 +100,44 @@ public class EngineResourceTest {
   }
 
   @Test
-  public void testThrowsIfAcquiredOnBackgroundThread() throws InterruptedException {
+  public void testCanAcquireOnBackgroundThread() throws InterruptedException {
     Thread otherThread = new Thread(new Runnable() {
       @Override
       public void run() {
-        try {
-          engineResource.acquire();
-        } catch (IllegalThreadStateException e) {
-          return;
-        }
-        fail("Failed to receive expected IllegalThreadStateException");
+        engineResource.acquire();
       }
     });
     otherThread.start();
     otherThread.join();
+
+    engineResource.release();
+
+    verify(listener).onResourceReleased(cacheKey, engineResource);
+  }
+
+  @Test
+  public void acquireIfAcquired_withNoConsumers_returnsFalse() {
+    assertFalse(engineResource.acquireIfAcquired());
+  }
+
+  @Test
+  public void acquireIfAcquired_withConsumer_acquiresResource() {
+    engineResource.acquire();
+
+    assertTrue(engineResource.acquireIfAcquired());
+
+    engineResource.release();
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    engineResource.release();
+    verify(listener).onResourceReleased(cacheKey, engineResource);
+  }
+
+  @Test
+  public void acquireIfAcquired_afterReleasedByLastConsumer_returnsFalse() {
+    engineResource.acquire();
+    engineResource.release();
+
+    assertFalse(engineResource.acquireIfAcquired());
   }
 
   @Test
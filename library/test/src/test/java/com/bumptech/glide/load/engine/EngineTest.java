@@ -41,6 +41,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk = 18, shadows = { GlideShadowLooper.class })
@@ -385,8 +386,38 @@ public class EngineTest {
     harness.doLoad();
 
     verify(harness.keyFactory)
-        .buildKey(eq(harness.model), eq(harness.signature), eq(harness.width), eq(harness.height),
-            eq(harness.transformations), eq(Object.class), eq(Object.class), eq(harness.options));
+        .obtainLookupKey(eq(harness.model), eq(harness.signature), eq(harness.width),
+            eq(harness.height), eq(harness.transformations), eq(Object.class), eq(Object.class),
+            eq(harness.options));
+  }
+
+  @Test
+  public void load_withNewLoad_promotesAndReleasesLookupKey() {
+    harness.doLoad();
+
+    verify(harness.keyFactory).promote(eq(harness.cacheKey));
+    verify(harness.keyFactory).release(eq(harness.cacheKey));
+  }
+
+  @Test
+  public void load_withResourceInCacheWithKey_doesNotPromoteLookupKey() {
+    when(harness.resource.getKey()).thenReturn(harness.cacheKey);
+    when(harness.cache.remove(eq(harness.cacheKey))).thenReturn(harness.resource);
+
+    harness.doLoad();
+
+    verify(harness.keyFactory, never()).promote(any(EngineKey.class));
+    verify(harness.keyFactory).release(eq(harness.cacheKey));
+  }
+
+  @Test
+  public void load_withResourceInActiveResources_doesNotPromoteLookupKey() {
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+
+    harness.doLoad();
+
+    verify(harness.keyFactory, never()).promote(any(EngineKey.class));
+    verify(harness.keyFactory).release(eq(harness.cacheKey));
   }
 
   @Test
@@ -421,19 +452,168 @@ public class EngineTest {
     verify(engineResource).release();
   }
 
+  @Test
+  public void load_withBatchedActiveResourceCleanup_movesClearedResourcesToCache() {
+    harness.activeResources = new ActiveResources(
+        /*isActiveResourceRetentionAllowed=*/ true, /*isCleanupBatched=*/ true);
+    when(harness.resource.isCacheable()).thenReturn(true);
+    when(harness.resource.getResource()).thenReturn(mock(Resource.class));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    harness.getEngine();
+    harness.activeResources.activeEngineResources.get(harness.cacheKey).enqueue();
+
+    harness.doLoad();
+
+    verify(harness.cache).put(eq(harness.cacheKey), any(EngineResource.class));
+  }
+
+  @Test
+  public void release_withBatchedActiveResourceCleanup_movesClearedResourcesToCache() {
+    harness.activeResources = new ActiveResources(
+        /*isActiveResourceRetentionAllowed=*/ true, /*isCleanupBatched=*/ true);
+    when(harness.resource.isCacheable()).thenReturn(true);
+    when(harness.resource.getResource()).thenReturn(mock(Resource.class));
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    harness.getEngine();
+    harness.activeResources.activeEngineResources.get(harness.cacheKey).enqueue();
+
+    harness.getEngine().release(mock(EngineResource.class));
+
+    verify(harness.cache).put(eq(harness.cacheKey), any(EngineResource.class));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testThrowsIfAskedToReleaseNonEngineResource() {
     harness.getEngine().release(mockResource());
   }
 
-  @Test(expected = RuntimeException.class)
-  public void testThrowsIfLoadCalledOnBackgroundThread() throws InterruptedException {
+  @Test
+  public void load_onBackgroundThread_withResourceInCache_notifiesCallbackOnMainThread()
+      throws InterruptedException {
+    when(harness.cache.remove(eq(harness.cacheKey))).thenReturn(harness.resource);
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        harness.doLoad();
+      }
+    });
+    verify(harness.resource).acquire();
+    verify(harness.cb, never()).onResourceReady(anyResource(), isADataSource());
+
+    ShadowLooper.runUiThreadTasks();
+
+    verify(harness.cb).onResourceReady(eq(harness.resource), eq(DataSource.MEMORY_CACHE));
+    verify(harness.job, never()).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_withResourceInCache_cancelledBeforeDelivery_releases()
+      throws InterruptedException {
+    when(harness.cache.remove(eq(harness.cacheKey))).thenReturn(harness.resource);
+    ShadowLooper.pauseMainLooper();
+    final Engine.LoadStatus[] loadStatus = new Engine.LoadStatus[1];
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        loadStatus[0] = harness.doLoad();
+      }
+    });
+    loadStatus[0].cancel();
+
+    ShadowLooper.runUiThreadTasks();
+
+    verify(harness.cb, never()).onResourceReady(anyResource(), isADataSource());
+    verify(harness.resource).release();
+  }
+
+  @Test
+  public void load_onBackgroundThread_withActiveResourceHeldByAnotherConsumer_acquiresResource()
+      throws InterruptedException {
+    when(harness.resource.acquireIfAcquired()).thenReturn(true);
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    ShadowLooper.pauseMainLooper();
     BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
       @Override
       public void runTest() {
         harness.doLoad();
       }
     });
+
+    ShadowLooper.runUiThreadTasks();
+
+    verify(harness.cb).onResourceReady(eq(harness.resource), eq(DataSource.MEMORY_CACHE));
+    verify(harness.cache, never()).remove(any(Key.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_withActiveResourceNoLongerAcquired_checksMemoryCache()
+      throws InterruptedException {
+    when(harness.resource.acquireIfAcquired()).thenReturn(false);
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        harness.doLoad();
+      }
+    });
+
+    verify(harness.cache).remove(eq(harness.cacheKey));
+  }
+
+  @Test
+  public void load_onBackgroundThread_withResourceNotInMemory_startsJobOnMainThread()
+      throws InterruptedException {
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        harness.doLoad();
+      }
+    });
+    verify(harness.job, never()).start(any(DecodeJob.class));
+
+    ShadowLooper.runUiThreadTasks();
+
+    verify(harness.job).addCallback(eq(harness.cb));
+    verify(harness.job).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_cancelledBeforeJobStarts_doesNotStartJob()
+      throws InterruptedException {
+    ShadowLooper.pauseMainLooper();
+    final Engine.LoadStatus[] loadStatus = new Engine.LoadStatus[1];
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        loadStatus[0] = harness.doLoad();
+      }
+    });
+    loadStatus[0].cancel();
+
+    ShadowLooper.runUiThreadTasks();
+
+    verify(harness.job, never()).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_cancelledAfterJobStarts_removesCallbackFromJob()
+      throws InterruptedException {
+    ShadowLooper.pauseMainLooper();
+    final Engine.LoadStatus[] loadStatus = new Engine.LoadStatus[1];
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        loadStatus[0] = harness.doLoad();
+      }
+    });
+    ShadowLooper.runUiThreadTasks();
+
+    loadStatus[0].cancel();
+
+    verify(harness.job).removeCallback(eq(harness.cb));
   }
 
   @Test
@@ -629,7 +809,7 @@ public class EngineTest {
     @SuppressWarnings("rawtypes")
     final EngineResource resource = mock(EngineResource.class);
     final Jobs jobs = new Jobs();
-    final ActiveResources activeResources =
+    ActiveResources activeResources =
         new ActiveResources(/*isActiveResourceRetentionAllowed=*/ true);
 
     final int width = 100;
@@ -652,8 +832,10 @@ public class EngineTest {
     final boolean isScaleOnlyOrNoTransform = true;
 
     EngineTestHarness() {
-      when(keyFactory.buildKey(eq(model), eq(signature), anyInt(), anyInt(), eq(transformations),
-          eq(Object.class), eq(Object.class), eq(options))).thenReturn(cacheKey);
+      when(keyFactory.obtainLookupKey(eq(model), eq(signature), anyInt(), anyInt(),
+          eq(transformations), eq(Object.class), eq(Object.class), eq(options)))
+          .thenReturn(cacheKey);
+      when(keyFactory.promote(cacheKey)).thenReturn(cacheKey);
       when(resource.getResource()).thenReturn(mock(Resource.class));
 
       job = mock(EngineJob.class);
@@ -706,7 +888,9 @@ public class EngineTest {
                 engineJobFactory,
                 decodeJobFactory,
                 resourceRecycler,
-                /*isActiveResourceRetentionAllowed=*/ true);
+                /*isActiveResourceRetentionAllowed=*/ true,
+                /*isActiveResourceCleanupBatched=*/ false,
+                /*batchedResultDeliveryMaxLatencyMillis=*/ 0);
       }
       return engine;
     }
@@ -0,0 +1,237 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SourceDataTeeTest {
+  private final byte[] data = new byte[64 * 1024 + 17];
+  private File cacheFile;
+  private DiskCache diskCache;
+  private DataFetcher<?> fetcher;
+  private SourceDataTee tee;
+  private Thread writerThread;
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    cacheFile = new File(RuntimeEnvironment.application.getCacheDir(), "tee");
+    diskCache = new WritingDiskCache(cacheFile);
+    fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataSource()).thenReturn(DataSource.REMOTE);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    if (tee != null) {
+      tee.getFetcher().cleanup();
+      writerThread.join();
+    }
+    //noinspection ResultOfMethodCallIgnored
+    cacheFile.delete();
+  }
+
+  @Test
+  public void getStream_returnsSourceBytes() throws IOException {
+    startTee();
+
+    assertThat(readFully(tee.getStream())).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterPartialRead_writesAllBytesToCache()
+      throws IOException, InterruptedException {
+    startTee();
+    byte[] buffer = new byte[1000];
+    assertThat(tee.getStream().read(buffer)).isEqualTo(buffer.length);
+
+    tee.getFetcher().cleanup();
+    writerThread.join();
+
+    assertThat(readCacheFile()).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_afterFullRead_writesAllBytesToCache()
+      throws IOException, InterruptedException {
+    startTee();
+    readFully(tee.getStream());
+
+    tee.getFetcher().cleanup();
+    writerThread.join();
+
+    assertThat(readCacheFile()).isEqualTo(data);
+  }
+
+  @Test
+  public void skip_writesSkippedBytesToCache() throws IOException, InterruptedException {
+    startTee();
+    assertThat(tee.getStream().skip(100)).isEqualTo(100);
+    assertThat(tee.getStream().read()).isEqualTo(data[100] & 0xFF);
+
+    tee.getFetcher().cleanup();
+    writerThread.join();
+
+    assertThat(readCacheFile()).isEqualTo(data);
+  }
+
+  @Test
+  public void cleanup_cleansUpOriginalFetcherAfterWriting() throws InterruptedException {
+    startTee();
+    verify(fetcher, never()).cleanup();
+
+    tee.getFetcher().cleanup();
+    writerThread.join();
+
+    verify(fetcher).cleanup();
+  }
+
+  @Test
+  public void cleanup_withEntryAlreadyInCache_cleansUpOriginalFetcher()
+      throws InterruptedException {
+    diskCache = mock(DiskCache.class);
+    startTee();
+
+    tee.getFetcher().cleanup();
+    writerThread.join();
+
+    verify(fetcher).cleanup();
+  }
+
+  @Test
+  public void cancel_abandonsWriteAndCleansUpOriginalFetcherAfterDecode()
+      throws IOException, InterruptedException {
+    startTee();
+    assertThat(tee.getStream().read(new byte[1000])).isEqualTo(1000);
+
+    tee.getFetcher().cancel();
+    writerThread.join();
+
+    verify(fetcher).cancel();
+    verify(fetcher, never()).cleanup();
+    assertThat(((WritingDiskCache) diskCache).isCommitted).isFalse();
+
+    tee.getFetcher().cleanup();
+    verify(fetcher).cleanup();
+  }
+
+  @Test
+  public void read_withBlockedWriter_abandonsWriteInsteadOfBlockingDecode()
+      throws IOException, InterruptedException {
+    final CountDownLatch writerLatch = new CountDownLatch(1);
+    diskCache = new WritingDiskCache(cacheFile) {
+      @Override
+      public void put(Key key, Writer writer) {
+        try {
+          writerLatch.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        super.put(key, writer);
+      }
+    };
+    byte[] largeData = new byte[4 * 1024 * 1024];
+    startTee(largeData);
+
+    assertThat(readFully(tee.getStream())).isEqualTo(largeData);
+    tee.getFetcher().cleanup();
+    writerLatch.countDown();
+    writerThread.join();
+
+    verify(fetcher).cleanup();
+    assertThat(((WritingDiskCache) diskCache).isCommitted).isFalse();
+  }
+
+  @Test(expected = IOException.class)
+  public void read_afterCleanup_throws() throws IOException {
+    startTee();
+    tee.getFetcher().cleanup();
+
+    tee.getStream().read();
+  }
+
+  @Test
+  public void getFetcher_returnsOriginalDataSource() {
+    startTee();
+
+    assertThat(tee.getFetcher().getDataSource()).isEqualTo(DataSource.REMOTE);
+    assertThat(tee.getFetcher().getDataClass()).isEqualTo(InputStream.class);
+  }
+
+  private void startTee() {
+    startTee(data);
+  }
+
+  private void startTee(byte[] source) {
+    tee = new SourceDataTee(diskCache, mock(Key.class), fetcher, new ByteArrayInputStream(source),
+        new LruArrayPool());
+    writerThread = new Thread(tee);
+    writerThread.start();
+  }
+
+  private byte[] readCacheFile() throws IOException {
+    ByteBuffer buffer = ByteBufferUtil.fromFile(cacheFile);
+    return ByteBufferUtil.toBytes(buffer);
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException {
+    ByteBuffer buffer = ByteBufferUtil.fromStream(is);
+    return ByteBufferUtil.toBytes(buffer);
+  }
+
+  private static class WritingDiskCache implements DiskCache {
+    private final File file;
+    // Volatile because writes happen on the tee's writer thread.
+    volatile boolean isCommitted;
+
+    WritingDiskCache(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public File get(Key key) {
+      return null;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      isCommitted = writer.write(file);
+    }
+
+    @Override
+    public void delete(Key key) {
+      // Do nothing.
+    }
+
+    @Override
+    public void clear() {
+      // Do nothing.
+    }
+  }
+}
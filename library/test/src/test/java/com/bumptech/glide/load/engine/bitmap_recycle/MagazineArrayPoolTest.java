@@ -0,0 +1,149 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool.STANDARD_BUFFER_SIZE_BYTES;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.tests.BackgroundUtil;
+import com.bumptech.glide.tests.BackgroundUtil.BackgroundTester;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class MagazineArrayPoolTest {
+  private static final int DEPOT_SIZE = 4 * 1024 * 1024;
+  private static final int STANDARD_INT_ARRAY_LENGTH = STANDARD_BUFFER_SIZE_BYTES / 4;
+  private LruArrayPool depot;
+  private MagazineArrayPool pool;
+
+  @Before
+  public void setUp() {
+    depot = new LruArrayPool(DEPOT_SIZE);
+    pool = new MagazineArrayPool(depot);
+  }
+
+  @Test
+  public void put_withStandardByteArray_keepsArrayOutOfDepot() {
+    byte[] array = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(array);
+
+    assertThat(depot.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isSameAs(array);
+  }
+
+  @Test
+  public void put_withStandardIntArray_keepsArrayOutOfDepot() {
+    int[] array = new int[STANDARD_INT_ARRAY_LENGTH];
+    pool.put(array);
+
+    assertThat(depot.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.getExact(STANDARD_INT_ARRAY_LENGTH, int[].class)).isSameAs(array);
+  }
+
+  @Test
+  public void put_withNonStandardArray_putsArrayInDepot() {
+    byte[] array = new byte[100];
+    pool.put(array);
+
+    assertThat(depot.getCurrentSize()).isEqualTo(100);
+    assertThat(pool.getExact(100, byte[].class)).isSameAs(array);
+  }
+
+  @Test
+  public void put_withFullMagazine_putsArrayInDepot() {
+    for (int i = 0; i < MagazineArrayPool.MAGAZINE_SIZE + 1; i++) {
+      pool.put(new byte[STANDARD_BUFFER_SIZE_BYTES]);
+    }
+
+    assertThat(depot.getCurrentSize()).isEqualTo(STANDARD_BUFFER_SIZE_BYTES);
+  }
+
+  @Test
+  public void get_withSmallRequest_doesNotReturnStandardArray() {
+    byte[] array = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(array);
+
+    assertThat(pool.get(8, byte[].class)).isNotSameAs(array);
+  }
+
+  @Test
+  public void get_withRequestLargerThanStandardSize_doesNotReturnStandardArray() {
+    pool.put(new byte[STANDARD_BUFFER_SIZE_BYTES]);
+
+    byte[] result = pool.get(STANDARD_BUFFER_SIZE_BYTES + 1, byte[].class);
+    assertThat(result.length).isAtLeast(STANDARD_BUFFER_SIZE_BYTES + 1);
+  }
+
+  @Test
+  public void get_withArrayPutOnOtherThread_returnsArrayFromDepot() throws InterruptedException {
+    final byte[] first = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    final byte[] second = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    final byte[] third = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    BackgroundUtil.testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        pool.put(first);
+        pool.put(second);
+        pool.put(third);
+      }
+    });
+
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isSameAs(third);
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isNotSameAs(first);
+  }
+
+  @Test
+  public void get_onOtherThread_doesNotReturnArrayFromThisThreadsMagazine()
+      throws InterruptedException {
+    byte[] array = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(array);
+
+    final AtomicReference<byte[]> result = new AtomicReference<>();
+    BackgroundUtil.testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        result.set(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class));
+      }
+    });
+
+    assertThat(result.get()).isNotSameAs(array);
+  }
+
+  @Test
+  public void clearMemory_clearsMagazinesAndDepot() {
+    byte[] standard = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(standard);
+    pool.put(new byte[100]);
+
+    pool.clearMemory();
+
+    assertThat(depot.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isNotSameAs(standard);
+  }
+
+  @Test
+  public void trimMemory_withBackground_clearsMagazines() {
+    byte[] standard = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(standard);
+
+    pool.trimMemory(TRIM_MEMORY_BACKGROUND);
+
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isNotSameAs(standard);
+  }
+
+  @Test
+  public void trimMemory_withRunningLow_keepsMagazines() {
+    byte[] standard = new byte[STANDARD_BUFFER_SIZE_BYTES];
+    pool.put(standard);
+
+    pool.trimMemory(TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(pool.get(STANDARD_BUFFER_SIZE_BYTES, byte[].class)).isSameAs(standard);
+  }
+}
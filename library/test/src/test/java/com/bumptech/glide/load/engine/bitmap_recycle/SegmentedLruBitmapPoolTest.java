@@ -0,0 +1,194 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.bitmap_recycle.SegmentedLruBitmapPool.SegmentStats;
+import com.bumptech.glide.util.Util;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmap;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SegmentedLruBitmapPoolTest {
+  private static final int BITMAP_SIZE = Util.getBitmapByteSize(100, 100, Bitmap.Config.ARGB_8888);
+  private static final int MAX_SIZE = 10 * BITMAP_SIZE;
+  private SegmentedLruBitmapPool pool;
+
+  @Before
+  public void setUp() {
+    pool =
+        new SegmentedLruBitmapPool(
+            MAX_SIZE,
+            new HashSet<>(Arrays.asList(Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565)));
+  }
+
+  @Test
+  public void get_afterPut_returnsBitmap() {
+    Bitmap bitmap = createMutableBitmap(Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    assertThat(pool.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_withDifferentConfig_doesNotReturnBitmap() {
+    Bitmap bitmap = createMutableBitmap(Bitmap.Config.ARGB_8888);
+    pool.put(bitmap);
+
+    assertThat(pool.get(100, 100, Bitmap.Config.RGB_565)).isNotSameAs(bitmap);
+    assertThat(pool.getCurrentSize()).isEqualTo(BITMAP_SIZE);
+  }
+
+  @Test
+  public void put_withImmutableBitmap_recyclesBitmap() {
+    Bitmap bitmap = createMutableBitmap(Bitmap.Config.ARGB_8888);
+    Shadows.shadowOf(bitmap).setMutable(false);
+
+    pool.put(bitmap);
+
+    assertThat(bitmap.isRecycled()).isTrue();
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withDisallowedConfig_recyclesBitmap() {
+    Bitmap bitmap = createMutableBitmap(Bitmap.Config.ALPHA_8);
+
+    pool.put(bitmap);
+
+    assertThat(bitmap.isRecycled()).isTrue();
+  }
+
+  @Test
+  public void put_pastMaxSize_evictsLeastRecentlyUsedSegmentFirst() {
+    Bitmap rgb565 = createMutableBitmap(Bitmap.Config.RGB_565);
+    pool.put(rgb565);
+    for (int i = 0; i < 10; i++) {
+      pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    }
+
+    assertThat(rgb565.isRecycled()).isTrue();
+    assertThat(pool.getCurrentSize()).isAtMost(MAX_SIZE);
+  }
+
+  @Test
+  public void put_pastMaxSize_staysUnderMaxSize() {
+    for (int i = 0; i < 15; i++) {
+      pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    }
+
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE);
+  }
+
+  @Test
+  public void clearMemory_removesAllBitmaps() {
+    Bitmap first = createMutableBitmap(Bitmap.Config.ARGB_8888);
+    Bitmap second = createMutableBitmap(Bitmap.Config.RGB_565);
+    pool.put(first);
+    pool.put(second);
+
+    pool.clearMemory();
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(first.isRecycled()).isTrue();
+    assertThat(second.isRecycled()).isTrue();
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_removesHalfOfPool() {
+    for (int i = 0; i < 10; i++) {
+      pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    }
+
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(MAX_SIZE / 2);
+  }
+
+  @Test
+  public void trimMemory_withBackground_removesAllBitmaps() {
+    pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+
+    pool.trimMemory(TRIM_MEMORY_BACKGROUND);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void setSizeMultiplier_evictsBitmaps() {
+    for (int i = 0; i < 10; i++) {
+      pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    }
+
+    pool.setSizeMultiplier(0.2f);
+
+    assertThat(pool.getMaxSize()).isEqualTo(2 * BITMAP_SIZE);
+    assertThat(pool.getCurrentSize()).isEqualTo(2 * BITMAP_SIZE);
+  }
+
+  @Test
+  public void getSegmentStats_countsHitsMissesPutsAndEvictionsPerSegment() {
+    pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    pool.get(100, 100, Bitmap.Config.ARGB_8888);
+    pool.get(100, 100, Bitmap.Config.ARGB_8888);
+    pool.get(100, 100, Bitmap.Config.RGB_565);
+    for (int i = 0; i < 11; i++) {
+      pool.put(createMutableBitmap(Bitmap.Config.ARGB_8888));
+    }
+
+    List<SegmentStats> stats = pool.getSegmentStats();
+
+    assertThat(stats).hasSize(2);
+    SegmentStats argb8888 = stats.get(0);
+    assertThat(argb8888.getConfigStripe())
+        .isEqualTo(SegmentedLruBitmapPool.getConfigStripe(Bitmap.Config.ARGB_8888));
+    assertThat(argb8888.getHits()).isEqualTo(1);
+    assertThat(argb8888.getMisses()).isEqualTo(1);
+    assertThat(argb8888.getPuts()).isEqualTo(12);
+    assertThat(argb8888.getEvictions()).isEqualTo(1);
+    assertThat(argb8888.getCurrentSize()).isEqualTo(MAX_SIZE);
+
+    SegmentStats rgb565 = stats.get(1);
+    assertThat(rgb565.getConfigStripe())
+        .isEqualTo(SegmentedLruBitmapPool.getConfigStripe(Bitmap.Config.RGB_565));
+    assertThat(rgb565.getMisses()).isEqualTo(1);
+    assertThat(rgb565.getPuts()).isEqualTo(0);
+  }
+
+  @Test
+  public void getSizeClass_withSmallSizes_returnsFirstClass() {
+    assertThat(SegmentedLruBitmapPool.getSizeClass(0)).isEqualTo(0);
+    assertThat(SegmentedLruBitmapPool.getSizeClass(1)).isEqualTo(0);
+    assertThat(SegmentedLruBitmapPool.getSizeClass(4096)).isEqualTo(0);
+  }
+
+  @Test
+  public void getSizeClass_withPowersOfTwo_returnsIncreasingClasses() {
+    assertThat(SegmentedLruBitmapPool.getSizeClass(8191)).isEqualTo(0);
+    assertThat(SegmentedLruBitmapPool.getSizeClass(8192)).isEqualTo(1);
+    assertThat(SegmentedLruBitmapPool.getSizeClass(16384)).isEqualTo(2);
+  }
+
+  @Test
+  public void getSizeClass_withVeryLargeSize_returnsLastClass() {
+    assertThat(SegmentedLruBitmapPool.getSizeClass(Integer.MAX_VALUE)).isEqualTo(15);
+  }
+
+  private static Bitmap createMutableBitmap(Bitmap.Config config) {
+    Bitmap bitmap = ShadowBitmap.createBitmap(100, 100, config);
+    Shadows.shadowOf(bitmap).setMutable(true);
+    return bitmap;
+  }
+}
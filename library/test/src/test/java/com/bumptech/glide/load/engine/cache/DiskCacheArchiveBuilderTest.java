@@ -0,0 +1,124 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DiskCacheArchiveBuilderTest {
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("archive", "source");
+    OutputStream os = new FileOutputStream(file);
+    try {
+      os.write(new byte[] { 1, 2, 3 });
+    } finally {
+      os.close();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  @Test
+  public void close_writesEntriesInOrder() throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive, SafeKeyGenerator.Algorithm.MURMUR3_128)
+        .addEntry(new ObjectKey("first"), file)
+        .addEntry(new ObjectKey("second"), file)
+        .close();
+
+    DataInputStream input =
+        new DataInputStream(new ByteArrayInputStream(archive.toByteArray()));
+    DiskCacheArchive.readHeader(input, SafeKeyGenerator.Algorithm.MURMUR3_128);
+    for (String id : new String[] { "first", "second" }) {
+      DiskCacheArchive.EntryHeader header = DiskCacheArchive.readEntryHeader(input);
+      assertThat(header).isNotNull();
+      assertThat(header.safeKey).isEqualTo(safeKey(new ObjectKey(id)));
+      assertThat(header.dataSource).isEqualTo(DataSource.DATA_DISK_CACHE);
+      assertThat(header.length).isEqualTo(3L);
+      byte[] data = new byte[3];
+      input.readFully(data);
+      assertThat(data).isEqualTo(new byte[] { 1, 2, 3 });
+    }
+    assertThat(DiskCacheArchive.readEntryHeader(input)).isNull();
+  }
+
+  @Test
+  public void addEntry_withResourceKey_recordsResourceDataSource() throws IOException {
+    Key key = new ResourceKey("resource");
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive, SafeKeyGenerator.Algorithm.MURMUR3_128)
+        .addEntry(key, file)
+        .close();
+
+    DataInputStream input =
+        new DataInputStream(new ByteArrayInputStream(archive.toByteArray()));
+    DiskCacheArchive.readHeader(input, SafeKeyGenerator.Algorithm.MURMUR3_128);
+    DiskCacheArchive.EntryHeader header = DiskCacheArchive.readEntryHeader(input);
+    assertThat(header).isNotNull();
+    assertThat(header.safeKey).isEqualTo(safeKey(key));
+    assertThat(header.dataSource).isEqualTo(DataSource.RESOURCE_DISK_CACHE);
+  }
+
+  @Test
+  public void close_calledTwice_doesNotThrow() throws IOException {
+    DiskCacheArchiveBuilder builder = new DiskCacheArchiveBuilder(new ByteArrayOutputStream());
+    builder.close();
+    builder.close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void addEntry_afterClose_throws() throws IOException {
+    DiskCacheArchiveBuilder builder = new DiskCacheArchiveBuilder(new ByteArrayOutputStream());
+    builder.close();
+
+    builder.addEntry(new ObjectKey("key"), file);
+  }
+
+  private static String safeKey(Key key) {
+    Murmur3Digest digest = new Murmur3Digest();
+    key.updateDiskCacheKey(digest);
+    return SafeKeyGenerator.bytesToHex(digest.digest());
+  }
+
+  private static final class ResourceKey implements Key, DiskCache.DataSourceKey {
+    private final String id;
+
+    ResourceKey(String id) {
+      this.id = id;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.RESOURCE_DISK_CACHE;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(id.getBytes(CHARSET));
+    }
+  }
+}
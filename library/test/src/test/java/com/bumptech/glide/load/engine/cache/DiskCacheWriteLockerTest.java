@@ -0,0 +1,157 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DiskCacheWriteLockerTest {
+  private static final String KEY = "key";
+  private DiskCacheWriteLocker locker;
+
+  @Before
+  public void setUp() {
+    locker = new DiskCacheWriteLocker();
+  }
+
+  @Test
+  public void acquireRead_withReadInProgress_doesNotBlock() throws InterruptedException {
+    locker.acquireRead(KEY);
+
+    LockingThread thread = LockingThread.read(locker, KEY);
+    thread.start();
+
+    assertThat(thread.acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    thread.finish();
+    locker.releaseRead(KEY);
+  }
+
+  @Test
+  public void acquireRead_withWriteInProgress_waitsForWrite() throws InterruptedException {
+    locker.acquire(KEY);
+
+    LockingThread thread = LockingThread.read(locker, KEY);
+    thread.start();
+
+    assertThat(thread.acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    locker.release(KEY);
+    assertThat(thread.acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    thread.finish();
+  }
+
+  @Test
+  public void tryAcquireRead_withWriteInProgress_returnsFalse() throws InterruptedException {
+    LockingThread thread = LockingThread.write(locker, KEY);
+    thread.start();
+    assertThat(thread.acquired.await(1, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(locker.tryAcquireRead(KEY)).isFalse();
+    thread.finish();
+    // The failed attempt must not leave the lock marked as in use.
+    assertThat(locker.tryAcquireRead(KEY)).isTrue();
+    locker.releaseRead(KEY);
+  }
+
+  @Test
+  public void tryAcquireRead_withReadInProgress_returnsTrue() {
+    locker.acquireRead(KEY);
+
+    assertThat(locker.tryAcquireRead(KEY)).isTrue();
+    locker.releaseRead(KEY);
+    locker.releaseRead(KEY);
+  }
+
+  @Test
+  public void acquire_withReadInProgress_waitsForRead() throws InterruptedException {
+    locker.acquireRead(KEY);
+
+    LockingThread thread = LockingThread.write(locker, KEY);
+    thread.start();
+
+    assertThat(thread.acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    locker.releaseRead(KEY);
+    assertThat(thread.acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    thread.finish();
+  }
+
+  @Test
+  public void acquire_withWriteOfDifferentKeyInProgress_doesNotBlock()
+      throws InterruptedException {
+    locker.acquire(KEY);
+
+    LockingThread thread = LockingThread.write(locker, "other");
+    thread.start();
+
+    assertThat(thread.acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    thread.finish();
+    locker.release(KEY);
+  }
+
+  @Test
+  public void acquireRead_afterLockIsReleased_canReacquireLock() {
+    locker.acquire(KEY);
+    locker.release(KEY);
+    locker.acquireRead(KEY);
+    locker.releaseRead(KEY);
+    locker.acquire(KEY);
+    locker.release(KEY);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void releaseRead_withoutAcquire_throws() {
+    locker.releaseRead(KEY);
+  }
+
+  private static final class LockingThread extends Thread {
+    final CountDownLatch acquired = new CountDownLatch(1);
+    private final CountDownLatch canRelease = new CountDownLatch(1);
+    private final DiskCacheWriteLocker locker;
+    private final String key;
+    private final boolean isRead;
+
+    static LockingThread read(DiskCacheWriteLocker locker, String key) {
+      return new LockingThread(locker, key, /*isRead=*/ true);
+    }
+
+    static LockingThread write(DiskCacheWriteLocker locker, String key) {
+      return new LockingThread(locker, key, /*isRead=*/ false);
+    }
+
+    private LockingThread(DiskCacheWriteLocker locker, String key, boolean isRead) {
+      this.locker = locker;
+      this.key = key;
+      this.isRead = isRead;
+    }
+
+    @Override
+    public void run() {
+      if (isRead) {
+        locker.acquireRead(key);
+      } else {
+        locker.acquire(key);
+      }
+      acquired.countDown();
+      try {
+        canRelease.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } finally {
+        if (isRead) {
+          locker.releaseRead(key);
+        } else {
+          locker.release(key);
+        }
+      }
+    }
+
+    void finish() throws InterruptedException {
+      canRelease.countDown();
+      join();
+    }
+  }
+}
@@ -1,17 +1,26 @@
 package com.bumptech.glide.load.engine.cache;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
 
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.signature.ObjectKey;
 import com.bumptech.glide.tests.Util;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -139,6 +148,281 @@ public class DiskLruCacheWrapperTest {
     assertArrayEquals(data, received);
   }
 
+  @Test
+  public void get_withKeyThatWasNeverPut_returnsNull() {
+    put(key);
+
+    assertNull(cache.get(new ObjectKey("other")));
+  }
+
+  @Test
+  public void get_withEntryWrittenByPreviousInstance_returnsEntry() throws IOException {
+    put(key);
+
+    DiskCache reopened = DiskLruCacheWrapper.create(dir, 10 * 1024 * 1024);
+
+    assertArrayEquals(data, Util.readFile(reopened.get(key), data.length));
+  }
+
+  @Test
+  public void get_afterMorePutsThanKeyFilterExpects_returnsAllEntries() throws IOException {
+    cache = DiskLruCacheWrapper.create(dir, 1024 * 1024);
+    List<Key> keys = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Key current = new ObjectKey("key" + i);
+      keys.add(current);
+      put(current);
+    }
+
+    for (Key current : keys) {
+      assertArrayEquals(data, Util.readFile(cache.get(current), data.length));
+    }
+  }
+
+  @Test
+  public void get_afterDelete_returnsNull() {
+    put(key);
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void get_afterDeleteAndPut_returnsEntry() throws IOException {
+    put(key);
+    cache.delete(key);
+    put(key);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void get_afterClearAndPut_returnsEntry() throws IOException {
+    put(key);
+    cache.clear();
+    put(key);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void getBuffer_withEntry_returnsEntryData() {
+    put(key);
+
+    ByteBuffer buffer = ((DiskCache.ByteBufferReader) cache).getBuffer(key);
+
+    assertArrayEquals(data, ByteBufferUtil.toBytes(buffer));
+  }
+
+  @Test
+  public void getBuffer_withKeyThatWasNeverPut_returnsNotCached() {
+    put(key);
+
+    assertSame(DiskCache.ByteBufferReader.NOT_CACHED,
+        ((DiskCache.ByteBufferReader) cache).getBuffer(new ObjectKey("other")));
+  }
+
+  @Test
+  public void getBuffer_withEmptyEntry_returnsNull() {
+    data = new byte[0];
+    put(key);
+
+    assertNull(((DiskCache.ByteBufferReader) cache).getBuffer(key));
+    assertEquals(0, cache.get(key).length());
+  }
+
+  @Test
+  public void get_withChecksums_returnsEntry() throws IOException {
+    cache = newChecksummedCache();
+    put(key);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    assertArrayEquals(data, Util.readFile(newChecksummedCache().get(key), data.length));
+  }
+
+  @Test
+  public void get_withChecksums_andTruncatedEntry_removesEntry() throws IOException {
+    cache = newChecksummedCache();
+    put(key);
+    Util.writeFile(cache.get(key), new byte[] { 1, 2 });
+
+    assertNull(cache.get(key));
+    assertNull(cache.get(key));
+    DiskLruCacheWrapper.CacheStats stats = ((DiskLruCacheWrapper) cache).getCacheStats();
+    assertEquals(1, stats.getCorruptEntries());
+    assertEquals(1, stats.getMisses());
+  }
+
+  @Test
+  public void get_withChecksums_andModifiedEntry_removesEntry() throws IOException {
+    cache = newChecksummedCache();
+    put(key);
+    Util.writeFile(cache.get(key), new byte[] { 6, 5, 4, 3, 2, 1 });
+
+    DiskCache reopened = newChecksummedCache();
+
+    assertNull(reopened.get(key));
+    assertEquals(1, ((DiskLruCacheWrapper) reopened).getCacheStats().getCorruptEntries());
+  }
+
+  @Test
+  public void put_withChecksums_afterCorruptEntryRemoved_writesEntry() throws IOException {
+    cache = newChecksummedCache();
+    put(key);
+    Util.writeFile(cache.get(key), new byte[] { 1, 2 });
+    assertNull(cache.get(key));
+
+    put(key);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void importArchive_withChecksums_writesVerifiedEntries() throws IOException {
+    cache = newChecksummedCache();
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key, writeTempFile("first", data))
+        .close();
+
+    ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertArrayEquals(data, Util.readFile(newChecksummedCache().get(key), data.length));
+  }
+
+  @Test
+  public void getCacheStats_withGetBuffer_countsEachLookupOnce() {
+    put(key);
+
+    ((DiskCache.ByteBufferReader) cache).getBuffer(key);
+    ((DiskCache.ByteBufferReader) cache).getBuffer(new ObjectKey("other"));
+
+    DiskLruCacheWrapper.CacheStats stats = ((DiskLruCacheWrapper) cache).getCacheStats();
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+  }
+
+  @Test
+  public void getCacheStats_withEmptyEntry_countsGetBufferAndGetAsOneHit() {
+    data = new byte[0];
+    put(key);
+
+    assertNull(((DiskCache.ByteBufferReader) cache).getBuffer(key));
+    cache.get(key);
+
+    assertEquals(1, ((DiskLruCacheWrapper) cache).getCacheStats().getHits());
+  }
+
+  @Test
+  public void getCacheStats_countsHitsAndMisses() {
+    put(key);
+
+    cache.get(key);
+    cache.get(key);
+    cache.get(new ObjectKey("other"));
+
+    DiskLruCacheWrapper.CacheStats stats = ((DiskLruCacheWrapper) cache).getCacheStats();
+    assertEquals(2, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals(0, stats.getCorruptEntries());
+  }
+
+  @Test
+  public void importArchive_writesEntries() throws IOException {
+    Key other = new ObjectKey("other");
+    byte[] otherData = new byte[] { 7, 8, 9 };
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key, writeTempFile("first", data))
+        .addEntry(other, writeTempFile("second", otherData))
+        .close();
+
+    int imported = ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertEquals(2, imported);
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    assertArrayEquals(otherData, Util.readFile(cache.get(other), otherData.length));
+  }
+
+  @Test
+  public void importArchive_withEntryAlreadyCached_skipsEntryAndImportsRemaining()
+      throws IOException {
+    put(key);
+    Key other = new ObjectKey("other");
+    byte[] otherData = new byte[] { 7, 8, 9 };
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key, writeTempFile("first", new byte[] { 4, 5 }))
+        .addEntry(other, writeTempFile("second", otherData))
+        .close();
+
+    int imported = ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertEquals(1, imported);
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    assertArrayEquals(otherData, Util.readFile(cache.get(other), otherData.length));
+  }
+
+  @Test
+  public void importArchive_withUrlEntry_isReturnedForGlideUrl() throws IOException {
+    String url = "https://www.example.com/image.png";
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addUrl(url, writeTempFile("url", data))
+        .close();
+
+    ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    // The data cache key for a url without a signature has the same digest as the url itself.
+    assertArrayEquals(data, Util.readFile(cache.get(new GlideUrl(url)), data.length));
+  }
+
+  @Test(expected = IOException.class)
+  public void importArchive_withDifferentAlgorithm_throws() throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive, SafeKeyGenerator.Algorithm.MURMUR3_128)
+        .addEntry(key, writeTempFile("first", data))
+        .close();
+
+    ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(archive.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void importArchive_withInvalidArchive_throws() throws IOException {
+    ((DiskCache.ArchiveImporter) cache)
+        .importArchive(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+  }
+
+  private DiskCache newChecksummedCache() {
+    return DiskLruCacheWrapper.create(
+        dir, 10 * 1024 * 1024, SafeKeyGenerator.Algorithm.SHA_256, true /*isChecksumEnabled*/);
+  }
+
+  private File writeTempFile(String name, byte[] data) throws IOException {
+    File file = new File(RuntimeEnvironment.application.getCacheDir(), name + ".source");
+    Util.writeFile(file, data);
+    return file;
+  }
+
+  private void put(Key key) {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+  }
+
   // Tests #2465.
   @Test
   public void clearDiskCache_afterOpeningDiskCache_andDeleteDirectoryOutsideGlide_doesNotThrow() {
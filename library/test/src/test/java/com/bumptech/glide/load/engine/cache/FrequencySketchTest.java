@@ -0,0 +1,62 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+
+  @Test
+  public void frequency_withNewKey_returnsZero() {
+    FrequencySketch sketch = new FrequencySketch(64);
+
+    assertThat(sketch.frequency("key")).isEqualTo(0);
+  }
+
+  @Test
+  public void frequency_afterIncrements_returnsNumberOfIncrements() {
+    FrequencySketch sketch = new FrequencySketch(64);
+    for (int i = 0; i < 3; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(3);
+  }
+
+  @Test
+  public void frequency_afterManyIncrements_saturates() {
+    FrequencySketch sketch = new FrequencySketch(64);
+    for (int i = 0; i < 20; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(15);
+  }
+
+  @Test
+  public void increment_reachingSampleSize_halvesFrequencies() {
+    // A single entry table has a sample size of 10.
+    FrequencySketch sketch = new FrequencySketch(1);
+    for (int i = 0; i < 10; i++) {
+      sketch.increment("key");
+    }
+
+    assertThat(sketch.frequency("key")).isEqualTo(5);
+  }
+
+  @Test
+  public void ceilingPowerOfTwo_returnsSmallestPowerOfTwoNotLessThanValue() {
+    assertThat(FrequencySketch.ceilingPowerOfTwo(1)).isEqualTo(1);
+    assertThat(FrequencySketch.ceilingPowerOfTwo(64)).isEqualTo(64);
+    assertThat(FrequencySketch.ceilingPowerOfTwo(65)).isEqualTo(128);
+  }
+
+  @Test
+  public void ceilingPowerOfTwo_withValueAboveLargestIntPowerOfTwo_doesNotOverflow() {
+    assertThat(FrequencySketch.ceilingPowerOfTwo((1 << 30) + 1)).isEqualTo(1 << 30);
+    assertThat(FrequencySketch.ceilingPowerOfTwo(Integer.MAX_VALUE)).isEqualTo(1 << 30);
+  }
+}
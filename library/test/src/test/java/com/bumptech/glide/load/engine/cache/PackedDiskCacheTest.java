@@ -0,0 +1,649 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PackedDiskCacheTest {
+  private static final int SEGMENT_SIZE = 4096;
+  private static final int MAX_ENTRY_SIZE = 1024;
+  private static final int MAX_PACKED_SIZE = 4 * SEGMENT_SIZE;
+  // The header, a 64 character safe key and the data.
+  private static final int RECORD_OVERHEAD = 8 + 64;
+
+  private File dir;
+  private FakeLargeEntryCache largeEntryCache;
+  private QueueingExecutor executor;
+  private PackedDiskCache cache;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "packed");
+    largeEntryCache = new FakeLargeEntryCache(new File(dir, "large"));
+    executor = new QueueingExecutor();
+    cache = newCache();
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+    deleteRecursive(dir);
+  }
+
+  @Test
+  public void getBuffer_afterPut_returnsData() {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+  }
+
+  @Test
+  public void getBuffer_withMultipleEntries_returnsEachEntry() {
+    byte[] first = newData(100, 1);
+    byte[] second = newData(200, 2);
+    cache.put(key(1), new DataWriter(first));
+    cache.put(key(2), new DataWriter(second));
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(first);
+    assertThat(toBytes(cache.getBuffer(key(2)))).isEqualTo(second);
+  }
+
+  @Test
+  public void getBuffer_withMissingEntry_returnsNull() {
+    assertThat(cache.getBuffer(key(1))).isNull();
+  }
+
+  @Test
+  public void get_withPackedEntry_returnsFileWithEntry() throws IOException {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+
+    File file = cache.get(key(1));
+    assertThat(file).isNotNull();
+    assertThat(Util.readFile(file, data.length)).isEqualTo(data);
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+  }
+
+  @Test
+  public void get_withMissingEntry_returnsNull() {
+    assertThat(cache.get(key(1))).isNull();
+  }
+
+  @Test
+  public void delete_withPackedEntryReturnedAsFile_removesFile() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    assertThat(cache.get(key(1))).isNotNull();
+
+    cache.delete(key(1));
+
+    assertThat(cache.get(key(1))).isNull();
+  }
+
+  @Test
+  public void put_withEntryLargerThanMaxEntrySize_storesEntryInLargeEntryCache()
+      throws IOException {
+    byte[] data = newData(MAX_ENTRY_SIZE + 1, 1);
+    cache.put(key(1), new DataWriter(data));
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+    File file = cache.get(key(1));
+    assertThat(file).isNotNull();
+    assertThat(Util.readFile(file, data.length)).isEqualTo(data);
+  }
+
+  @Test
+  public void put_withExistingEntry_doesNotCallWriter() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    DataWriter writer = new DataWriter(newData(100, 2));
+
+    cache.put(key(1), writer);
+
+    assertThat(writer.isCalled).isFalse();
+  }
+
+  @Test
+  public void put_withWriterThatFails_doesNotStoreEntry() {
+    DataWriter writer = new DataWriter(newData(100, 1));
+    writer.result = false;
+
+    cache.put(key(1), writer);
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+  }
+
+  @Test
+  public void delete_removesEntry() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+
+    cache.delete(key(1));
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+  }
+
+  @Test
+  public void getBuffer_afterReopen_returnsData() {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+
+    cache = newCache();
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+  }
+
+  @Test
+  public void getBuffer_afterDeleteAndReopen_returnsNull() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache.delete(key(1));
+
+    cache = newCache();
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+  }
+
+  @Test
+  public void getBuffer_afterReopenWithPartiallyWrittenRecord_returnsCompleteEntries()
+      throws IOException {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+    cache.put(key(2), new DataWriter(newData(100, 2)));
+    File segment = new File(dir, "segment-0.pack");
+    RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+    try {
+      raf.setLength(2 * (RECORD_OVERHEAD + 100) - 10);
+    } finally {
+      raf.close();
+    }
+
+    cache = newCache();
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+    assertThat(cache.getBuffer(key(2))).isNull();
+    byte[] replacement = newData(50, 3);
+    cache.put(key(2), new DataWriter(replacement));
+    assertThat(toBytes(cache.getBuffer(key(2)))).isEqualTo(replacement);
+  }
+
+  @Test
+  public void getBuffer_afterReopenWithRecordMissingKeyLength_returnsCompleteEntries()
+      throws IOException {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+    cache.put(key(2), new DataWriter(newData(100, 2)));
+    RandomAccessFile raf = new RandomAccessFile(new File(dir, "segment-0.pack"), "rw");
+    try {
+      // The key length is the last part of a record to be written.
+      raf.seek(RECORD_OVERHEAD + 100);
+      raf.writeInt(0);
+    } finally {
+      raf.close();
+    }
+
+    cache = newCache();
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+    assertThat(cache.getBuffer(key(2))).isNull();
+  }
+
+  @Test
+  public void put_preallocatesActiveSegmentAndTrimsFullSegments() {
+    int entrySize = 1000;
+    int recordSize = RECORD_OVERHEAD + entrySize;
+    cache.put(key(1), new DataWriter(newData(entrySize, 1)));
+
+    assertThat(new File(dir, "segment-0.pack").length()).isEqualTo(SEGMENT_SIZE);
+
+    // Only three records fit in each segment.
+    for (int i = 2; i <= 4; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+
+    assertThat(cache.getSegmentCount()).isEqualTo(2);
+    assertThat(new File(dir, "segment-0.pack").length()).isEqualTo(3 * recordSize);
+    assertThat(new File(dir, "segment-1.pack").length()).isEqualTo(SEGMENT_SIZE);
+    for (int i = 1; i <= 4; i++) {
+      assertThat(toBytes(cache.getBuffer(key(i)))).isEqualTo(newData(entrySize, i));
+    }
+  }
+
+  @Test
+  public void put_withFullSegment_startsNewSegment() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+
+    assertThat(cache.getSegmentCount()).isEqualTo(2);
+    for (int i = 0; i < 5; i++) {
+      assertThat(toBytes(cache.getBuffer(key(i)))).isEqualTo(newData(entrySize, i));
+    }
+  }
+
+  @Test
+  public void put_overMaxSize_evictsOldestSegment() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    int entriesPerSegment = 4;
+    int segmentCount = MAX_PACKED_SIZE / SEGMENT_SIZE;
+    int entryCount = (segmentCount + 1) * entriesPerSegment;
+    for (int i = 0; i < entryCount; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+    cache.put(key(entryCount), new DataWriter(newData(entrySize, entryCount)));
+
+    assertThat(cache.getSegmentCount()).isEqualTo(segmentCount);
+    for (int i = 0; i < 2 * entriesPerSegment; i++) {
+      assertThat(cache.getBuffer(key(i))).isNull();
+    }
+    for (int i = 2 * entriesPerSegment; i <= entryCount; i++) {
+      assertThat(toBytes(cache.getBuffer(key(i)))).isEqualTo(newData(entrySize, i));
+    }
+  }
+
+  @Test
+  public void delete_withMostOfSegmentDeleted_compactsSegment() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+    cache.delete(key(0));
+    assertThat(executor.runnables).isEmpty();
+    cache.delete(key(1));
+    cache.delete(key(2));
+
+    assertThat(executor.runnables).hasSize(1);
+    executor.runAll();
+
+    assertThat(new File(dir, "segment-0.pack").exists()).isFalse();
+    assertThat(toBytes(cache.getBuffer(key(3)))).isEqualTo(newData(entrySize, 3));
+    assertThat(toBytes(cache.getBuffer(key(4)))).isEqualTo(newData(entrySize, 4));
+    for (int i = 0; i < 3; i++) {
+      assertThat(cache.getBuffer(key(i))).isNull();
+    }
+  }
+
+  @Test
+  public void getBuffer_afterCompactionAndReopen_doesNotReturnDeletedEntries() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    for (int i = 0; i < 9; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+    // Deletes all of the entries in the first segment.
+    for (int i = 0; i < 4; i++) {
+      cache.delete(key(i));
+    }
+    executor.runAll();
+
+    cache = newCache();
+    executor.runAll();
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(cache.getBuffer(key(i))).isNull();
+    }
+    for (int i = 4; i < 9; i++) {
+      assertThat(toBytes(cache.getBuffer(key(i)))).isEqualTo(newData(entrySize, i));
+    }
+  }
+
+  @Test
+  public void getBuffer_returnedBeforeCompaction_remainsReadable() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+    ByteBuffer buffer = cache.getBuffer(key(3));
+    for (int i = 0; i < 3; i++) {
+      cache.delete(key(i));
+    }
+
+    executor.runAll();
+
+    assertThat(toBytes(buffer)).isEqualTo(newData(entrySize, 3));
+  }
+
+  @Test
+  public void getBuffer_afterSnapshotAndReopen_returnsDataWithoutScanningSegments() {
+    for (int i = 0; i < 3; i++) {
+      cache.put(key(i), new DataWriter(newData(100, i)));
+    }
+    cache.writeSnapshot();
+
+    cache = newCache();
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(toBytes(cache.getBuffer(key(i)))).isEqualTo(newData(100, i));
+    }
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(0);
+  }
+
+  @Test
+  public void getBuffer_afterSnapshotAndReopen_includesRecordsWrittenAfterSnapshot() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache.put(key(2), new DataWriter(newData(100, 2)));
+    cache.writeSnapshot();
+    cache.put(key(3), new DataWriter(newData(100, 3)));
+    cache.delete(key(1));
+
+    cache = newCache();
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+    assertThat(toBytes(cache.getBuffer(key(2)))).isEqualTo(newData(100, 2));
+    assertThat(toBytes(cache.getBuffer(key(3)))).isEqualTo(newData(100, 3));
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(2);
+  }
+
+  @Test
+  public void getBuffer_withCorruptSnapshot_scansSegments() throws IOException {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache.writeSnapshot();
+    Util.writeFile(new File(dir, "index.snapshot"), newData(10, 0));
+
+    cache = newCache();
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(newData(100, 1));
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(1);
+  }
+
+  @Test
+  public void getBuffer_withSnapshotOfTruncatedSegment_scansSegments() throws IOException {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache.put(key(2), new DataWriter(newData(100, 2)));
+    cache.writeSnapshot();
+    RandomAccessFile raf = new RandomAccessFile(new File(dir, "segment-0.pack"), "rw");
+    try {
+      raf.setLength(2 * (RECORD_OVERHEAD + 100) - 10);
+    } finally {
+      raf.close();
+    }
+
+    cache = newCache();
+
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(newData(100, 1));
+    assertThat(cache.getBuffer(key(2))).isNull();
+  }
+
+  @Test
+  public void getBuffer_withSnapshotOfCompactedSegment_doesNotReturnRemovedEntries() {
+    int entrySize = SEGMENT_SIZE / 4 - RECORD_OVERHEAD;
+    for (int i = 0; i < 5; i++) {
+      cache.put(key(i), new DataWriter(newData(entrySize, i)));
+    }
+    cache.writeSnapshot();
+    for (int i = 0; i < 3; i++) {
+      cache.delete(key(i));
+    }
+    executor.runAll();
+
+    cache = newCache();
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(cache.getBuffer(key(i))).isNull();
+    }
+    assertThat(toBytes(cache.getBuffer(key(3)))).isEqualTo(newData(entrySize, 3));
+    assertThat(toBytes(cache.getBuffer(key(4)))).isEqualTo(newData(entrySize, 4));
+  }
+
+  @Test
+  public void put_afterManyRecords_writesSnapshotInBackground() {
+    for (int i = 0; i < PackedDiskCache.RECORDS_PER_SNAPSHOT; i++) {
+      cache.put(key(i), new DataWriter(newData(1, i)));
+    }
+    assertThat(executor.runnables).hasSize(1);
+
+    executor.runAll();
+
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(0);
+    assertThat(new File(dir, "index.snapshot").exists()).isTrue();
+  }
+
+  @Test
+  public void warmUp_readsIndex() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache = newCache();
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(0);
+
+    cache.warmUp();
+
+    assertThat(cache.getRecordsSinceSnapshot()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_removesAllEntries() {
+    cache.put(key(1), new DataWriter(newData(100, 1)));
+    cache.put(key(2), new DataWriter(newData(MAX_ENTRY_SIZE + 1, 2)));
+
+    cache.clear();
+
+    assertThat(cache.getBuffer(key(1))).isNull();
+    assertThat(cache.get(key(2))).isNull();
+    assertThat(newCache().getBuffer(key(1))).isNull();
+  }
+
+  @Test
+  public void importArchive_packsSmallEntries() throws IOException {
+    byte[] data = newData(100, 1);
+    byte[] archive = newArchive(key(1), data);
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive));
+
+    assertThat(imported).isEqualTo(1);
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+    assertThat(largeEntryCache.get(key(1))).isNull();
+  }
+
+  @Test
+  public void importArchive_withEntryAlreadyPacked_skipsEntry() throws IOException {
+    byte[] data = newData(100, 1);
+    cache.put(key(1), new DataWriter(data));
+    byte[] archive = newArchive(key(1), newData(100, 2));
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive));
+
+    assertThat(imported).isEqualTo(0);
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+  }
+
+  @Test
+  public void importArchive_withLargeEntry_importsIntoLargeEntryCache() throws IOException {
+    DiskCache diskLruCache = DiskLruCacheWrapper.create(new File(dir, "lru"), 1024 * 1024);
+    cache = new PackedDiskCache(
+        dir, MAX_PACKED_SIZE, SEGMENT_SIZE, MAX_ENTRY_SIZE, diskLruCache, executor);
+    byte[] large = newData(MAX_ENTRY_SIZE + 1, 1);
+    byte[] small = newData(100, 2);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key(1), writeTempFile("large", large))
+        .addEntry(key(2), writeTempFile("small", small))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(2);
+    assertThat(cache.getBuffer(key(1))).isNull();
+    assertThat(Util.readFile(cache.get(key(1)), large.length)).isEqualTo(large);
+    assertThat(toBytes(cache.getBuffer(key(2)))).isEqualTo(small);
+  }
+
+  @Test
+  public void importArchive_withLargeEntryAndCacheThatCannotImport_skipsEntry()
+      throws IOException {
+    byte[] small = newData(100, 2);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key(1), writeTempFile("large", newData(MAX_ENTRY_SIZE + 1, 1)))
+        .addEntry(key(2), writeTempFile("small", small))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(1);
+    assertThat(cache.get(key(1))).isNull();
+    assertThat(toBytes(cache.getBuffer(key(2)))).isEqualTo(small);
+  }
+
+  @Test
+  public void importArchive_withArchiveForCacheAlgorithm_importsEntries() throws IOException {
+    cache = new PackedDiskCache(dir, MAX_PACKED_SIZE, SEGMENT_SIZE, MAX_ENTRY_SIZE,
+        largeEntryCache, executor, SafeKeyGenerator.Algorithm.MURMUR3_128);
+    byte[] data = newData(100, 1);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive, SafeKeyGenerator.Algorithm.MURMUR3_128)
+        .addEntry(key(1), writeTempFile("source", data))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(1);
+    assertThat(toBytes(cache.getBuffer(key(1)))).isEqualTo(data);
+  }
+
+  @Test(expected = IOException.class)
+  public void importArchive_withArchiveForOtherAlgorithm_throws() throws IOException {
+    cache = new PackedDiskCache(dir, MAX_PACKED_SIZE, SEGMENT_SIZE, MAX_ENTRY_SIZE,
+        largeEntryCache, executor, SafeKeyGenerator.Algorithm.MURMUR3_128);
+
+    cache.importArchive(new ByteArrayInputStream(newArchive(key(1), newData(100, 1))));
+  }
+
+  private byte[] newArchive(Key key, byte[] data) throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(key, writeTempFile("source", data))
+        .close();
+    return archive.toByteArray();
+  }
+
+  private File writeTempFile(String name, byte[] data) throws IOException {
+    File file = new File(RuntimeEnvironment.application.getCacheDir(), name + ".source");
+    Util.writeFile(file, data);
+    return file;
+  }
+
+  private PackedDiskCache newCache() {
+    return new PackedDiskCache(
+        dir, MAX_PACKED_SIZE, SEGMENT_SIZE, MAX_ENTRY_SIZE, largeEntryCache, executor);
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey("key" + id);
+  }
+
+  private static byte[] newData(int size, int seed) {
+    byte[] result = new byte[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = (byte) (i * 31 + seed);
+    }
+    return result;
+  }
+
+  private static byte[] toBytes(@Nullable ByteBuffer buffer) {
+    assertThat(buffer).isNotNull();
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+
+  private static void deleteRecursive(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        deleteRecursive(child);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  private static final class DataWriter implements DiskCache.Writer {
+    private final byte[] data;
+    boolean result = true;
+    boolean isCalled;
+
+    DataWriter(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      isCalled = true;
+      try {
+        Util.writeFile(file, data);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return result;
+    }
+  }
+
+  private static final class QueueingExecutor implements Executor {
+    final List<Runnable> runnables = new ArrayList<>();
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+      runnables.add(command);
+    }
+
+    void runAll() {
+      while (!runnables.isEmpty()) {
+        runnables.remove(0).run();
+      }
+    }
+  }
+
+  private static final class FakeLargeEntryCache implements DiskCache {
+    private final Map<Key, File> files = new HashMap<>();
+    private final File dir;
+
+    FakeLargeEntryCache(File dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    public File get(Key key) {
+      return files.get(key);
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+      //noinspection ResultOfMethodCallIgnored
+      dir.mkdirs();
+      File file = new File(dir, String.valueOf(files.size()));
+      if (writer.write(file)) {
+        files.put(key, file);
+      }
+    }
+
+    @Override
+    public void delete(Key key) {
+      files.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      files.clear();
+    }
+  }
+}
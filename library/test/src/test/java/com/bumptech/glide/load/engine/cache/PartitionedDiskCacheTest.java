@@ -0,0 +1,348 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PartitionedDiskCacheTest {
+  private static final int MAX_SMALL_ENTRY_SIZE = 10;
+  private File dir;
+  private DiskCache first;
+  private DiskCache second;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "partitioned");
+    first = DiskLruCacheWrapper.create(new File(dir, "first"), 1024 * 1024);
+    second = DiskLruCacheWrapper.create(new File(dir, "second"), 1024 * 1024);
+  }
+
+  @After
+  public void tearDown() {
+    first.clear();
+    second.clear();
+    deleteRecursive(dir);
+  }
+
+  @Test
+  public void byDataSource_put_withResourceKey_writesToResourceCache() {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key key = new TestKey("resource", DataSource.RESOURCE_DISK_CACHE);
+
+    cache.put(key, new DataWriter(new byte[] { 1 }));
+
+    assertThat(first.get(key)).isNull();
+    assertThat(second.get(key)).isNotNull();
+    assertThat(cache.get(key)).isNotNull();
+  }
+
+  @Test
+  public void byDataSource_put_withDataKey_writesToDataCache() {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key key = new TestKey("data", DataSource.DATA_DISK_CACHE);
+
+    cache.put(key, new DataWriter(new byte[] { 1 }));
+
+    assertThat(first.get(key)).isNotNull();
+    assertThat(second.get(key)).isNull();
+    assertThat(cache.get(key)).isNotNull();
+  }
+
+  @Test
+  public void byDataSource_put_withOtherKey_writesToDataCache() {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key key = new ObjectKey("other");
+
+    cache.put(key, new DataWriter(new byte[] { 1 }));
+
+    assertThat(first.get(key)).isNotNull();
+    assertThat(second.get(key)).isNull();
+  }
+
+  @Test
+  public void byDataSource_delete_removesEntry() {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key key = new TestKey("resource", DataSource.RESOURCE_DISK_CACHE);
+    cache.put(key, new DataWriter(new byte[] { 1 }));
+
+    cache.delete(key);
+
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void byEntrySize_put_withSmallEntry_writesToSmallEntryCache() throws IOException {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key key = new ObjectKey("small");
+    byte[] data = new byte[MAX_SMALL_ENTRY_SIZE];
+
+    cache.put(key, new DataWriter(data));
+
+    assertThat(first.get(key)).isNotNull();
+    assertThat(second.get(key)).isNull();
+    assertThat(Util.readFile(cache.get(key), data.length)).isEqualTo(data);
+  }
+
+  @Test
+  public void byEntrySize_put_withLargeEntry_writesToLargeEntryCache() throws IOException {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key key = new ObjectKey("large");
+    byte[] data = new byte[MAX_SMALL_ENTRY_SIZE + 1];
+
+    cache.put(key, new DataWriter(data));
+
+    assertThat(first.get(key)).isNull();
+    assertThat(second.get(key)).isNotNull();
+    assertThat(Util.readFile(cache.get(key), data.length)).isEqualTo(data);
+  }
+
+  @Test
+  public void byEntrySize_put_removesTemporaryFile() {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+
+    cache.put(new ObjectKey("small"), new DataWriter(new byte[1]));
+    cache.put(new ObjectKey("large"), new DataWriter(new byte[MAX_SMALL_ENTRY_SIZE + 1]));
+
+    assertThat(new File(dir, "temp").list()).isEmpty();
+  }
+
+  @Test
+  public void byEntrySize_put_withWriterThatFails_doesNotWrite() {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key key = new ObjectKey("failed");
+
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        return false;
+      }
+    });
+
+    assertThat(cache.get(key)).isNull();
+  }
+
+  @Test
+  public void byEntrySize_delete_removesEntryFromEitherCache() {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key small = new ObjectKey("small");
+    Key large = new ObjectKey("large");
+    cache.put(small, new DataWriter(new byte[1]));
+    cache.put(large, new DataWriter(new byte[MAX_SMALL_ENTRY_SIZE + 1]));
+
+    cache.delete(small);
+    cache.delete(large);
+
+    assertThat(cache.get(small)).isNull();
+    assertThat(cache.get(large)).isNull();
+  }
+
+  @Test
+  public void clear_clearsAllPartitions() {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key small = new ObjectKey("small");
+    Key large = new ObjectKey("large");
+    cache.put(small, new DataWriter(new byte[1]));
+    cache.put(large, new DataWriter(new byte[MAX_SMALL_ENTRY_SIZE + 1]));
+
+    cache.clear();
+
+    assertThat(cache.get(small)).isNull();
+    assertThat(cache.get(large)).isNull();
+  }
+
+  @Test
+  public void getPartitionStats_countsHitsMissesAndPutsPerPartition() {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key data = new TestKey("data", DataSource.DATA_DISK_CACHE);
+    Key resource = new TestKey("resource", DataSource.RESOURCE_DISK_CACHE);
+
+    cache.get(resource);
+    cache.put(resource, new DataWriter(new byte[] { 1 }));
+    cache.get(resource);
+    cache.get(resource);
+    cache.get(data);
+
+    List<PartitionedDiskCache.PartitionStats> stats = cache.getPartitionStats();
+    assertThat(stats).hasSize(2);
+    PartitionedDiskCache.PartitionStats dataStats = stats.get(0);
+    assertThat(dataStats.getName()).isEqualTo("data");
+    assertThat(dataStats.getHits()).isEqualTo(0);
+    assertThat(dataStats.getMisses()).isEqualTo(1);
+    assertThat(dataStats.getPuts()).isEqualTo(0);
+    PartitionedDiskCache.PartitionStats resourceStats = stats.get(1);
+    assertThat(resourceStats.getName()).isEqualTo("resource");
+    assertThat(resourceStats.getHits()).isEqualTo(2);
+    assertThat(resourceStats.getMisses()).isEqualTo(1);
+    assertThat(resourceStats.getPuts()).isEqualTo(1);
+  }
+
+  @Test
+  public void getPartitionStats_withSizePartitions_countsMissesInLastPartition() {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key small = new ObjectKey("small");
+    cache.put(small, new DataWriter(new byte[1]));
+
+    cache.get(small);
+    cache.get(new ObjectKey("missing"));
+
+    List<PartitionedDiskCache.PartitionStats> stats = cache.getPartitionStats();
+    assertThat(stats.get(0).getHits()).isEqualTo(1);
+    assertThat(stats.get(0).getMisses()).isEqualTo(0);
+    assertThat(stats.get(1).getHits()).isEqualTo(0);
+    assertThat(stats.get(1).getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void byDataSource_importArchive_importsEntriesIntoPartitionForDataSource()
+      throws IOException {
+    PartitionedDiskCache cache = PartitionedDiskCache.byDataSource(first, second);
+    Key data = new TestKey("data", DataSource.DATA_DISK_CACHE);
+    Key resource = new TestKey("resource", DataSource.RESOURCE_DISK_CACHE);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(data, writeTempFile("data", new byte[] { 1 }))
+        .addEntry(resource, writeTempFile("resource", new byte[] { 2, 3 }))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(2);
+    assertThat(Util.readFile(first.get(data), 1)).isEqualTo(new byte[] { 1 });
+    assertThat(second.get(data)).isNull();
+    assertThat(first.get(resource)).isNull();
+    assertThat(Util.readFile(second.get(resource), 2)).isEqualTo(new byte[] { 2, 3 });
+    assertThat(cache.getPartitionStats().get(0).getPuts()).isEqualTo(1);
+    assertThat(cache.getPartitionStats().get(1).getPuts()).isEqualTo(1);
+  }
+
+  @Test
+  public void byDataSource_importArchive_withPartitionThatCannotImport_skipsItsEntries()
+      throws IOException {
+    PartitionedDiskCache cache =
+        PartitionedDiskCache.byDataSource(first, new DiskCacheAdapter());
+    Key data = new TestKey("data", DataSource.DATA_DISK_CACHE);
+    Key resource = new TestKey("resource", DataSource.RESOURCE_DISK_CACHE);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(resource, writeTempFile("resource", new byte[] { 2, 3 }))
+        .addEntry(data, writeTempFile("data", new byte[] { 1 }))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(1);
+    assertThat(Util.readFile(first.get(data), 1)).isEqualTo(new byte[] { 1 });
+  }
+
+  @Test
+  public void byEntrySize_importArchive_importsEntriesIntoPartitionForSize() throws IOException {
+    PartitionedDiskCache cache = newSizePartitionedCache();
+    Key small = new ObjectKey("small");
+    Key large = new ObjectKey("large");
+    byte[] smallData = new byte[MAX_SMALL_ENTRY_SIZE];
+    byte[] largeData = new byte[MAX_SMALL_ENTRY_SIZE + 1];
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    new DiskCacheArchiveBuilder(archive)
+        .addEntry(small, writeTempFile("small", smallData))
+        .addEntry(large, writeTempFile("large", largeData))
+        .close();
+
+    int imported = cache.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(imported).isEqualTo(2);
+    assertThat(first.get(small)).isNotNull();
+    assertThat(second.get(small)).isNull();
+    assertThat(first.get(large)).isNull();
+    assertThat(Util.readFile(second.get(large), largeData.length)).isEqualTo(largeData);
+  }
+
+  private File writeTempFile(String name, byte[] data) throws IOException {
+    File file = new File(dir, name + ".source");
+    Util.writeFile(file, data);
+    return file;
+  }
+
+  private PartitionedDiskCache newSizePartitionedCache() {
+    return PartitionedDiskCache.byEntrySize(
+        new File(dir, "temp"), MAX_SMALL_ENTRY_SIZE, first, second);
+  }
+
+  private static void deleteRecursive(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        deleteRecursive(f);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  private static final class DataWriter implements DiskCache.Writer {
+    private final byte[] data;
+
+    DataWriter(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      try {
+        Util.writeFile(file, data);
+        return true;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static final class TestKey implements Key, DiskCache.DataSourceKey {
+    private final String id;
+    private final DataSource dataSource;
+
+    TestKey(String id, DataSource dataSource) {
+      this.id = id;
+      this.dataSource = dataSource;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return dataSource;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(id.getBytes(CHARSET));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TestKey && ((TestKey) o).id.equals(id);
+    }
+
+    @Override
+    public int hashCode() {
+      return id.hashCode();
+    }
+  }
+}
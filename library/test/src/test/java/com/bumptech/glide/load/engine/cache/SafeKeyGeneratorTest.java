@@ -1,9 +1,11 @@
 package com.bumptech.glide.load.engine.cache;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
 import java.security.MessageDigest;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,6 +37,64 @@ public class SafeKeyGeneratorTest {
     }
   }
 
+  @Test
+  public void testMurmurKeysAreValidForDiskCache() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.Algorithm.MURMUR3_128);
+    final Pattern diskCacheRegex = Pattern.compile("[a-z0-9_-]{32}");
+    for (int i = 0; i < 1000; i++) {
+      String key = getRandomKeyFromGenerator();
+      Matcher matcher = diskCacheRegex.matcher(key);
+      assertTrue(key, matcher.matches());
+    }
+  }
+
+  @Test
+  public void getSafeKey_withSha256_returnsHexEncodedSha256() {
+    assertThat(keyGenerator.getSafeKey(new MockKey("hello")))
+        .isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+  }
+
+  @Test
+  public void getSafeKey_withMurmur_returnsHexEncodedMurmurHash3() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.Algorithm.MURMUR3_128);
+    assertThat(keyGenerator.getSafeKey(new MockKey("hello")))
+        .isEqualTo("029bbd41b3a7d8cb191dae486a901e5b");
+    assertThat(
+        keyGenerator.getSafeKey(new MockKey("The quick brown fox jumps over the lazy dog")))
+        .isEqualTo("6c1b07bc7bbc4be347939ac4a93c437a");
+  }
+
+  @Test
+  public void getSafeKey_withMurmur_andKeyWrittenInPieces_matchesKeyWrittenAtOnce() {
+    keyGenerator = new SafeKeyGenerator(SafeKeyGenerator.Algorithm.MURMUR3_128);
+    Key pieces = new Key() {
+      @Override
+      public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        messageDigest.update("The quick brown ".getBytes(CHARSET));
+        messageDigest.update((byte) 'f');
+        messageDigest.update("ox jumps over the lazy dog".getBytes(CHARSET));
+      }
+    };
+    assertThat(keyGenerator.getSafeKey(pieces))
+        .isEqualTo("6c1b07bc7bbc4be347939ac4a93c437a");
+  }
+
+  @Test
+  public void getSafeKey_withEqualKeys_returnsMemoizedKey() {
+    String first = keyGenerator.getSafeKey(new ObjectKey("model"));
+    String second = keyGenerator.getSafeKey(new ObjectKey("model"));
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  public void getSafeKey_withDifferentKeys_returnsDifferentKeys() {
+    for (SafeKeyGenerator.Algorithm algorithm : SafeKeyGenerator.Algorithm.values()) {
+      keyGenerator = new SafeKeyGenerator(algorithm);
+      assertThat(keyGenerator.getSafeKey(new ObjectKey("first")))
+          .isNotEqualTo(keyGenerator.getSafeKey(new ObjectKey("second")));
+    }
+  }
+
   private String getRandomKeyFromGenerator() {
     return keyGenerator.getSafeKey(new MockKey(getNextId()));
   }
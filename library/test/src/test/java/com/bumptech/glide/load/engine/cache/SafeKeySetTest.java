@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.signature.ObjectKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class SafeKeySetTest {
+  private static final int ENTRIES = 1000;
+  private SafeKeySet keySet;
+  private SafeKeyGenerator keyGenerator;
+
+  @Before
+  public void setUp() {
+    keySet = new SafeKeySet(16);
+    keyGenerator = new SafeKeyGenerator();
+  }
+
+  @Test
+  public void mightContain_withEmptySet_returnsFalse() {
+    assertThat(keySet.mightContain(safeKey(0))).isFalse();
+  }
+
+  @Test
+  public void mightContain_withAddedKeys_returnsTrue() {
+    for (SafeKeyGenerator.Algorithm algorithm : SafeKeyGenerator.Algorithm.values()) {
+      keyGenerator = new SafeKeyGenerator(algorithm);
+      for (int i = 0; i < ENTRIES; i++) {
+        keySet.add(safeKey(i));
+      }
+      for (int i = 0; i < ENTRIES; i++) {
+        assertThat(keySet.mightContain(safeKey(i))).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void mightContain_withKeysThatWereNotAdded_returnsFalse() {
+    for (int i = 0; i < ENTRIES; i++) {
+      keySet.add(safeKey(i));
+    }
+
+    for (int i = ENTRIES; i < 2 * ENTRIES; i++) {
+      assertThat(keySet.mightContain(safeKey(i))).isFalse();
+    }
+  }
+
+  @Test
+  public void remove_removesOnlyGivenKey() {
+    for (int i = 0; i < ENTRIES; i++) {
+      keySet.add(safeKey(i));
+    }
+
+    for (int i = 0; i < ENTRIES; i += 2) {
+      keySet.remove(safeKey(i));
+    }
+
+    for (int i = 0; i < ENTRIES; i++) {
+      assertThat(keySet.mightContain(safeKey(i))).isEqualTo(i % 2 == 1);
+    }
+    assertThat(keySet.size()).isEqualTo(ENTRIES / 2);
+  }
+
+  @Test
+  public void add_afterRemove_addsKeyAgain() {
+    keySet.add(safeKey(1));
+    keySet.remove(safeKey(1));
+    keySet.add(safeKey(1));
+
+    assertThat(keySet.mightContain(safeKey(1))).isTrue();
+    assertThat(keySet.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void add_withDuplicateKey_doesNotIncreaseSize() {
+    keySet.add(safeKey(1));
+    keySet.add(safeKey(1));
+
+    assertThat(keySet.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void mightContain_withShortKey_returnsTrue() {
+    assertThat(keySet.mightContain("abc")).isTrue();
+  }
+
+  private String safeKey(int i) {
+    return keyGenerator.getSafeKey(new ObjectKey(i));
+  }
+}
@@ -0,0 +1,271 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.bumptech.glide.tests.Util.anyResource;
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.MemoryCache.ResourceRemovedListener;
+import java.security.MessageDigest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheTest {
+  private static final int MAX_SIZE = 100;
+  // Larger than the window, so resources of this size are immediately considered for admission.
+  private static final int LARGE_SIZE = 30;
+  private TinyLfuResourceCache cache;
+  private ResourceRemovedListener listener;
+
+  @Before
+  public void setUp() {
+    cache = new TinyLfuResourceCache(MAX_SIZE, 0.1f);
+    listener = mock(ResourceRemovedListener.class);
+    cache.setResourceRemovedListener(listener);
+  }
+
+  @Test
+  public void put_withSmallResource_addsResourceToWindow() {
+    Key key = new MockKey();
+    cache.put(key, getResource(10));
+
+    assertThat(cache.isInWindow(key)).isTrue();
+    assertThat(cache.getCurrentSize()).isEqualTo(10);
+  }
+
+  @Test
+  public void put_withFullWindowAndRoomInMain_movesEldestToProbation() {
+    Key first = new MockKey();
+    Key second = new MockKey();
+    cache.put(first, getResource(10));
+    cache.put(second, getResource(10));
+
+    assertThat(cache.isOnProbation(first)).isTrue();
+    assertThat(cache.isInWindow(second)).isTrue();
+    verify(listener, never()).onResourceRemoved(anyResource());
+  }
+
+  @Test
+  public void put_withFullCache_rejectsLessFrequentlyRequestedResource() {
+    Key[] hotKeys = fillWithRequestedResources(2 /*requests*/);
+    Key coldKey = new MockKey();
+    Resource<?> cold = getResource(LARGE_SIZE);
+    cache.remove(coldKey);
+    cache.put(coldKey, cold);
+
+    verify(listener).onResourceRemoved(cold);
+    for (Key hotKey : hotKeys) {
+      assertThat(cache.isOnProbation(hotKey)).isTrue();
+    }
+  }
+
+  @Test
+  public void put_withFullCache_admitsMoreFrequentlyRequestedResource() {
+    Key[] coldKeys = fillWithRequestedResources(0 /*requests*/);
+    Key hotKey = new MockKey();
+    Resource<?> hot = getResource(LARGE_SIZE);
+    cache.remove(hotKey);
+    cache.put(hotKey, hot);
+
+    assertThat(cache.isOnProbation(hotKey)).isTrue();
+    assertThat(cache.isOnProbation(coldKeys[0])).isFalse();
+    verify(listener, never()).onResourceRemoved(hot);
+  }
+
+  @Test
+  public void put_withFullCache_rejectsResourceRequestedAsOftenAsVictim() {
+    fillWithRequestedResources(1 /*requests*/);
+    Key key = new MockKey();
+    Resource<?> resource = getResource(LARGE_SIZE);
+    cache.remove(key);
+    cache.put(key, resource);
+
+    verify(listener).onResourceRemoved(resource);
+  }
+
+  @Test
+  public void put_afterRemoveFromMain_addsResourceToProtected() {
+    Key key = new MockKey();
+    Resource<?> resource = getResource(LARGE_SIZE);
+    cache.put(key, resource);
+    assertThat(cache.isOnProbation(key)).isTrue();
+
+    assertThat(cache.remove(key)).isSameAs(resource);
+    cache.put(key, resource);
+
+    assertThat(cache.isProtected(key)).isTrue();
+  }
+
+  @Test
+  public void put_afterRemoveFromMainWithReusedKey_addsResourceToProtected() {
+    Resource<?> resource = getResource(LARGE_SIZE);
+    cache.put(new ReusableKey(1), resource);
+    ReusableKey lookupKey = new ReusableKey(1);
+
+    assertThat(cache.remove(lookupKey)).isSameAs(resource);
+    lookupKey.id = 2;
+    cache.put(new ReusableKey(1), resource);
+
+    assertThat(cache.isProtected(new ReusableKey(1))).isTrue();
+  }
+
+  @Test
+  public void put_afterRemoveFromWindow_addsResourceToWindow() {
+    Key key = new MockKey();
+    Resource<?> resource = getResource(10);
+    cache.put(key, resource);
+
+    assertThat(cache.remove(key)).isSameAs(resource);
+    cache.put(key, resource);
+
+    assertThat(cache.isInWindow(key)).isTrue();
+  }
+
+  @Test
+  public void put_withFullProtected_demotesEldestToProbation() {
+    Key[] keys = fillWithRequestedResources(0 /*requests*/);
+    for (Key key : keys) {
+      cache.put(key, cache.remove(key));
+    }
+
+    assertThat(cache.isOnProbation(keys[0])).isTrue();
+    assertThat(cache.isProtected(keys[1])).isTrue();
+    assertThat(cache.isProtected(keys[2])).isTrue();
+  }
+
+  @Test
+  public void remove_withPresentResource_updatesSize() {
+    Key key = new MockKey();
+    cache.put(key, getResource(LARGE_SIZE));
+
+    cache.remove(key);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withExistingItem_evictsExistingItemAndUpdatesSize() {
+    Key key = new MockKey();
+    Resource<?> first = getResource(LARGE_SIZE);
+    Resource<?> second = getResource(20);
+    cache.put(key, first);
+
+    assertThat(cache.put(key, second)).isSameAs(first);
+
+    verify(listener).onResourceRemoved(first);
+    assertThat(cache.getCurrentSize()).isEqualTo(20);
+  }
+
+  @Test
+  public void put_withResourceLargerThanCache_notifiesListener() {
+    Resource<?> resource = getResource(MAX_SIZE + 1);
+    cache.put(new MockKey(), resource);
+
+    verify(listener).onResourceRemoved(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withBackground_evictsAllResources() {
+    fillWithRequestedResources(0 /*requests*/);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_evictsProbationBeforeProtected() {
+    Key protectedKey = new MockKey();
+    Resource<?> protectedResource = getResource(LARGE_SIZE);
+    cache.put(protectedKey, protectedResource);
+    cache.put(protectedKey, cache.remove(protectedKey));
+    Key probationKey = new MockKey();
+    Resource<?> probationResource = getResource(LARGE_SIZE);
+    cache.put(probationKey, probationResource);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    verify(listener).onResourceRemoved(probationResource);
+    verify(listener, never()).onResourceRemoved(protectedResource);
+    assertThat(cache.isProtected(protectedKey)).isTrue();
+  }
+
+  @Test
+  public void setSizeMultiplier_withSmallerSize_evictsResources() {
+    fillWithRequestedResources(0 /*requests*/);
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertThat(cache.getMaxSize()).isEqualTo(MAX_SIZE / 2);
+    assertThat(cache.getCurrentSize()).isAtMost(MAX_SIZE / 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setSizeMultiplier_withNegativeMultiplier_throws() {
+    cache.setSizeMultiplier(-1);
+  }
+
+  /**
+   * Fills the main region with three large resources that have each been requested the given
+   * number of times.
+   */
+  private Key[] fillWithRequestedResources(int requests) {
+    Key[] keys = new Key[3];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new MockKey();
+      for (int j = 0; j < requests; j++) {
+        cache.remove(keys[i]);
+      }
+      cache.put(keys[i], getResource(LARGE_SIZE));
+    }
+    return keys;
+  }
+
+  private static Resource<?> getResource(int size) {
+    Resource<?> resource = mockResource();
+    when(resource.getSize()).thenReturn(size);
+    return resource;
+  }
+
+  private static class MockKey implements Key {
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(toString().getBytes(CHARSET));
+    }
+  }
+
+  /** Mimics the pooled keys that are cleared and re-used once a lookup completes. */
+  private static class ReusableKey implements Key {
+    int id;
+
+    ReusableKey(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ReusableKey && ((ReusableKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(String.valueOf(id).getBytes(CHARSET));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FetchPoolSizerTest {
+  private static final int DECODE_THREADS = 4;
+  private static final int MIN_THREADS = 2;
+  private static final int MAX_THREADS = 16;
+  private ThreadPoolExecutor fetchPool;
+  private FetchPoolSizer sizer;
+
+  @Before
+  public void setUp() {
+    fetchPool = new ThreadPoolExecutor(MIN_THREADS, MIN_THREADS, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>());
+    sizer = new FetchPoolSizer(fetchPool, DECODE_THREADS, MIN_THREADS, MAX_THREADS);
+  }
+
+  @After
+  public void tearDown() {
+    fetchPool.shutdownNow();
+  }
+
+  @Test
+  public void getTargetThreadCount_withFetchesBlockedLongerThanDecodes_scalesWithRatio() {
+    assertThat(sizer.getTargetThreadCount(/*blockedFetchNanos=*/ 300, /*decodeNanos=*/ 100))
+        .isEqualTo(12);
+  }
+
+  @Test
+  public void getTargetThreadCount_withVeryLongFetches_returnsMax() {
+    assertThat(sizer.getTargetThreadCount(/*blockedFetchNanos=*/ 100000, /*decodeNanos=*/ 1))
+        .isEqualTo(MAX_THREADS);
+  }
+
+  @Test
+  public void getTargetThreadCount_withAsynchronousFetches_returnsMin() {
+    assertThat(sizer.getTargetThreadCount(/*blockedFetchNanos=*/ 0, /*decodeNanos=*/ 100))
+        .isEqualTo(MIN_THREADS);
+  }
+
+  @Test
+  public void getTargetThreadCount_withNoDecodeTime_returnsMaxIfFetchesBlocked() {
+    assertThat(sizer.getTargetThreadCount(/*blockedFetchNanos=*/ 100, /*decodeNanos=*/ 0))
+        .isEqualTo(MAX_THREADS);
+    assertThat(sizer.getTargetThreadCount(/*blockedFetchNanos=*/ 0, /*decodeNanos=*/ 0))
+        .isEqualTo(MIN_THREADS);
+  }
+
+  @Test
+  public void onSourceDataDecoded_beforeEnoughJobs_doesNotResize() {
+    for (int i = 0; i < FetchPoolSizer.JOBS_PER_ADJUSTMENT - 1; i++) {
+      sizer.onSourceDataDecoded(/*blockedFetchNanos=*/ 1000, /*decodeNanos=*/ 100);
+    }
+
+    assertThat(fetchPool.getCorePoolSize()).isEqualTo(MIN_THREADS);
+  }
+
+  @Test
+  public void onSourceDataDecoded_withSlowFetches_growsPool() {
+    recordJobs(/*blockedFetchNanos=*/ 300, /*decodeNanos=*/ 100);
+
+    assertThat(fetchPool.getCorePoolSize()).isEqualTo(12);
+    assertThat(fetchPool.getMaximumPoolSize()).isEqualTo(12);
+  }
+
+  @Test
+  public void onSourceDataDecoded_afterFetchesSpeedUp_shrinksPool() {
+    recordJobs(/*blockedFetchNanos=*/ 300, /*decodeNanos=*/ 100);
+    for (int i = 0; i < 4; i++) {
+      recordJobs(/*blockedFetchNanos=*/ 0, /*decodeNanos=*/ 100);
+    }
+
+    assertThat(fetchPool.getCorePoolSize()).isEqualTo(MIN_THREADS);
+    assertThat(fetchPool.getMaximumPoolSize()).isEqualTo(MIN_THREADS);
+  }
+
+  private void recordJobs(long blockedFetchNanos, long decodeNanos) {
+    for (int i = 0; i < FetchPoolSizer.JOBS_PER_ADJUSTMENT; i++) {
+      sizer.onSourceDataDecoded(blockedFetchNanos, decodeNanos);
+    }
+  }
+}
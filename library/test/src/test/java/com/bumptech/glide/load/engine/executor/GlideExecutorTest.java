@@ -3,9 +3,11 @@ package com.bumptech.glide.load.engine.executor;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +39,201 @@ public class GlideExecutorTest {
     assertThat(resultPriorities).containsExactly(5, 1, 2, 3, 4).inOrder();
   }
 
+  @Test
+  public void newPrioritizedSourceExecutor_runsJobsAndReportsStats() throws InterruptedException {
+    final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    GlideExecutor executor = GlideExecutor.newPrioritizedSourceExecutor();
+    for (int i = 0; i < 5; i++) {
+      executor.execute(new MockRunnable(i, new MockRunnable.OnRun() {
+        @Override
+        public void onRun(int priority) {
+          results.add(priority);
+        }
+      }));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    assertThat(results).containsExactly(0, 1, 2, 3, 4);
+    JobQueueStats stats = executor.getJobQueueStats(Priority.NORMAL);
+    assertThat(stats).isNotNull();
+    assertThat(stats.getQueueDepth()).isEqualTo(0);
+    assertThat(stats.getCompletedCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void newPrioritizedSourceExecutor_takesEveryJobFromQueue() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newPrioritizedSourceExecutor();
+    for (int i = 0; i < 5; i++) {
+      executor.execute(new MockRunnable(i, new MockRunnable.OnRun() {
+        @Override
+        public void onRun(int priority) {
+          // Do nothing.
+        }
+      }));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    // Jobs given directly to new threads instead of queued wouldn't be counted.
+    assertThat(executor.getJobQueueStats(Priority.NORMAL).getStartedCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void newAdaptiveSourceExecutor_providesDecodeExecutor() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newAdaptiveSourceExecutor();
+    GlideExecutor decodeExecutor = executor.getDecodeExecutor();
+
+    assertThat(decodeExecutor).isNotNull();
+    final CountDownLatch ran = new CountDownLatch(1);
+    decodeExecutor.execute(new MockRunnable(0, new MockRunnable.OnRun() {
+      @Override
+      public void onRun(int priority) {
+        ran.countDown();
+      }
+    }));
+    assertThat(ran.await(500, TimeUnit.MILLISECONDS)).isTrue();
+
+    executor.shutdown();
+    assertThat(executor.awaitTermination(500, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(decodeExecutor.isShutdown()).isTrue();
+  }
+
+  @Test
+  public void getDecodeExecutor_withExecutorThatIsNotAdaptive_returnsNull() {
+    GlideExecutor executor = GlideExecutor.newSourceExecutor();
+
+    assertThat(executor.getDecodeExecutor()).isNull();
+
+    executor.shutdown();
+  }
+
+  @Test
+  public void getJobQueueStats_withExecutorThatIsNotPrioritized_returnsNull() {
+    GlideExecutor executor = GlideExecutor.newDiskCacheExecutor();
+
+    assertThat(executor.getJobQueueStats(Priority.NORMAL)).isNull();
+
+    executor.shutdown();
+  }
+
+  @Test
+  public void remove_withQueuedJob_removesJob() throws InterruptedException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    GlideExecutor executor =
+        GlideExecutor.newPrioritizedSourceExecutor(
+            /*threadCount=*/ 1,
+            "test",
+            GlideExecutor.UncaughtThrowableStrategy.THROW,
+            /*agingIntervalMillis=*/ 1000,
+            /*fairnessBudget=*/ 8);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    MockRunnable removed = new MockRunnable(1, new MockRunnable.OnRun() {
+      @Override
+      public void onRun(int priority) {
+        results.add(priority);
+      }
+    });
+    executor.execute(removed);
+
+    assertThat(executor.remove(removed)).isTrue();
+    assertThat(executor.remove(removed)).isFalse();
+    blocked.countDown();
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    assertThat(results).isEmpty();
+    assertThat(executor.getJobQueueStats(Priority.NORMAL).getRemovedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void newParallelDiskCacheExecutor_runsJobsConcurrently() throws InterruptedException {
+    GlideExecutor executor =
+        GlideExecutor.newParallelDiskCacheExecutor(
+            /*threadCount=*/ 2, "test", GlideExecutor.UncaughtThrowableStrategy.THROW);
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    final CountDownLatch bothFinished = new CountDownLatch(2);
+    for (int i = 0; i < 2; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          bothStarted.countDown();
+          try {
+            // Only completes if the other job is running at the same time.
+            if (bothStarted.await(1, TimeUnit.SECONDS)) {
+              bothFinished.countDown();
+            }
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+    }
+
+    assertThat(bothFinished.await(2, TimeUnit.SECONDS)).isTrue();
+    assertThat(executor.getJobQueueStats(Priority.NORMAL)).isNotNull();
+    executor.shutdown();
+  }
+
+  @Test
+  public void getQueueDepth_returnsNumberOfJobsWaitingForAThread() throws InterruptedException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    GlideExecutor executor =
+        GlideExecutor.newParallelDiskCacheExecutor(
+            /*threadCount=*/ 1, "test", GlideExecutor.UncaughtThrowableStrategy.THROW);
+    final CountDownLatch started = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+    for (int i = 0; i < 3; i++) {
+      executor.execute(new MockRunnable(i, new MockRunnable.OnRun() {
+        @Override
+        public void onRun(int priority) {
+          // Do nothing.
+        }
+      }));
+    }
+
+    assertThat(executor.getQueueDepth()).isEqualTo(3);
+    blocked.countDown();
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+    assertThat(executor.getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void remove_withExecutorThatIsNotAThreadPool_returnsFalse() {
+    GlideExecutor executor = MockGlideExecutor.newMainThreadExecutor();
+
+    assertThat(executor.remove(new Runnable() {
+      @Override
+      public void run() {
+        // Do nothing.
+      }
+    })).isFalse();
+  }
+
   private static final class MockRunnable implements Runnable,
       Comparable<MockRunnable> {
     private final int priority;
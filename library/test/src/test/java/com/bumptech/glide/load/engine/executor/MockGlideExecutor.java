@@ -29,6 +29,16 @@ public final class MockGlideExecutor {
     return newTestExecutor(new DirectExecutorService());
   }
 
+  /**
+   * Returns an executor that runs jobs on the calling thread and hands fetched data off to the
+   * given executor to be decoded, like the executors returned by
+   * {@link GlideExecutor#newAdaptiveSourceExecutor()}.
+   */
+  public static GlideExecutor newMainThreadExecutor(GlideExecutor decodeExecutor) {
+    return new GlideExecutor(
+        new DirectExecutorService(), decodeExecutor, /*fetchPoolSizer=*/ null);
+  }
+
   /**
    * @deprecated Use {@link #newMainThreadExecutor} instead.
    */
@@ -0,0 +1,349 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PrioritizedJobQueueTest {
+  private static final long AGING_INTERVAL_MS = 100;
+  private static final int FAIRNESS_BUDGET = 2;
+  private FakeTimeSource timeSource;
+  private PrioritizedJobQueue queue;
+
+  @Before
+  public void setUp() {
+    timeSource = new FakeTimeSource();
+    queue = new PrioritizedJobQueue(AGING_INTERVAL_MS, FAIRNESS_BUDGET, timeSource);
+  }
+
+  @Test
+  public void poll_withEmptyQueue_returnsNull() {
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  public void poll_withTimeoutAndEmptyQueue_returnsNull() throws InterruptedException {
+    assertThat(queue.poll(1, TimeUnit.MILLISECONDS)).isNull();
+  }
+
+  @Test
+  public void poll_returnsHigherPriorityJobsFirst() {
+    TestJob low = new TestJob(Priority.LOW);
+    TestJob immediate = new TestJob(Priority.IMMEDIATE);
+    TestJob normal = new TestJob(Priority.NORMAL);
+    TestJob high = new TestJob(Priority.HIGH);
+    queue.offer(low);
+    queue.offer(immediate);
+    queue.offer(normal);
+    queue.offer(high);
+
+    assertThat(pollAll()).containsExactly(immediate, high, normal, low).inOrder();
+  }
+
+  @Test
+  public void poll_withEqualPriorities_returnsJobsInOrderQueued() {
+    TestJob first = new TestJob(Priority.NORMAL);
+    TestJob second = new TestJob(Priority.NORMAL);
+    TestJob third = new TestJob(Priority.NORMAL);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+
+    assertThat(pollAll()).containsExactly(first, second, third).inOrder();
+  }
+
+  @Test
+  public void poll_withRunnableThatIsNotPrioritized_treatsRunnableAsNormalPriority() {
+    TestJob low = new TestJob(Priority.LOW);
+    Runnable plain = new TestRunnable();
+    TestJob high = new TestJob(Priority.HIGH);
+    queue.offer(low);
+    queue.offer(plain);
+    queue.offer(high);
+
+    assertThat(pollAll()).containsExactly(high, plain, low).inOrder();
+  }
+
+  @Test
+  public void poll_withLowPriorityJobOlderThanAgingInterval_returnsOldJobFirst() {
+    TestJob low = new TestJob(Priority.LOW);
+    queue.offer(low);
+    timeSource.advance(AGING_INTERVAL_MS + AGING_INTERVAL_MS / 2);
+    TestJob normal = new TestJob(Priority.NORMAL);
+    queue.offer(normal);
+
+    assertThat(pollAll()).containsExactly(low, normal).inOrder();
+  }
+
+  @Test
+  public void poll_withLowPriorityJobYoungerThanAgingInterval_returnsHigherPriorityJobFirst() {
+    TestJob low = new TestJob(Priority.LOW);
+    queue.offer(low);
+    timeSource.advance(AGING_INTERVAL_MS / 2);
+    TestJob normal = new TestJob(Priority.NORMAL);
+    queue.offer(normal);
+
+    assertThat(pollAll()).containsExactly(normal, low).inOrder();
+  }
+
+  @Test
+  public void poll_withGroupOverFairnessBudget_interleavesOtherGroupsJobs() {
+    Object busy = new Object();
+    Object other = new Object();
+    TestJob busy1 = new TestJob(Priority.NORMAL, busy);
+    TestJob busy2 = new TestJob(Priority.NORMAL, busy);
+    TestJob busy3 = new TestJob(Priority.NORMAL, busy);
+    TestJob busy4 = new TestJob(Priority.NORMAL, busy);
+    queue.offer(busy1);
+    queue.offer(busy2);
+    queue.offer(busy3);
+    queue.offer(busy4);
+    TestJob other1 = new TestJob(Priority.NORMAL, other);
+    queue.offer(other1);
+
+    assertThat(pollAll()).containsExactly(busy1, busy2, other1, busy3, busy4).inOrder();
+  }
+
+  @Test
+  public void poll_withGroupWhoseJobsWereRemoved_doesNotPenalizeGroup() {
+    Object busy = new Object();
+    Object other = new Object();
+    TestJob removed1 = new TestJob(Priority.NORMAL, busy);
+    TestJob removed2 = new TestJob(Priority.NORMAL, busy);
+    queue.offer(removed1);
+    queue.offer(removed2);
+    queue.remove(removed1);
+    queue.remove(removed2);
+
+    TestJob other1 = new TestJob(Priority.NORMAL, other);
+    queue.offer(other1);
+    TestJob busy1 = new TestJob(Priority.NORMAL, busy);
+    TestJob busy2 = new TestJob(Priority.NORMAL, busy);
+    TestJob busy3 = new TestJob(Priority.NORMAL, busy);
+    queue.offer(busy1);
+    queue.offer(busy2);
+    queue.offer(busy3);
+    TestJob other2 = new TestJob(Priority.NORMAL, other);
+    queue.offer(other2);
+
+    assertThat(pollAll()).containsExactly(other1, busy1, busy2, other2, busy3).inOrder();
+  }
+
+  @Test
+  public void offer_withJobAlreadyQueued_doesNotQueueJobAgain() {
+    TestJob job = new TestJob(Priority.NORMAL);
+    assertThat(queue.offer(job)).isTrue();
+    assertThat(queue.offer(job)).isTrue();
+
+    assertThat(queue.size()).isEqualTo(1);
+    assertThat(pollAll()).containsExactly(job);
+  }
+
+  @Test
+  public void offer_withJobThatWasPolled_queuesJobAgain() {
+    TestJob job = new TestJob(Priority.NORMAL);
+    queue.offer(job);
+    queue.poll();
+
+    queue.offer(job);
+
+    assertThat(queue.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void remove_withQueuedJob_returnsTrueAndRemovesJob() {
+    TestJob removed = new TestJob(Priority.HIGH);
+    TestJob other = new TestJob(Priority.NORMAL);
+    queue.offer(removed);
+    queue.offer(other);
+
+    assertThat(queue.remove(removed)).isTrue();
+
+    assertThat(queue.contains(removed)).isFalse();
+    assertThat(pollAll()).containsExactly(other);
+  }
+
+  @Test
+  public void remove_withJobThatIsNotQueued_returnsFalse() {
+    queue.offer(new TestJob(Priority.NORMAL));
+
+    assertThat(queue.remove(new TestJob(Priority.NORMAL))).isFalse();
+    assertThat(queue.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void remove_withJobThatWasPolled_returnsFalse() {
+    TestJob job = new TestJob(Priority.NORMAL);
+    queue.offer(job);
+    queue.poll();
+
+    assertThat(queue.remove(job)).isFalse();
+  }
+
+  @Test
+  public void remove_withManyJobs_preservesOrderOfRemainingJobs() {
+    Random random = new Random(42);
+    Priority[] priorities = Priority.values();
+    List<TestJob> queued = new ArrayList<>();
+    List<TestJob> toRemove = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      TestJob job = new TestJob(priorities[random.nextInt(priorities.length)]);
+      queue.offer(job);
+      queued.add(job);
+      if (random.nextBoolean()) {
+        toRemove.add(job);
+      }
+    }
+    for (TestJob job : toRemove) {
+      assertThat(queue.remove(job)).isTrue();
+    }
+    List<TestJob> expected = new ArrayList<>();
+    for (Priority priority : priorities) {
+      for (TestJob job : queued) {
+        if (job.getPriority() == priority && !toRemove.contains(job)) {
+          expected.add(job);
+        }
+      }
+    }
+
+    assertThat(pollAll()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  public void drainTo_addsJobsInPriorityOrder() {
+    TestJob low = new TestJob(Priority.LOW);
+    TestJob high = new TestJob(Priority.HIGH);
+    queue.offer(low);
+    queue.offer(high);
+    List<Runnable> drained = new ArrayList<>();
+
+    assertThat(queue.drainTo(drained)).isEqualTo(2);
+
+    assertThat(drained).containsExactly(high, low).inOrder();
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void iterator_remove_removesJobFromQueue() {
+    TestJob job = new TestJob(Priority.NORMAL);
+    queue.offer(job);
+
+    Iterator<Runnable> iterator = queue.iterator();
+    assertThat(iterator.next()).isEqualTo(job);
+    iterator.remove();
+
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void getStats_reportsQueueDepthPerPriority() {
+    queue.offer(new TestJob(Priority.HIGH));
+    queue.offer(new TestJob(Priority.HIGH));
+    queue.offer(new TestJob(Priority.LOW));
+
+    assertThat(queue.getStats(Priority.HIGH).getQueueDepth()).isEqualTo(2);
+    assertThat(queue.getStats(Priority.LOW).getQueueDepth()).isEqualTo(1);
+    assertThat(queue.getStats(Priority.NORMAL).getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void getStats_afterPoll_reportsStartedCountAndWaitTime() {
+    queue.offer(new TestJob(Priority.NORMAL));
+    timeSource.advance(30);
+    queue.poll();
+
+    JobQueueStats stats = queue.getStats(Priority.NORMAL);
+    assertThat(stats.getQueueDepth()).isEqualTo(0);
+    assertThat(stats.getStartedCount()).isEqualTo(1);
+    assertThat(stats.getTotalWaitTimeMillis()).isEqualTo(30);
+  }
+
+  @Test
+  public void getStats_afterRemove_reportsRemovedCount() {
+    TestJob job = new TestJob(Priority.LOW);
+    queue.offer(job);
+    queue.remove(job);
+
+    JobQueueStats stats = queue.getStats(Priority.LOW);
+    assertThat(stats.getQueueDepth()).isEqualTo(0);
+    assertThat(stats.getRemovedCount()).isEqualTo(1);
+    assertThat(stats.getStartedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getStats_afterJobCompleted_reportsRunTime() {
+    queue.onJobCompleted(Priority.IMMEDIATE, TimeUnit.MILLISECONDS.toNanos(12));
+    queue.onJobCompleted(Priority.IMMEDIATE, TimeUnit.MILLISECONDS.toNanos(8));
+
+    JobQueueStats stats = queue.getStats(Priority.IMMEDIATE);
+    assertThat(stats.getCompletedCount()).isEqualTo(2);
+    assertThat(stats.getTotalRunTimeMillis()).isEqualTo(20);
+  }
+
+  private List<Runnable> pollAll() {
+    List<Runnable> result = new ArrayList<>();
+    Runnable runnable;
+    while ((runnable = queue.poll()) != null) {
+      result.add(runnable);
+    }
+    return result;
+  }
+
+  private static final class FakeTimeSource implements PrioritizedJobQueue.TimeSource {
+    private long nanoTime;
+
+    void advance(long millis) {
+      nanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanoTime;
+    }
+  }
+
+  private static class TestRunnable implements Runnable {
+    @Override
+    public void run() {
+      // Do nothing.
+    }
+  }
+
+  private static final class TestJob extends TestRunnable implements PrioritizedJob {
+    private final Priority priority;
+    @Nullable private final Object group;
+
+    TestJob(Priority priority) {
+      this(priority, /*group=*/ null);
+    }
+
+    TestJob(Priority priority, @Nullable Object group) {
+      this.priority = priority;
+      this.group = group;
+    }
+
+    @NonNull
+    @Override
+    public Priority getPriority() {
+      return priority;
+    }
+
+    @Nullable
+    @Override
+    public Object getFairnessGroup() {
+      return group;
+    }
+  }
+}
@@ -86,6 +86,88 @@ public class BitmapEncoderTest {
     assertContains(fakeBytes, Bitmap.CompressFormat.PNG.toString());
   }
 
+  @Test
+  public void testEncoderUsesPolicyFormatWithNullFormat() throws IOException {
+    harness.setFormat(null);
+    harness.bitmap.setHasAlpha(true);
+    harness.setPolicy(
+        new BitmapEncodingPolicy.Builder().setAlphaFormat(Bitmap.CompressFormat.WEBP).build());
+
+    String fakeBytes = harness.encode();
+
+    assertContains(fakeBytes, Bitmap.CompressFormat.WEBP.toString());
+  }
+
+  @Test
+  public void testEncoderUsesPolicyLargeAlphaFormatForBitmapAtThreshold() throws IOException {
+    harness.setFormat(null);
+    harness.bitmap.setHasAlpha(true);
+    harness.setPolicy(
+        new BitmapEncodingPolicy.Builder()
+            .setLargeAlphaFormat(Bitmap.CompressFormat.WEBP, /*minPixels=*/ 100 * 100)
+            .build());
+
+    String fakeBytes = harness.encode();
+
+    assertContains(fakeBytes, Bitmap.CompressFormat.WEBP.toString());
+  }
+
+  @Test
+  public void testEncoderUsesPolicyAlphaFormatForBitmapBelowLargeThreshold() throws IOException {
+    harness.setFormat(null);
+    harness.bitmap.setHasAlpha(true);
+    harness.setPolicy(
+        new BitmapEncodingPolicy.Builder()
+            .setLargeAlphaFormat(Bitmap.CompressFormat.WEBP, /*minPixels=*/ 100 * 100 + 1)
+            .build());
+
+    String fakeBytes = harness.encode();
+
+    assertContains(fakeBytes, Bitmap.CompressFormat.PNG.toString());
+  }
+
+  @Test
+  public void testEncoderPrefersNonNullCompressFormatToPolicyFormat() throws IOException {
+    harness.setFormat(Bitmap.CompressFormat.JPEG);
+    harness.bitmap.setHasAlpha(true);
+    harness.setPolicy(
+        new BitmapEncodingPolicy.Builder().setAlphaFormat(Bitmap.CompressFormat.WEBP).build());
+
+    String fakeBytes = harness.encode();
+
+    assertContains(fakeBytes, Bitmap.CompressFormat.JPEG.toString());
+  }
+
+  @Test
+  public void testEncoderRecordsEncodeInPolicy() {
+    harness.bitmap.setHasAlpha(false);
+    BitmapEncodingPolicy policy = new BitmapEncodingPolicy.Builder().build();
+    harness.setPolicy(policy);
+
+    BitmapEncoder encoder = new BitmapEncoder(harness.arrayPool);
+    assertTrue(encoder.encode(harness.resource, harness.file, harness.options));
+
+    BitmapEncodingPolicy.FormatStats stats = policy.getStats(Bitmap.CompressFormat.JPEG);
+    assertThat(stats.getEncodes()).isEqualTo(1);
+    assertThat(stats.getTotalBytes()).isEqualTo(harness.file.length());
+  }
+
+  @Test
+  public void testEncoderSkipsEncodeExpectedToExceedPolicyTimeBudget() {
+    harness.bitmap.setHasAlpha(false);
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setMaxEncodeTimeMillis(10).build();
+    for (int i = 0; i < 3; i++) {
+      policy.onEncoded(harness.bitmap, Bitmap.CompressFormat.JPEG, 100, /*elapsedMillis=*/ 20);
+    }
+    harness.setPolicy(policy);
+
+    BitmapEncoder encoder = new BitmapEncoder(harness.arrayPool);
+    assertThat(encoder.encode(harness.resource, harness.file, harness.options)).isFalse();
+    assertThat(harness.file.exists()).isFalse();
+    assertThat(policy.getStats(Bitmap.CompressFormat.JPEG).getSkipped()).isEqualTo(1);
+  }
+
   @Test
   public void testReturnsTrueFromWrite() {
     BitmapEncoder encoder = new BitmapEncoder(harness.arrayPool);
@@ -121,6 +203,10 @@ public class BitmapEncoderTest {
       options.set(BitmapEncoder.COMPRESSION_FORMAT, format);
     }
 
+    void setPolicy(BitmapEncodingPolicy policy) {
+      options.set(BitmapEncoder.ENCODING_POLICY, policy);
+    }
+
     String encode() throws IOException {
       BitmapEncoder encoder = new BitmapEncoder(arrayPool);
       encoder.encode(resource, file, options);
@@ -0,0 +1,131 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.os.Build;
+import com.bumptech.glide.tests.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class BitmapEncodingPolicyTest {
+  private Bitmap small;
+  private Bitmap large;
+
+  private int currentBuildVersion;
+
+  @Before
+  public void setUp() {
+    currentBuildVersion = Build.VERSION.SDK_INT;
+    small = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    large = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+  }
+
+  @After
+  public void tearDown() {
+    Util.setSdkVersionInt(currentBuildVersion);
+  }
+
+  @Test
+  public void getFormat_withDefaults_matchesBitmapEncoder() {
+    BitmapEncodingPolicy policy = new BitmapEncodingPolicy.Builder().build();
+
+    small.setHasAlpha(true);
+    assertThat(policy.getFormat(small)).isEqualTo(CompressFormat.PNG);
+    small.setHasAlpha(false);
+    assertThat(policy.getFormat(small)).isEqualTo(CompressFormat.JPEG);
+  }
+
+  @Test
+  public void getFormat_withAlphaFormat_returnsAlphaFormatForBitmapsWithAlpha() {
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setAlphaFormat(CompressFormat.WEBP).build();
+
+    small.setHasAlpha(true);
+    assertThat(policy.getFormat(small)).isEqualTo(CompressFormat.WEBP);
+    small.setHasAlpha(false);
+    assertThat(policy.getFormat(small)).isEqualTo(CompressFormat.JPEG);
+  }
+
+  @Test
+  public void getFormat_withWebpAlphaFormat_beforeJellyBeanMr2_returnsPng() {
+    Util.setSdkVersionInt(17);
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setAlphaFormat(CompressFormat.WEBP).build();
+
+    small.setHasAlpha(true);
+    assertThat(policy.getFormat(small)).isEqualTo(CompressFormat.PNG);
+  }
+
+  @Test
+  public void shouldEncode_withoutTimeBudget_returnsTrue() {
+    BitmapEncodingPolicy policy = new BitmapEncodingPolicy.Builder().build();
+    recordEncodes(policy, small, /*elapsedMillis=*/ 1000);
+
+    assertThat(policy.shouldEncode(large, CompressFormat.PNG)).isTrue();
+  }
+
+  @Test
+  public void shouldEncode_withTooFewEncodes_returnsTrue() {
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setMaxEncodeTimeMillis(1).build();
+    policy.onEncoded(small, CompressFormat.PNG, 100, /*elapsedMillis=*/ 1000);
+
+    assertThat(policy.shouldEncode(large, CompressFormat.PNG)).isTrue();
+  }
+
+  @Test
+  public void shouldEncode_scalesEstimateByPixelCount() {
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setMaxEncodeTimeMillis(10).build();
+    // 1ms for 100 pixels, so 100ms for the 10,000 pixels in the large Bitmap.
+    recordEncodes(policy, small, /*elapsedMillis=*/ 1);
+
+    assertThat(policy.shouldEncode(small, CompressFormat.PNG)).isTrue();
+    assertThat(policy.shouldEncode(large, CompressFormat.PNG)).isFalse();
+    assertThat(policy.getStats(CompressFormat.PNG).getSkipped()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldEncode_usesEstimatesForEachFormatSeparately() {
+    BitmapEncodingPolicy policy =
+        new BitmapEncodingPolicy.Builder().setMaxEncodeTimeMillis(10).build();
+    recordEncodes(policy, small, /*elapsedMillis=*/ 1);
+
+    assertThat(policy.shouldEncode(large, CompressFormat.WEBP)).isTrue();
+  }
+
+  @Test
+  public void getStats_returnsTotalsForFormat() {
+    BitmapEncodingPolicy policy = new BitmapEncodingPolicy.Builder().build();
+    policy.onEncoded(small, CompressFormat.PNG, 150, /*elapsedMillis=*/ 2);
+    policy.onEncoded(small, CompressFormat.PNG, 50, /*elapsedMillis=*/ 3);
+
+    BitmapEncodingPolicy.FormatStats stats = policy.getStats(CompressFormat.PNG);
+    assertThat(stats.getFormat()).isEqualTo(CompressFormat.PNG);
+    assertThat(stats.getEncodes()).isEqualTo(2);
+    assertThat(stats.getTotalBytes()).isEqualTo(200L);
+    assertThat(stats.getTotalMillis()).isWithin(0.001).of(5);
+    assertThat(stats.getBytesPerPixel()).isWithin(0.001).of(1);
+    assertThat(policy.getStats(CompressFormat.JPEG).getEncodes()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setMaxEncodeTimeMillis_withZero_throws() {
+    new BitmapEncodingPolicy.Builder().setMaxEncodeTimeMillis(0);
+  }
+
+  private static void recordEncodes(
+      BitmapEncodingPolicy policy, Bitmap bitmap, double elapsedMillis) {
+    for (int i = 0; i < 3; i++) {
+      policy.onEncoded(bitmap, CompressFormat.PNG, 100, elapsedMillis);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.load.ImageHeaderInfo;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.ImageHeaderParser.ImageType;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
@@ -318,6 +319,101 @@ public class DefaultImageHeaderParserTest {
     assertEquals(ImageHeaderParser.UNKNOWN_ORIENTATION, parser.getOrientation(data, byteArrayPool));
   }
 
+  @Test
+  public void getHeaderInfo_withJpeg_returnsTypeOrientationAndDimensions() throws IOException {
+    byte[] data =
+        Util.readBytes(TestResourceUtil.openResource(getClass(), "issue387_rotated_jpeg.jpg"));
+    runHeaderInfoTest(data, ImageType.JPEG, 6, 4128, 2322);
+  }
+
+  @Test
+  public void getHeaderInfo_withJpegWithoutOrientation_returnsDimensions() throws IOException {
+    byte[] data =
+        Util.readBytes(TestResourceUtil.openResource(getClass(), "short_exif_sample.jpg"));
+    runHeaderInfoTest(data, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION, 280, 140);
+  }
+
+  @Test
+  public void getHeaderInfo_withTruncatedJpeg_returnsUnknownDimensions() throws IOException {
+    byte[] data =
+        Util.readBytes(TestResourceUtil.openResource(getClass(), "issue387_rotated_jpeg.jpg"));
+    byte[] truncated = new byte[100];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    runHeaderInfoTest(truncated, ImageType.JPEG, ImageHeaderParser.UNKNOWN_ORIENTATION,
+        ImageHeaderInfo.UNKNOWN_DIMENSION, ImageHeaderInfo.UNKNOWN_DIMENSION);
+  }
+
+  @Test
+  public void getHeaderInfo_withPng_returnsTypeAndDimensions() throws IOException {
+    runHeaderInfoTest(PNG_HEADER_WITH_IHDR_CHUNK, ImageType.PNG_A,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, 400, 300);
+  }
+
+  @Test
+  public void getHeaderInfo_withGif_returnsTypeAndDimensions() throws IOException {
+    byte[] data = Util.readBytes(TestResourceUtil.openResource(getClass(), "test.gif"));
+    runHeaderInfoTest(data, ImageType.GIF, ImageHeaderParser.UNKNOWN_ORIENTATION, 120, 80);
+  }
+
+  @Test
+  public void getHeaderInfo_withLosslessWebp_returnsTypeAndDimensions() throws IOException {
+    byte[] data = new byte[] { 0x52, 0x49, 0x46, 0x46, 0x3c, 0x50, 0x00, 0x00, 0x57, 0x45, 0x42,
+        0x50, 0x56, 0x50, 0x38, 0x4c, 0x30, 0x50, 0x00, 0x00, 0x2f, (byte) 0xef, (byte) 0x80, 0x15,
+        0x10, (byte) 0x8d, 0x30, 0x68, 0x1b, (byte) 0xc9, (byte) 0x91, (byte) 0xb2 };
+    runHeaderInfoTest(data, ImageType.WEBP_A, ImageHeaderParser.UNKNOWN_ORIENTATION, 240, 87);
+  }
+
+  @Test
+  public void getHeaderInfo_withLossyWebp_returnsTypeAndDimensions() throws IOException {
+    byte[] data = new byte[] { 0x52, 0x49, 0x46, 0x46, 0x72, 0x1c, 0x00, 0x00, 0x57, 0x45, 0x42,
+        0x50, 0x56, 0x50, 0x38, 0x20, 0x66, 0x1c, 0x00, 0x00, 0x30, 0x3c, 0x01, (byte) 0x9d, 0x01,
+        0x2a, 0x52, 0x02, (byte) 0x94, 0x03, 0x00, (byte) 0xc7 };
+    runHeaderInfoTest(data, ImageType.WEBP, ImageHeaderParser.UNKNOWN_ORIENTATION, 594, 916);
+  }
+
+  @Test
+  public void getHeaderInfo_withExtendedWebp_returnsTypeAndDimensions() throws IOException {
+    byte[] data = new byte[] { 0x52, 0x49, 0x46, 0x46, 0x00, 0x00, 0x00, 0x00, 0x57, 0x45, 0x42,
+        0x50, 0x56, 0x50, 0x38, 0x58, 0x0a, 0x00, 0x00, 0x00, 0x10, 0x00, 0x00, 0x00,
+        // Canvas width - 1 = 0x12b (299), canvas height - 1 = 0x18f (399).
+        0x2b, 0x01, 0x00, (byte) 0x8f, 0x01, 0x00 };
+    runHeaderInfoTest(data, ImageType.WEBP_A, ImageHeaderParser.UNKNOWN_ORIENTATION, 300, 400);
+  }
+
+  @Test
+  public void getHeaderInfo_withUnknownData_returnsUnknown() throws IOException {
+    runHeaderInfoTest(new byte[] { 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0 }, ImageType.UNKNOWN,
+        ImageHeaderParser.UNKNOWN_ORIENTATION, ImageHeaderInfo.UNKNOWN_DIMENSION,
+        ImageHeaderInfo.UNKNOWN_DIMENSION);
+  }
+
+  private static void runHeaderInfoTest(byte[] data, final ImageType type, final int orientation,
+      final int width, final int height) throws IOException {
+    runTest(data, new ParserTestCase() {
+      @Override
+      public void run(DefaultImageHeaderParser parser, InputStream is, ArrayPool byteArrayPool)
+          throws IOException {
+        assertHeaderInfo(parser.getHeaderInfo(is, byteArrayPool), type, orientation, width,
+            height);
+      }
+
+      @Override
+      public void run(DefaultImageHeaderParser parser, ByteBuffer byteBuffer,
+          ArrayPool byteArrayPool) throws IOException {
+        assertHeaderInfo(parser.getHeaderInfo(byteBuffer, byteArrayPool), type, orientation,
+            width, height);
+      }
+    });
+  }
+
+  private static void assertHeaderInfo(ImageHeaderInfo info, ImageType type, int orientation,
+      int width, int height) {
+    assertThat(info.getType()).isEqualTo(type);
+    assertThat(info.getOrientation()).isEqualTo(orientation);
+    assertThat(info.getWidth()).isEqualTo(width);
+    assertThat(info.getHeight()).isEqualTo(height);
+  }
+
   private static ByteBuffer getExifMagicNumber() {
     ByteBuffer jpegHeaderBytes = ByteBuffer.allocate(2);
     jpegHeaderBytes.putShort((short) DefaultImageHeaderParser.EXIF_MAGIC_NUMBER);
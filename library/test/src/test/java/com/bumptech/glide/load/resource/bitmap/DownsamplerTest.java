@@ -0,0 +1,125 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DownsamplerTest {
+  private static final int[][] SOURCE_SIZES = new int[][] {
+      { 640, 480 }, { 1337, 1001 }, { 1001, 1337 }, { 2048, 1536 }, { 3000, 2000 },
+      { 799, 100 }, { 100, 800 }, { 200, 450 }, { 87, 78 },
+  };
+  private static final int[][] TARGET_SIZES = new int[][] {
+      { 100, 100 }, { 240, 180 }, { 333, 250 }, { 720, 405 }, { 1080, 607 }, { 500, 500 },
+      { 897, 897 },
+  };
+
+  private final BitmapPool bitmapPool = new BitmapPoolAdapter();
+
+  @Test
+  public void setExactDensities_withFitCenter_decodesToFitCenterOutputSize() {
+    assertDecodesToTransformedSize(DownsampleStrategy.FIT_CENTER, 0 /*degreesToRotate*/);
+  }
+
+  @Test
+  public void setExactDensities_withFitCenterAndRotation_decodesToFitCenterOutputSize() {
+    assertDecodesToTransformedSize(DownsampleStrategy.FIT_CENTER, 90 /*degreesToRotate*/);
+    assertDecodesToTransformedSize(DownsampleStrategy.FIT_CENTER, 180 /*degreesToRotate*/);
+    assertDecodesToTransformedSize(DownsampleStrategy.FIT_CENTER, 270 /*degreesToRotate*/);
+  }
+
+  @Test
+  public void setExactDensities_withCenterInside_decodesToCenterInsideOutputSize() {
+    assertDecodesToTransformedSize(DownsampleStrategy.CENTER_INSIDE, 0 /*degreesToRotate*/);
+  }
+
+  @Test
+  public void setExactDensities_withCenterInsideAndRotation_decodesToCenterInsideOutputSize() {
+    assertDecodesToTransformedSize(DownsampleStrategy.CENTER_INSIDE, 90 /*degreesToRotate*/);
+    assertDecodesToTransformedSize(DownsampleStrategy.CENTER_INSIDE, 180 /*degreesToRotate*/);
+    assertDecodesToTransformedSize(DownsampleStrategy.CENTER_INSIDE, 270 /*degreesToRotate*/);
+  }
+
+  @Test
+  public void setExactDensities_withRotation_comparesUnrotatedImageToRotatedTarget() {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+
+    assertThat(Downsampler.setExactDensities(DownsampleStrategy.FIT_CENTER,
+        90 /*degreesToRotate*/, 400, 200, 100, 200, options)).isTrue();
+
+    // Rotated, the 200x400 image fits in 100x200 when it's scaled by half.
+    assertThat(getDensityScaledSize(400, options)).isEqualTo(200);
+    assertThat(getDensityScaledSize(200, options)).isEqualTo(100);
+  }
+
+  @Test
+  public void setExactDensities_withOutputDimensionThatRoundsToZero_leavesDensitiesUnset() {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+
+    assertThat(Downsampler.setExactDensities(DownsampleStrategy.FIT_CENTER,
+        0 /*degreesToRotate*/, 1000, 1, 100, 100, options)).isFalse();
+    assertThat(Downsampler.setExactDensities(DownsampleStrategy.FIT_CENTER,
+        90 /*degreesToRotate*/, 1, 1000, 100, 100, options)).isFalse();
+
+    assertThat(options.inDensity).isEqualTo(0);
+    assertThat(options.inTargetDensity).isEqualTo(0);
+  }
+
+  @Test
+  public void setExactDensities_withUnknownImageSize_leavesDensitiesUnset() {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+
+    assertThat(Downsampler.setExactDensities(DownsampleStrategy.FIT_CENTER,
+        0 /*degreesToRotate*/, 0, 100, 100, 100, options)).isFalse();
+    assertThat(Downsampler.setExactDensities(DownsampleStrategy.CENTER_INSIDE,
+        0 /*degreesToRotate*/, 100, -1, 100, 100, options)).isFalse();
+
+    assertThat(options.inDensity).isEqualTo(0);
+    assertThat(options.inTargetDensity).isEqualTo(0);
+  }
+
+  private void assertDecodesToTransformedSize(DownsampleStrategy strategy, int degreesToRotate) {
+    boolean isRotated = degreesToRotate == 90 || degreesToRotate == 270;
+    for (int[] sourceSize : SOURCE_SIZES) {
+      for (int[] targetSize : TARGET_SIZES) {
+        int targetWidth = targetSize[0];
+        int targetHeight = targetSize[1];
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        String message = strategy + ", rotated: " + degreesToRotate
+            + ", source: " + sourceSize[0] + "x" + sourceSize[1]
+            + ", target: " + targetWidth + "x" + targetHeight;
+
+        assertWithMessage(message)
+            .that(Downsampler.setExactDensities(strategy, degreesToRotate, sourceSize[0],
+                sourceSize[1], targetWidth, targetHeight, options))
+            .isTrue();
+
+        int decodedWidth = getDensityScaledSize(sourceSize[0], options);
+        int decodedHeight = getDensityScaledSize(sourceSize[1], options);
+        Bitmap decoded = Bitmap.createBitmap(isRotated ? decodedHeight : decodedWidth,
+            isRotated ? decodedWidth : decodedHeight, Bitmap.Config.ARGB_8888);
+        Bitmap transformed = strategy == DownsampleStrategy.CENTER_INSIDE
+            ? TransformationUtils.centerInside(bitmapPool, decoded, targetWidth, targetHeight)
+            : TransformationUtils.fitCenter(bitmapPool, decoded, targetWidth, targetHeight);
+        assertWithMessage(message + ", decoded: " + decoded.getWidth() + "x" + decoded.getHeight())
+            .that(transformed)
+            .isSameAs(decoded);
+      }
+    }
+  }
+
+  // Matches the rounding BitmapFactory uses when scaling by density.
+  private static int getDensityScaledSize(int size, BitmapFactory.Options options) {
+    return (int) (size * ((float) options.inTargetDensity / options.inDensity) + 0.5f);
+  }
+}
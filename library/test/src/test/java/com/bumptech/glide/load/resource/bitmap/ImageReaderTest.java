@@ -0,0 +1,120 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.BitmapFactory;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ImageReaderTest {
+  private static final byte[] DATA = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+  private ArrayPool arrayPool;
+  private BitmapFactory.Options options;
+
+  @Before
+  public void setUp() {
+    arrayPool = mock(ArrayPool.class);
+    options = new BitmapFactory.Options();
+  }
+
+  @Test
+  public void byteBufferReader_withHeapBuffer_decodesWithoutCopying() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA);
+    ImageReader reader = newByteBufferReader(buffer);
+
+    reader.decodeBitmap(options);
+    reader.release();
+
+    verify(arrayPool, never()).get(anyInt(), eq(byte[].class));
+    assertThat(buffer.position()).isEqualTo(0);
+  }
+
+  @Test
+  public void byteBufferReader_withDirectBuffer_copiesIntoPooledArrayOnce() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(DATA.length);
+    buffer.put(DATA);
+    buffer.rewind();
+    byte[] pooled = new byte[DATA.length];
+    when(arrayPool.get(DATA.length, byte[].class)).thenReturn(pooled);
+    ImageReader reader = newByteBufferReader(buffer);
+
+    options.inJustDecodeBounds = true;
+    reader.decodeBitmap(options);
+    options.inJustDecodeBounds = false;
+    reader.decodeBitmap(options);
+
+    verify(arrayPool, times(1)).get(DATA.length, byte[].class);
+    assertThat(pooled).isEqualTo(DATA);
+    assertThat(buffer.position()).isEqualTo(0);
+  }
+
+  @Test
+  public void byteBufferReader_withDirectBuffer_returnsArrayToPoolOnRelease() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(DATA.length);
+    buffer.put(DATA);
+    buffer.rewind();
+    byte[] pooled = new byte[DATA.length];
+    when(arrayPool.get(DATA.length, byte[].class)).thenReturn(pooled);
+    ImageReader reader = newByteBufferReader(buffer);
+
+    reader.decodeBitmap(options);
+    reader.release();
+
+    verify(arrayPool).put(pooled);
+  }
+
+  @Test
+  public void byteBufferReader_withReadOnlyHeapBuffer_copiesIntoPooledArray() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA).asReadOnlyBuffer();
+    byte[] pooled = new byte[DATA.length];
+    when(arrayPool.get(DATA.length, byte[].class)).thenReturn(pooled);
+
+    newByteBufferReader(buffer).decodeBitmap(options);
+
+    assertThat(pooled).isEqualTo(DATA);
+  }
+
+  @Test
+  public void byteBufferReader_releasedWithoutDecoding_doesNotPutArray() {
+    newByteBufferReader(ByteBuffer.wrap(DATA)).release();
+
+    verify(arrayPool, never()).put(any());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void inputStreamReader_withStreamWithoutMarkSupport_throws() {
+    InputStream is = new ByteArrayInputStream(DATA) {
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    };
+    new ImageReader.InputStreamImageReader(
+        is, null /*headerInfoMemo*/, Collections.<ImageHeaderParser>emptyList(), arrayPool);
+  }
+
+  private ImageReader newByteBufferReader(ByteBuffer buffer) {
+    return new ImageReader.ByteBufferImageReader(
+        buffer, Collections.<ImageHeaderParser>emptyList(), arrayPool);
+  }
+}
@@ -0,0 +1,140 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProgressiveJpegScannerTest {
+  private static final int WIDTH = 200;
+  private static final int HEIGHT = 100;
+  private static final int SOF0 = 0xC0;
+  private static final int SOF2 = 0xC2;
+  // Includes a stuffed 0xFF byte and a restart marker, neither of which end the scan.
+  private static final byte[] ENTROPY_CODED_DATA =
+      new byte[] { 0x01, 0x02, (byte) 0xFF, 0x00, 0x03, (byte) 0xFF, (byte) 0xD0, 0x04 };
+
+  private ProgressiveJpegScanner scanner;
+  private int firstScanEndOffset;
+  private int secondScanEndOffset;
+
+  @Before
+  public void setUp() {
+    scanner = new ProgressiveJpegScanner();
+  }
+
+  @Test
+  public void scan_withProgressiveJpeg_findsScansAndDimensions() {
+    byte[] data = createJpeg(SOF2);
+
+    scanner.scan(data, data.length);
+
+    assertThat(scanner.isProgressive()).isTrue();
+    assertThat(scanner.getWidth()).isEqualTo(WIDTH);
+    assertThat(scanner.getHeight()).isEqualTo(HEIGHT);
+    assertThat(scanner.getScanCount()).isEqualTo(2);
+    assertThat(scanner.getLastScanEndOffset()).isEqualTo(secondScanEndOffset);
+    assertThat(scanner.isEndOfImage()).isTrue();
+    assertThat(scanner.isDone()).isTrue();
+  }
+
+  @Test
+  public void scan_withPartialProgressiveJpeg_findsCompleteScans() {
+    byte[] data = createJpeg(SOF2);
+
+    scanner.scan(data, secondScanEndOffset);
+
+    assertThat(scanner.getScanCount()).isEqualTo(1);
+    assertThat(scanner.getLastScanEndOffset()).isEqualTo(firstScanEndOffset);
+    assertThat(scanner.isEndOfImage()).isFalse();
+    assertThat(scanner.isDone()).isFalse();
+  }
+
+  @Test
+  public void scan_withOneByteAtATime_findsScansOnceFollowingMarkerIsComplete() {
+    byte[] data = createJpeg(SOF2);
+
+    for (int length = 0; length <= data.length; length++) {
+      scanner.scan(data, length);
+      if (length < firstScanEndOffset + 2) {
+        assertThat(scanner.getScanCount()).isEqualTo(0);
+      } else if (length < secondScanEndOffset + 2) {
+        assertThat(scanner.getScanCount()).isEqualTo(1);
+      } else {
+        assertThat(scanner.getScanCount()).isEqualTo(2);
+      }
+    }
+    assertThat(scanner.getLastScanEndOffset()).isEqualTo(secondScanEndOffset);
+    assertThat(scanner.isEndOfImage()).isTrue();
+  }
+
+  @Test
+  public void scan_withBaselineJpeg_isDoneWithoutScans() {
+    byte[] data = createJpeg(SOF0);
+
+    scanner.scan(data, data.length);
+
+    assertThat(scanner.isProgressive()).isFalse();
+    assertThat(scanner.getScanCount()).isEqualTo(0);
+    assertThat(scanner.isEndOfImage()).isFalse();
+    assertThat(scanner.isDone()).isTrue();
+  }
+
+  @Test
+  public void scan_withNonJpeg_isDone() {
+    byte[] data = new byte[] { (byte) 0x89, 'P', 'N', 'G' };
+
+    scanner.scan(data, data.length);
+
+    assertThat(scanner.isProgressive()).isFalse();
+    assertThat(scanner.isDone()).isTrue();
+  }
+
+  @Test
+  public void scan_withOneByte_waitsForMoreData() {
+    byte[] data = createJpeg(SOF2);
+
+    scanner.scan(data, 1);
+
+    assertThat(scanner.isDone()).isFalse();
+  }
+
+  private byte[] createJpeg(int startOfFrameMarker) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeMarker(os, 0xD8);
+    // APP0 with an arbitrary payload.
+    writeSegment(os, 0xE0, new byte[14]);
+    writeSegment(os, startOfFrameMarker, new byte[] {
+        8, (byte) (HEIGHT >> 8), (byte) HEIGHT, (byte) (WIDTH >> 8), (byte) WIDTH, 1, 1, 0x11, 0 });
+
+    writeSegment(os, 0xC4, new byte[2]);
+    writeSegment(os, 0xDA, new byte[6]);
+    os.write(ENTROPY_CODED_DATA, 0, ENTROPY_CODED_DATA.length);
+    firstScanEndOffset = os.size();
+
+    writeSegment(os, 0xC4, new byte[2]);
+    writeSegment(os, 0xDA, new byte[6]);
+    os.write(ENTROPY_CODED_DATA, 0, ENTROPY_CODED_DATA.length);
+    secondScanEndOffset = os.size();
+
+    writeMarker(os, 0xD9);
+    return os.toByteArray();
+  }
+
+  private static void writeMarker(ByteArrayOutputStream os, int marker) {
+    os.write(0xFF);
+    os.write(marker);
+  }
+
+  private static void writeSegment(ByteArrayOutputStream os, int marker, byte[] payload) {
+    writeMarker(os, marker);
+    int length = payload.length + 2;
+    os.write(length >> 8);
+    os.write(length);
+    os.write(payload, 0, payload.length);
+  }
+}
@@ -0,0 +1,57 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.tests.KeyTester;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TileTest {
+  @Rule public final KeyTester keyTester = new KeyTester();
+
+  @Test
+  public void testEqualsHashCodeDigest() {
+    keyTester
+        .addEquivalenceGroup(new Tile(0, 0, 512, 512, 1), new Tile(0, 0, 512, 512, 1))
+        .addEquivalenceGroup(new Tile(1, 0, 512, 512, 1))
+        .addEquivalenceGroup(new Tile(0, 1, 512, 512, 1))
+        .addEquivalenceGroup(new Tile(0, 0, 511, 512, 1))
+        .addEquivalenceGroup(new Tile(0, 0, 512, 511, 1))
+        .addEquivalenceGroup(new Tile(0, 0, 512, 512, 2))
+        .addRegressionTest(
+            new Tile(0, 0, 512, 512, 1),
+            "d2776e12a24d4a445cd3513ffc0bbe8fcd174a5b6c5643ec778a0079348339e6")
+        .test();
+  }
+
+  @Test
+  public void getSampledSize_withDivisibleRegion_isExact() {
+    Tile tile = new Tile(512, 0, 1024, 512, 4);
+
+    assertThat(tile.getSampledWidth()).isEqualTo(128);
+    assertThat(tile.getSampledHeight()).isEqualTo(128);
+    assertThat(tile.isSampledSizeExact()).isTrue();
+  }
+
+  @Test
+  public void getSampledSize_withIndivisibleRegion_roundsUp() {
+    Tile tile = new Tile(0, 0, 101, 50, 2);
+
+    assertThat(tile.getSampledWidth()).isEqualTo(51);
+    assertThat(tile.getSampledHeight()).isEqualTo(25);
+    assertThat(tile.isSampledSizeExact()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withSampleSizeThatIsNotPowerOfTwo_throws() {
+    new Tile(0, 0, 512, 512, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withEmptyRegion_throws() {
+    new Tile(0, 0, 0, 512, 1);
+  }
+}
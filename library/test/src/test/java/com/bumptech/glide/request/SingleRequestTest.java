@@ -17,6 +17,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
@@ -32,6 +33,7 @@ import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.request.target.ProgressiveTarget;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
@@ -268,6 +270,7 @@ public class SingleRequestTest {
             anyBoolean(),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class));
   }
 
@@ -302,6 +305,7 @@ public class SingleRequestTest {
             anyBoolean(),
             anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class)))
         .thenReturn(loadStatus);
 
@@ -569,6 +573,7 @@ public class SingleRequestTest {
             anyBoolean(),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class)))
         .thenAnswer(new Answer<Object>() {
           @Override
@@ -703,6 +708,7 @@ public class SingleRequestTest {
             anyBoolean(),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class));
   }
 
@@ -741,6 +747,7 @@ public class SingleRequestTest {
             anyBoolean(),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class)))
         .thenAnswer(new CallResourceCallback(builder.resource));
     SingleRequest<List> request = builder.build();
@@ -785,6 +792,7 @@ public class SingleRequestTest {
             anyBoolean(),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class));
   }
 
@@ -818,6 +826,7 @@ public class SingleRequestTest {
             eq(true),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class));
   }
 
@@ -850,9 +859,88 @@ public class SingleRequestTest {
             eq(false),
             /*useAnimationPool=*/ anyBoolean(),
             anyBoolean(),
+            /*fairnessGroup=*/ any(),
             any(ResourceCallback.class));
   }
 
+  @Test
+  public void onPreviewReady_withProgressiveTargetAndRunningRequest_passesPreviewToTarget() {
+    ProgressiveListTarget target = mock(ProgressiveListTarget.class);
+    SingleRequest<List> request = builder.setTarget(target).build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    request.onPreviewReady(preview);
+
+    assertTrue(request.isPreviewRequested());
+    verify(target).onPreviewReady(eq(preview));
+  }
+
+  @Test
+  public void onPreviewReady_withNonProgressiveTarget_doesNotRequestOrPassPreview() {
+    SingleRequest<List> request = builder.build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    Bitmap preview = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    request.onPreviewReady(preview);
+
+    assertFalse(request.isPreviewRequested());
+    verify(builder.target, never()).onResourceReady(any(List.class), anyTransition());
+    assertFalse(preview.isRecycled());
+  }
+
+  @Test
+  public void onPreviewReady_whileWaitingForSize_doesNotPassPreviewToTarget() {
+    ProgressiveListTarget target = mock(ProgressiveListTarget.class);
+    SingleRequest<List> request = builder.setTarget(target).build();
+    request.begin();
+
+    request.onPreviewReady(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    verify(target, never()).onPreviewReady(any(Bitmap.class));
+  }
+
+  @Test
+  public void onPreviewReady_afterComplete_doesNotPassPreviewToTarget() {
+    ProgressiveListTarget target = mock(ProgressiveListTarget.class);
+    SingleRequest<List> request = builder.setTarget(target).build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    request.onResourceReady(builder.resource, DataSource.REMOTE);
+
+    request.onPreviewReady(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    verify(target, never()).onPreviewReady(any(Bitmap.class));
+  }
+
+  @Test
+  public void onPreviewReady_afterClear_doesNotPassPreviewToTarget() {
+    ProgressiveListTarget target = mock(ProgressiveListTarget.class);
+    SingleRequest<List> request = builder.setTarget(target).build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    request.clear();
+
+    request.onPreviewReady(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    verify(target, never()).onPreviewReady(any(Bitmap.class));
+  }
+
+  @Test
+  public void onPreviewReady_withCoordinatorThatCannotSetImage_doesNotPassPreviewToTarget() {
+    ProgressiveListTarget target = mock(ProgressiveListTarget.class);
+    SingleRequest<List> request = builder.setTarget(target).build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    when(builder.requestCoordinator.canSetImage(any(Request.class))).thenReturn(false);
+
+    request.onPreviewReady(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    verify(target, never()).onPreviewReady(any(Bitmap.class));
+  }
+
   @Test
   // Varargs
   @SuppressWarnings("unchecked")
@@ -1025,7 +1113,8 @@ public class SingleRequestTest {
           requestListener,
           requestCoordinator,
           engine,
-          transitionFactory);
+          transitionFactory,
+          /*fairnessGroup=*/ null);
     }
   }
 
@@ -1147,4 +1236,6 @@ public class SingleRequestTest {
 
     }
   }
+
+  interface ProgressiveListTarget extends Target<List>, ProgressiveTarget { }
 }
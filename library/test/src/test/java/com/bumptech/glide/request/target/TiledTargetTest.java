@@ -0,0 +1,155 @@
+package com.bumptech.glide.request.target;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.resource.bitmap.Tile;
+import com.bumptech.glide.load.resource.bitmap.TileDecoder;
+import com.bumptech.glide.request.RequestOptions;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TiledTargetTest {
+  private static final int IMAGE_SIZE = 4096;
+  private static final int TILE_SIZE = 512;
+
+  @Mock private RequestManager requestManager;
+  @Mock private RequestBuilder<Bitmap> requestBuilder;
+  @Mock private TiledTarget.Callback callback;
+  private TiledTarget tiledTarget;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(requestBuilder.clone()).thenReturn(requestBuilder);
+    when(requestBuilder.apply(any(RequestOptions.class))).thenReturn(requestBuilder);
+    tiledTarget = new TiledTarget(
+        requestManager, requestBuilder, IMAGE_SIZE, IMAGE_SIZE, TILE_SIZE, callback);
+  }
+
+  @Test
+  public void getSampleSize_withScaleAtLeastOne_returnsOne() {
+    assertThat(TiledTarget.getSampleSize(1f)).isEqualTo(1);
+    assertThat(TiledTarget.getSampleSize(3f)).isEqualTo(1);
+  }
+
+  @Test
+  public void getSampleSize_withScaleBelowOne_returnsLargestSufficientPowerOfTwo() {
+    assertThat(TiledTarget.getSampleSize(0.5f)).isEqualTo(2);
+    assertThat(TiledTarget.getSampleSize(0.3f)).isEqualTo(2);
+    assertThat(TiledTarget.getSampleSize(0.2f)).isEqualTo(4);
+    assertThat(TiledTarget.getSampleSize(0.9f)).isEqualTo(1);
+  }
+
+  @Test
+  public void getTiles_clipsTilesToImage() {
+    List<Tile> tiles = TiledTarget.getTiles(1200, 1000, TILE_SIZE, 1, new Rect(0, 0, 1200, 1000));
+
+    assertThat(tiles).hasSize(6);
+    assertThat(tiles).contains(new Tile(1024, 512, 1200, 1000, 1));
+  }
+
+  @Test
+  public void getTiles_sortsTilesByDistanceFromCenterOfRegion() {
+    List<Tile> tiles = TiledTarget.getTiles(1200, 1000, TILE_SIZE, 1, new Rect(0, 0, 1200, 1000));
+
+    assertThat(tiles.get(0)).isEqualTo(new Tile(512, 0, 1024, 512, 1));
+    assertThat(tiles.get(1)).isEqualTo(new Tile(512, 512, 1024, 1000, 1));
+  }
+
+  @Test
+  public void getTiles_withSampleSize_scalesRegionOfEachTile() {
+    List<Tile> tiles = TiledTarget.getTiles(1200, 1000, TILE_SIZE, 2, new Rect(0, 0, 1200, 1000));
+
+    assertThat(tiles).containsExactly(
+        new Tile(0, 0, 1024, 1000, 2), new Tile(1024, 0, 1200, 1000, 2));
+  }
+
+  @Test
+  public void getTiles_withRegionOutsideImage_returnsEmptyList() {
+    assertThat(TiledTarget.getTiles(1200, 1000, TILE_SIZE, 1, new Rect(1200, 0, 2000, 1000)))
+        .isEmpty();
+  }
+
+  @Test
+  public void setViewport_loadsVisibleAndPrefetchedTiles() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+
+    verify(requestBuilder, times(4)).into(any(Target.class));
+  }
+
+  @Test
+  public void setViewport_withUnchangedViewport_doesNotReloadTiles() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+
+    verify(requestBuilder, times(4)).into(any(Target.class));
+    verify(requestManager, never()).clear(any(Target.class));
+  }
+
+  @Test
+  public void setViewport_withMovedViewport_clearsTilesThatAreNoLongerNeeded() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+    tiledTarget.setViewport(
+        new Rect(IMAGE_SIZE - TILE_SIZE, IMAGE_SIZE - TILE_SIZE, IMAGE_SIZE, IMAGE_SIZE), 1f);
+
+    verify(requestManager, times(4)).clear(any(Target.class));
+    verify(requestBuilder, times(8)).into(any(Target.class));
+  }
+
+  @Test
+  public void setViewport_withPrefetchedTileThatBecomesVisible_reloadsTileAtHighPriority() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+    tiledTarget.setViewport(new Rect(TILE_SIZE, 0, 2 * TILE_SIZE, TILE_SIZE), 1f);
+
+    // The prefetched tile is cleared and requested again, two new tiles are prefetched.
+    verify(requestManager).clear(any(Target.class));
+    verify(requestBuilder, times(7)).into(any(Target.class));
+    verify(requestBuilder).apply(new RequestOptions()
+        .set(TileDecoder.TILE, new Tile(TILE_SIZE, 0, 2 * TILE_SIZE, TILE_SIZE, 1))
+        .priority(Priority.HIGH));
+  }
+
+  @Test
+  public void setViewport_withLoadedPrefetchedTileThatBecomesVisible_doesNotReloadTile() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+    ArgumentCaptor<Target> captor = ArgumentCaptor.forClass(Target.class);
+    verify(requestBuilder, times(4)).into(captor.capture());
+    Bitmap bitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+    for (Target<?> target : captor.getAllValues()) {
+      @SuppressWarnings("unchecked") Target<Bitmap> bitmapTarget = (Target<Bitmap>) target;
+      bitmapTarget.onResourceReady(bitmap, /*transition=*/ null);
+    }
+
+    tiledTarget.setViewport(new Rect(TILE_SIZE, 0, 2 * TILE_SIZE, TILE_SIZE), 1f);
+
+    verify(requestManager, never()).clear(any(Target.class));
+    verify(requestBuilder, times(6)).into(any(Target.class));
+  }
+
+  @Test
+  public void clear_clearsAllTiles() {
+    tiledTarget.setViewport(new Rect(0, 0, TILE_SIZE, TILE_SIZE), 1f);
+    tiledTarget.clear();
+
+    verify(requestManager, times(4)).clear(any(Target.class));
+  }
+}